@@ -930,60 +930,37 @@ public class ChannelDataManager {
             }
         }
         if (!TextUtils.isEmpty(single)) {
+            // channels first, the group stays listed if they could not be changed
+            if (!removeFavInAllChannel(favName)) {
+                Log.d(TAG, "removeFavGroup fail to update channels = " + favName);
+                return;
+            }
             allFavList.remove(single);
             saveStringToXml(KEY_SETTINGS_FAVLIST, convertJsonObjectListToJsonStr(allFavList));
-            removeFavInAllChannel(favName);
         } else {
             Log.d(TAG, "removeFavGroup fail = " + favName);
         }
     }
 
-    private void removeFavInAllChannel(String favName) {
-        List<ChannelInfo> allList = mTvDataBaseManager.getChannelList(mInputId, ChannelInfo.COMMON_PROJECTION, null, null);
-        Map<Long, String> needUpdateList = new HashMap<Long, String>();
-        if (allList != null && allList.size() > 0) {
-            Iterator<ChannelInfo> iterator = allList.iterator();
-            ChannelInfo singleChannel = null;
-            String singleFavInfoStr = null;
-            JSONArray singleFavInfoArray = null;
-            String singleFavName = null;
-            while (iterator.hasNext()) {
-                singleChannel = (ChannelInfo)iterator.next();
-                singleFavInfoStr = TextUtils.isEmpty(singleChannel.getFavouriteInfo()) ? new JSONArray().toString() : singleChannel.getFavouriteInfo();
-                try {
-                    singleFavInfoArray = new JSONArray(singleFavInfoStr);
-                    if (singleFavInfoArray != null && singleFavInfoArray.length() > 0) {
-                        for (int i = 0; i < singleFavInfoArray.length(); i++) {
-                            try {
-                                singleFavName = (String)singleFavInfoArray.get(i);
-                                if (TextUtils.equals(singleFavName, favName)) {
-                                    singleFavInfoArray.remove(i);
-                                    needUpdateList.put(singleChannel.getId(), singleFavInfoArray.toString());
-                                    Log.d(TAG, "removeFavInAllChannel " + favName + " in " + singleChannel.getDisplayName());
-                                    break;
-                                }
-                            } catch (JSONException e) {
-                                Log.d(TAG, "removeFavInAllChannel JSONException = " + e);
-                                e.printStackTrace();
-                            }
+    private boolean removeFavInAllChannel(final String favName) {
+        int count = mTvDataBaseManager.updateChannelsInternalProviderData(mInputId, null, ChannelInfo.KEY_FAVOURITE_INFO,
+                new TvDataBaseManager.InternalProviderDataTransform() {
+                    @Override
+                    public String transform(long id, String favInfo) {
+                        JSONArray singleFavInfoArray = parseFavInfo(favInfo);
+                        int index = indexOfFav(singleFavInfoArray, favName);
+                        if (index < 0) {
+                            return null;
+                        }
+                        singleFavInfoArray.remove(index);
+                        if (DEBUG) {
+                            Log.d(TAG, "removeFavInAllChannel id = " + id + ", favInfo = " + singleFavInfoArray.toString());
                         }
+                        return singleFavInfoArray.toString();
                     }
-                } catch (JSONException e) {
-                    Log.d(TAG, "removeFavInAllChannel JSONException = " + e);
-                    e.printStackTrace();
-                }
-            }
-        }
-        if (needUpdateList != null && needUpdateList.size() > 0) {
-            Iterator<Map.Entry<Long, String>> iterator = needUpdateList.entrySet().iterator();
-            while (iterator.hasNext()) {
-                Map.Entry<Long, String> entry = iterator.next();
-                mTvDataBaseManager.updateSingleChannelInternalProviderData(entry.getKey(), ChannelInfo.KEY_FAVOURITE_INFO, entry.getValue());
-                if (DEBUG) {
-                    Log.d(TAG, "removeFavInAllChannel id = " + entry.getKey() + ", favInfo = " + entry.getValue());
-                }
-            }
-        }
+                });
+        Log.d(TAG, "removeFavInAllChannel " + favName + " in " + count + " channels");
+        return count >= 0;
     }
 
     public void addFavGroup(String favName) {
@@ -1040,59 +1017,63 @@ public class ChannelDataManager {
             }
         }
         if (!TextUtils.isEmpty(single) && singleObj != null) {
+            if (!renameFavInAllChannel(oldName, newName)) {
+                Log.d(TAG, "renameFavGroup fail to update channels oldName = " + oldName + ", newName = " + newName);
+                return;
+            }
             allFavList.remove(single);
             allFavList.add(singleObj.toString());
             saveStringToXml(KEY_SETTINGS_FAVLIST, convertJsonObjectListToJsonStr(allFavList));
-            renameFavInAllChannel(oldName, newName);
             Log.d(TAG, "renameFavGroup success oldName = " + oldName + ", newName = " + newName);
         } else {
             Log.d(TAG, "renameFavGroup fail oldName = " + oldName + ", newName = " + newName);
         }
     }
 
-    private void renameFavInAllChannel(String oldName, String newName) {
-        List<ChannelInfo> allList = mTvDataBaseManager.getChannelList(mInputId, ChannelInfo.COMMON_PROJECTION, null, null);
-        Map<Long, String> needUpdateList = new HashMap<Long, String>();
-        if (allList != null && allList.size() > 0) {
-            Iterator<ChannelInfo> iterator = allList.iterator();
-            ChannelInfo singleChannel = null;
-            String singleFavInfoStr = null;
-            JSONArray singleFavInfoArray = null;
-            String singleFavName = null;
-            while (iterator.hasNext()) {
-                singleChannel = (ChannelInfo)iterator.next();
-                singleFavInfoStr = TextUtils.isEmpty(singleChannel.getFavouriteInfo()) ? new JSONArray().toString() : singleChannel.getFavouriteInfo();
-                try {
-                    singleFavInfoArray = new JSONArray(singleFavInfoStr);
-                    if (singleFavInfoArray != null && singleFavInfoArray.length() > 0) {
-                        for (int i = 0; i < singleFavInfoArray.length(); i++) {
-                            singleFavName = (String)singleFavInfoArray.get(i);
-                            if (TextUtils.equals(singleFavName, oldName)) {
-                                singleFavName = newName;
-                                singleFavInfoArray.remove(i);
-                                singleFavInfoArray.put(singleFavName);
-                                needUpdateList.put(singleChannel.getId(), singleFavInfoArray.toString());
-                                Log.d(TAG, "renameFavInAllChannel favpage " + oldName + " in " + singleChannel.getDisplayName() + " to " + newName);
-                                break;
-                            }
+    private boolean renameFavInAllChannel(final String oldName, final String newName) {
+        int count = mTvDataBaseManager.updateChannelsInternalProviderData(mInputId, null, ChannelInfo.KEY_FAVOURITE_INFO,
+                new TvDataBaseManager.InternalProviderDataTransform() {
+                    @Override
+                    public String transform(long id, String favInfo) {
+                        JSONArray singleFavInfoArray = parseFavInfo(favInfo);
+                        int index = indexOfFav(singleFavInfoArray, oldName);
+                        if (index < 0) {
+                            return null;
+                        }
+                        singleFavInfoArray.remove(index);
+                        singleFavInfoArray.put(newName);
+                        if (DEBUG) {
+                            Log.d(TAG, "renameFavInAllChannel id = " + id + ", favInfo = " + singleFavInfoArray.toString());
                         }
+                        return singleFavInfoArray.toString();
                     }
-                } catch (JSONException e) {
-                    Log.d(TAG, "renameFavInAllChannel JSONException = " + e);
-                    e.printStackTrace();
-                }
-            }
+                });
+        Log.d(TAG, "renameFavInAllChannel favpage " + oldName + " to " + newName + " in " + count + " channels");
+        return count >= 0;
+    }
+
+    private JSONArray parseFavInfo(String favInfo) {
+        if (TextUtils.isEmpty(favInfo)) {
+            return null;
         }
-        if (needUpdateList != null && needUpdateList.size() > 0) {
-            Iterator<Map.Entry<Long, String>> iterator = needUpdateList.entrySet().iterator();
-            while (iterator.hasNext()) {
-                Map.Entry<Long, String> entry = iterator.next();
-                mTvDataBaseManager.updateSingleChannelInternalProviderData(entry.getKey(), ChannelInfo.KEY_FAVOURITE_INFO, entry.getValue());
-                if (DEBUG) {
-                    Log.d(TAG, "renameFavInAllChannel id = " + entry.getKey() + ", favInfo = " + entry.getValue());
-                }
+        try {
+            return new JSONArray(favInfo);
+        } catch (JSONException e) {
+            Log.d(TAG, "parseFavInfo JSONException = " + e);
+            return null;
+        }
+    }
+
+    private int indexOfFav(JSONArray favInfoArray, String favName) {
+        if (favInfoArray == null) {
+            return -1;
+        }
+        for (int i = 0; i < favInfoArray.length(); i++) {
+            if (TextUtils.equals(favInfoArray.optString(i, null), favName)) {
+                return i;
             }
         }
+        return -1;
     }
 
     public boolean isFavGroupExist(String favName) {
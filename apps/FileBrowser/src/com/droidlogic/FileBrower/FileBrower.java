@@ -96,6 +96,7 @@ import com.droidlogic.FileBrower.FileBrowerDatabase.ThumbnailCursor;
 import com.droidlogic.FileBrower.FileOp.FileOpReturn;
 import com.droidlogic.FileBrower.FileOp.FileOpTodo;
 import com.droidlogic.app.FileListManager;
+import com.droidlogic.app.MediaIndexManager;
 
 import android.bluetooth.BluetoothAdapter;
 import java.lang.System;
@@ -186,6 +187,7 @@ public class FileBrower extends Activity {
             }
 
             if (action.equals(Intent.ACTION_MEDIA_EJECT)) {
+                MediaIndexManager.getInstance(context).onVolumeUnmounted(path);
                 if (cur_path.startsWith(path)) {
                     cur_path = FileListManager.STORAGE;
                     DeviceScan();
@@ -202,6 +204,7 @@ public class FileBrower extends Activity {
             }
             else if ((action.equals ("com.droidvold.action.MEDIA_UNMOUNTED")
                 || action.equals ("com.droidvold.action.MEDIA_EJECT")) && !path.equals("/dev/null")) {
+                MediaIndexManager.getInstance(context).onVolumeUnmounted(path);
                 if (cur_path.startsWith(path)) {
                     cur_path = FileListManager.STORAGE;
                     DeviceScan();
@@ -211,10 +214,12 @@ public class FileBrower extends Activity {
                 }
             }
             else if (action.equals(Intent.ACTION_MEDIA_MOUNTED) || action.equals ("com.droidvold.action.MEDIA_MOUNTED")) {
+                MediaIndexManager.getInstance(context).onVolumeMounted(path);
                 if (cur_path.equals(FileListManager.STORAGE)) {
                     DeviceScan();
                 }
             } else if (action.equals(Intent.ACTION_MEDIA_UNMOUNTED)) {
+                MediaIndexManager.getInstance(context).onVolumeUnmounted(path);
                 if (cur_path.startsWith(path)) {
                     cur_path = FileListManager.STORAGE;
                     DeviceScan();
@@ -485,6 +490,7 @@ public class FileBrower extends Activity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.main);
         mFileListManager = new FileListManager(this);
+        MediaIndexManager.getInstance(this).syncVolumes(this);
         try {
             Bundle bundle = this.getIntent().getExtras();
             if (!bundle.getString("sort_flag").equals("")) {
@@ -501,6 +507,7 @@ public class FileBrower extends Activity {
 
         /* setup database */
         db = new FileBrowerDatabase(this);
+        FileOp.setContext(this);
         SharedPreferences settings = getSharedPreferences("settings", Activity.MODE_PRIVATE);
 
         /* btn_mode default checked */
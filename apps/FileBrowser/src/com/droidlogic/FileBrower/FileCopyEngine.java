@@ -0,0 +1,515 @@
+/******************************************************************
+*
+*Copyright (C) 2012  Amlogic, Inc.
+*
+*Licensed under the Apache License, Version 2.0 (the "License");
+*you may not use this file except in compliance with the License.
+*You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*Unless required by applicable law or agreed to in writing, software
+*distributed under the License is distributed on an "AS IS" BASIS,
+*WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+*See the License for the specific language governing permissions and
+*limitations under the License.
+******************************************************************/
+package com.droidlogic.FileBrower;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.os.Handler;
+import android.os.Message;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.droidlogic.app.FileListManager;
+
+/**
+ * Copies files for FileOp.pasteSelectedFile.
+ *
+ * Data moves with FileChannel.transferTo in large chunks, falling back to a direct buffer per
+ * thread where the file system does not take transfers. Small files are queued per source volume
+ * and copied by a few workers, so files of different volumes are read at the same time while one
+ * volume never sees more than two readers. Large files are copied on the calling thread, with a
+ * journal of the bytes already synced so a copy cut by an unplug or a crash goes on from there
+ * the next time the same file is pasted to the same place.
+ *
+ * Progress goes to the page handler as message 1 with the percent of the current item, at most
+ * PROGRESS_RATE_HZ times a second. Every job counts its bytes to the item it was submitted
+ * under, a small file still copying after the next item began does not move the bar.
+ */
+public class FileCopyEngine {
+    private static final String TAG = "FileCopyEngine";
+
+    public static final long SMALL_FILE_SIZE = 4 * 1024 * 1024;
+    public static final long JOURNAL_MIN_SIZE = 64 * 1024 * 1024;
+    private static final long TRANSFER_CHUNK = 8 * 1024 * 1024;
+    // bytes copied between two journal checkpoints, each one syncs the target first
+    private static final long JOURNAL_STEP = 64 * 1024 * 1024;
+    private static final int DIRECT_BUFFER_SIZE = 1024 * 1024;
+    private static final int WORKERS = 4;
+    private static final int WORKERS_PER_VOLUME = 2;
+    private static final int PROGRESS_RATE_HZ = 5;
+
+    private static final int JOURNAL_MAGIC = 0x46424a31;    // FBJ1
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    private static final ThreadLocal<ByteBuffer> sDirectBuffer = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+        }
+    };
+
+    private final Handler mHandler;
+    private final File mJournalDir;
+    private ExecutorService mExecutor;
+
+    // small file jobs by source volume, and the workers draining each of them
+    private final HashMap<String, ConcurrentLinkedQueue<Job>> mLanes = new HashMap<String, ConcurrentLinkedQueue<Job>>();
+    private final HashMap<String, AtomicInteger> mLaneWorkers = new HashMap<String, AtomicInteger>();
+    private int mRunning = 0;
+    private int mFailed = 0;
+
+    private volatile Item mItem = new Item(0);
+    private final AtomicLong mBytes = new AtomicLong();
+    private final long mStartTime = SystemClock.uptimeMillis();
+
+    private static final class Item {
+        final long total;
+        final AtomicLong done = new AtomicLong();
+        final AtomicLong lastProgress = new AtomicLong();
+
+        Item(long total) {
+            this.total = total;
+        }
+    }
+
+    private static final class Job {
+        final File source;
+        final File target;
+        final boolean deleteSource;
+        final boolean preserveDate;
+        final Item item;
+
+        Job(File source, File target, boolean deleteSource, boolean preserveDate, Item item) {
+            this.source = source;
+            this.target = target;
+            this.deleteSource = deleteSource;
+            this.preserveDate = preserveDate;
+            this.item = item;
+        }
+    }
+
+    private static final class Journal {
+        String source;
+        String target;
+        long length;
+        long lastModified;
+        long committed;
+    }
+
+    /**
+     * @param handler page handler taking the progress messages, may be null
+     * @param journalDir where the journals of large copies live, null to copy without them
+     */
+    public FileCopyEngine(Handler handler, File journalDir) {
+        mHandler = handler;
+        mJournalDir = journalDir;
+    }
+
+    /**
+     * start a new progress item of the given size, reported from 0
+     */
+    public void beginItem(long total) {
+        mItem = new Item(total);
+    }
+
+    /**
+     * copy a file on the calling thread, going on from its journal if the target has one
+     */
+    public void copyFile(File source, File target) throws IOException {
+        copyFile(source, target, mItem);
+    }
+
+    private void copyFile(File source, File target, Item item) throws IOException {
+        Journal journal = null;
+        long length = source.length();
+        if (mJournalDir != null && length >= JOURNAL_MIN_SIZE) {
+            journal = readJournal(journalFile(target));
+            if (journal != null && !matches(journal, source, target))
+                journal = null;
+            if (journal == null) {
+                journal = new Journal();
+                journal.source = source.getPath();
+                journal.target = target.getPath();
+                journal.length = length;
+                journal.lastModified = source.lastModified();
+            } else {
+                Log.i(TAG, "resume " + target + " at " + journal.committed);
+            }
+        }
+        copy(source, target, journal, item);
+    }
+
+    /**
+     * copy a file now if it is large, or queue it on the lane of its volume; a queued job
+     * removes its partial target if the paste is cancelled
+     */
+    public void submitFile(File source, File target, boolean deleteSource) throws IOException {
+        submit(new Job(source, target, deleteSource, false, mItem));
+    }
+
+    private void submit(Job job) throws IOException {
+        if (job.source.length() >= SMALL_FILE_SIZE) {
+            copyFile(job.source, job.target, job.item);
+            finish(job);
+            return;
+        }
+        String volume = volumeOf(job.source.getPath());
+        synchronized (this) {
+            if (mExecutor == null) {
+                mExecutor = Executors.newFixedThreadPool(WORKERS, new ThreadFactory() {
+                    private int mCount = 0;
+
+                    public synchronized Thread newThread(Runnable r) {
+                        return new Thread(r, "FileCopyWorker-" + mCount++);
+                    }
+                });
+            }
+            ConcurrentLinkedQueue<Job> lane = mLanes.get(volume);
+            if (lane == null) {
+                lane = new ConcurrentLinkedQueue<Job>();
+                mLanes.put(volume, lane);
+                mLaneWorkers.put(volume, new AtomicInteger());
+            }
+            lane.add(job);
+            mRunning++;
+            AtomicInteger workers = mLaneWorkers.get(volume);
+            if (workers.get() < WORKERS_PER_VOLUME) {
+                workers.incrementAndGet();
+                mExecutor.execute(new LaneWorker(lane, workers));
+            }
+        }
+    }
+
+    /**
+     * copy srcDir into destDir/srcDir.getName(), merging with what is there
+     */
+    public void copyDirectoryToDirectory(File srcDir, File destDir) throws IOException {
+        File target = new File(destDir, srcDir.getName());
+        List<File[]> files = new ArrayList<File[]>();
+        long total = collect(srcDir, target, files);
+        beginItem(total);
+        for (File[] pair : files) {
+            if (FileOp.copy_cancel)
+                break;
+            submit(new Job(pair[0], pair[1], false, true, mItem));
+        }
+        await();
+    }
+
+    /**
+     * wait for the queued jobs
+     * @return number of jobs that failed since the engine was created
+     */
+    public synchronized int await() {
+        while (mRunning > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return mFailed;
+    }
+
+    public void shutdown() {
+        synchronized (this) {
+            if (mExecutor != null)
+                mExecutor.shutdown();
+        }
+        long elapsed = Math.max(1, SystemClock.uptimeMillis() - mStartTime);
+        Log.i(TAG, "copied " + mBytes.get() + " bytes in " + elapsed + "ms, "
+            + (mBytes.get() * 1000 / elapsed / 1024) + "KB/s, failed " + mFailed);
+    }
+
+    /**
+     * a target in destDir whose interrupted copy of source can be resumed, null if none
+     */
+    public File findResumable(File source, File destDir) {
+        if (mJournalDir == null || source.length() < JOURNAL_MIN_SIZE)
+            return null;
+        File[] journals = mJournalDir.listFiles();
+        if (journals == null)
+            return null;
+        for (File file : journals) {
+            Journal journal = readJournal(file);
+            if (journal == null) {
+                continue;
+            }
+            File target = new File(journal.target);
+            if (destDir.equals(target.getParentFile()) && matches(journal, source, target))
+                return target;
+            if (!target.exists())
+                file.delete();
+        }
+        return null;
+    }
+
+    private final class LaneWorker implements Runnable {
+        private final ConcurrentLinkedQueue<Job> mLane;
+        private final AtomicInteger mWorkers;
+
+        LaneWorker(ConcurrentLinkedQueue<Job> lane, AtomicInteger workers) {
+            mLane = lane;
+            mWorkers = workers;
+        }
+
+        public void run() {
+            while (true) {
+                Job job;
+                synchronized (FileCopyEngine.this) {
+                    job = mLane.poll();
+                    if (job == null) {
+                        mWorkers.decrementAndGet();
+                        return;
+                    }
+                }
+                boolean ok = false;
+                try {
+                    if (!FileOp.copy_cancel) {
+                        copy(job.source, job.target, null, job.item);
+                        ok = !FileOp.copy_cancel;
+                    }
+                } catch (IOException e) {
+                    Log.e(TAG, "copy " + job.source + " failed: " + e);
+                }
+                if (ok) {
+                    finish(job);
+                } else if (job.target.exists() && job.target.length() != job.source.length()) {
+                    job.target.delete();
+                }
+                synchronized (FileCopyEngine.this) {
+                    if (!ok && !FileOp.copy_cancel)
+                        mFailed++;
+                    mRunning--;
+                    FileCopyEngine.this.notifyAll();
+                }
+            }
+        }
+    }
+
+    private static void finish(Job job) {
+        if (FileOp.copy_cancel)
+            return;
+        if (job.preserveDate)
+            job.target.setLastModified(job.source.lastModified());
+        if (job.deleteSource)
+            job.source.delete();
+    }
+
+    private void copy(File source, File target, Journal journal, Item item) throws IOException {
+        RandomAccessFile in = null;
+        RandomAccessFile out = null;
+        File journalFile = journal != null ? journalFile(target) : null;
+        try {
+            in = new RandomAccessFile(source, "r");
+            out = new RandomAccessFile(target, "rw");
+            FileChannel inChannel = in.getChannel();
+            FileChannel outChannel = out.getChannel();
+            long size = inChannel.size();
+            long position = journal != null ? journal.committed : 0;
+            outChannel.truncate(position);
+            if (position > 0)
+                progress(item, position, false);
+            long checkpoint = position + JOURNAL_STEP;
+
+            while (position < size && !FileOp.copy_cancel) {
+                long count = Math.min(TRANSFER_CHUNK, size - position);
+                outChannel.position(position);
+                long done = inChannel.transferTo(position, count, outChannel);
+                // some fuse mounts take no transfer at all
+                if (done <= 0)
+                    done = bufferCopy(inChannel, outChannel, position, count);
+                if (done <= 0)
+                    throw new IOException("no progress at " + position + " of " + source);
+                position += done;
+                progress(item, done, true);
+                if (journal != null && position >= checkpoint && position < size) {
+                    outChannel.force(false);
+                    journal.committed = position;
+                    writeJournal(journalFile, journal);
+                    checkpoint = position + JOURNAL_STEP;
+                }
+            }
+            if (FileOp.copy_cancel) {
+                // the page removes the partial target, unless its volume went away and comes
+                // back later, the journal of a removed target is dropped by findResumable
+                return;
+            }
+            outChannel.force(false);
+            if (out.length() != size)
+                throw new IOException("copied " + out.length() + " of " + size + " bytes of " + source);
+            if (journalFile != null)
+                journalFile.delete();
+        } finally {
+            close(in);
+            close(out);
+        }
+    }
+
+    private static long bufferCopy(FileChannel in, FileChannel out, long position, long count) throws IOException {
+        ByteBuffer buffer = sDirectBuffer.get();
+        long done = 0;
+        while (done < count) {
+            buffer.clear();
+            if (count - done < buffer.capacity())
+                buffer.limit((int) (count - done));
+            int read = in.read(buffer, position + done);
+            if (read <= 0)
+                break;
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer, position + done + buffer.position());
+            }
+            done += read;
+        }
+        return done;
+    }
+
+    private void progress(Item item, long bytes, boolean copied) {
+        if (copied)
+            mBytes.addAndGet(bytes);
+        long done = item.done.addAndGet(bytes);
+        if (mHandler == null || item.total <= 0 || item != mItem)
+            return;
+        long now = SystemClock.uptimeMillis();
+        long last = item.lastProgress.get();
+        if ((now - last < 1000 / PROGRESS_RATE_HZ && done < item.total) || !item.lastProgress.compareAndSet(last, now))
+            return;
+        mHandler.sendMessage(Message.obtain(mHandler, 1, (int) (Math.min(done, item.total) * 100 / item.total), 0));
+    }
+
+    private static long collect(File srcDir, File destDir, List<File[]> files) throws IOException {
+        if (!destDir.exists() && !destDir.mkdirs())
+            throw new IOException("Destination '" + destDir + "' directory cannot be created");
+        destDir.setLastModified(srcDir.lastModified());
+        File[] children = srcDir.listFiles();
+        if (children == null)
+            throw new IOException("Failed to list contents of " + srcDir);
+        long total = 0;
+        for (File child : children) {
+            File target = new File(destDir, child.getName());
+            if (child.isDirectory()) {
+                total += collect(child, target, files);
+            } else {
+                files.add(new File[] {child, target});
+                total += child.length();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * mount point of a path, /storage/emulated/0 or /storage/<uuid>
+     */
+    static String volumeOf(String path) {
+        String root = path.startsWith(FileListManager.NAND) ? FileListManager.NAND : null;
+        if (root == null && path.startsWith(FileListManager.STORAGE + "/")) {
+            int end = path.indexOf('/', FileListManager.STORAGE.length() + 1);
+            root = end < 0 ? path : path.substring(0, end);
+        }
+        return root != null ? root : "";
+    }
+
+    private File journalFile(File target) {
+        return new File(mJournalDir, Integer.toHexString(target.getPath().hashCode()) + JOURNAL_SUFFIX);
+    }
+
+    private static boolean matches(Journal journal, File source, File target) {
+        return journal.source.equals(source.getPath()) && journal.target.equals(target.getPath())
+            && journal.length == source.length() && journal.lastModified == source.lastModified()
+            && target.length() >= journal.committed;
+    }
+
+    private static Journal readJournal(File file) {
+        if (!file.exists())
+            return null;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new FileInputStream(file));
+            if (in.readInt() != JOURNAL_MAGIC)
+                return null;
+            Journal journal = new Journal();
+            journal.source = in.readUTF();
+            journal.target = in.readUTF();
+            journal.length = in.readLong();
+            journal.lastModified = in.readLong();
+            journal.committed = in.readLong();
+            return journal;
+        } catch (IOException e) {
+            Log.e(TAG, "read " + file + " failed: " + e);
+            return null;
+        } finally {
+            close(in);
+        }
+    }
+
+    private void writeJournal(File file, Journal journal) {
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            if (!mJournalDir.isDirectory() && !mJournalDir.mkdirs())
+                return;
+            FileOutputStream fos = new FileOutputStream(tmp);
+            out = new DataOutputStream(fos);
+            out.writeInt(JOURNAL_MAGIC);
+            out.writeUTF(journal.source);
+            out.writeUTF(journal.target);
+            out.writeLong(journal.length);
+            out.writeLong(journal.lastModified);
+            out.writeLong(journal.committed);
+            out.flush();
+            fos.getFD().sync();
+            out.close();
+            out = null;
+            if (!tmp.renameTo(file))
+                tmp.delete();
+        } catch (IOException e) {
+            Log.e(TAG, "write " + file + " failed: " + e);
+            tmp.delete();
+        } finally {
+            close(out);
+        }
+    }
+
+    private static void close(Closeable closable) {
+        if (closable != null) {
+            try {
+                closable.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+}
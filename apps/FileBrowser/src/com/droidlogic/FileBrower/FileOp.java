@@ -16,13 +16,7 @@
 ******************************************************************/
 package com.droidlogic.FileBrower;
 
-import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -40,6 +34,7 @@ import java.io.InputStream;
 import android.app.Activity;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.Handler;
 import android.os.Message;
 import android.os.StatFs;
 ///import android.os.storage.StorageManager;
@@ -53,13 +48,16 @@ import com.droidlogic.app.FileListManager;
 
 public class FileOp {
     public static File copying_file = null;
-    public static boolean copy_cancel = false;
+    public static volatile boolean copy_cancel = false;
     public static boolean switch_mode = false;
     public static boolean IsBusy = false;
     public static String source_path = null;
     public static String target_path = null;
     private static Context mContext;
     public static final String KEY_PATH = "key_path";
+    public static void setContext(Context context) {
+        mContext = context.getApplicationContext();
+    }
     public static void SetMode(boolean value){
         switch_mode = value;
     }
@@ -317,83 +315,23 @@ public class FileOp {
     public static FileOpReturn copySelectedFile() {
         return FileOpReturn.ERR;
     }
-    private static void nioTransferCopy(File source, File target) {
-        FileChannel in = null;
-        FileChannel out = null;
-        FileInputStream inStream = null;
-        FileOutputStream outStream = null;
-        try {
-            inStream = new FileInputStream(source);
-            outStream = new FileOutputStream(target);
-            in = inStream.getChannel();
-            out = outStream.getChannel();
-            in.transferTo(0, in.size(), out);
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            close(inStream);
-            close(in);
-            close(outStream);
-            close(out);
+    public static FileOpReturn pasteSelectedFile(String cur_page) {
+        Handler handler = null;
+        if (cur_page.equals("list")) {
+            handler = FileBrower.mProgressHandler;
+        } else if (cur_page.equals("thumbnail1")) {
+            handler = ThumbnailView1.mProgressHandler;
         }
-    }
-    private static void nioBufferCopy(File source, File target, String cur_page, int buf_size) {
-        if (!source.exists() || !target.exists())
-            return;
-
-        FileChannel in = null;
-        FileChannel out = null;
-        FileInputStream inStream = null;
-        FileOutputStream outStream = null;
+        FileCopyEngine engine = new FileCopyEngine(handler,
+            mContext != null ? new File(mContext.getFilesDir(), "copy_journal") : null);
         try {
-            source_path = source.getPath();
-            target_path = target.getPath();
-            inStream = new FileInputStream(source);
-            outStream = new FileOutputStream(target);
-            in = inStream.getChannel();
-            out = outStream.getChannel();
-
-            ByteBuffer buffer = ByteBuffer.allocate(1024 * buf_size);
-            long bytecount = 0;
-            int byteread = 0;
-            while (!copy_cancel && ((byteread = in.read(buffer)) != -1)) {
-                if (copy_cancel) {
-                    break;
-                }
-                buffer.flip();
-                out.write(buffer);
-                buffer.clear();
-                bytecount += byteread;
-                if (cur_page.equals("list")) {
-                    FileBrower.mProgressHandler.sendMessage(Message.obtain(
-                        FileBrower.mProgressHandler, 1, (int)(bytecount * 100 / source.length()), 0));
-                } else if (cur_page.equals("thumbnail1")){
-                    ThumbnailView1.mProgressHandler.sendMessage(Message.obtain(
-                        ThumbnailView1.mProgressHandler, 1, (int)(bytecount * 100 / source.length()), 0));
-                }
-            }
-            source_path = null;
-            target_path = null;
-            out.force(true);
-        } catch (IOException e) {
-            e.printStackTrace();
+            return pasteSelectedFile(cur_page, engine);
         } finally {
-            close(inStream);
-            close(in);
-            close(outStream);
-            close(out);
-        }
-    }
-    private static void close(Closeable closable) {
-        if (closable != null) {
-            try {
-                closable.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            engine.await();
+            engine.shutdown();
         }
     }
-    public static FileOpReturn pasteSelectedFile(String cur_page) {
+    private static FileOpReturn pasteSelectedFile(String cur_page, FileCopyEngine engine) {
         ArrayList<String> fileList = new ArrayList<String>();
         copy_cancel = false;
         IsBusy = true;
@@ -557,11 +495,10 @@ public class FileOp {
 
                                 if (!file_new.exists()) {
                                     copying_file = file_new;
-                                    FileUtils.setCurPage(cur_page);
-				    if (cur_page.equals("list")) {
-                                        FileUtils.copyDirectoryToDirectory(file, new File(FileBrower.cur_path));
+                                    if (cur_page.equals("list")) {
+                                        engine.copyDirectoryToDirectory(file, new File(FileBrower.cur_path));
                                     } else if(cur_page.equals("thumbnail1")){
-                                        FileUtils.copyDirectoryToDirectory(file, new File(ThumbnailView1.cur_path));
+                                        engine.copyDirectoryToDirectory(file, new File(ThumbnailView1.cur_path));
                                     }
 
                                     if (!copy_cancel) {
@@ -597,7 +534,11 @@ public class FileOp {
                                 file_new = new File(ThumbnailView1.cur_path + File.separator + file.getName());
                             }
 
-                            if (file_new.exists()) {
+                            // an interrupted copy of this file goes on in its old target
+                            File resume = engine.findResumable(file, file_new.getParentFile());
+                            if (resume != null) {
+                                file_new = resume;
+                            } else if (file_new.exists()) {
                                 String date = new SimpleDateFormat("yyyyMMddHHmmss_")
                                     .format(Calendar.getInstance().getTime());
                                 if (cur_page.equals("list")) {
@@ -607,21 +548,15 @@ public class FileOp {
                                 }
                             }
 
-                            if (!file_new.exists()) {
+                            if (resume != null || !file_new.exists()) {
                                 file_new.createNewFile();
                                 copying_file = file_new;
                                 try {
-                                    if (file.length() < 1024*1024*10)
-                                        nioBufferCopy(file, file_new, cur_page, 4);
-                                    else if (file.length() < 1024*1024*100)
-                                        nioBufferCopy(file, file_new, cur_page, 1024);
-                                    else
-                                        nioBufferCopy(file, file_new, cur_page, 1024*10);
-                                    if (!copy_cancel) {
-                                        if (file_op_todo == FileOpTodo.TODO_CUT)
-                                            file.delete();
-                                        }
-                                    else {
+                                    source_path = file.getPath();
+                                    target_path = file_new.getPath();
+                                    engine.beginItem(file.length());
+                                    engine.submitFile(file, file_new, file_op_todo == FileOpTodo.TODO_CUT);
+                                    if (copy_cancel) {
                                         if (file_new.exists())
                                             file_new.delete();
 
@@ -654,6 +589,24 @@ public class FileOp {
                 }
             }
 
+            // small files may still be copying
+            int failed = engine.await();
+            source_path = null;
+            target_path = null;
+
+            if (failed > 0 && !copy_cancel) {
+                Log.e("pasteSelectedFile", failed + " files failed to copy");
+                // the engine already removed the partial targets, keep what was copied
+                copying_file = null;
+                if (cur_page.equals("list")) {
+                    FileBrower.mProgressHandler.sendMessage(Message.obtain(FileBrower.mProgressHandler, 9));
+                } else if (cur_page.equals("thumbnail1")) {
+                    ThumbnailView1.mProgressHandler.sendMessage(Message.obtain(ThumbnailView1.mProgressHandler, 9));
+                }
+                IsBusy = false;
+                return FileOpReturn.ERR;
+            }
+
             //make sure current path is the destination path, otherwise indicate copy fail
             if (cur_page.equals("list")) {
                 curPathAftCopy=FileBrower.cur_path;
@@ -16,17 +16,13 @@
 ******************************************************************/
 package com.droidlogic.FileBrower;
 
-import java.io.ByteArrayInputStream;
 import java.util.List;
 import java.util.Map;
 
 import android.content.Context;
-import android.graphics.drawable.Drawable;
 import android.widget.ImageView;
 import android.widget.SimpleAdapter;
 
-import com.droidlogic.FileBrower.FileBrowerDatabase.ThumbnailCursor;
-
 
 
 
@@ -39,23 +35,6 @@ public class ThumbnailAdapter1 extends SimpleAdapter{
     }
 
     public void setViewImage (ImageView v, String value) {
-        ThumbnailCursor cc = null;
-        try {
-            cc = ThumbnailView1.db.getThumbnailByPath(value);
-            if (cc != null && cc.moveToFirst()) {
-                if (cc.getCount()  > 0) {
-                    Drawable drawable = Drawable.createFromStream(
-                        new ByteArrayInputStream(cc.getColFileData()),
-                        "image.png");
-                    if (drawable != null)
-                        v.setImageDrawable(drawable);
-                    else
-                        super.setViewImage(v, R.drawable.item_preview_photo);
-                } else
-                    super.setViewImage(v, R.drawable.item_preview_photo);
-            }
-        } finally {
-            if (cc != null) cc.close();
-        }
+        ThumbnailCache.getInstance(v.getContext()).load(v, value, R.drawable.item_preview_photo);
     }
 }
\ No newline at end of file
@@ -0,0 +1,617 @@
+/******************************************************************
+*
+*Copyright (C) 2012  Amlogic, Inc.
+*
+*Licensed under the Apache License, Version 2.0 (the "License");
+*you may not use this file except in compliance with the License.
+*You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*Unless required by applicable law or agreed to in writing, software
+*distributed under the License is distributed on an "AS IS" BASIS,
+*WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+*See the License for the specific language governing permissions and
+*limitations under the License.
+******************************************************************/
+package com.droidlogic.FileBrower;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.ThumbnailUtils;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+/**
+ * Photo thumbnails for the grid view.
+ *
+ * Thumbnails are decoded on a small pool of background threads, with a bounds-only pass first so
+ * the full picture is never decoded at its own size. Results are kept as small jpeg files in the
+ * app cache dir, named after the photo path, mtime and length so an edited photo gets a new one,
+ * and the least recently used files are dropped once the dir grows over its limit. The bitmaps of
+ * the cells bound lately stay in memory.
+ *
+ * Cells being bound go before the scanner prefetch, the latest bound first, and a cell rebound to
+ * another file drops its request if nobody else waits on it.
+ */
+public class ThumbnailCache {
+    private static final String TAG = "ThumbnailCache";
+
+    private static final String DIR_NAME = "thumbnails";
+    private static final String SUFFIX = ".jpg";
+    private static final int JPEG_QUALITY = 85;
+    private static final long MAX_DISK_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_MEMORY_BYTES = 8 * 1024 * 1024;
+    // matches the 100dip image frame of gridview_item
+    private static final int THUMB_DIP = 100;
+    // a hit refreshes the file mtime that orders the cache across restarts, but not more often than this
+    private static final long TOUCH_INTERVAL_MS = 60 * 60 * 1000;
+
+    private static final int PRIORITY_VISIBLE = 0;
+    private static final int PRIORITY_PREFETCH = 1;
+
+    private static ThumbnailCache sInstance;
+
+    private final File mDir;
+    private final int mThumbSize;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ThreadPoolExecutor mExecutor;
+    private final LruCache<String, Bitmap> mMemory;
+
+    private final Object mLock = new Object();
+    // requests not finished yet by photo path, guarded by mLock
+    private final HashMap<String, Request> mPending = new HashMap<String, Request>();
+    private long mSequence = 0;
+
+    // disk entries by file name in access order, guarded by mDiskLock
+    private final Object mDiskLock = new Object();
+    private final LinkedHashMap<String, DiskEntry> mDiskEntries =
+        new LinkedHashMap<String, DiskEntry>(64, 0.75f, true);
+    private long mDiskBytes = 0;
+    private boolean mDiskLoaded = false;
+
+    private final Stats mStats = new Stats();
+
+    private static final class DiskEntry {
+        final long length;
+        long touched;
+
+        DiskEntry(long length, long touched) {
+            this.length = length;
+            this.touched = touched;
+        }
+    }
+
+    private static final class Stats {
+        long startTime = SystemClock.uptimeMillis();
+        long requests;
+        long memoryHits;
+        long diskHits;
+        long decodes;
+        long failures;
+        long cancelled;
+        long decodeTime;
+        long decodeTimeMax;
+        long waitTime;
+        long waitTimeMax;
+        long completed;
+    }
+
+    private final class Producer implements Callable<Bitmap> {
+        Request request;
+
+        public Bitmap call() {
+            long start = SystemClock.uptimeMillis();
+            Bitmap bitmap = null;
+            try {
+                bitmap = produce(request);
+            } catch (Throwable t) {
+                Log.e(TAG, "thumbnail of " + request.path + " failed: " + t);
+            }
+            long end = SystemClock.uptimeMillis();
+            synchronized (mStats) {
+                long wait = start - request.enqueueTime;
+                mStats.waitTime += wait;
+                mStats.waitTimeMax = Math.max(mStats.waitTimeMax, wait);
+                mStats.completed++;
+                if (request.created) {
+                    mStats.decodes++;
+                    mStats.decodeTime += end - start;
+                    mStats.decodeTimeMax = Math.max(mStats.decodeTimeMax, end - start);
+                } else if (bitmap == null && request.priority == PRIORITY_VISIBLE) {
+                    mStats.failures++;
+                }
+            }
+            return bitmap;
+        }
+    }
+
+    private final class Request extends FutureTask<Bitmap> implements Comparable<Request> {
+        final String path;
+        final long enqueueTime = SystemClock.uptimeMillis();
+        // guarded by mLock, priority and sequence only change while out of the queue
+        int priority;
+        long sequence;
+        ImageView target;
+        volatile boolean created = false;
+
+        Request(String path, int priority, Producer producer) {
+            super(producer);
+            producer.request = this;
+            this.path = path;
+            this.priority = priority;
+        }
+
+        @Override
+        protected void done() {
+            mMainHandler.post(new Runnable() {
+                public void run() {
+                    deliver(Request.this);
+                }
+            });
+        }
+
+        public int compareTo(Request other) {
+            if (priority != other.priority)
+                return priority < other.priority ? -1 : 1;
+            if (sequence == other.sequence)
+                return 0;
+            // the cell bound last is the one on screen, the scanner goes in directory order
+            if (priority == PRIORITY_VISIBLE)
+                return sequence > other.sequence ? -1 : 1;
+            return sequence < other.sequence ? -1 : 1;
+        }
+    }
+
+    public static synchronized ThumbnailCache getInstance(Context context) {
+        if (sInstance == null)
+            sInstance = new ThumbnailCache(context.getApplicationContext());
+        return sInstance;
+    }
+
+    private ThumbnailCache(Context context) {
+        mDir = new File(context.getCacheDir(), DIR_NAME);
+        mThumbSize = (int) (THUMB_DIP * context.getResources().getDisplayMetrics().density + 0.5f);
+        int memory = (int) Math.min(MAX_MEMORY_BYTES, Runtime.getRuntime().maxMemory() / 16);
+        mMemory = new LruCache<String, Bitmap>(memory) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getRowBytes() * value.getHeight();
+            }
+        };
+        int threads = Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1));
+        mExecutor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+            new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+                private int mCount = 0;
+
+                public synchronized Thread newThread(final Runnable r) {
+                    return new Thread(new Runnable() {
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, "ThumbnailWorker-" + mCount++);
+                }
+            });
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * show the thumbnail of a photo in a grid cell, the placeholder until it is ready,
+     * main thread only
+     */
+    public void load(ImageView view, String path, int placeholderId) {
+        Request old = (Request) view.getTag();
+        if (old != null && old.path.equals(path) && !old.isDone())
+            return;
+        if (old != null)
+            detach(old, view);
+        view.setTag(null);
+
+        synchronized (mStats) {
+            mStats.requests++;
+        }
+        Bitmap bitmap = mMemory.get(path);
+        if (bitmap != null) {
+            synchronized (mStats) {
+                mStats.memoryHits++;
+            }
+            view.setImageBitmap(bitmap);
+            return;
+        }
+
+        view.setImageResource(placeholderId);
+        attach(enqueue(path, PRIORITY_VISIBLE), view);
+    }
+
+    /**
+     * queue a photo so its thumbnail is on disk by the time it is shown, the future gives
+     * no bitmap for prefetched photos
+     */
+    public Future<Bitmap> prefetch(String path) {
+        return enqueue(path, PRIORITY_PREFETCH);
+    }
+
+    /**
+     * true if the request of the future had to decode its photo
+     */
+    public boolean isCreated(Future<Bitmap> future) {
+        return future instanceof Request && ((Request) future).created;
+    }
+
+    /**
+     * drop the queued prefetches no cell waits for
+     */
+    public void cancelPrefetch() {
+        cancelPending(true);
+    }
+
+    /**
+     * drop every queued request, when the grid goes away
+     */
+    public void cancelAll() {
+        cancelPending(false);
+    }
+
+    public void invalidate(String path) {
+        mMemory.remove(path);
+    }
+
+    public void clearMemory() {
+        mMemory.evictAll();
+    }
+
+    /**
+     * drop disk entries over the size limit
+     */
+    public void trimDisk() {
+        synchronized (mDiskLock) {
+            loadDiskLocked();
+            trimDiskLocked();
+        }
+    }
+
+    public String dumpStats() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (mStats) {
+            long elapsed = Math.max(1, SystemClock.uptimeMillis() - mStats.startTime);
+            sb.append("requests:").append(mStats.requests)
+                .append(" memory hits:").append(mStats.memoryHits)
+                .append(" disk hits:").append(mStats.diskHits)
+                .append(" decodes:").append(mStats.decodes)
+                .append(" failures:").append(mStats.failures)
+                .append(" cancelled:").append(mStats.cancelled)
+                .append('\n');
+            sb.append("decode ms avg:").append(mStats.decodes == 0 ? 0 : mStats.decodeTime / mStats.decodes)
+                .append(" max:").append(mStats.decodeTimeMax)
+                .append(" queue wait ms avg:").append(mStats.completed == 0 ? 0 : mStats.waitTime / mStats.completed)
+                .append(" max:").append(mStats.waitTimeMax)
+                .append(" throughput:").append(mStats.completed * 1000 / elapsed).append("/s")
+                .append('\n');
+        }
+        synchronized (mDiskLock) {
+            sb.append("disk entries:").append(mDiskEntries.size())
+                .append(" bytes:").append(mDiskBytes);
+        }
+        sb.append(" memory bytes:").append(mMemory.size())
+            .append(" pending:").append(mExecutor.getQueue().size());
+        return sb.toString();
+    }
+
+    public void resetStats() {
+        synchronized (mStats) {
+            mStats.startTime = SystemClock.uptimeMillis();
+            mStats.requests = mStats.memoryHits = mStats.diskHits = 0;
+            mStats.decodes = mStats.failures = mStats.cancelled = 0;
+            mStats.decodeTime = mStats.decodeTimeMax = 0;
+            mStats.waitTime = mStats.waitTimeMax = mStats.completed = 0;
+        }
+    }
+
+    private Request enqueue(String path, int priority) {
+        synchronized (mLock) {
+            Request request = mPending.get(path);
+            // a finished request only waits for its delivery, its result may be no bitmap
+            if (request != null && !request.isDone()) {
+                // a cell now waits for a queued prefetch, move it ahead
+                if (priority < request.priority && mExecutor.getQueue().remove(request)) {
+                    request.priority = priority;
+                    request.sequence = ++mSequence;
+                    mExecutor.execute(request);
+                }
+                return request;
+            }
+            request = new Request(path, priority, new Producer());
+            request.sequence = ++mSequence;
+            mPending.put(path, request);
+            mExecutor.execute(request);
+            return request;
+        }
+    }
+
+    private void attach(Request request, ImageView view) {
+        synchronized (mLock) {
+            if (request.target != null && request.target != view)
+                request.target.setTag(null);
+            request.target = view;
+        }
+        view.setTag(request);
+    }
+
+    private void detach(Request request, ImageView view) {
+        synchronized (mLock) {
+            if (request.target != view)
+                return;
+            request.target = null;
+            if (request.priority == PRIORITY_VISIBLE && mExecutor.getQueue().remove(request)) {
+                mPending.remove(request.path);
+                request.cancel(false);
+                synchronized (mStats) {
+                    mStats.cancelled++;
+                }
+            }
+        }
+    }
+
+    private void cancelPending(boolean prefetchOnly) {
+        synchronized (mLock) {
+            Iterator<Request> it = mPending.values().iterator();
+            while (it.hasNext()) {
+                Request request = it.next();
+                if (prefetchOnly && request.target != null)
+                    continue;
+                if (mExecutor.getQueue().remove(request)) {
+                    it.remove();
+                    if (request.target != null) {
+                        request.target.setTag(null);
+                        request.target = null;
+                    }
+                    request.cancel(false);
+                    synchronized (mStats) {
+                        mStats.cancelled++;
+                    }
+                }
+            }
+        }
+    }
+
+    private void deliver(Request request) {
+        ImageView view;
+        synchronized (mLock) {
+            if (mPending.get(request.path) == request)
+                mPending.remove(request.path);
+            view = request.target;
+            request.target = null;
+        }
+        if (view == null || view.getTag() != request || request.isCancelled())
+            return;
+        view.setTag(null);
+        try {
+            Bitmap bitmap = request.get();
+            if (bitmap != null) {
+                view.setImageBitmap(bitmap);
+            } else if (request.priority == PRIORITY_PREFETCH) {
+                // the cell came while the prefetch was running, read it back from disk
+                attach(enqueue(request.path, PRIORITY_VISIBLE), view);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "deliver " + request.path + " failed: " + e);
+        }
+    }
+
+    /**
+     * worker side: the thumbnail from disk or a fresh decode, stored on disk, and in memory
+     * if a cell waits for it
+     */
+    private Bitmap produce(Request request) {
+        File file = new File(request.path);
+        long length = file.length();
+        long lastModified = file.lastModified();
+        if (length <= 0 || lastModified == 0)
+            return null;
+
+        String name = diskName(request.path, lastModified, length);
+        File thumb = new File(mDir, name);
+        if (touchDisk(name, thumb)) {
+            if (!isWanted(request))
+                return null;
+            Bitmap bitmap = BitmapFactory.decodeFile(thumb.getPath());
+            if (bitmap != null) {
+                synchronized (mStats) {
+                    mStats.diskHits++;
+                }
+                mMemory.put(request.path, bitmap);
+                return bitmap;
+            }
+            removeDisk(name);
+        }
+
+        Bitmap bitmap = decode(request.path);
+        if (bitmap == null)
+            return null;
+        request.created = true;
+        writeDisk(name, thumb, bitmap);
+        if (!isWanted(request)) {
+            bitmap.recycle();
+            return null;
+        }
+        mMemory.put(request.path, bitmap);
+        return bitmap;
+    }
+
+    private boolean isWanted(Request request) {
+        synchronized (mLock) {
+            return request.priority == PRIORITY_VISIBLE || request.target != null;
+        }
+    }
+
+    private Bitmap decode(String path) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0)
+            return null;
+
+        // largest power of two that keeps the short side at least the thumbnail size
+        int shortSide = Math.min(options.outWidth, options.outHeight);
+        int sampleSize = 1;
+        while (shortSide / (sampleSize * 2) >= mThumbSize)
+            sampleSize *= 2;
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        Bitmap bitmap = null;
+        try {
+            bitmap = BitmapFactory.decodeFile(path, options);
+        } catch (OutOfMemoryError e) {
+            Log.e(TAG, "decode " + path + " out of memory, sample " + sampleSize);
+            return null;
+        }
+        if (bitmap == null)
+            return null;
+        return ThumbnailUtils.extractThumbnail(bitmap, mThumbSize, mThumbSize,
+            ThumbnailUtils.OPTIONS_RECYCLE_INPUT);
+    }
+
+    private static String diskName(String path, long lastModified, long length) {
+        String key = path + "\0" + lastModified + "\0" + length;
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes());
+            StringBuilder sb = new StringBuilder(digest.length * 2 + SUFFIX.length());
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16))
+                    .append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.append(SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(key.hashCode()) + "_" + length + SUFFIX;
+        }
+    }
+
+    private boolean touchDisk(String name, File thumb) {
+        synchronized (mDiskLock) {
+            loadDiskLocked();
+            DiskEntry entry = mDiskEntries.get(name);
+            if (entry == null)
+                return false;
+            long now = System.currentTimeMillis();
+            if (now - entry.touched > TOUCH_INTERVAL_MS) {
+                entry.touched = now;
+                thumb.setLastModified(now);
+            }
+            return true;
+        }
+    }
+
+    private void removeDisk(String name) {
+        synchronized (mDiskLock) {
+            DiskEntry entry = mDiskEntries.remove(name);
+            if (entry != null)
+                mDiskBytes -= entry.length;
+            new File(mDir, name).delete();
+        }
+    }
+
+    private void writeDisk(String name, File thumb, Bitmap bitmap) {
+        File tmp = new File(mDir, name + ".tmp");
+        OutputStream os = null;
+        try {
+            if (!mDir.isDirectory() && !mDir.mkdirs())
+                return;
+            os = new BufferedOutputStream(new FileOutputStream(tmp), 16 * 1024);
+            if (!bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, os))
+                return;
+            os.close();
+            os = null;
+            if (!tmp.renameTo(thumb))
+                return;
+        } catch (IOException e) {
+            Log.e(TAG, "write " + thumb + " failed: " + e);
+            return;
+        } finally {
+            if (os != null) {
+                try {
+                    os.close();
+                } catch (IOException e) {
+                }
+            }
+            tmp.delete();
+        }
+
+        synchronized (mDiskLock) {
+            DiskEntry old = mDiskEntries.put(name, new DiskEntry(thumb.length(), System.currentTimeMillis()));
+            if (old != null)
+                mDiskBytes -= old.length;
+            mDiskBytes += thumb.length();
+            trimDiskLocked();
+        }
+    }
+
+    private void loadDiskLocked() {
+        if (mDiskLoaded)
+            return;
+        mDiskLoaded = true;
+        File[] files = mDir.listFiles();
+        if (files == null)
+            return;
+        final long[] touched = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            touched[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        // oldest first so the access order starts as the last use order
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Long.compare(touched[a], touched[b]);
+            }
+        });
+        for (Integer i : order) {
+            File file = files[i];
+            if (!file.getName().endsWith(SUFFIX)) {
+                file.delete();
+                continue;
+            }
+            long length = file.length();
+            mDiskEntries.put(file.getName(), new DiskEntry(length, touched[i]));
+            mDiskBytes += length;
+        }
+        trimDiskLocked();
+    }
+
+    private void trimDiskLocked() {
+        Iterator<Map.Entry<String, DiskEntry>> it = mDiskEntries.entrySet().iterator();
+        while (mDiskBytes > MAX_DISK_BYTES && it.hasNext()) {
+            Map.Entry<String, DiskEntry> eldest = it.next();
+            it.remove();
+            mDiskBytes -= eldest.getValue().length;
+            new File(mDir, eldest.getKey()).delete();
+        }
+    }
+}
@@ -16,18 +16,15 @@
 ******************************************************************/
 package com.droidlogic.FileBrower;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.IOException;
-import java.lang.reflect.Method;
-import android.provider.MediaStore.Images;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
 
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.media.ThumbnailUtils;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.IBinder;
@@ -38,7 +35,6 @@ import android.os.Process;
 import android.util.Log;
 import android.os.Environment;
 
-import com.droidlogic.FileBrower.FileBrowerDatabase.ThumbnailCursor;
 import com.droidlogic.app.FileListManager;
 
 public class ThumbnailScannerService extends Service implements Runnable {
@@ -46,7 +42,8 @@ public class ThumbnailScannerService extends Service implements Runnable {
     public static final String ACTION_THUMBNAIL_SCANNER_FINISHED
         = "com.droidlogic.FileBrower.THUMBNAIL_SCANNER_FINISHED";
     private static FileBrowerDatabase db;
-    private static boolean stop_scanner = false;
+    private static volatile boolean stop_scanner = false;
+    private ThumbnailCache mCache;
 
     private volatile Looper mServiceLooper;
     private volatile ServiceHandler mServiceHandler;
@@ -56,6 +53,7 @@ public class ThumbnailScannerService extends Service implements Runnable {
     public void onCreate()
     {
         db = new FileBrowerDatabase(this);
+        mCache = ThumbnailCache.getInstance(this);
         PowerManager pm = (PowerManager)getSystemService(Context.POWER_SERVICE);
         mWakeLock = pm.newWakeLock(PowerManager.SCREEN_BRIGHT_WAKE_LOCK, TAG);
 
@@ -98,6 +96,7 @@ public class ThumbnailScannerService extends Service implements Runnable {
     public void onDestroy()
     {
         stop_scanner = true;
+        mCache.cancelPrefetch();
         if (db != null) db.close();
         // Make sure thread has started before telling it to quit.
         while (mServiceLooper == null) {
@@ -207,93 +206,40 @@ public class ThumbnailScannerService extends Service implements Runnable {
     }
 
     private void cleanThumbnails() {
-        if (db != null) {
-            ThumbnailCursor cc = null;
-            try {
-                cc = db.checkThumbnail();
-                if (cc != null && cc.moveToFirst()) {
-                    if (cc.getCount() > 0) {
-                        for (int i = 0; i < cc.getCount(); i++) {
-                            cc.moveToPosition(i);
-                            String file_path = cc.getColFilePath();
-                            if (file_path != null) {
-                                if (!new File(file_path).exists()) {
-                                    db.deleteThumbnail(file_path);
-                                }
-                            }
-                        }
-                    }
-                }
-            } finally {
-                if (cc != null) cc.close();
-            }
-        }
+        // thumbnails live in the ThumbnailCache files now, drop the old blobs
+        if (db != null)
+            db.deleteAllThumbnail();
+        mCache.trimDisk();
     }
 
-    private int createThumbnail(String file_path) throws IOException {
-        if (stop_scanner) return 0;
-        int count = 0;
-        if (file_path != null && db != null) {
-            File file = new File(file_path);
-            if (FileListManager.isPhoto(file_path) &&  file != null && file.exists()) {
-                //OutOfMemoryError, ignore file size >15MB
-                if (file.length() > 1024*1024*15 || file.length() <= 0) {
-                    return 0;
-                }
-
-                ThumbnailCursor cc = null;
-                try {
-                    cc = db.checkThumbnailByPath(file_path);
-                    if (cc != null && cc.moveToFirst()) {
-                        if (cc.getCount() > 0)
-                            return 0;
-                    }
-                } finally {
-                    if (cc != null) cc.close();
-                }
-                Bitmap bitmap = null;
-                Bitmap thumb = null;
-                bitmap = createImageThumbnail(file_path,
-                Images.Thumbnails.MINI_KIND);
-                if (bitmap != null) {
-                    thumb = ThumbnailUtils.extractThumbnail(bitmap, 96, 96);
-                    if (!bitmap.isRecycled())
-                        bitmap.recycle();
+    private Future<Bitmap> createThumbnail(String file_path) {
+        if (stop_scanner) return null;
+        if (file_path != null && FileListManager.isPhoto(file_path))
+            return mCache.prefetch(file_path);
+        return null;
+    }
 
-                    if (thumb != null) {
-                        ByteArrayOutputStream os = new ByteArrayOutputStream();
-                        thumb.compress(Bitmap.CompressFormat.PNG, 100, os);
-                        if (db != null) {
-                            db.addThumbnail(file_path, os.toByteArray());
-                            count++;
-                         }
-                         try {
-                             os.close();
-                         } catch (IOException e) {
-                             // TODO Auto-generated catch block
-                             e.printStackTrace();
-                         }
-                         if (!thumb.isRecycled())
-                             thumb.recycle();
-                    }
-                }
+    /**
+     * wait for the thumbnails queued on the ThumbnailCache workers
+     * @return number of thumbnails that had to be decoded
+     */
+    private int waitThumbnails(List<Future<Bitmap>> pending) {
+        int count = 0;
+        for (Future<Bitmap> future : pending) {
+            if (stop_scanner)
+                break;
+            try {
+                future.get();
+                if (mCache.isCreated(future))
+                    count++;
+            } catch (Exception e) {
+                // cancelled by the grid or the scanner stop
             }
         }
+        pending.clear();
         return count;
     }
 
-    public Bitmap createImageThumbnail(String file_path,int kind) {
-        try {
-            Class<?> sm = Class.forName("android.media.ThumbnailUtils");
-            Method createThumbnail = sm.getMethod("createImageThumbnail", String.class,int.class);
-            Bitmap bitmap = (Bitmap) createThumbnail.invoke(null, file_path, kind);
-            return bitmap;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
-    }
-
     private int createThumbnailsInDir(String dir_path) {
         // don't sleep while scanning
         mWakeLock.acquire();
@@ -307,16 +253,15 @@ public class ThumbnailScannerService extends Service implements Runnable {
             if (dir.exists() && dir.isDirectory()) {
                 if (dir.listFiles() != null) {
                     if (dir.listFiles().length > 0) {
+                        List<Future<Bitmap>> pending = new ArrayList<Future<Bitmap>>();
                         for (File file : dir.listFiles()) {
                             if (file.exists() && file.isFile() && FileListManager.isPhoto(file.getName())) {
-                                try {
-                                    count += createThumbnail(file.getAbsolutePath());
-                                } catch (IOException e) {
-                                    // TODO Auto-generated catch block
-                                    e.printStackTrace();
-                                }
+                                Future<Bitmap> future = createThumbnail(file.getAbsolutePath());
+                                if (future != null)
+                                    pending.add(future);
                             }
                         }
+                        count = waitThumbnails(pending);
                     }
                 }
             }
@@ -336,19 +281,18 @@ public class ThumbnailScannerService extends Service implements Runnable {
             if (dir.exists() && dir.isDirectory()) {
                 if (dir.listFiles() != null) {
                     if (dir.listFiles().length > 0) {
+                        List<Future<Bitmap>> pending = new ArrayList<Future<Bitmap>>();
                         for (File file : dir.listFiles()) {
                             if (file.exists())
                             if (file.isDirectory()) {
                                 createAllThumbnailsInDir(file.getAbsolutePath());
                             } else if (file.isFile() && FileListManager.isPhoto(file.getName())) {
-                                try {
-                                    createThumbnail(file.getAbsolutePath());
-                                } catch (IOException e) {
-                                    // TODO Auto-generated catch block
-                                    e.printStackTrace();
-                                }
+                                Future<Bitmap> future = createThumbnail(file.getAbsolutePath());
+                                if (future != null)
+                                    pending.add(future);
                             }
                         }
+                        waitThumbnails(pending);
                     }
                 }
             }
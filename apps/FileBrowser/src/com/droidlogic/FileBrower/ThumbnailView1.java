@@ -410,6 +410,8 @@ public class ThumbnailView1 extends Activity{
                     ThumbnailView.setAdapter(getFileListAdapterSorted(cur_path, lv_sort_flag));
                 }
                 FileOp.cleanFileMarks("thumbnail1");
+                // another volume may come up on the same path
+                ThumbnailCache.getInstance(context).clearMemory();
 
                 ThumbnailOpUtils.stopThumbnailSanner(getBaseContext());
                 if (FileOp.IsBusy) {
@@ -426,6 +428,7 @@ public class ThumbnailView1 extends Activity{
                     ThumbnailView.setAdapter(getFileListAdapterSorted(cur_path, lv_sort_flag));
                 }
                 FileOp.cleanFileMarks("thumbnail1");
+                ThumbnailCache.getInstance(context).clearMemory();
             }
             else if (action.equals(Intent.ACTION_MEDIA_MOUNTED) || action.equals ("com.droidvold.action.MEDIA_MOUNTED")) {
                 if (cur_path.equals(FileListManager.STORAGE)) {
@@ -441,6 +444,7 @@ public class ThumbnailView1 extends Activity{
                     ThumbnailView.setAdapter(getFileListAdapterSorted(cur_path, lv_sort_flag));
                 }
                 FileOp.cleanFileMarks("thumbnail1");
+                ThumbnailCache.getInstance(context).clearMemory();
             }
             else if (action.equals(Intent.ACTION_SCREEN_OFF)) {
                 if (sort_dialog != null)
@@ -514,6 +518,9 @@ public class ThumbnailView1 extends Activity{
         super.onPause();
         mLoadCancel = true;
         ThumbnailOpUtils.stopThumbnailSanner(getBaseContext());
+        ThumbnailCache cache = ThumbnailCache.getInstance(this);
+        cache.cancelAll();
+        Log.d(TAG, "thumbnails " + cache.dumpStats());
         unregisterReceiver(mMediaScannerReceiver);
         unregisterReceiver(mReceiver);
         unregisterReceiver(mMountReceiver);
@@ -564,6 +571,7 @@ public class ThumbnailView1 extends Activity{
 
         /* setup database */
         FileOp.SetMode(false);
+        FileOp.setContext(this);
         db = new FileBrowerDatabase(this);
         local_mode = false;
 
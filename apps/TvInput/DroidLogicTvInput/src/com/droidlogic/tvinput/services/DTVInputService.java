@@ -30,6 +30,7 @@ import android.os.Environment;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Message;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 import android.view.KeyEvent;
@@ -3368,6 +3369,19 @@ public class DTVInputService extends DroidLogicTvInputService implements TvContr
             private ArrayList<DTVEpgScanner.Event> mEpgeventQueue = new ArrayList<DTVEpgScanner.Event>();
             private ArrayList<DTVEpgScanner.Event> mEpgeventBuffer = new ArrayList<DTVEpgScanner.Event>();
 
+            /*
+                Bound of mEpgeventQueue, the scanner callback thread waits up to
+                EPG_QUEUE_WAIT_MS for the monitor to drain it, then the oldest event is dropped.
+            */
+            private static final int MAX_EPG_QUEUE_EVENTS = 512;
+            private static final long EPG_QUEUE_WAIT_MS = 500;
+            private int mEpgQueueHighWater = 0;
+            private long mEpgQueueWaitCount = 0;
+            private long mEpgQueueDropCount = 0;
+
+            /*Evts of a batch grouped per channel, indexed on channelMap*/
+            private final EpgEventRouter mEpgRouter = new EpgEventRouter();
+
 
             private void buildVct () {
                 if (mVct == null || channelMap == null) {
@@ -3453,8 +3467,10 @@ public class DTVInputService extends DroidLogicTvInputService implements TvContr
                                 clearChannelProgram((ChannelInfo)msg.obj);
                                 break;
                             case MSG_MONITOR_FLUSH_PROGRAMS:
-                                if (mTvDataBaseManager != null)
+                                if (mTvDataBaseManager != null) {
                                     mTvDataBaseManager.flushPrograms();
+                                    if (DEBUG) Log.d(TAG, "epg flush " + dumpEpgStats());
+                                }
                                 break;
                             case MSG_MONITOR_UPDATE_EPG:
                                 synchronized(mEpgQueueLock) {
@@ -3462,6 +3478,7 @@ public class DTVInputService extends DroidLogicTvInputService implements TvContr
                                         if (mEpgeventBuffer != null)
                                             mEpgeventBuffer.addAll(mEpgeventQueue);
                                         mEpgeventQueue.clear();
+                                        mEpgQueueLock.notifyAll();
                                     }
                                 }
                                 if (mEpgeventBuffer != null && mEpgeventBuffer.size() > 0) {
@@ -3519,10 +3536,7 @@ public class DTVInputService extends DroidLogicTvInputService implements TvContr
 
                             if (mTvTime != null) setTime(event.time * 1000);
                         } else if (event.type == DTVEpgScanner.Event.EVENT_PROGRAM_EVENTS_UPDATE) {
-                            synchronized(mEpgQueueLock) {
-                                if (mEpgeventQueue != null)
-                                    mEpgeventQueue.add(event);
-                            }
+                            queueEpgEvent(event);
                         } else {
                             if (mMonitorHandler != null)
                                 mMonitorHandler.obtainMessage(MSG_MONITOR_EVENT, event).sendToTarget();
@@ -3545,6 +3559,55 @@ public class DTVInputService extends DroidLogicTvInputService implements TvContr
                 }
             }
 
+            /*
+                Called on the scanner callback thread, blocks it while the monitor
+                is behind so that the scanner is slowed down instead of growing the queue.
+            */
+            private void queueEpgEvent(DTVEpgScanner.Event event) {
+                synchronized(mEpgQueueLock) {
+                    if (mEpgeventQueue == null)
+                        return;
+                    if (mEpgeventQueue.size() >= MAX_EPG_QUEUE_EVENTS) {
+                        mEpgQueueWaitCount++;
+                        long deadline = SystemClock.uptimeMillis() + EPG_QUEUE_WAIT_MS;
+                        long remaining = EPG_QUEUE_WAIT_MS;
+                        while (isAlive && remaining > 0 && mEpgeventQueue.size() >= MAX_EPG_QUEUE_EVENTS) {
+                            try {
+                                mEpgQueueLock.wait(remaining);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                break;
+                            }
+                            remaining = deadline - SystemClock.uptimeMillis();
+                        }
+                        if (!isAlive)
+                            return;
+                        if (mEpgeventQueue.size() >= MAX_EPG_QUEUE_EVENTS) {
+                            mEpgeventQueue.remove(0);
+                            mEpgQueueDropCount++;
+                            Log.w(TAG, "epg queue full, drop oldest event, dropped:" + mEpgQueueDropCount);
+                        }
+                    }
+                    mEpgeventQueue.add(event);
+                    if (mEpgeventQueue.size() > mEpgQueueHighWater)
+                        mEpgQueueHighWater = mEpgeventQueue.size();
+                }
+            }
+
+            public String dumpEpgStats() {
+                StringBuilder sb = new StringBuilder();
+                synchronized(mEpgQueueLock) {
+                    sb.append("queue:").append(mEpgeventQueue == null ? 0 : mEpgeventQueue.size())
+                        .append(" max:").append(mEpgQueueHighWater)
+                        .append(" waits:").append(mEpgQueueWaitCount)
+                        .append(" drops:").append(mEpgQueueDropCount);
+                }
+                sb.append(" route[").append(mEpgRouter.dumpStats()).append("]");
+                if (mTvDataBaseManager != null)
+                    sb.append(" db[").append(mTvDataBaseManager.dumpEpgStats()).append("]");
+                return sb.toString();
+            }
+
             private void setTime(long time){
                 Date sys = new Date();
                 long diff = time - sys.getTime();
@@ -3604,6 +3667,10 @@ public class DTVInputService extends DroidLogicTvInputService implements TvContr
             public void destroy() {
                 isAlive = false;
                 setEpgAutoReset(false);
+                synchronized(mEpgQueueLock) {
+                    /*release the scanner thread if it waits for queue space*/
+                    mEpgQueueLock.notifyAll();
+                }
 
                 if (mChannelObserver != null) {
                     mContext.getContentResolver().unregisterContentObserver(mChannelObserver);
@@ -3764,9 +3831,9 @@ public class DTVInputService extends DroidLogicTvInputService implements TvContr
             }
 
             private List<Program> getChannelPrograms(Uri channelUri, ChannelInfo channel,
-                    DTVEpgScanner.Event event) {
+                    List<DTVEpgScanner.Event.Evt> evts) {
                 List<Program> programs = new ArrayList<>();
-                for (DTVEpgScanner.Event.Evt evt : event.evts) {
+                for (DTVEpgScanner.Event.Evt evt : evts) {
                     if (isAtscEvent(evt)) {//atsc
                         if (channel.getSourceId() == evt.srv_id) {
                             //if (DEBUG) Log.d(TAG, "evt srv_id:"+evt.srv_id+" channel src_id:"+channel.getSourceId()+",rrt_ratings:"+evt.rrt_ratings);
@@ -3855,63 +3922,55 @@ public class DTVInputService extends DroidLogicTvInputService implements TvContr
                     }
                 }
 
-                for (ChannelInfo c : channelMap) {
-                    if (c == null) {
-                        continue;
-                    }
-                    Uri channelUri = TvContract.buildChannelUri(c.getId());
+                mEpgRouter.setChannels(channelMap);
+                for (EpgEventRouter.Bucket bucket : mEpgRouter.routeAtsc(epglist, mVctMap)) {
+                    ChannelInfo c = bucket.channel;
+                    long cid = c.getId();
+                    Uri channelUri = TvContract.buildChannelUri(cid);
                     List<Program> programs = new ArrayList<>();
                     //if (DEBUG) Log.d(TAG," program name :"+c.getDisplayNumber());
 
-                    for (DTVEpgScanner.Event event : epglist) {
-                        for (DTVEpgScanner.Event.Evt evt : event.evts) {
-                            Long cid = mVctMap.get(evt.source_id);
-                            //if (DEBUG) Log.d(TAG, "build VCT map cid " + cid + " c.getId():" + c.getId() + " evt.srv_id" + evt.srv_id + " evt.v:(" + evt.sub_flag + ":" + evt.sub_status +")"+" source_id:"+evt.source_id);
-                            if (cid == null)
-                                continue;
-                            if (c.getId() == cid) {
-                                try {
-                                    long start = evt.start;
-                                    long end = evt.end;
-                                    //if (start != 0 && end !=0 && evt.rrt_ratings == null)
-                                    //    throw new Exception("Receive EIT data,but rating is NULL!!!");
-                                    Program p = new Program.Builder()
-                                        .setProgramId(evt.evt_id)
-                                        .setChannelId(cid)
-                                        .setTitle(TvMultilingualText.getText((evt.name == null ? null : new String(evt.name)), languages))
-                                        .setDescription(TvMultilingualText.getText((evt.ext_descr == null ? null : new String(evt.ext_descr)), languages))
-                                        .setContentRatings(evt.rrt_ratings == null ? null : parseDRatingsT(new String(evt.rrt_ratings), mTvDataBaseManager, (evt.name == null ? null : new String(evt.name)), c.getUri(), -1, start * 1000))
-                                        //.setContentRatings(evt.rrt_ratings == null ? null : DroidLogicTvUtils.parseDRatings(new String(evt.rrt_ratings)))
-                                        //.setCanonicalGenres(programInfo.genres)
-                                        //.setPosterArtUri(programInfo.posterArtUri)
-                                        .setInternalProviderData(evt.rrt_ratings == null ? null : new String(evt.rrt_ratings))
-                                        .setStartTimeUtcMillis(start * 1000)
-                                        .setEndTimeUtcMillis(end * 1000)
-                                        .setVersion(String.valueOf(evt.sub_flag))
-                                        .setEitExt(String.valueOf(evt.sub_status))
-                                        .build();
-                                    boolean isPexist = false;
-                                    for (Program oldProgram : programs) {
-                                        if (oldProgram.equals(p)) {
-                                            isPexist = true;
-                                            break;
-                                        }
-                                    }
-                                    if (isPexist) {
-                                        continue;
-                                    }
-                                    programs.add(p);
-                                    if (DEBUG) Log.v(TAG, "epg: sid[" + evt.srv_id + "]"
-                                          + "eid[" + evt.evt_id + "]"
-                                          + "ver[" + evt.sub_flag + ":" +evt.sub_status + "]"
-                                          + "{" + p.getTitle() + "}"
-                                          + "[" + (p.getStartTimeUtcMillis() == 0 ? 0 : p.getStartTimeUtcMillis() / 1000)
-                                          + "-" + (p.getEndTimeUtcMillis() == 0 ? 0 : p.getEndTimeUtcMillis() / 1000) + "]"
-                                          + "R["+ Program.contentRatingsToString(p.getContentRatings()) +"]");
-                                } catch (Exception e) {
-                                    e.printStackTrace();
+                    for (DTVEpgScanner.Event.Evt evt : bucket.evts) {
+                        try {
+                            long start = evt.start;
+                            long end = evt.end;
+                            //if (start != 0 && end !=0 && evt.rrt_ratings == null)
+                            //    throw new Exception("Receive EIT data,but rating is NULL!!!");
+                            Program p = new Program.Builder()
+                                .setProgramId(evt.evt_id)
+                                .setChannelId(cid)
+                                .setTitle(TvMultilingualText.getText((evt.name == null ? null : new String(evt.name)), languages))
+                                .setDescription(TvMultilingualText.getText((evt.ext_descr == null ? null : new String(evt.ext_descr)), languages))
+                                .setContentRatings(evt.rrt_ratings == null ? null : parseDRatingsT(new String(evt.rrt_ratings), mTvDataBaseManager, (evt.name == null ? null : new String(evt.name)), c.getUri(), -1, start * 1000))
+                                //.setContentRatings(evt.rrt_ratings == null ? null : DroidLogicTvUtils.parseDRatings(new String(evt.rrt_ratings)))
+                                //.setCanonicalGenres(programInfo.genres)
+                                //.setPosterArtUri(programInfo.posterArtUri)
+                                .setInternalProviderData(evt.rrt_ratings == null ? null : new String(evt.rrt_ratings))
+                                .setStartTimeUtcMillis(start * 1000)
+                                .setEndTimeUtcMillis(end * 1000)
+                                .setVersion(String.valueOf(evt.sub_flag))
+                                .setEitExt(String.valueOf(evt.sub_status))
+                                .build();
+                            boolean isPexist = false;
+                            for (Program oldProgram : programs) {
+                                if (oldProgram.equals(p)) {
+                                    isPexist = true;
+                                    break;
                                 }
                             }
+                            if (isPexist) {
+                                continue;
+                            }
+                            programs.add(p);
+                            if (DEBUG) Log.v(TAG, "epg: sid[" + evt.srv_id + "]"
+                                  + "eid[" + evt.evt_id + "]"
+                                  + "ver[" + evt.sub_flag + ":" +evt.sub_status + "]"
+                                  + "{" + p.getTitle() + "}"
+                                  + "[" + (p.getStartTimeUtcMillis() == 0 ? 0 : p.getStartTimeUtcMillis() / 1000)
+                                  + "-" + (p.getEndTimeUtcMillis() == 0 ? 0 : p.getEndTimeUtcMillis() / 1000) + "]"
+                                  + "R["+ Program.contentRatingsToString(p.getContentRatings()) +"]");
+                        } catch (Exception e) {
+                            e.printStackTrace();
                         }
                     }
 
@@ -4009,19 +4068,19 @@ public class DTVInputService extends DroidLogicTvInputService implements TvContr
                 if (isAtscEvent(firstevent.evts[0])) {
                     updateAtscPrograms(epglist);
                 } else {
-                    for (int i = 0; (channelMap != null && i < channelMap.size()); ++i) {
+                    if (channelMap == null)
+                        return;
+                    /*only the channels with events in this batch are looked at*/
+                    mEpgRouter.setChannels(channelMap);
+                    for (EpgEventRouter.Bucket bucket : mEpgRouter.route(epglist)) {
                         if (!isAlive) {
                             Log.e(TAG, "DTVMonitor is destroyed, exit EVENT_PROGRAM_EVENTS_UPDATE");
                             return;
                         }
-                        ChannelInfo channel = (ChannelInfo)channelMap.get(i);
+                        ChannelInfo channel = bucket.channel;
                         Uri channelUri = TvContract.buildChannelUri(channel.getId());
 
-                        List<Program> channel_programs = new ArrayList<Program>();
-                        for (DTVEpgScanner.Event event : epglist) {
-                            List<Program> programs = getChannelPrograms(channelUri, channel, event);
-                            channel_programs.addAll(programs);
-                        }
+                        List<Program> channel_programs = getChannelPrograms(channelUri, channel, bucket.evts);
                         synchronized(mEpgUpdateLock) {
                             if (mTvDataBaseManager != null && channel_programs.size() != 0)
                                 mTvDataBaseManager.updatePrograms(channelUri, channel.getId(), channel_programs, null, false);
@@ -4066,6 +4125,7 @@ public class DTVInputService extends DroidLogicTvInputService implements TvContr
                         synchronized(mEpgQueueLock) {
                             if (mEpgeventQueue != null) {
                                 mEpgeventQueue.clear();
+                                mEpgQueueLock.notifyAll();
                             }
                         }
                         if (mMonitorHandler != null) {
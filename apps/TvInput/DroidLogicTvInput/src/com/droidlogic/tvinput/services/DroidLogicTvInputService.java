@@ -180,6 +180,8 @@ public abstract class DroidLogicTvInputService extends TvInputService implements
         mTvInputManager = (TvInputManager)this.getSystemService(Context.TV_INPUT_SERVICE);
         mSystemControlManager = SystemControlManager.getInstance();
         mTvControlManager = TvControlManager.getInstance();
+        //scan listeners in this process retain and detach the events they keep
+        mTvControlManager.setScannerEventRecycling(true);
         mContentResolver = this.getContentResolver();
         initTvPlaySetting();
         mAudioConfigManager = AudioConfigManager.getInstance(getApplicationContext());
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2014 Amlogic, Inc. All rights reserved.
+ *
+ * This source code is subject to the terms and conditions defined in the
+ * file 'LICENSE' which is part of this source code package.
+ *
+ * Description: JAVA file
+ */
+
+package com.droidlogic.tvinput.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.droidlogic.app.tv.ChannelInfo;
+
+/**
+ * Groups the Evts of an EIT batch by the channel they belong to, so a batch only walks its
+ * Evts once and only the channels that got events are updated.
+ *
+ * DVB Evts are matched by ONID/TSID/SID, ATSC Evts by the source id of the channel, or through
+ * the VCT map when one is given. Buckets come back in channel list order, and the Evts of a
+ * bucket keep the batch order.
+ */
+class EpgEventRouter {
+
+    static final class Bucket {
+        final ChannelInfo channel;
+        final int position;
+        final ArrayList<DTVEpgScanner.Event.Evt> evts = new ArrayList<DTVEpgScanner.Event.Evt>();
+
+        Bucket(ChannelInfo channel, int position) {
+            this.channel = channel;
+            this.position = position;
+        }
+    }
+
+    private List<ChannelInfo> mChannels;
+    private final HashMap<Long, int[]> mServiceIndex = new HashMap<Long, int[]>();
+    private final HashMap<Integer, int[]> mSourceIndex = new HashMap<Integer, int[]>();
+    private final HashMap<Long, Integer> mIdIndex = new HashMap<Long, Integer>();
+    private Bucket[] mBuckets = new Bucket[0];
+
+    private long mRoutedCount = 0;
+    private long mUnmatchedCount = 0;
+
+    private static long serviceKey(int netId, int tsId, int srvId) {
+        return ((long)(netId & 0xffff) << 32) | ((long)(tsId & 0xffff) << 16) | (srvId & 0xffff);
+    }
+
+    private static <K> void add(HashMap<K, int[]> index, K key, int position) {
+        int[] positions = index.get(key);
+        if (positions == null) {
+            positions = new int[] {position};
+        } else {
+            positions = Arrays.copyOf(positions, positions.length + 1);
+            positions[positions.length - 1] = position;
+        }
+        index.put(key, positions);
+    }
+
+    /**
+     * index the channel list, a no-op while it is the list indexed last, channelMap is
+     * replaced and not changed in place when the channels change
+     */
+    void setChannels(List<ChannelInfo> channels) {
+        if (channels == mChannels)
+            return;
+        mChannels = channels;
+        mServiceIndex.clear();
+        mSourceIndex.clear();
+        mIdIndex.clear();
+        int size = channels == null ? 0 : channels.size();
+        mBuckets = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            ChannelInfo c = channels.get(i);
+            if (c == null)
+                continue;
+            add(mServiceIndex, serviceKey(c.getOriginalNetworkId(), c.getTransportStreamId(), c.getServiceId()), i);
+            add(mSourceIndex, c.getSourceId(), i);
+            if (!mIdIndex.containsKey(c.getId()))
+                mIdIndex.put(c.getId(), i);
+        }
+    }
+
+    /**
+     * buckets of a DVB batch, ATSC Evts in it are matched by the source id of the channels
+     */
+    List<Bucket> route(List<DTVEpgScanner.Event> epglist) {
+        ArrayList<Bucket> touched = new ArrayList<Bucket>();
+        for (DTVEpgScanner.Event event : epglist) {
+            for (DTVEpgScanner.Event.Evt evt : event.evts) {
+                boolean matched = false;
+                if (evt.source_id != -1) {
+                    int[] positions = mSourceIndex.get(evt.srv_id);
+                    if (positions != null) {
+                        for (int i : positions) {
+                            addEvt(touched, i, evt);
+                        }
+                        matched = true;
+                    }
+                } else {
+                    int[] positions = mServiceIndex.get(serviceKey(evt.net_id, evt.ts_id, evt.srv_id));
+                    if (positions != null) {
+                        for (int i : positions) {
+                            // the key keeps 16 bits of each id, compare them all
+                            ChannelInfo c = mChannels.get(i);
+                            if (c.getTransportStreamId() == evt.ts_id
+                                    && c.getServiceId() == evt.srv_id
+                                    && c.getOriginalNetworkId() == evt.net_id) {
+                                addEvt(touched, i, evt);
+                                matched = true;
+                            }
+                        }
+                    }
+                }
+                if (matched)
+                    mRoutedCount++;
+                else
+                    mUnmatchedCount++;
+            }
+        }
+        return finish(touched);
+    }
+
+    /**
+     * buckets of an ATSC batch, Evts are matched by source id through the VCT map
+     */
+    List<Bucket> routeAtsc(List<DTVEpgScanner.Event> epglist, Map<Integer, Long> vct) {
+        ArrayList<Bucket> touched = new ArrayList<Bucket>();
+        for (DTVEpgScanner.Event event : epglist) {
+            for (DTVEpgScanner.Event.Evt evt : event.evts) {
+                Long cid = vct.get(evt.source_id);
+                Integer position = cid == null ? null : mIdIndex.get(cid);
+                if (position == null) {
+                    mUnmatchedCount++;
+                    continue;
+                }
+                addEvt(touched, position, evt);
+                mRoutedCount++;
+            }
+        }
+        return finish(touched);
+    }
+
+    private void addEvt(ArrayList<Bucket> touched, int position, DTVEpgScanner.Event.Evt evt) {
+        Bucket bucket = mBuckets[position];
+        if (bucket == null) {
+            bucket = new Bucket(mChannels.get(position), position);
+            mBuckets[position] = bucket;
+            touched.add(bucket);
+        }
+        bucket.evts.add(evt);
+    }
+
+    private List<Bucket> finish(ArrayList<Bucket> touched) {
+        for (Bucket bucket : touched) {
+            mBuckets[bucket.position] = null;
+        }
+        if (touched.size() > 1) {
+            Collections.sort(touched, new Comparator<Bucket>() {
+                @Override
+                public int compare(Bucket a, Bucket b) {
+                    return Integer.compare(a.position, b.position);
+                }
+            });
+        }
+        return touched;
+    }
+
+    String dumpStats() {
+        return "channels:" + (mChannels == null ? 0 : mChannels.size())
+            + " routed:" + mRoutedCount + " unmatched:" + mUnmatchedCount;
+    }
+}
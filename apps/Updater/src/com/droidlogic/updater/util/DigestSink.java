@@ -0,0 +1,177 @@
+/******************************************************************
+*
+*Copyright (C) 2012 Amlogic, Inc.
+*
+*Licensed under the Apache License, Version 2.0 (the "License");
+*you may not use this file except in compliance with the License.
+*You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*Unless required by applicable law or agreed to in writing, software
+*distributed under the License is distributed on an "AS IS" BASIS,
+*WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+*See the License for the specific language governing permissions and
+*limitations under the License.
+******************************************************************/
+package com.droidlogic.updater.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * MD5 and SHA-256 of a stream of bytes, fed as they are written so a download or a copy
+ * does not have to be read back to be verified.
+ *
+ * Files already on disk are read with a large buffer, a direct one kept for the next call
+ * when they are big, so hashing a big file never maps more than a buffer of it.
+ */
+public class DigestSink {
+    public static final String MD5 = "MD5";
+    public static final String SHA256 = "SHA-256";
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final long DIRECT_MIN_SIZE = 4 * 1024 * 1024;
+
+    private final MessageDigest mMd5;
+    private final MessageDigest mSha256;
+    private long mLength = 0;
+    private byte[] mMd5Result;
+    private byte[] mSha256Result;
+    private ByteBuffer mDirectBuffer;
+
+    public DigestSink() {
+        this(true, true);
+    }
+
+    public DigestSink(boolean md5, boolean sha256) {
+        try {
+            mMd5 = md5 ? MessageDigest.getInstance(MD5) : null;
+            mSha256 = sha256 ? MessageDigest.getInstance(SHA256) : null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void update(byte[] data, int offset, int count) {
+        if (mMd5 != null)
+            mMd5.update(data, offset, count);
+        if (mSha256 != null)
+            mSha256.update(data, offset, count);
+        mLength += count;
+    }
+
+    public void update(ByteBuffer buffer) {
+        int count = buffer.remaining();
+        if (mMd5 != null) {
+            ByteBuffer copy = mSha256 != null ? buffer.duplicate() : buffer;
+            mMd5.update(copy);
+        }
+        if (mSha256 != null)
+            mSha256.update(buffer);
+        mLength += count;
+    }
+
+    /**
+     * feed length bytes of a channel from position, the channel position is not used
+     */
+    public void update(FileChannel channel, long position, long length) throws IOException {
+        if (length >= DIRECT_MIN_SIZE) {
+            if (mDirectBuffer == null)
+                mDirectBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long done = 0;
+            while (done < length) {
+                mDirectBuffer.clear();
+                mDirectBuffer.limit((int) Math.min(BUFFER_SIZE, length - done));
+                int count = channel.read(mDirectBuffer, position + done);
+                if (count < 0)
+                    throw new IOException("unexpected end at " + (position + done));
+                mDirectBuffer.flip();
+                update(mDirectBuffer);
+                done += count;
+            }
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(1, length)));
+        long done = 0;
+        while (done < length) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), length - done));
+            int count = channel.read(buffer, position + done);
+            if (count < 0)
+                throw new IOException("unexpected end at " + (position + done));
+            update(buffer.array(), 0, count);
+            done += count;
+        }
+    }
+
+    public static DigestSink of(File file, boolean md5, boolean sha256) throws IOException {
+        DigestSink sink = new DigestSink(md5, sha256);
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            sink.update(channel, 0, channel.size());
+        }
+        return sink;
+    }
+
+    public long getLength() {
+        return mLength;
+    }
+
+    /**
+     * digests end the sink, later updates are not counted
+     */
+    public synchronized byte[] md5() {
+        if (mMd5Result == null && mMd5 != null)
+            mMd5Result = mMd5.digest();
+        return mMd5Result;
+    }
+
+    public synchronized byte[] sha256() {
+        if (mSha256Result == null && mSha256 != null)
+            mSha256Result = mSha256.digest();
+        return mSha256Result;
+    }
+
+    public String md5Hex() {
+        return toHex(md5());
+    }
+
+    public String sha256Hex() {
+        return toHex(sha256());
+    }
+
+    /**
+     * compare with an expected hex digest, an MD5 if it is 32 digits or less, leading
+     * zeros may be missing as the servers send them, a SHA-256 otherwise
+     */
+    public boolean matches(String expected) {
+        if (expected == null)
+            return false;
+        byte[] digest = expected.length() <= 32 ? md5() : sha256();
+        if (digest == null)
+            return false;
+        try {
+            return new BigInteger(1, digest).equals(new BigInteger(expected, 16));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    public static String toHex(byte[] digest) {
+        if (digest == null)
+            return null;
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16))
+                .append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
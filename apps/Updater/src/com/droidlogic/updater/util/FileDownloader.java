@@ -16,15 +16,27 @@
 
 package com.droidlogic.updater.util;
 
+import android.os.SystemClock;
 import android.util.Log;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.droidlogic.updater.util.PermissionUtils;
 
@@ -32,16 +44,56 @@ import com.droidlogic.updater.util.PermissionUtils;
  * Downloads chunk of a file from given url using {@code offset} and {@code size},
  * and saves to a given location.
  *
- * In a real-life application this helper class should download from HTTP Server,
- * but in this sample app it will only download from a local file.
+ * Ranges larger than one segment are split into {@link #SEGMENT_SIZE} segments fetched by up
+ * to {@link #MAX_CONNECTIONS} connections, each written at its place in the destination. The
+ * segments done are kept in a {@code .seg} file next to the destination, so a download stopped
+ * by {@link #stopDown}, a network loss or a reboot only fetches the missing segments the next
+ * time the same range is downloaded to the same file.
+ *
+ * With {@link #setVerify} the MD5 and SHA-256 of the range are computed while it downloads: the
+ * bytes following the hashed part are hashed as they arrive, the segments finished out of order
+ * are read back from disk once the segments before them are done, and each segment fetched also
+ * gets its own SHA-256.
  */
 public final class FileDownloader {
 
+    public static final long SEGMENT_SIZE = 8 * 1024 * 1024;
+    public static final int MAX_CONNECTIONS = 4;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int RETRIES = 3;
+    private static final long RETRY_DELAY_MS = 1000;
+    private static final int TIMEOUT_MS = 15 * 1000;
+
+    private static final int STATE_MAGIC = 0x46445331;     // FDS1
+    private static final String STATE_SUFFIX = ".seg";
+
+    /**
+     * Progress of a download, called on the download threads.
+     */
+    public interface Listener {
+        void onProgress(long downloaded, long size, long bytesPerSecond);
+    }
+
     private String mUrl;
     private long mOffset;
     private long mSize;
     private File mDestination;
-    private boolean stopFlag;
+    private volatile boolean stopFlag;
+    private int mConnections = MAX_CONNECTIONS;
+    private Listener mListener;
+    private final List<HttpURLConnection> mOpenConnections = new ArrayList<HttpURLConnection>();
+
+    private boolean mVerify;
+    private final Object mDigestLock = new Object();
+    private DigestSink mDigest;
+    private long mHashed;
+    private DigestSink mResult;
+    private byte[][] mSegmentSha256;
+
+    private final AtomicLong mDownloaded = new AtomicLong();
+    private final AtomicLong mFetched = new AtomicLong();
+    private long mStartTime;
+    private long mElapsed;
     private static final String TAG = "ABUpdate";
 
     public FileDownloader(String url, long offset, long size, File destination) {
@@ -52,6 +104,24 @@ public final class FileDownloader {
         this.stopFlag = false;
     }
 
+    /**
+     * Sets the number of concurrent connections, 1 fetches the segments one after another.
+     */
+    public void setConnections(int connections) {
+        mConnections = Math.max(1, Math.min(MAX_CONNECTIONS, connections));
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Computes the digests of the range during the next {@link #download} calls.
+     */
+    public void setVerify(boolean verify) {
+        mVerify = verify;
+    }
+
     /**
      * Downloads the file with given offset and size.
      * @throws IOException when can't download the file
@@ -61,44 +131,336 @@ public final class FileDownloader {
                 + " from " + mUrl
                 + " to " + mDestination.getAbsolutePath());
 
-        URL url = new URL(mUrl);
-        URLConnection connection = url.openConnection();
-        connection.addRequestProperty("Range", "bytes=" + mOffset + "-"+(mOffset+mSize));
-        connection.connect();
-
         stopFlag = false;
-        // download the file
-        try (InputStream input = connection.getInputStream()) {
-            try (OutputStream output = new FileOutputStream(mDestination)) {
-               /* long skipped = input.skip(mOffset);
-                if (skipped != mOffset) {
-                    throw new IOException("Can't download file "
-                            + mUrl
-                            + " with given offset "
-                            + mOffset);
-                }*/
-                byte[] data = new byte[4096];
-                long total = 0;
-                while (total < mSize && !stopFlag) {
-                    int needToRead = (int) Math.min(4096, mSize - total);
-                    int count = input.read(data, 0, needToRead);
-                    if (count <= 0) {
-                        break;
+        mFetched.set(0);
+        mElapsed = 0;
+        mStartTime = SystemClock.elapsedRealtime();
+        final int segments = (int) Math.max(1, (mSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        File stateFile = new File(mDestination.getPath() + STATE_SUFFIX);
+        final BitSet done = segments > 1 ? readState(stateFile, segments) : new BitSet(segments);
+        mDigest = mVerify ? new DigestSink() : null;
+        mHashed = 0;
+        mResult = null;
+        mSegmentSha256 = mVerify ? new byte[segments][] : null;
+
+        try (RandomAccessFile file = new RandomAccessFile(mDestination, "rw")) {
+            if (done.isEmpty() || file.length() != mSize) {
+                done.clear();
+                file.setLength(mSize);
+            }
+            final FileChannel channel = file.getChannel();
+            long resumed = 0;
+            for (int i = done.nextSetBit(0); i >= 0; i = done.nextSetBit(i + 1)) {
+                resumed += segmentLength(i);
+            }
+            mDownloaded.set(resumed);
+            if (resumed > 0 && PermissionUtils.CanDebug()) Log.d(TAG, "resume "
+                    + mDestination.getName() + " at " + resumed + "/" + mSize);
+
+            final AtomicInteger next = new AtomicInteger(0);
+            final IOException[] failure = new IOException[1];
+            Runnable worker = new Runnable() {
+                public void run() {
+                    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                    while (!stopFlag) {
+                        int segment;
+                        synchronized (done) {
+                            if (failure[0] != null)
+                                return;
+                            segment = done.nextClearBit(next.get());
+                            if (segment >= segments)
+                                return;
+                            next.set(segment + 1);
+                        }
+                        try {
+                            fetchSegment(segment, channel, buffer);
+                            if (stopFlag)
+                                return;
+                            // the segment has to be on disk before the state says so
+                            if (segments > 1)
+                                channel.force(false);
+                            synchronized (done) {
+                                done.set(segment);
+                                if (segments > 1)
+                                    writeState(stateFile, done, segments);
+                            }
+                            hashDone(channel, done);
+                        } catch (IOException e) {
+                            synchronized (done) {
+                                if (failure[0] == null)
+                                    failure[0] = e;
+                            }
+                            return;
+                        }
                     }
-                    output.write(data, 0, count);
-                    total += count;
                 }
-                if (PermissionUtils.CanDebug()) Log.d(TAG,"download"+total+"/"+mSize);
-                if (total != mSize) {
-                    throw new IOException("Can't download file "
-                            + mUrl
-                            + " with given size "
-                            + mSize);
+            };
+
+            int threads = Math.min(mConnections, segments - done.cardinality());
+            if (threads <= 1) {
+                worker.run();
+            } else {
+                Thread[] workers = new Thread[threads];
+                for (int i = 0; i < threads; i++) {
+                    workers[i] = new Thread(worker, "FileDownloader-" + i);
+                    workers[i].start();
+                }
+                // the workers write to the channel, it may only be closed once all of them are gone
+                boolean interrupted = false;
+                for (Thread thread : workers) {
+                    while (thread.isAlive()) {
+                        try {
+                            thread.join();
+                        } catch (InterruptedException e) {
+                            if (!interrupted)
+                                stopDown();
+                            interrupted = true;
+                        }
+                    }
                 }
+                if (interrupted)
+                    Thread.currentThread().interrupt();
+            }
+            mElapsed = SystemClock.elapsedRealtime() - mStartTime;
+            if (PermissionUtils.CanDebug()) Log.d(TAG, "download " + mDownloaded.get() + "/" + mSize
+                    + " fetched " + mFetched.get() + " in " + mElapsed + "ms, "
+                    + getBytesPerSecond() / 1024 + "KB/s");
+
+            if (failure[0] != null)
+                throw failure[0];
+            if (stopFlag || mDownloaded.get() != mSize) {
+                throw new IOException("Can't download file "
+                        + mUrl
+                        + " with given size "
+                        + mSize);
+            }
+            if (mDigest != null) {
+                // segments resumed from an earlier run may be all there is
+                hashDone(channel, done);
+                mResult = mDigest;
             }
         }
+        stateFile.delete();
     }
+
     public void stopDown() {
         stopFlag  = true;
+        synchronized (mOpenConnections) {
+            for (HttpURLConnection connection : mOpenConnections) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Bytes of the range on disk, including the segments of an earlier run.
+     */
+    public long getDownloadedBytes() {
+        return mDownloaded.get();
+    }
+
+    /**
+     * Average rate of the bytes fetched by the current or the last {@link #download} call.
+     */
+    public long getBytesPerSecond() {
+        long elapsed = stopFlag || mElapsed > 0 ? mElapsed : SystemClock.elapsedRealtime() - mStartTime;
+        return elapsed > 0 ? mFetched.get() * 1000 / elapsed : 0;
+    }
+
+    /**
+     * Digests of the whole range, null until a {@link #download} with {@link #setVerify} is done.
+     */
+    public DigestSink getDigest() {
+        return mResult;
+    }
+
+    /**
+     * @return true if the range downloaded has this MD5 or SHA-256 hex digest
+     */
+    public boolean verify(String expected) {
+        boolean match = mResult != null && mResult.matches(expected);
+        if (!match) Log.e(TAG, mDestination.getName() + " digest mismatch, expected " + expected);
+        return match;
+    }
+
+    /**
+     * SHA-256 of a segment fetched by the last {@link #download}, null for the segments that
+     * were already on disk or when not verifying.
+     */
+    public byte[] getSegmentSha256(int segment) {
+        byte[][] digests = mSegmentSha256;
+        return digests != null && segment < digests.length ? digests[segment] : null;
+    }
+
+    public int getSegmentCount() {
+        return (int) Math.max(1, (mSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+    }
+
+    private long segmentLength(int segment) {
+        return Math.min(SEGMENT_SIZE, mSize - segment * SEGMENT_SIZE);
+    }
+
+    private void fetchSegment(int segment, FileChannel channel, ByteBuffer buffer) throws IOException {
+        long start = segment * SEGMENT_SIZE;
+        long length = segmentLength(segment);
+        long written = 0;
+        DigestSink digest = mDigest != null ? new DigestSink(false, true) : null;
+        for (int attempt = 0; ; attempt++) {
+            long before = written;
+            try {
+                written += fetchRange(start + written, length - written, channel, buffer, digest);
+                if (written == length && digest != null)
+                    mSegmentSha256[segment] = digest.sha256();
+                if (written == length || stopFlag)
+                    return;
+                throw new IOException("segment " + segment + " ended at " + written + "/" + length);
+            } catch (IOException e) {
+                // a retry goes on where the failed request stopped
+                if (stopFlag)
+                    return;
+                if (attempt >= RETRIES && written == before)
+                    throw e;
+                if (PermissionUtils.CanDebug()) Log.w(TAG, "segment " + segment + " retry: " + e);
+                SystemClock.sleep(RETRY_DELAY_MS << Math.min(attempt, 3));
+            }
+        }
+    }
+
+    /**
+     * @return bytes written at position..position+length of the destination
+     */
+    private long fetchRange(long position, long length, FileChannel channel, ByteBuffer buffer,
+            DigestSink segmentDigest) throws IOException {
+        long from = mOffset + position;
+        URLConnection connection = new URL(mUrl).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MS);
+        connection.setReadTimeout(TIMEOUT_MS);
+        connection.addRequestProperty("Range", "bytes=" + from + "-" + (from + length - 1));
+        HttpURLConnection http = connection instanceof HttpURLConnection
+                ? (HttpURLConnection) connection : null;
+        if (http != null) {
+            synchronized (mOpenConnections) {
+                mOpenConnections.add(http);
+            }
+        }
+        long written = 0;
+        try {
+            connection.connect();
+            InputStream input = connection.getInputStream();
+            if (http != null && http.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+                // the whole file came back, only fine when it starts where we want
+                if (from != 0)
+                    throw new IOException("range not supported by " + mUrl);
+            } else if (http == null && from > 0 && input.skip(from) != from) {
+                throw new IOException("can't skip to " + from + " of " + mUrl);
+            }
+            byte[] data = buffer.array();
+            while (written < length && !stopFlag) {
+                int count = input.read(data, 0, (int) Math.min(data.length, length - written));
+                if (count <= 0)
+                    break;
+                buffer.clear();
+                buffer.limit(count);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, position + written + buffer.position());
+                }
+                if (segmentDigest != null) {
+                    segmentDigest.update(data, 0, count);
+                    hashWritten(position + written, data, count);
+                }
+                written += count;
+                mFetched.addAndGet(count);
+                long downloaded = mDownloaded.addAndGet(count);
+                if (mListener != null)
+                    mListener.onProgress(downloaded, mSize, getBytesPerSecond());
+            }
+            input.close();
+            return written;
+        } catch (IOException e) {
+            if (written > 0)
+                return written;
+            throw e;
+        } finally {
+            if (http != null) {
+                synchronized (mOpenConnections) {
+                    mOpenConnections.remove(http);
+                }
+                http.disconnect();
+            }
+        }
+    }
+
+    /**
+     * bytes written right after the hashed part go to the digest straight from the buffer
+     */
+    private void hashWritten(long position, byte[] data, int count) {
+        synchronized (mDigestLock) {
+            if (position == mHashed) {
+                mDigest.update(data, 0, count);
+                mHashed += count;
+            }
+        }
+    }
+
+    /**
+     * hash what was written out of order up to the first segment not done yet
+     */
+    private void hashDone(FileChannel channel, BitSet done) throws IOException {
+        if (mDigest == null)
+            return;
+        long end;
+        synchronized (done) {
+            end = Math.min(mSize, done.nextClearBit(0) * SEGMENT_SIZE);
+        }
+        synchronized (mDigestLock) {
+            if (mHashed < end) {
+                mDigest.update(channel, mHashed, end - mHashed);
+                mHashed = end;
+            }
+        }
+    }
+
+    /**
+     * segments already on disk for this url and range, empty if the state is missing or
+     * belongs to another download
+     */
+    private BitSet readState(File stateFile, int segments) {
+        BitSet done = new BitSet(segments);
+        if (!stateFile.exists())
+            return done;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(stateFile))) {
+            if (in.readInt() != STATE_MAGIC || !mUrl.equals(in.readUTF())
+                    || in.readLong() != mOffset || in.readLong() != mSize
+                    || in.readLong() != SEGMENT_SIZE) {
+                return done;
+            }
+            byte[] bits = new byte[in.readInt()];
+            in.readFully(bits);
+            done.or(BitSet.valueOf(bits));
+            done.clear(segments, Math.max(segments, done.length()));
+        } catch (IOException e) {
+            if (PermissionUtils.CanDebug()) Log.w(TAG, "ignore " + stateFile + ": " + e);
+            done.clear();
+        }
+        return done;
+    }
+
+    private void writeState(File stateFile, BitSet done, int segments) throws IOException {
+        File tmp = new File(stateFile.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+                DataOutputStream out = new DataOutputStream(fos)) {
+            out.writeInt(STATE_MAGIC);
+            out.writeUTF(mUrl);
+            out.writeLong(mOffset);
+            out.writeLong(mSize);
+            out.writeLong(SEGMENT_SIZE);
+            byte[] bits = done.toByteArray();
+            out.writeInt(bits.length);
+            out.write(bits);
+            out.flush();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(stateFile))
+            throw new IOException("can't save " + stateFile);
     }
 }
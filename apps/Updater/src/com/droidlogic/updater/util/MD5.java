@@ -17,12 +17,8 @@
 package com.droidlogic.updater.util;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.math.BigInteger;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 import android.R.string;
 import android.util.Log;
@@ -31,43 +27,16 @@ public class MD5 {
     static String TAG = "MD5";
 
     private static String createMd5(File file) {
-        MessageDigest mMDigest;
-        FileInputStream Input = null;
-        byte buffer[] = new byte[1024];
-        int len;
         if (!file.exists())
             return null;
         try {
-            mMDigest = MessageDigest.getInstance("MD5");
-            Input = new FileInputStream(file);
-            while ((len = Input.read(buffer, 0, 1024)) != -1) {
-                mMDigest.update(buffer, 0, len);
-            }
-            Input.close();
-            Input=null;
-        } catch (NoSuchAlgorithmException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-            return null;
-        } catch (FileNotFoundException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-            return null;
+            String md5 = new BigInteger(1, DigestSink.of(file, true, false).md5()).toString(16);
+            Log.v(TAG, "create_MD5=" + md5);
+            return md5;
         } catch (IOException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-            try {
-                Input.close();
-            } catch (IOException e1) {
-                // TODO Auto-generated catch block
-                e1.printStackTrace();
-            }
+            Log.e(TAG, "create md5 of " + file + " failed: " + e);
             return null;
         }
-        BigInteger mBInteger = new BigInteger(1, mMDigest.digest());
-        Log.v(TAG, "create_MD5=" + mBInteger.toString(16));
-        return mBInteger.toString(16);
-
     }
     public static boolean checkMd5(String Md5,File file){
         String str = createMd5(file);
@@ -86,8 +55,26 @@ public class MD5 {
         return checkMd5(Md5,file);
     }
     public static boolean checkMd5Files(File file1,File file2){
+        // the copy and its source are mostly on different storages, read both at once
+        final File second = file2;
+        final String[] result = new String[1];
+        Thread other = new Thread("MD5") {
+            @Override
+            public void run() {
+                result[0] = createMd5(second);
+            }
+        };
+        other.start();
         String str1 = createMd5(file1);
-        String str2 = createMd5(file2);
+        try {
+            other.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        String str2 = result[0];
+        if (str1 == null || str2 == null)
+            return false;
         if (str1.equalsIgnoreCase(str2)) {
             Log.d(TAG,"copy varify md5sum = " + str1+"Md5="+str2);
             return true;
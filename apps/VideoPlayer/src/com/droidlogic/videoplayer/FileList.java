@@ -76,6 +76,7 @@ import android.os.Message;
 import com.droidlogic.app.SystemControlManager;
 import com.droidlogic.app.FileListManager;
 import com.droidlogic.app.FileListManager.MyFilter;
+import com.droidlogic.app.MediaIndexManager;
 
 public class FileList extends ListActivity {
         private static final String SD_PATH             = "/storage/external_storage/sdcard1";
@@ -96,6 +97,14 @@ public class FileList extends ListActivity {
         private ApplicationInfo mAppInfo;
 
         private boolean mListAllFiles = true;
+        private MediaIndexManager mMediaIndex;
+        private MediaIndexManager.Listener mIndexListener = new MediaIndexManager.Listener() {
+            public void onIndexUpdated(String volumePath) {
+                if (mListAllFiles && !isScanning && !isQuerying) {
+                    prepareFileForList();
+                }
+            }
+        };
         private boolean mFileFlag = false;
         private boolean mClickFlag = false;
         private List<Map<String, Object>> mFileList = null;
@@ -221,6 +230,7 @@ public class FileList extends ListActivity {
                 }
                 if (action.equals(Intent.ACTION_MEDIA_EJECT)
                     || action.equals(Intent.ACTION_MEDIA_UNMOUNTED) ) {
+                    mMediaIndex.onVolumeUnmounted(path);
                     if (mListAllFiles) {
                         prepareFileForList();
                     }
@@ -236,6 +246,7 @@ public class FileList extends ListActivity {
                 }
                 else if ((action.equals ("com.droidvold.action.MEDIA_UNMOUNTED")
                         || action.equals ("com.droidvold.action.MEDIA_EJECT")) && !path.equals("/dev/null")) {
+                    mMediaIndex.onVolumeUnmounted(path);
                     if (PlayList.getinstance().rootPath.startsWith (path)
                         || PlayList.getinstance().rootPath.equals (mRootPath)) {
                         BrowserFile(mRootPath);
@@ -245,6 +256,10 @@ public class FileList extends ListActivity {
                     }
                 }
                 else if (action.equals(Intent.ACTION_MEDIA_MOUNTED) || action.equals ("com.droidvold.action.MEDIA_MOUNTED")) {
+                    // the one for STORAGE is our own from reScanVideoFiles, syncVolumes already indexed the volumes
+                    if (!path.equals(FileListManager.STORAGE)) {
+                        mMediaIndex.onVolumeMounted(path);
+                    }
                     if (PlayList.getinstance().rootPath == null
                         || PlayList.getinstance().rootPath.equals(mRootPath)) {
                         BrowserFile (mRootPath);
@@ -304,6 +319,7 @@ public class FileList extends ListActivity {
             }
 
             registerReceiver(mListener, f);
+            mMediaIndex.addListener(mIndexListener);
         }
 
         public void onDestroy() {
@@ -321,6 +337,7 @@ public class FileList extends ListActivity {
                 timerScan.cancel();
             }
             unregisterReceiver(mListener);
+            mMediaIndex.removeListener(mIndexListener);
         }
 
         @Override
@@ -335,6 +352,8 @@ public class FileList extends ListActivity {
             }
             mFileListManager = new FileListManager(this);
             mRootPath = FileListManager.STORAGE;
+            mMediaIndex = MediaIndexManager.getInstance(this);
+            mMediaIndex.syncVolumes(this);
             mContext = this.getApplicationContext();
             mAppInfo = mContext.getApplicationInfo();
             PlayList.setContext (this);
@@ -461,6 +480,23 @@ public class FileList extends ListActivity {
                 setListAdapter (null);
                 isQuerying = true;
                 showSpinner();
+                //videos of the indexed volumes, media store until the first volume is indexed
+                if (mMediaIndex.hasReadyVolume()) {
+                    List<MediaIndexManager.Entry> videos = mMediaIndex.query(FileListManager.STORAGE,
+                        MediaIndexManager.TYPE_VIDEO, MediaIndexManager.SORT_NAME, false);
+                    for (MediaIndexManager.Entry video : videos) {
+                        mFileNames.add ("/" + video.name);
+                        mFilePaths.add (video.path);
+                    }
+                    tileText = (TextView) findViewById (R.id.TextView_path);
+                    tileText.setText (R.string.all_file);
+                    if (mFilePaths.size() > 0) {
+                        setListAdapter (new MyAdapter (this, mFileNames, mFilePaths));
+                    }
+                    isQuerying = false;
+                    showSpinner();
+                    return;
+                }
                 uri = MediaStore.Video.Media.EXTERNAL_CONTENT_URI;
                 Cursor cursor = getContentResolver().query (uri, mCursorCols, null, null, null);
                 cursor.moveToFirst();
@@ -937,6 +973,7 @@ public class FileList extends ListActivity {
         }
 
         public void reScanVideoFiles() {
+            mMediaIndex.syncVolumes(this);
             Intent intent = new Intent (Intent.ACTION_MEDIA_MOUNTED, Uri.parse ("file://" + mFileListManager.STORAGE));
             this.sendBroadcast (intent);
         }
@@ -10,7 +10,15 @@ package com.droidlogic.videoplayer;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.math.BigDecimal;
 
 public class MyComparator implements Comparator<File> {
@@ -27,6 +35,11 @@ public class MyComparator implements Comparator<File> {
         private int r_offset = 0;
         private int l_offset = 0;
 
+        //lists this long get their sort keys read by several threads
+        private static final int PARALLEL_SNAPSHOT_MIN = 512;
+        private static final int SNAPSHOT_THREADS = 4;
+        private static ExecutorService sSnapshotExecutor;
+
         public MyComparator (int mode) {
             if ( (mode >= NO_SORT) && (mode <= MODIFIED_DESCEND)) {
                 sort_mode = mode;
@@ -453,4 +466,266 @@ public class MyComparator implements Comparator<File> {
             java.text.DecimalFormat df = new java.text.DecimalFormat ("#.00");
             return Double.parseDouble (df.format (y1));
         }
+        /**
+         * Sort files like Collections.sort with this comparator, but stat each file and fold its
+         * name once up front and compare those snapshots, instead of doing it in every compare.
+         */
+        public void sortSnapshot (List<File> files) {
+            SortKey[] keys = snapshot (files);
+            try {
+                Arrays.sort (keys, new Comparator<SortKey>() {
+                    public int compare (SortKey k1, SortKey k2) {
+                        return compareKeys (k1, k2);
+                    }
+                });
+            }
+            catch (IllegalArgumentException ex) {
+                //as with compare, equal names do not compare as 0, keep what got sorted
+            }
+            for (int i = 0; i < keys.length; i++) {
+                files.set (i, keys[i].file);
+            }
+        }
+
+        public void sortSnapshot (File[] files) {
+            List<File> list = new ArrayList<File> (Arrays.asList (files));
+            sortSnapshot (list);
+            list.toArray (files);
+        }
+
+        private static final class SortKey {
+            final File file;
+            final String name;
+            //name and suffix with every char lower cased, as ustrcasecmp compares them
+            final char[] folded;
+            final char[] foldedSuffix;
+            final boolean exists;
+            final boolean isDirectory;
+            final boolean isFile;
+            final double sizeKb;
+            final long modified;
+
+            SortKey (File file, boolean needSize) {
+                this.file = file;
+                name = file.getName();
+                folded = fold (name);
+                foldedSuffix = fold (name.substring (name.lastIndexOf (".") + 1, name.length()));
+                exists = file.exists();
+                isDirectory = exists && file.isDirectory();
+                isFile = exists && file.isFile();
+                sizeKb = (needSize && isFile) ? roundKb (file.length()) : 0;
+                modified = exists ? file.lastModified() : 0;
+            }
+        }
+
+        private SortKey[] snapshot (final List<File> files) {
+            final SortKey[] keys = new SortKey[files.size()];
+            final boolean needSize = (sort_mode == SIZE_ASCEND) || (sort_mode == SIZE_DESCEND);
+            if (keys.length < PARALLEL_SNAPSHOT_MIN) {
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = new SortKey (files.get (i), needSize);
+                }
+                return keys;
+            }
+            ExecutorService executor = getSnapshotExecutor();
+            List<Future<?>> tasks = new ArrayList<Future<?>>();
+            int chunk = (keys.length + SNAPSHOT_THREADS - 1) / SNAPSHOT_THREADS;
+            for (int start = 0; start < keys.length; start += chunk) {
+                final int from = start;
+                final int to = Math.min (keys.length, start + chunk);
+                tasks.add (executor.submit (new Runnable() {
+                    public void run() {
+                        for (int i = from; i < to; i++) {
+                            keys[i] = new SortKey (files.get (i), needSize);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                catch (ExecutionException e) {
+                    break;
+                }
+            }
+            //anything a worker did not get to is read here
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == null) {
+                    keys[i] = new SortKey (files.get (i), needSize);
+                }
+            }
+            return keys;
+        }
+
+        private static synchronized ExecutorService getSnapshotExecutor() {
+            if (sSnapshotExecutor == null) {
+                sSnapshotExecutor = Executors.newFixedThreadPool (SNAPSHOT_THREADS, new ThreadFactory() {
+                    public Thread newThread (Runnable r) {
+                        Thread t = new Thread (r, "SortSnapshot");
+                        t.setDaemon (true);
+                        return t;
+                    }
+                });
+            }
+            return sSnapshotExecutor;
+        }
+
+        //same rules as compare, on the snapshots
+        private int compareKeys (SortKey f1, SortKey f2) {
+            int result = -1;
+            if ( (!f1.exists) || (!f2.exists)) {
+                return result;
+            }
+            boolean ascend = true;
+            switch (sort_mode) {
+                case NAME_ASCEND:
+                case NAME_DESCEND:
+                    ascend = sort_mode == NAME_ASCEND;
+                    if (f1.isDirectory && f2.isFile) {
+                        return ascend ? -1 : 1;
+                    }
+                    else if (f1.isFile && f2.isDirectory) {
+                        return ascend ? 1 : -1;
+                    }
+                    if (ascend) {
+                        return f1.name.compareToIgnoreCase (f2.name);
+                    }
+                    return -Integer.signum (foldedCompare (f1.folded, 0, f2.folded, 0));
+                case SIZE_ASCEND:
+                case SIZE_DESCEND:
+                    ascend = sort_mode == SIZE_ASCEND;
+                    if (f1.isDirectory && f2.isFile) {
+                        return ascend ? -1 : 1;
+                    }
+                    else if (f1.isFile && f2.isDirectory) {
+                        return ascend ? 1 : -1;
+                    }
+                    else if (f1.isDirectory && f2.isDirectory) {
+                        result = Integer.signum (foldedCompare (f1.folded, 0, f2.folded, 0));
+                    }
+                    else {
+                        result = Double.compare (f1.sizeKb, f2.sizeKb);
+                    }
+                    return ascend ? result : -result;
+                case TYPE_ASCEND:
+                case TYPE_DESCEND:
+                    if (f1.isDirectory && f2.isFile) {
+                        return -1;
+                    }
+                    else if (f1.isFile && f2.isDirectory) {
+                        return 1;
+                    }
+                    else if (f1.isDirectory && f2.isDirectory) {
+                        return Integer.signum (foldedCompare (f1.folded, 0, f2.folded, 0));
+                    }
+                    if (Arrays.equals (f1.foldedSuffix, f2.foldedSuffix)) {
+                        result = Integer.signum (foldedCompare (f1.folded, 0, f2.folded, 0));
+                    }
+                    else {
+                        result = Integer.signum (foldedCompare (f1.foldedSuffix, 0, f2.foldedSuffix, 0));
+                    }
+                    return (sort_mode == TYPE_ASCEND) ? result : -result;
+                case MODIFIED_ASCEND:
+                case MODIFIED_DESCEND:
+                    ascend = sort_mode == MODIFIED_ASCEND;
+                    if (f1.isDirectory && f2.isFile) {
+                        return ascend ? -1 : 1;
+                    }
+                    else if (f1.isFile && f2.isDirectory) {
+                        return ascend ? 1 : -1;
+                    }
+                    result = Long.signum (f1.modified - f2.modified);
+                    return ascend ? result : -result;
+                case NO_SORT:
+                default:
+                    return result;
+            }
+        }
+
+        private static char[] fold (String str) {
+            char[] chars = str.toCharArray();
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = Character.toLowerCase (chars[i]);
+            }
+            return chars;
+        }
+
+        private static int digitRun (char[] str, int offset) {
+            int run = 0;
+            while (offset + run < str.length && str[offset + run] >= '0' && str[offset + run] <= '9') {
+                run++;
+            }
+            return run;
+        }
+
+        //compare two digit runs as numbers, the shorter one padded with leading zeros
+        private static int compareDigits (char[] r_str, int r_start, int r_len, char[] l_str, int l_start, int l_len) {
+            int len = Math.max (r_len, l_len);
+            for (int i = 0; i < len; i++) {
+                int r_pos = i - (len - r_len);
+                int l_pos = i - (len - l_len);
+                char c1 = r_pos < 0 ? '0' : r_str[r_start + r_pos];
+                char c2 = l_pos < 0 ? '0' : l_str[l_start + l_pos];
+                if (c1 != c2) {
+                    return c1 - c2;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * ustrcasecmp of the already folded names from the given offsets, without
+         * building substrings
+         */
+        private static int foldedCompare (char[] r_str, int offset1, char[] l_str, int offset2) {
+            int result = -1;
+            if ( (offset1 >= r_str.length) || (offset2 >= l_str.length)) {
+                return result;
+            }
+            while (r_str[offset1] == l_str[offset2]) {
+                int r_run = digitRun (r_str, offset1);
+                int l_run = digitRun (l_str, offset2);
+                if (r_run > 0 && l_run > 0) {
+                    result = compareDigits (r_str, offset1, r_run, l_str, offset2, l_run);
+                    if (result == 0) {
+                        offset1 = offset1 + r_run;
+                        offset2 = offset2 + l_run;
+                    }
+                    else {
+                        return result;
+                    }
+                }
+                else {
+                    offset1++;
+                    offset2++;
+                }
+                if (offset1 >= r_str.length || offset2 >= l_str.length) {
+                    break;
+                }
+            }
+            int r_run = offset1 < r_str.length ? digitRun (r_str, offset1) : 0;
+            int l_run = offset2 < l_str.length ? digitRun (l_str, offset2) : 0;
+            if (r_run > 0 && l_run > 0) {
+                result = compareDigits (r_str, offset1, r_run, l_str, offset2, l_run);
+                if (result == 0) {
+                    return foldedCompare (r_str, offset1 + r_run, l_str, offset2 + l_run);
+                }
+                return result;
+            }
+            if (offset1 >= r_str.length || offset2 >= l_str.length) {
+                return result;
+            }
+            return r_str[offset1] - l_str[offset2];
+        }
+
+        //the size getFileSize reports, from the length instead of an opened stream
+        private static double roundKb (long length) {
+            BigDecimal b = new BigDecimal (length / 1024.00);
+            return b.setScale (2, BigDecimal.ROUND_HALF_UP).doubleValue();
+        }
 }
@@ -8,6 +8,10 @@
 
 package sonic;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
 public class Sonic {
 
 	private static final int SONIC_MIN_PITCH = 65;
@@ -41,6 +45,9 @@ public class Sonic {
     private int sampleRate;
     private int prevPeriod;
     private int prevMinDiff;
+    // Results of the last findPitchPeriodInRange call
+    private int minDiff;
+    private int maxDiff;
 
     // Resize the array.
     private short[] resize(
@@ -50,11 +57,8 @@ public class Sonic {
     	newLength *= numChannels;
         short[]	newArray = new short[newLength];
         int length = oldArray.length <= newLength? oldArray.length : newLength;
-        
-        
-        for(int x = 0; x < length; x++) {
-            newArray[x] = oldArray[x];
-        }
+
+        System.arraycopy(oldArray, 0, newArray, 0, length);
         return newArray;
     }
 
@@ -66,9 +70,10 @@ public class Sonic {
     	int sourcePos,
     	int numSamples)
     {
-    	for(int xSample = 0; xSample < numSamples*numChannels; xSample++) {
-    	    dest[destPos*numChannels + xSample] = source[sourcePos*numChannels + xSample];
+    	if(numSamples <= 0) {
+    	    return;
     	}
+    	System.arraycopy(source, sourcePos*numChannels, dest, destPos*numChannels, numSamples*numChannels);
     }
 
     // Scale the samples by the factor.
@@ -319,6 +324,22 @@ public class Sonic {
         numInputSamples += numSamples;
     }
 
+    // Add the input samples to the input buffer, reading whole frames from the buffer's
+    // position.  Return the number of samples added.
+    private int addShortBufferToInputBuffer(
+        ShortBuffer samples)
+    {
+        int numSamples = samples.remaining()/numChannels;
+
+        if(numSamples == 0) {
+            return 0;
+        }
+        enlargeInputBufferIfNeeded(numSamples);
+        samples.get(inputBuffer, numInputSamples*numChannels, numSamples*numChannels);
+        numInputSamples += numSamples;
+        return numSamples;
+    }
+
     // Remove input samples that we have already processed.
     private void removeInputSamples(
         int position)
@@ -400,6 +421,42 @@ public class Sonic {
         return numSamples;
     }
 
+    // Read short data out of the stream into the buffer, starting at its position, which is
+    // advanced past the samples read.  Return the number of samples read, zero when no data
+    // is available.
+    public int readShortFromStream(
+        ShortBuffer samples)
+    {
+        int numSamples = numOutputSamples;
+        int maxSamples = samples.remaining()/numChannels;
+        int remainingSamples = 0;
+
+        if(numSamples == 0 || maxSamples == 0) {
+            return 0;
+        }
+        if(numSamples > maxSamples) {
+            remainingSamples = numSamples - maxSamples;
+            numSamples = maxSamples;
+        }
+        samples.put(outputBuffer, 0, numSamples*numChannels);
+        move(outputBuffer, 0, outputBuffer, numSamples, remainingSamples);
+        numOutputSamples = remainingSamples;
+        return numSamples;
+    }
+
+    // Read 16-bit little-endian data out of the stream into the buffer, starting at its
+    // position, which is advanced past the bytes written.  Direct buffers are filled without
+    // an intermediate array.  Return the number of bytes written.
+    public int readBytesFromStream(
+        ByteBuffer outBuffer)
+    {
+        int numSamples = readShortFromStream(littleEndianShorts(outBuffer));
+        int numBytes = 2*numSamples*numChannels;
+
+        outBuffer.position(outBuffer.position() + numBytes);
+        return numBytes;
+    }
+
     // Read unsigned byte data out of the stream.  Sometimes no data will be available, and zero
     // is returned, which is not an error condition.
     public int readUnsignedByteFromStream(
@@ -508,30 +565,22 @@ public class Sonic {
     }
 
     // Find the best frequency match in the range, and given a sample skip multiple.
-    // For now, just find the pitch of the first channel.  Note that retMinDiff and
-    // retMaxDiff are Int objects, which the caller will need to create with new.
+    // For now, just find the pitch of the first channel.  The average difference of
+    // the best and worst periods are left in minDiff and maxDiff.
     private int findPitchPeriodInRange(
         short samples[],
         int position,
         int minPeriod,
-        int maxPeriod,
-        Integer retMinDiff,
-        Integer retMaxDiff)
+        int maxPeriod)
     {
         int bestPeriod = 0, worstPeriod = 255;
-        int minDiff = 1, maxDiff = 0;
+        long minDiff = 1, maxDiff = 0;
 
         position *= numChannels;
         for(int period = minPeriod; period <= maxPeriod; period++) {
-            int diff = 0;
-            for(int i = 0; i < period; i++) {
-                short sVal = samples[position + i];
-                short pVal = samples[position + period + i];
-                diff += sVal >= pVal? sVal - pVal : pVal - sVal;
-            }
-            /* Note that the highest number of samples we add into diff will be less
-               than 256, since we skip samples.  Thus, diff is a 24 bit number, and
-               we can safely multiply by numSamples without overflow */
+            long diff = periodDifference(samples, position, period);
+            // Compare diff/period without dividing.  These products do not fit in an
+            // int for long periods of full scale samples, so do them in long as sonic.c.
             if(diff*bestPeriod < minDiff*period) {
                 minDiff = diff;
                 bestPeriod = period;
@@ -541,11 +590,38 @@ public class Sonic {
                 worstPeriod = period;
             }
         }
-        retMinDiff = minDiff/bestPeriod;
-        retMaxDiff = maxDiff/worstPeriod;
+        this.minDiff = (int)(minDiff/bestPeriod);
+        this.maxDiff = (int)(maxDiff/worstPeriod);
         return bestPeriod;
     }
 
+    // Sum of the absolute differences between the period starting at position and the
+    // one following it.  The loop is unrolled with independent sums and no branches so
+    // the JIT can keep it in registers and vectorize it.
+    private static long periodDifference(
+        short samples[],
+        int position,
+        int period)
+    {
+        int s = position;
+        int p = position + period;
+        int end = position + period;
+        int diff0 = 0, diff1 = 0, diff2 = 0, diff3 = 0;
+
+        // Each sum adds at most period/4 values below 65536, which fits in an int for
+        // any period sonic can select.
+        for(; s + 3 < end; s += 4, p += 4) {
+            diff0 += Math.abs(samples[s] - samples[p]);
+            diff1 += Math.abs(samples[s + 1] - samples[p + 1]);
+            diff2 += Math.abs(samples[s + 2] - samples[p + 2]);
+            diff3 += Math.abs(samples[s + 3] - samples[p + 3]);
+        }
+        for(; s < end; s++, p++) {
+            diff0 += Math.abs(samples[s] - samples[p]);
+        }
+        return (long)diff0 + diff1 + diff2 + diff3;
+    }
+
     // At abrupt ends of voiced words, we can have pitch periods that are better
     // approximated by the previous pitch period estimate.  Try to detect this case.
     private boolean prevPeriodBetter(
@@ -583,8 +659,6 @@ public class Sonic {
         int position,
         boolean preferNewPeriod)
     {
-        Integer minDiff = new Integer(0);
-        Integer maxDiff = new Integer(0);
         int period, retPeriod;
         int skip = 1;
 
@@ -592,11 +666,11 @@ public class Sonic {
             skip = sampleRate/SONIC_AMDF_FREQ;
         }
         if(numChannels == 1 && skip == 1) {
-            period = findPitchPeriodInRange(samples, position, minPeriod, maxPeriod, minDiff, maxDiff);
+            period = findPitchPeriodInRange(samples, position, minPeriod, maxPeriod);
         } else {
             downSampleInput(samples, position, skip);
             period = findPitchPeriodInRange(downSampleBuffer, 0, minPeriod/skip,
-                maxPeriod/skip, minDiff, maxDiff);
+                maxPeriod/skip);
             if(skip != 1) {
                 period *= skip;
                 int minP = period - (skip << 2);
@@ -608,10 +682,10 @@ public class Sonic {
                     maxP = maxPeriod;
                 }
                 if(numChannels == 1) {
-                    period = findPitchPeriodInRange(samples, position, minP, maxP, minDiff, maxDiff);
+                    period = findPitchPeriodInRange(samples, position, minP, maxP);
                 } else {
                     downSampleInput(samples, position, 1);
-                    period = findPitchPeriodInRange(downSampleBuffer, 0, minP, maxP, minDiff, maxDiff);
+                    period = findPitchPeriodInRange(downSampleBuffer, 0, minP, maxP);
                 }
             }
         }
@@ -923,6 +997,35 @@ public class Sonic {
         processStreamInput();
     }
 
+    // Write the samples from the buffer's position to the input stream, and process them.
+    // Only whole frames are consumed, the buffer's position is advanced past them.
+    public void writeShortToStream(
+        ShortBuffer samples)
+    {
+        addShortBufferToInputBuffer(samples);
+        processStreamInput();
+    }
+
+    // Write 16-bit little-endian data from the buffer's position to the input stream, and
+    // process it.  Direct buffers are read without an intermediate array.  Only whole frames
+    // are consumed, the buffer's position is advanced past them.
+    public void writeBytesToStream(
+        ByteBuffer inBuffer)
+    {
+        int numSamples = addShortBufferToInputBuffer(littleEndianShorts(inBuffer));
+
+        inBuffer.position(inBuffer.position() + 2*numSamples*numChannels);
+        processStreamInput();
+    }
+
+    // View the remaining bytes of the buffer as 16-bit little-endian samples, without
+    // touching the buffer's own position or byte order.
+    private static ShortBuffer littleEndianShorts(
+        ByteBuffer buffer)
+    {
+        return buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+    }
+
     // Simple wrapper around sonicWriteFloatToStream that does the unsigned byte to short
     // conversion for you.
     public void writeUnsignedByteToStream(
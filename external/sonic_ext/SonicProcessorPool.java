@@ -0,0 +1,316 @@
+/* Sonic library
+   Copyright 2010, 2011
+   Bill Cox
+   This file is part of the Sonic Library.
+
+   This file is licensed under the Apache 2.0 license.
+*/
+
+package sonic;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// Run many independent sonic streams on a fixed set of worker threads.  Each stream
+// owns its Sonic instance, and its chunks are processed one at a time in the order
+// they were written, so the output of a stream comes out in order even though any
+// worker may run it.  A worker gives up a stream after a few chunks so that a busy
+// stream cannot hold a worker while other streams wait, and writers block once a
+// stream has too many chunks queued, which bounds the latency of every stream.
+public class SonicProcessorPool {
+
+    // Receives the processed 16-bit little-endian data of a stream, on a worker thread,
+    // in stream order.  The array is reused once the call returns.
+    public interface OutputListener {
+        void onOutput(Stream stream, byte data[], int numBytes);
+    }
+
+    // Chunks a worker processes for a stream before letting other streams run.
+    private static final int CHUNKS_PER_TURN = 4;
+
+    private final ExecutorService executor;
+    private final int maxPendingChunks;
+    private boolean shutdown;
+
+    // A queued piece of work for a stream: input data, or a change of its parameters.
+    private static class Chunk {
+        byte data[];
+        int numBytes;
+        boolean flush;
+        Runnable command;
+    }
+
+    public class Stream implements Runnable {
+        private final Sonic sonic;
+        private final OutputListener listener;
+        private final ArrayDeque<Chunk> chunks = new ArrayDeque<Chunk>();
+        private final ArrayDeque<byte[]> freeBuffers = new ArrayDeque<byte[]>();
+        private byte outBuffer[] = new byte[4096];
+        // True while the stream is queued on, or being run by, a worker.
+        private boolean scheduled;
+        private boolean closed;
+        private long numBytesIn;
+        private long numBytesOut;
+
+        private Stream(
+            int sampleRate,
+            int numChannels,
+            OutputListener listener)
+        {
+            this.sonic = new Sonic(sampleRate, numChannels);
+            this.listener = listener;
+        }
+
+        // Queue 16-bit little-endian data for processing.  The data is copied, so the
+        // caller may reuse its array.  Blocks while the stream has too many chunks queued.
+        public void write(
+            byte inBuffer[],
+            int numBytes) throws InterruptedException
+        {
+            if(numBytes <= 0) {
+                return;
+            }
+            Chunk chunk = new Chunk();
+            synchronized(this) {
+                chunk.data = freeBuffers.isEmpty() || freeBuffers.peekFirst().length < numBytes?
+                    new byte[numBytes] : freeBuffers.pollFirst();
+            }
+            System.arraycopy(inBuffer, 0, chunk.data, 0, numBytes);
+            chunk.numBytes = numBytes;
+            enqueue(chunk);
+        }
+
+        // Queue a flush of the stream, see Sonic.flushStream.
+        public void flush() throws InterruptedException
+        {
+            Chunk chunk = new Chunk();
+            chunk.flush = true;
+            enqueue(chunk);
+        }
+
+        public void setSpeed(
+            final float speed) throws InterruptedException
+        {
+            command(new Runnable() {
+                public void run() {
+                    sonic.setSpeed(speed);
+                }
+            });
+        }
+
+        public void setPitch(
+            final float pitch) throws InterruptedException
+        {
+            command(new Runnable() {
+                public void run() {
+                    sonic.setPitch(pitch);
+                }
+            });
+        }
+
+        public void setRate(
+            final float rate) throws InterruptedException
+        {
+            command(new Runnable() {
+                public void run() {
+                    sonic.setRate(rate);
+                }
+            });
+        }
+
+        public void setVolume(
+            final float volume) throws InterruptedException
+        {
+            command(new Runnable() {
+                public void run() {
+                    sonic.setVolume(volume);
+                }
+            });
+        }
+
+        public void setQuality(
+            final int quality) throws InterruptedException
+        {
+            command(new Runnable() {
+                public void run() {
+                    sonic.setQuality(quality);
+                }
+            });
+        }
+
+        // Stop accepting work.  Chunks already queued are still processed.
+        public synchronized void close()
+        {
+            closed = true;
+            notifyAll();
+        }
+
+        // Wait until every queued chunk has been processed.
+        public synchronized void drain() throws InterruptedException
+        {
+            while(scheduled || !chunks.isEmpty()) {
+                wait();
+            }
+        }
+
+        public synchronized int getPendingChunks()
+        {
+            return chunks.size();
+        }
+
+        public synchronized long getBytesIn()
+        {
+            return numBytesIn;
+        }
+
+        public synchronized long getBytesOut()
+        {
+            return numBytesOut;
+        }
+
+        private void command(
+            Runnable command) throws InterruptedException
+        {
+            Chunk chunk = new Chunk();
+            chunk.command = command;
+            enqueue(chunk);
+        }
+
+        private void enqueue(
+            Chunk chunk) throws InterruptedException
+        {
+            boolean schedule = false;
+            synchronized(this) {
+                while(!closed && chunks.size() >= maxPendingChunks) {
+                    wait();
+                }
+                if(closed) {
+                    throw new IllegalStateException("stream is closed");
+                }
+                chunks.addLast(chunk);
+                numBytesIn += chunk.numBytes;
+                if(!scheduled) {
+                    scheduled = true;
+                    schedule = true;
+                }
+            }
+            if(schedule && !submit(this)) {
+                synchronized(this) {
+                    chunks.removeLastOccurrence(chunk);
+                    scheduled = false;
+                    notifyAll();
+                }
+                throw new IllegalStateException("pool is shut down");
+            }
+        }
+
+        // Worker side: process the chunks in order, going back to the end of the worker
+        // queue every few chunks.  Once the pool is shut down, run until the stream is empty.
+        public void run()
+        {
+            int numProcessed = 0;
+
+            while(true) {
+                Chunk chunk;
+                synchronized(this) {
+                    chunk = chunks.pollFirst();
+                    if(chunk == null) {
+                        scheduled = false;
+                        notifyAll();
+                        return;
+                    }
+                    // A writer may be waiting for room.
+                    notifyAll();
+                }
+                process(chunk);
+                if(++numProcessed >= CHUNKS_PER_TURN && submit(this)) {
+                    return;
+                }
+            }
+        }
+
+        private void process(
+            Chunk chunk)
+        {
+            if(chunk.command != null) {
+                chunk.command.run();
+                return;
+            }
+            if(chunk.flush) {
+                sonic.flushStream();
+            } else {
+                sonic.writeBytesToStream(chunk.data, chunk.numBytes);
+                synchronized(this) {
+                    freeBuffers.addFirst(chunk.data);
+                    if(freeBuffers.size() > maxPendingChunks) {
+                        freeBuffers.pollLast();
+                    }
+                }
+            }
+            int numWritten;
+            do {
+                numWritten = sonic.readBytesFromStream(outBuffer, outBuffer.length);
+                if(numWritten > 0) {
+                    synchronized(this) {
+                        numBytesOut += numWritten;
+                    }
+                    listener.onOutput(this, outBuffer, numWritten);
+                }
+            } while(numWritten > 0);
+        }
+    }
+
+    // Create a pool of numThreads workers.  Writers of a stream block once
+    // maxPendingChunks of its chunks are waiting to be processed.
+    public SonicProcessorPool(
+        int numThreads,
+        int maxPendingChunks)
+    {
+        this.maxPendingChunks = maxPendingChunks > 0? maxPendingChunks : 1;
+        this.executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+            private int count = 0;
+
+            public synchronized Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "SonicWorker-" + count++);
+            }
+        });
+    }
+
+    public synchronized Stream openStream(
+        int sampleRate,
+        int numChannels,
+        OutputListener listener)
+    {
+        if(shutdown) {
+            throw new IllegalStateException("pool is shut down");
+        }
+        return new Stream(sampleRate, numChannels, listener);
+    }
+
+    // Stop the workers once the queued chunks are processed.
+    public void shutdown(
+        long timeoutMs) throws InterruptedException
+    {
+        synchronized(this) {
+            shutdown = true;
+        }
+        executor.shutdown();
+        executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Return false if the pool no longer accepts work.
+    private boolean submit(
+        Stream stream)
+    {
+        try {
+            executor.execute(stream);
+        } catch(RejectedExecutionException e) {
+            return false;
+        }
+        return true;
+    }
+}
@@ -17,28 +17,62 @@
 
 package com.droidlogic.app;
 
-import java.io.BufferedInputStream;
-import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.ByteBuffer;
-import java.nio.charset.CharacterCodingException;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import android.util.Log;
 
 /**
+ * Guess the charset of a text file, for subtitles mostly.
  *
- * @author
+ * The file is read once: a bounded prefix is mapped and every candidate charset is
+ * tried on the same bytes, in the order of mCharsetsToBeTested. The result is cached
+ * per path and checked against the file's modification time and length.
  */
 public class CharsetDetector {
     private static final String TAG = "CharsetDetector";
 
+    // longer files are detected from their first MAX_PROBE_BYTES
+    public static final int MAX_PROBE_BYTES = 512 * 1024;
+    private static final int MAX_CACHE_ENTRIES = 32;
+    private static final int DECODE_CHUNK_CHARS = 8 * 1024;
+
+    /**
+     * What one read of a file tells about its charset.
+     */
+    public static class Result {
+        // charset named by the byte order mark, null if the file has none
+        public final String bomCharset;
+        // first candidate that decodes the probed bytes, null if none does
+        public final Charset charset;
+        final long lastModified;
+        final long length;
+
+        Result(String bomCharset, Charset charset, long lastModified, long length) {
+            this.bomCharset = bomCharset;
+            this.charset = charset;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
+    private static final LinkedHashMap<String, Result> sResultCache =
+        new LinkedHashMap<String, Result>(MAX_CACHE_ENTRIES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+                return size() > MAX_CACHE_ENTRIES;
+            }
+        };
+
     String[] mCharsetsToBeTested = {
         "UTF8",
         "GBK",
@@ -60,9 +94,6 @@ public class CharsetDetector {
 
 
     public Charset detectCharset(File f) {
-
-        Charset charset = null;
-        int len = 0;
         String fileDetect = null;
 
         fileDetect = detectCharsetFromFilePath(f);
@@ -70,21 +101,64 @@ public class CharsetDetector {
             return Charset.forName(fileDetect);
         }
 
-        len = getFileSize(f);
-        //Log.i(TAG,"file size:" + len);
-        if (len <= 0) {
+        Result result = probe(f);
+        return result != null ? result.charset : null;
+    }
+
+    /**
+     * Read the start of the file once and return its byte order mark charset and the
+     * detected charset, from the cache when the file has not changed since.
+     *
+     * @return null if the file does not exist or is empty
+     */
+    public Result probe(File f) {
+        if (!f.exists() || !f.isFile()) {
+            Log.e(TAG,"file is not exist!!");
+            return null;
+        }
+
+        String path = f.getAbsolutePath();
+        long lastModified = f.lastModified();
+        long length = f.length();
+        synchronized (sResultCache) {
+            Result cached = sResultCache.get(path);
+            if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+                return cached;
+            }
+        }
+
+        if (length <= 0) {
             Log.e(TAG,"file is not valid!");
             return null;
         }
 
-        for (String charsetName : mCharsetsToBeTested) {
-            charset = detectCharset(f, Charset.forName(charsetName), len);
-            if (charset != null) {
-                break;
+        Result result = null;
+        FileInputStream input = null;
+        try {
+            input = new FileInputStream(f);
+            FileChannel channel = input.getChannel();
+            int size = (int) Math.min(channel.size(), MAX_PROBE_BYTES);
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            Log.i (TAG,"[probe]len:" + length + " probe:" + size);
+
+            result = new Result(detectBom(bytes), detectCharset(bytes, size == length),
+                lastModified, length);
+        } catch (IOException e) {
+            Log.e(TAG, "probe " + path + " failed: " + e.getMessage());
+            return null;
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                }
             }
         }
 
-        return charset;
+        synchronized (sResultCache) {
+            sResultCache.put(path, result);
+        }
+        return result;
     }
 
     public static int getFileSize(File file) {
@@ -119,41 +193,50 @@ public class CharsetDetector {
         return null;
     }
 
+    private static String detectBom(ByteBuffer bytes) {
+        int size = bytes.limit();
+        if (size >= 2 && bytes.get(0) == (byte) 0xFF && bytes.get(1) == (byte) 0xFE) {
+            return "UTF-16LE";
+        }
+        if (size >= 2 && bytes.get(0) == (byte) 0xFE && bytes.get(1) == (byte) 0xFF) {
+            return "UTF-16BE";
+        }
+        if (size >= 3 && bytes.get(0) == (byte) 0xEF && bytes.get(1) == (byte) 0xBB
+                && bytes.get(2) == (byte) 0xBF) {
+            return "UTF8";
+        }
+        return null;
+    }
 
-    private Charset detectCharset(File f, Charset charset, int len) {
-        try {
-            BufferedInputStream input = new BufferedInputStream(new FileInputStream(f));
-
-            Log.i (TAG,"[detectCharset]len:" + len);
-            CharsetDecoder decoder = charset.newDecoder();
-            decoder.reset();
-
-            byte[] buffer = new byte[len];
-            boolean identified = false;
-            while ((input.read(buffer) != -1) && (!identified)) {
-                identified = identify(buffer, decoder);
-            }
-
-            input.close();
-
-            if (identified) {
+    private Charset detectCharset(ByteBuffer bytes, boolean complete) {
+        CharBuffer out = CharBuffer.allocate(DECODE_CHUNK_CHARS);
+        for (String charsetName : mCharsetsToBeTested) {
+            Charset charset = Charset.forName(charsetName);
+            if (identify(bytes.duplicate(), charset.newDecoder(), complete, out)) {
                 return charset;
-            } else {
-                return null;
             }
-
-        } catch (Exception e) {
-            return null;
         }
+        return null;
     }
 
-    private boolean identify(byte[] bytes, CharsetDecoder decoder) {
-        try {
-            decoder.decode(ByteBuffer.wrap(bytes));
-        } catch (CharacterCodingException e) {
-            return false;
+    /**
+     * Decode the bytes through a small window, only to find out if the decoder accepts them.
+     * When the bytes are a prefix of the file, a character cut at the end is not an error.
+     */
+    private boolean identify(ByteBuffer bytes, CharsetDecoder decoder, boolean complete, CharBuffer out) {
+        CoderResult result;
+        do {
+            out.clear();
+            result = decoder.decode(bytes, out, complete);
+            if (result.isError()) {
+                return false;
+            }
+        } while (result.isOverflow());
+
+        if (complete) {
+            out.clear();
+            return !decoder.flush(out).isError();
         }
         return true;
     }
 }
-
@@ -0,0 +1,410 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  @par function description:
+ *  - 1 list volume directories for FileListManager
+ */
+
+package com.droidlogic.app;
+
+import android.os.Handler;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Directory listing used by FileListManager.
+ *
+ * The entries of a directory are stat'ed in chunks on a small worker pool, kept per directory
+ * and filter until the directory mtime changes, and can be handed to the caller page by page
+ * while the rest of the directory is still being read.
+ */
+public class FileListEngine {
+    private static final String TAG = "FileListEngine";
+
+    // entries stat'ed by one worker task
+    private static final int CHUNK_SIZE = 256;
+    private static final int MAX_CACHED_DIRS = 64;
+    // fat keeps mtime in 2s steps, a directory changed that recently may change again unnoticed
+    private static final long MTIME_GRANULARITY_MS = 2000;
+
+    public static class Entry {
+        public final String name;
+        public final String path;
+        public final boolean isDirectory;
+        public final long size;
+        public final long lastModified;
+        // directory holding a blu-ray BDMV structure, only set when probed
+        public final boolean isBluRay;
+
+        Entry(String name, String path, boolean isDirectory, long size, long lastModified, boolean isBluRay) {
+            this.name = name;
+            this.path = path;
+            this.isDirectory = isDirectory;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.isBluRay = isBluRay;
+        }
+
+        public boolean isISO() {
+            return !isDirectory && name.toLowerCase().endsWith(".iso");
+        }
+
+        /**
+         * the entry as the map FileListManager.getDirs has always returned
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<String, Object>();
+            map.put(FileListManager.KEY_NAME, name);
+            map.put(FileListManager.KEY_PATH, path);
+            map.put(FileListManager.KEY_DATE, 0);
+            map.put(FileListManager.KEY_SIZE, 1);
+            map.put(FileListManager.KEY_SELE, FileListManager.SELE_NO);
+            map.put(FileListManager.KEY_RDWR, null);
+            map.put(FileListManager.KEY_TYPE, null);
+            return map;
+        }
+    }
+
+    /**
+     * Extension filter compiled once, with the rules of FileListManager.MyFilter: a single
+     * extension is matched as a name suffix, a comma separated list against the text after
+     * the last dot. Directories are always accepted.
+     */
+    public static class ExtensionSet {
+        private final String mKey;
+        private final String mSuffix;
+        private final HashSet<String> mExtensions = new HashSet<String>();
+
+        public ExtensionSet(String extensions) {
+            mKey = extensions;
+            String[] tokens = extensions.split(",");
+            ArrayList<String> list = new ArrayList<String>();
+            for (String token : tokens) {
+                if (!token.isEmpty())
+                    list.add(token);
+            }
+            if (list.size() == 1) {
+                mSuffix = list.get(0);
+            } else {
+                mSuffix = null;
+                mExtensions.addAll(list);
+            }
+        }
+
+        public boolean acceptsName(String name) {
+            if (mSuffix != null) {
+                return name.toLowerCase().endsWith(mSuffix);
+            }
+            int index = name.lastIndexOf('.');
+            if (index == -1 || index == name.length() - 1) {
+                return false;
+            }
+            return mExtensions.contains(name.substring(index + 1).toLowerCase());
+        }
+
+        String getKey() {
+            return mKey;
+        }
+    }
+
+    public interface Listener {
+        /**
+         * @param entries next entries of the directory, in directory order
+         * @param last true for the final call of the listing, entries may be empty then.
+         *             It comes once per listing, a cancelled listing ends with it too
+         *             and hands over the entries already read that no page held yet.
+         */
+        void onEntries(String directory, List<Entry> entries, boolean last);
+    }
+
+    private static final class CachedDir {
+        final long lastModified;
+        final List<Entry> entries;
+
+        CachedDir(long lastModified, List<Entry> entries) {
+            this.lastModified = lastModified;
+            this.entries = entries;
+        }
+    }
+
+    private final ExecutorService mExecutor;
+    private final LinkedHashMap<String, CachedDir> mCache =
+        new LinkedHashMap<String, CachedDir>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedDir> eldest) {
+                return size() > MAX_CACHED_DIRS;
+            }
+        };
+
+    public FileListEngine(int numThreads) {
+        mExecutor = Executors.newFixedThreadPool(Math.max(1, numThreads), new ThreadFactory() {
+            private int mCount = 0;
+
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "FileListEngine-" + mCount++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * list the entries of directory accepted by filter, from the cache while the directory is unchanged
+     * @param probeBluRay also check sub directories for a BDMV structure
+     */
+    public List<Entry> list(String directory, ExtensionSet filter, boolean probeBluRay) {
+        final ArrayList<Entry> result = new ArrayList<Entry>();
+        listPaged(directory, filter, probeBluRay, Integer.MAX_VALUE, new Listener() {
+            public void onEntries(String dir, List<Entry> entries, boolean last) {
+                result.addAll(entries);
+            }
+        }, null, new AtomicBoolean(false));
+        return result;
+    }
+
+    /**
+     * list in the background, listener gets pages of at most pageSize entries on handler,
+     * or on the worker thread if handler is null
+     */
+    public Future<?> listAsync(final String directory, final ExtensionSet filter, final boolean probeBluRay,
+            final int pageSize, final Listener listener, final Handler handler) {
+        final AtomicBoolean cancelled = new AtomicBoolean(false);
+        // whoever sets it first, the listing or cancel, sends the last callback
+        final AtomicBoolean started = new AtomicBoolean(false);
+        final Future<?> task = mExecutor.submit(new Runnable() {
+            public void run() {
+                if (!started.compareAndSet(false, true))
+                    return;
+                listPaged(directory, filter, probeBluRay, pageSize, listener, handler, cancelled);
+            }
+        });
+        return new Future<Object>() {
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                if (cancelled.getAndSet(true))
+                    return false;
+                if (started.compareAndSet(false, true)) {
+                    // listPaged never ran, end the listing for it
+                    post(directory, Collections.<Entry>emptyList(), true, listener, handler);
+                }
+                return task.cancel(false);
+            }
+            public boolean isCancelled() {
+                return cancelled.get();
+            }
+            public boolean isDone() {
+                return task.isDone();
+            }
+            public Object get() throws InterruptedException, ExecutionException {
+                return task.get();
+            }
+            public Object get(long timeout, TimeUnit unit)
+                    throws InterruptedException, ExecutionException, TimeoutException {
+                return task.get(timeout, unit);
+            }
+        };
+    }
+
+    public synchronized void invalidate(String directory) {
+        String prefix = directory + '\0';
+        Iterator<String> it = mCache.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().startsWith(prefix))
+                it.remove();
+        }
+    }
+
+    public synchronized void clearCache() {
+        mCache.clear();
+    }
+
+    public void shutdown() {
+        mExecutor.shutdownNow();
+    }
+
+    private void listPaged(String directory, ExtensionSet filter, boolean probeBluRay, int pageSize,
+            Listener listener, Handler handler, AtomicBoolean cancelled) {
+        File dir = new File(directory);
+        long lastModified = dir.lastModified();
+        String key = directory + '\0' + filter.getKey() + '\0' + probeBluRay;
+
+        CachedDir cached;
+        synchronized (this) {
+            cached = mCache.get(key);
+        }
+        if (cached != null && cached.lastModified == lastModified && lastModified != 0) {
+            deliver(directory, cached.entries, pageSize, listener, handler, cancelled);
+            return;
+        }
+
+        String[] names = dir.list();
+        if (names == null || names.length == 0) {
+            post(directory, Collections.<Entry>emptyList(), true, listener, handler);
+            return;
+        }
+
+        // stat the entries chunk by chunk on the workers, a big directory on usb is mostly waiting on io
+        String parent = dir.getAbsolutePath();
+        List<FutureTask<List<Entry>>> chunks = new ArrayList<FutureTask<List<Entry>>>();
+        for (int start = 0; start < names.length; start += CHUNK_SIZE) {
+            FutureTask<List<Entry>> chunk = new FutureTask<List<Entry>>(new ChunkTask(parent, names, start,
+                Math.min(names.length, start + CHUNK_SIZE), filter, probeBluRay));
+            chunks.add(chunk);
+            try {
+                mExecutor.execute(chunk);
+            } catch (RejectedExecutionException e) {
+                // shut down, the chunk is run below by this thread
+            }
+        }
+
+        ArrayList<Entry> all = new ArrayList<Entry>();
+        ArrayList<Entry> page = new ArrayList<Entry>();
+        for (int i = 0; i < chunks.size(); i++) {
+            if (cancelled.get()) {
+                cancelFrom(chunks, i);
+                post(directory, page, true, listener, handler);
+                return;
+            }
+            List<Entry> entries;
+            try {
+                // run the chunk here if no worker took it yet, so a listing on a worker never waits on the pool
+                chunks.get(i).run();
+                entries = chunks.get(i).get();
+            } catch (InterruptedException e) {
+                cancelFrom(chunks, i);
+                Thread.currentThread().interrupt();
+                post(directory, page, true, listener, handler);
+                return;
+            } catch (ExecutionException e) {
+                Log.e(TAG, "list " + directory + " failed: " + e.getCause());
+                entries = Collections.emptyList();
+            }
+            all.addAll(entries);
+            for (Entry entry : entries) {
+                page.add(entry);
+                if (page.size() >= pageSize) {
+                    post(directory, page, false, listener, handler);
+                    page = new ArrayList<Entry>();
+                }
+            }
+        }
+        post(directory, page, true, listener, handler);
+
+        if (System.currentTimeMillis() - lastModified > MTIME_GRANULARITY_MS && lastModified != 0) {
+            synchronized (this) {
+                mCache.put(key, new CachedDir(lastModified, Collections.unmodifiableList(all)));
+            }
+        }
+    }
+
+    private void deliver(String directory, List<Entry> entries, int pageSize, Listener listener,
+            Handler handler, AtomicBoolean cancelled) {
+        int size = entries.size();
+        int start = 0;
+        do {
+            if (cancelled.get()) {
+                post(directory, Collections.<Entry>emptyList(), true, listener, handler);
+                return;
+            }
+            int end = (int) Math.min((long) start + pageSize, size);
+            post(directory, new ArrayList<Entry>(entries.subList(start, end)), end >= size, listener, handler);
+            start = end;
+        } while (start < size);
+    }
+
+    private static void cancelFrom(List<FutureTask<List<Entry>>> chunks, int start) {
+        for (int i = start; i < chunks.size(); i++) {
+            chunks.get(i).cancel(true);
+        }
+    }
+
+    private static void post(final String directory, final List<Entry> entries, final boolean last,
+            final Listener listener, Handler handler) {
+        if (handler == null) {
+            listener.onEntries(directory, entries, last);
+            return;
+        }
+        handler.post(new Runnable() {
+            public void run() {
+                listener.onEntries(directory, entries, last);
+            }
+        });
+    }
+
+    private static final class ChunkTask implements Callable<List<Entry>> {
+        private final String mParent;
+        private final String[] mNames;
+        private final int mStart;
+        private final int mEnd;
+        private final ExtensionSet mFilter;
+        private final boolean mProbeBluRay;
+
+        ChunkTask(String parent, String[] names, int start, int end, ExtensionSet filter, boolean probeBluRay) {
+            mParent = parent;
+            mNames = names;
+            mStart = start;
+            mEnd = end;
+            mFilter = filter;
+            mProbeBluRay = probeBluRay;
+        }
+
+        public List<Entry> call() {
+            ArrayList<Entry> entries = new ArrayList<Entry>(mEnd - mStart);
+            for (int i = mStart; i < mEnd; i++) {
+                String name = mNames[i];
+                File file = new File(mParent, name);
+                boolean isDirectory = file.isDirectory();
+                if (!isDirectory && !mFilter.acceptsName(name)) {
+                    continue;
+                }
+                entries.add(new Entry(name, file.getPath(), isDirectory,
+                    isDirectory ? 0 : file.length(), file.lastModified(),
+                    isDirectory && mProbeBluRay && isBluRayDir(file)));
+            }
+            return entries;
+        }
+    }
+
+    private static boolean isBluRayDir(File dir) {
+        File bdmv = new File(dir, "BDMV");
+        if (!bdmv.isDirectory())
+            return false;
+        String[] files = bdmv.list();
+        if (files == null)
+            return false;
+        HashSet<String> names = new HashSet<String>();
+        Collections.addAll(names, files);
+        return names.contains("index.bdmv") && names.contains("PLAYLIST")
+            && names.contains("CLIPINF") && names.contains("STREAM");
+    }
+}
@@ -40,8 +40,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.StringTokenizer;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Future;
 import java.lang.String;
 
 import vendor.amlogic.hardware.droidvold.V1_0.IDroidVold;
@@ -51,6 +51,7 @@ import vendor.amlogic.hardware.droidvold.V1_0.Result;
 import android.hidl.manager.V1_0.IServiceManager;
 import android.hidl.manager.V1_0.IServiceNotification;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.HwBinder;
 import android.os.Parcel;
 import android.os.Parcelable;
@@ -116,6 +117,10 @@ public class FileListManager {
         ".jfif", ".mpo", ".webp", ".3dg", "3dp"
     };
 
+    private static FileListEngine sListEngine;
+    private static final HashMap<String, FileListEngine.ExtensionSet> sExtensionSets =
+        new HashMap<String, FileListEngine.ExtensionSet>();
+
     private static final String[] plain_extensions = {".txt",".c",".cpp",".java",",conf",".h",
         ".log",".rc"
     };
@@ -288,40 +293,67 @@ public class FileListManager {
     }
 
     public class MyFilter implements FileFilter {
-        private String extensions;
+        private FileListEngine.ExtensionSet extensions;
         public MyFilter (String extensions) {
-            this.extensions = extensions;
+            this.extensions = getExtensionSet(extensions);
         }
         public boolean accept (File file) {
-            StringTokenizer st = new StringTokenizer (this.extensions, ",");
             if (file.isDirectory()) {
                 return true;
             }
-            String name = file.getName();
-            if (st.countTokens() == 1) {
-                String str = st.nextToken();
-                String filenamelowercase = name.toLowerCase();
-                return filenamelowercase.endsWith (str);
-            } else {
-                int index = name.lastIndexOf (".");
-                if (index == -1) {
-                    return false;
-                }
-                else if (index == (name.length() - 1)) {
-                    return false;
-                }
-                else {
-                    //for(int i = 0; i<st.countTokens(); i++)
-                    while (st.hasMoreElements()) {
-                        String extension = st.nextToken();
-                        if (extension.equals (name.substring (index + 1).toLowerCase())) {
-                            return true;
-                        }
-                    }
-                    return false;
-                }
-            }
+            return extensions.acceptsName(file.getName());
+        }
+    }
+
+    private static synchronized FileListEngine.ExtensionSet getExtensionSet(String extensions) {
+        FileListEngine.ExtensionSet set = sExtensionSets.get(extensions);
+        if (set == null) {
+            set = new FileListEngine.ExtensionSet(extensions);
+            sExtensionSets.put(extensions, set);
+        }
+        return set;
+    }
+
+    //shared by every FileListManager so the cached directories outlive the activity
+    public static synchronized FileListEngine getListEngine() {
+        if (sListEngine == null) {
+            sListEngine = new FileListEngine(Math.min(4, Runtime.getRuntime().availableProcessors()));
         }
+        return sListEngine;
+    }
+
+    private static String getDirsExtensions(String strs) {
+        if (strs.indexOf(".") == 0) {
+            return strs;
+        } else if (strs.equals("video")) {
+            return video_extensions;
+        }
+        return null;
+    }
+
+    /**
+     * typed entries of getDirs, served from the listing cache while the directory is unchanged
+     */
+    public List<FileListEngine.Entry> getDirEntries(String directory, String strs) {
+        String extensions = getDirsExtensions(strs);
+        if (extensions == null) {
+            return new ArrayList<FileListEngine.Entry>();
+        }
+        return getListEngine().list(directory, getExtensionSet(extensions), false);
+    }
+
+    /**
+     * list like getDirEntries in the background, listener gets pages of at most pageSize
+     * entries on handler as the directory is read
+     * @return the listing task, null if strs is neither an extension nor "video"
+     */
+    public Future<?> getDirEntriesAsync(String directory, String strs, int pageSize,
+            FileListEngine.Listener listener, Handler handler) {
+        String extensions = getDirsExtensions(strs);
+        if (extensions == null) {
+            return null;
+        }
+        return getListEngine().listAsync(directory, getExtensionSet(extensions), false, pageSize, listener, handler);
     }
 
     public List<Map<String, Object>> getDevices() {
@@ -510,42 +542,13 @@ public class FileListManager {
     }
 
     public List<Map<String, Object>> getDirs(String directory, String strs) {
-        Map<String, Object> map;
-        String extensions = video_extensions;
         mListDir.clear();
-        File pfile = new File(directory);
-        File[] files = null;
-        if (strs.indexOf(".") == 0) {
-            files = pfile.listFiles(new MyFilter(strs));
-        } else if (strs.equals("video")) {
-            files = pfile.listFiles(new MyFilter(extensions));
-        }
-        if (files != null && (files.length > 0)) {
-            for (int i = 0; i < files.length; i++) {
-                String pathtmp = files[i].getAbsolutePath();
-                String nametmp = files[i].getName();
-                String str = null;
-                File tempF = files[i];
-                str = files[i].toString();
-                map = new HashMap<String, Object>();
-                map.put(KEY_NAME, nametmp);
-                map.put(KEY_PATH, pathtmp);
-                map.put(KEY_DATE, 0);
-                map.put(KEY_SIZE, 1);
-                map.put(KEY_SELE, SELE_NO);
-                map.put(KEY_RDWR, null);
-                map.put(KEY_TYPE, null);
-                if (mDebug) {
-                    Log.i(TAG, "[getDirs]volume pathtmp:" + pathtmp);
-                }
-                if (strs == ".apk") {
-                    mListDir.add(map);
-                } else if (strs == "video" && (isBDFile(tempF) || (tempF.isFile() && !isISOFile(tempF)))) {
-                    mListDir.add(map);
-                } else if (strs == "video") {
-                    mListDir.add(map);
-                }
+        //every listed entry is kept, bd and iso files need no probe (nor iso mount) here
+        for (FileListEngine.Entry entry : getDirEntries(directory, strs)) {
+            if (mDebug) {
+                Log.i(TAG, "[getDirs]volume pathtmp:" + entry.path);
             }
+            mListDir.add(entry.toMap());
         }
         return mListDir;
     }
@@ -0,0 +1,432 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  @par function description:
+ *  - 1 keep an index of the media files of the mounted volumes
+ */
+
+package com.droidlogic.app;
+
+import android.content.Context;
+import android.os.FileObserver;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Index of the video, audio and photo files of the mounted volumes, shared by the file
+ * browsing screens of a process.
+ *
+ * Every volume has its own index, named by the volume uuid (the last element of its mount
+ * path) and stored under the app cache dir, so a volume mounted again is brought up to date
+ * by reading only the directories that changed meanwhile. While mounted, the directories are
+ * watched with FileObserver and changed ones are read again shortly after. Queries are served
+ * from memory.
+ */
+public class MediaIndexManager {
+    private static final String TAG = "MediaIndexManager";
+
+    public static final int TYPE_ANY            = -1;
+    public static final int TYPE_VIDEO          = 0;
+    public static final int TYPE_AUDIO          = 1;
+    public static final int TYPE_PHOTO          = 2;
+
+    public static final int SORT_NONE           = 0;
+    public static final int SORT_NAME           = 1;
+    public static final int SORT_PATH           = 2;
+    public static final int SORT_SIZE           = 3;
+    public static final int SORT_DATE           = 4;
+
+    private static final String INDEX_DIR       = "media_index";
+    // inotify watches are limited, deeper directories only get the mtime check of a refresh
+    private static final int MAX_WATCHED_DIRS   = 256;
+    private static final long REFRESH_DELAY_MS  = 2000;
+
+    private static final int MSG_MOUNTED        = 1;
+    private static final int MSG_UNMOUNTED      = 2;
+
+    private static final int WATCH_EVENTS = FileObserver.CREATE | FileObserver.DELETE
+        | FileObserver.MOVED_FROM | FileObserver.MOVED_TO | FileObserver.CLOSE_WRITE;
+
+    private static MediaIndexManager mInstance;
+
+    public static class Entry {
+        public final String path;
+        public final String name;
+        public final long size;
+        public final long lastModified;
+        public final int type;
+
+        Entry(String path, String name, long size, long lastModified, int type) {
+            this.path = path;
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.type = type;
+        }
+    }
+
+    public interface Listener {
+        /**
+         * the index of the volume mounted on volumePath changed, called on the main thread
+         */
+        void onIndexUpdated(String volumePath);
+    }
+
+    private final Context mContext;
+    private final File mIndexDir;
+    private final Handler mHandler;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<Listener> mListeners = new CopyOnWriteArrayList<Listener>();
+
+    // mounted volumes by mount path, only changed on the index thread
+    private final Map<String, Volume> mVolumes = Collections.synchronizedMap(new HashMap<String, Volume>());
+
+    private final class Volume {
+        final MediaVolumeIndex index;
+        final HashMap<String, FileObserver> observers = new HashMap<String, FileObserver>();
+        final HashSet<String> dirty = new HashSet<String>();
+        final Runnable refreshTask;
+        volatile boolean ready;
+
+        Volume(MediaVolumeIndex index, final String volumePath) {
+            this.index = index;
+            this.refreshTask = new Runnable() {
+                public void run() {
+                    refresh(volumePath);
+                }
+            };
+        }
+    }
+
+    public static synchronized MediaIndexManager getInstance(Context context) {
+        if (mInstance == null) {
+            mInstance = new MediaIndexManager(context.getApplicationContext());
+        }
+        return mInstance;
+    }
+
+    private MediaIndexManager(Context context) {
+        mContext = context;
+        mIndexDir = new File(context.getCacheDir(), INDEX_DIR);
+        HandlerThread thread = new HandlerThread("MediaIndex");
+        thread.start();
+        mHandler = new Handler(thread.getLooper()) {
+            @Override
+            public void handleMessage(Message msg) {
+                switch (msg.what) {
+                    case MSG_MOUNTED:
+                        if (isDevice((String) msg.obj)) {
+                            mount((String) msg.obj);
+                        } else {
+                            Log.w(TAG, "not a volume, ignore mount of " + msg.obj);
+                        }
+                        break;
+                    case MSG_UNMOUNTED:
+                        unmount((String) msg.obj);
+                        break;
+                }
+            }
+        };
+    }
+
+    public void addListener(Listener listener) {
+        mListeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * index the volume mounted on volumePath, from its stored index if it was seen before.
+     * Paths FileListManager.getDevices does not list, like STORAGE itself, are ignored: the
+     * volumes under them would be indexed twice.
+     */
+    public void onVolumeMounted(String volumePath) {
+        if (volumePath == null || volumePath.equals(FileListManager.STORAGE))
+            return;
+        mHandler.obtainMessage(MSG_MOUNTED, volumePath).sendToTarget();
+    }
+
+    public void onVolumeUnmounted(String volumePath) {
+        if (volumePath == null)
+            return;
+        mHandler.obtainMessage(MSG_UNMOUNTED, volumePath).sendToTarget();
+    }
+
+    /**
+     * index every volume FileListManager reports, and forget the ones gone
+     */
+    public void syncVolumes(Context context) {
+        final HashSet<String> paths = new HashSet<String>();
+        for (Map<String, Object> dev : new FileListManager(context).getDevices()) {
+            String path = (String) dev.get(FileListManager.KEY_PATH);
+            if (path != null)
+                paths.add(path);
+        }
+        mHandler.post(new Runnable() {
+            public void run() {
+                for (String path : new ArrayList<String>(mVolumes.keySet())) {
+                    if (!paths.contains(path))
+                        unmount(path);
+                }
+                for (String path : paths) {
+                    mount(path);
+                }
+            }
+        });
+    }
+
+    /**
+     * check the whole volume again, for changes the watched directories did not report
+     */
+    public void rescan(final String volumePath) {
+        mHandler.post(new Runnable() {
+            public void run() {
+                refresh(volumePath);
+            }
+        });
+    }
+
+    /**
+     * true once the volume mounted on volumePath has been indexed since it was mounted
+     */
+    public boolean isReady(String volumePath) {
+        Volume volume = mVolumes.get(volumePath);
+        return volume != null && volume.ready;
+    }
+
+    public boolean hasReadyVolume() {
+        synchronized (mVolumes) {
+            for (Volume volume : mVolumes.values()) {
+                if (volume.ready)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * media files under path (a volume, a directory in it, or FileListManager.STORAGE for all volumes)
+     * @param type TYPE_ANY or one of the media types
+     * @param sortBy SORT_NONE, SORT_NAME (case insensitive), SORT_PATH, SORT_SIZE or SORT_DATE
+     */
+    public List<Entry> query(String path, int type, int sortBy, boolean descending) {
+        ArrayList<Entry> result = new ArrayList<Entry>();
+        ArrayList<Volume> volumes;
+        synchronized (mVolumes) {
+            volumes = new ArrayList<Volume>(mVolumes.values());
+        }
+        for (Volume volume : volumes) {
+            String root = volume.index.getRoot();
+            String prefix;
+            if (path.equals(root) || isUnder(root, path)) {
+                prefix = "";
+            } else if (isUnder(path, root)) {
+                prefix = path.substring(root.length() + 1);
+            } else {
+                continue;
+            }
+            collect(volume.index.getSnapshot(), root, prefix, type, result);
+        }
+        sort(result, sortBy, descending);
+        return result;
+    }
+
+    private static boolean isUnder(String path, String parent) {
+        return path.length() > parent.length() && path.startsWith(parent)
+            && path.charAt(parent.length()) == '/';
+    }
+
+    private static void collect(MediaVolumeIndex.Snapshot snapshot, String root, String prefix,
+            int type, List<Entry> result) {
+        for (Map.Entry<String, MediaVolumeIndex.DirNode> dir : snapshot.dirs.entrySet()) {
+            String rel = dir.getKey();
+            if (!prefix.isEmpty() && !rel.equals(prefix) && !isUnder(rel, prefix))
+                continue;
+            String dirPath = rel.isEmpty() ? root : root + "/" + rel;
+            for (MediaVolumeIndex.FileRec rec : dir.getValue().files) {
+                if (type != TYPE_ANY && rec.type != type)
+                    continue;
+                result.add(new Entry(dirPath + "/" + rec.name, rec.name, rec.size, rec.lastModified, rec.type));
+            }
+        }
+    }
+
+    private static void sort(List<Entry> entries, int sortBy, boolean descending) {
+        Comparator<Entry> comparator;
+        switch (sortBy) {
+            case SORT_NAME:
+                comparator = new Comparator<Entry>() {
+                    public int compare(Entry e1, Entry e2) {
+                        int result = e1.name.compareToIgnoreCase(e2.name);
+                        return result != 0 ? result : e1.path.compareTo(e2.path);
+                    }
+                };
+                break;
+            case SORT_PATH:
+                comparator = new Comparator<Entry>() {
+                    public int compare(Entry e1, Entry e2) {
+                        return e1.path.compareTo(e2.path);
+                    }
+                };
+                break;
+            case SORT_SIZE:
+                comparator = new Comparator<Entry>() {
+                    public int compare(Entry e1, Entry e2) {
+                        int result = Long.compare(e1.size, e2.size);
+                        return result != 0 ? result : e1.path.compareTo(e2.path);
+                    }
+                };
+                break;
+            case SORT_DATE:
+                comparator = new Comparator<Entry>() {
+                    public int compare(Entry e1, Entry e2) {
+                        int result = Long.compare(e1.lastModified, e2.lastModified);
+                        return result != 0 ? result : e1.path.compareTo(e2.path);
+                    }
+                };
+                break;
+            default:
+                return;
+        }
+        Collections.sort(entries, descending ? Collections.reverseOrder(comparator) : comparator);
+    }
+
+    private boolean isDevice(String path) {
+        if (mVolumes.containsKey(path))
+            return true;
+        for (Map<String, Object> dev : new FileListManager(mContext).getDevices()) {
+            if (path.equals(dev.get(FileListManager.KEY_PATH)))
+                return true;
+        }
+        return false;
+    }
+
+    private static String uuidOf(String volumePath) {
+        if (volumePath.equals(FileListManager.NAND))
+            return "internal";
+        return new File(volumePath).getName();
+    }
+
+    private File indexFile(String uuid) {
+        return new File(mIndexDir, uuid + ".idx");
+    }
+
+    private void mount(String volumePath) {
+        Volume volume = mVolumes.get(volumePath);
+        if (volume == null) {
+            MediaVolumeIndex index = new MediaVolumeIndex(uuidOf(volumePath), volumePath);
+            if (index.load(indexFile(index.getUuid()))) {
+                Log.d(TAG, "loaded index of " + volumePath + ": " + index.getSnapshot().fileCount + " files");
+            }
+            volume = new Volume(index, volumePath);
+            mVolumes.put(volumePath, volume);
+        }
+        refresh(volumePath);
+    }
+
+    private void unmount(String volumePath) {
+        Volume volume = mVolumes.remove(volumePath);
+        if (volume == null)
+            return;
+        mHandler.removeCallbacks(volume.refreshTask);
+        // the stored index stays for the next mount
+        for (FileObserver observer : volume.observers.values()) {
+            observer.stopWatching();
+        }
+        volume.observers.clear();
+        notifyUpdated(volumePath);
+    }
+
+    private void refresh(String volumePath) {
+        Volume volume = mVolumes.get(volumePath);
+        if (volume == null)
+            return;
+        mHandler.removeCallbacks(volume.refreshTask);
+        if (!new File(volumePath).isDirectory()) {
+            unmount(volumePath);
+            return;
+        }
+        HashSet<String> dirty;
+        synchronized (volume.dirty) {
+            dirty = new HashSet<String>(volume.dirty);
+            volume.dirty.clear();
+        }
+        long start = System.currentTimeMillis();
+        int read = volume.index.refresh(dirty, volume.observers.keySet());
+        Log.d(TAG, "refresh " + volumePath + ": read " + read + "/" + volume.index.getSnapshot().dirs.size()
+            + " dirs, " + volume.index.getSnapshot().fileCount + " files in "
+            + (System.currentTimeMillis() - start) + "ms");
+        if (read > 0) {
+            mIndexDir.mkdirs();
+            volume.index.save(indexFile(volume.index.getUuid()));
+        }
+        updateObservers(volumePath, volume);
+        if (read > 0 || !volume.ready) {
+            volume.ready = true;
+            notifyUpdated(volumePath);
+        }
+    }
+
+    private void updateObservers(final String volumePath, final Volume volume) {
+        HashSet<String> watched = new HashSet<String>(volume.index.listDirs(MAX_WATCHED_DIRS));
+        for (String rel : new ArrayList<String>(volume.observers.keySet())) {
+            if (!watched.contains(rel)) {
+                volume.observers.remove(rel).stopWatching();
+            }
+        }
+        String root = volume.index.getRoot();
+        for (final String rel : watched) {
+            if (volume.observers.containsKey(rel))
+                continue;
+            FileObserver observer = new FileObserver(rel.isEmpty() ? root : root + "/" + rel, WATCH_EVENTS) {
+                @Override
+                public void onEvent(int event, String path) {
+                    synchronized (volume.dirty) {
+                        volume.dirty.add(rel);
+                    }
+                    // changes come in bursts, read the directories once they settle
+                    mHandler.removeCallbacks(volume.refreshTask);
+                    mHandler.postDelayed(volume.refreshTask, REFRESH_DELAY_MS);
+                }
+            };
+            observer.startWatching();
+            volume.observers.put(rel, observer);
+        }
+    }
+
+    private void notifyUpdated(final String volumePath) {
+        mMainHandler.post(new Runnable() {
+            public void run() {
+                for (Listener listener : mListeners) {
+                    listener.onIndexUpdated(volumePath);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  @par function description:
+ *  - 1 media file index of one volume for MediaIndexManager
+ */
+
+package com.droidlogic.app;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Media files of one volume, kept per directory relative to the volume root so the index
+ * survives a remount on another path.
+ *
+ * A refresh stats every directory but only lists the ones whose mtime changed since they were
+ * last read, or that were reported dirty. Rewriting a file in place leaves the directory mtime
+ * alone, so the files of directories nobody watches are stat'ed as well. The index is stored in a
+ * small binary file between mounts. Snapshots handed out are never modified, a refresh builds a new one.
+ */
+class MediaVolumeIndex {
+    private static final String TAG = "MediaVolumeIndex";
+
+    private static final int MAGIC = 0x4d494458;    // MIDX
+    private static final int VERSION = 1;
+    // fat keeps mtime in 2s steps, a directory read that soon after a change is read again next time
+    private static final long MTIME_GRANULARITY_MS = 2000;
+
+    static final class FileRec {
+        final String name;
+        final long size;
+        final long lastModified;
+        final int type;
+
+        FileRec(String name, long size, long lastModified, int type) {
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.type = type;
+        }
+    }
+
+    static final class DirNode {
+        final long lastModified;
+        final long scannedAt;
+        final String[] subdirs;
+        final FileRec[] files;
+
+        DirNode(long lastModified, long scannedAt, String[] subdirs, FileRec[] files) {
+            this.lastModified = lastModified;
+            this.scannedAt = scannedAt;
+            this.subdirs = subdirs;
+            this.files = files;
+        }
+    }
+
+    /**
+     * directory nodes by path relative to the root, "" being the root
+     */
+    static final class Snapshot {
+        final Map<String, DirNode> dirs;
+        final int fileCount;
+
+        Snapshot(Map<String, DirNode> dirs) {
+            this.dirs = Collections.unmodifiableMap(dirs);
+            int count = 0;
+            for (DirNode node : dirs.values()) {
+                count += node.files.length;
+            }
+            this.fileCount = count;
+        }
+    }
+
+    private final String mUuid;
+    private final String mRoot;
+    private volatile Snapshot mSnapshot = new Snapshot(new HashMap<String, DirNode>());
+
+    MediaVolumeIndex(String uuid, String root) {
+        mUuid = uuid;
+        mRoot = root;
+    }
+
+    String getUuid() {
+        return mUuid;
+    }
+
+    String getRoot() {
+        return mRoot;
+    }
+
+    Snapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    static int typeOf(String name) {
+        if (FileListManager.isVideo(name))
+            return MediaIndexManager.TYPE_VIDEO;
+        if (FileListManager.isMusic(name))
+            return MediaIndexManager.TYPE_AUDIO;
+        if (FileListManager.isPhoto(name))
+            return MediaIndexManager.TYPE_PHOTO;
+        return -1;
+    }
+
+    /**
+     * bring the index up to date with the volume
+     * @param dirty directories relative to the root to read even if their mtime did not change, may be null
+     * @param watched directories relative to the root whose file changes are reported as dirty, may be null
+     * @return number of directories read
+     */
+    int refresh(Set<String> dirty, Set<String> watched) {
+        String root = mRoot;
+        Map<String, DirNode> old = mSnapshot.dirs;
+        HashMap<String, DirNode> dirs = new HashMap<String, DirNode>(Math.max(16, old.size() * 2));
+        HashSet<String> visited = new HashSet<String>();
+        ArrayDeque<String> pending = new ArrayDeque<String>();
+        int read = 0;
+        pending.add("");
+        while (!pending.isEmpty()) {
+            String rel = pending.pollFirst();
+            File dir = rel.isEmpty() ? new File(root) : new File(root, rel);
+            // a symlink back up the tree would be walked forever
+            try {
+                if (!visited.add(dir.getCanonicalPath()))
+                    continue;
+            } catch (IOException e) {
+                Log.w(TAG, "skip " + dir + ": " + e);
+                continue;
+            }
+            long lastModified = dir.lastModified();
+            DirNode node = old.get(rel);
+            boolean reuse = node != null && lastModified != 0 && node.lastModified == lastModified
+                && node.scannedAt - lastModified > MTIME_GRANULARITY_MS
+                && (dirty == null || !dirty.contains(rel))
+                && (watched != null && watched.contains(rel) || filesUnchanged(dir, node));
+            if (!reuse) {
+                node = readDir(dir, lastModified);
+                if (node == null)
+                    continue;
+                read++;
+            }
+            dirs.put(rel, node);
+            for (String sub : node.subdirs) {
+                pending.add(rel.isEmpty() ? sub : rel + "/" + sub);
+            }
+        }
+        mSnapshot = new Snapshot(dirs);
+        return read;
+    }
+
+    private static boolean filesUnchanged(File dir, DirNode node) {
+        for (FileRec rec : node.files) {
+            File file = new File(dir, rec.name);
+            if (file.lastModified() != rec.lastModified || file.length() != rec.size)
+                return false;
+        }
+        return true;
+    }
+
+    private static DirNode readDir(File dir, long lastModified) {
+        String[] names = dir.list();
+        if (names == null)
+            return null;
+        ArrayList<String> subdirs = new ArrayList<String>();
+        ArrayList<FileRec> files = new ArrayList<FileRec>();
+        for (String name : names) {
+            if (name.startsWith("."))
+                continue;
+            int type = typeOf(name);
+            File file = new File(dir, name);
+            if (file.isDirectory()) {
+                subdirs.add(name);
+            } else if (type >= 0) {
+                files.add(new FileRec(name, file.length(), file.lastModified(), type));
+            }
+        }
+        return new DirNode(lastModified, System.currentTimeMillis(),
+            subdirs.toArray(new String[subdirs.size()]), files.toArray(new FileRec[files.size()]));
+    }
+
+    boolean load(File file) {
+        if (!file.exists())
+            return false;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !mUuid.equals(in.readUTF())) {
+                Log.w(TAG, "ignore index " + file);
+                return false;
+            }
+            int dirCount = in.readInt();
+            HashMap<String, DirNode> dirs = new HashMap<String, DirNode>(dirCount * 2);
+            for (int i = 0; i < dirCount; i++) {
+                String rel = in.readUTF();
+                long lastModified = in.readLong();
+                long scannedAt = in.readLong();
+                String[] subdirs = new String[in.readInt()];
+                for (int j = 0; j < subdirs.length; j++) {
+                    subdirs[j] = in.readUTF();
+                }
+                FileRec[] files = new FileRec[in.readInt()];
+                for (int j = 0; j < files.length; j++) {
+                    files[j] = new FileRec(in.readUTF(), in.readLong(), in.readLong(), in.readByte());
+                }
+                dirs.put(rel, new DirNode(lastModified, scannedAt, subdirs, files));
+            }
+            mSnapshot = new Snapshot(dirs);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "load " + file + " failed: " + e);
+            return false;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    boolean save(File file) {
+        Snapshot snapshot = mSnapshot;
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(mUuid);
+            out.writeInt(snapshot.dirs.size());
+            for (Map.Entry<String, DirNode> entry : snapshot.dirs.entrySet()) {
+                DirNode node = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(node.lastModified);
+                out.writeLong(node.scannedAt);
+                out.writeInt(node.subdirs.length);
+                for (String sub : node.subdirs) {
+                    out.writeUTF(sub);
+                }
+                out.writeInt(node.files.length);
+                for (FileRec rec : node.files) {
+                    out.writeUTF(rec.name);
+                    out.writeLong(rec.size);
+                    out.writeLong(rec.lastModified);
+                    out.writeByte(rec.type);
+                }
+            }
+            out.close();
+            out = null;
+            return tmp.renameTo(file);
+        } catch (IOException e) {
+            Log.e(TAG, "save " + file + " failed: " + e);
+            tmp.delete();
+            return false;
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    /**
+     * directories relative to the root, shallow ones first, at most max of them
+     */
+    List<String> listDirs(int max) {
+        Map<String, DirNode> dirs = mSnapshot.dirs;
+        ArrayList<String> result = new ArrayList<String>();
+        ArrayDeque<String> pending = new ArrayDeque<String>();
+        if (dirs.containsKey(""))
+            pending.add("");
+        while (!pending.isEmpty() && result.size() < max) {
+            String rel = pending.pollFirst();
+            DirNode node = dirs.get(rel);
+            if (node == null)
+                continue;
+            result.add(rel);
+            for (String sub : node.subdirs) {
+                pending.add(rel.isEmpty() ? sub : rel + "/" + sub);
+            }
+        }
+        return result;
+    }
+}
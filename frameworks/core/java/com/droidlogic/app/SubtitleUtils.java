@@ -397,63 +397,24 @@ public class SubtitleUtils {
             if ("CP1256".equals(defaultEncoder)) {
                 return "CP1256";
             }
-            BufferedInputStream bis = null;
-            FileInputStream fin = null;
-            byte[] first3Bytes = new byte[3];
             String charset = defaultEncoder;
             int idx = fileName.indexOf ("INSUB");
             //Log.i ("subtitle", "[checkEncoding]fileName:" + fileName + ",idx:" + idx);
             if (idx != -1) {
                 return charset;
             }
-            try {
-                fin = new FileInputStream (new File (fileName));
-                bis = new BufferedInputStream (fin);
-                bis.mark (0);
-                int r = bis.read (first3Bytes, 0, 3) ;
-                if (r == -1) {
-                    if (fin != null) {
-                        fin.close();
-                    }
-                    if (bis != null) {
-                        bis.close();
-                    }
-                    return charset;
-                }
-                if (first3Bytes[0] == (byte) 0xFF && first3Bytes[1] == (byte) 0xFE) {
-                    charset = "UTF-16LE";
-                }
-                else if (first3Bytes[0] == (byte) 0xFE
-                         && first3Bytes[1] == (byte) 0xFF) {
-                    charset = "UTF-16BE";
-                }
-                else if (first3Bytes[0] == (byte) 0xEF
-                         && first3Bytes[1] == (byte) 0xBB
-                         && first3Bytes[2] == (byte) 0xBF) {
-                    charset = "UTF8";
-                }
-                else {
-                    if (1 < 0) { //whether need to probe the file charset
-                        String probe = probe_utf8_utf16 (fileName, 1024);
-                        if (probe != "") {
-                            charset = probe;
-                        }
+            //the detector reads the file once and keeps the result for getExtSubCharset
+            CharsetDetector.Result probe = mCharDetector.probe (new File (fileName));
+            if (probe != null && probe.bomCharset != null) {
+                charset = probe.bomCharset;
+            }
+            else {
+                if (1 < 0) { //whether need to probe the file charset
+                    String probeCharset = probe_utf8_utf16 (fileName, 1024);
+                    if (probeCharset != "") {
+                        charset = probeCharset;
                     }
                 }
-                if (fin != null) {
-                    fin.close();
-                }
-                if (bis != null) {
-                    bis.close();
-                }
-            }
-            catch (FileNotFoundException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
-            catch (IOException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
             }
 
             if (charset.compareTo ("UTF-16LE") == 0 || charset.compareTo ("UTF-16BE") == 0) {
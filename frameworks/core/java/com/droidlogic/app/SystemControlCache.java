@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2014 Amlogic, Inc. All rights reserved.
+ *
+ * This source code is subject to the terms and conditions defined in the
+ * file 'LICENSE' which is part of this source code package.
+ *
+ * Description:
+ *     AMLOGIC SystemControlCache
+ */
+
+package com.droidlogic.app;
+
+import android.os.SystemClock;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache used by SystemControlManager for property, sysfs and
+ * bootenv reads. Disabled by default, every entry expires after its ttl and
+ * is dropped as soon as the same key is written through the manager.
+ */
+class SystemControlCache {
+    public static final char TYPE_PROP          = 'p';
+    public static final char TYPE_SYSFS         = 's';
+    public static final char TYPE_BOOTENV       = 'b';
+
+    public static final long DEFAULT_TTL_MS     = 1000;
+
+    private static final char KEY_SEPARATOR     = '\0';
+
+    private static final class Entry {
+        final Object value;
+        final long expireAt;
+
+        Entry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    /**
+     * int, long and boolean property reads, kept apart from mEntries so a lookup needs
+     * neither a built key nor a boxed value. The default the value was read with is kept
+     * next to it, a read with another default is a miss.
+     */
+    static final class NumberEntry {
+        final long def;
+        final long value;
+        final long expireAt;
+
+        NumberEntry(long def, long value, long expireAt) {
+            this.def = def;
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    public static final int NUM_INT             = 0;
+    public static final int NUM_LONG            = 1;
+    public static final int NUM_BOOLEAN         = 2;
+
+    private final ConcurrentHashMap<String, Entry> mEntries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, NumberEntry> mInts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, NumberEntry> mLongs = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, NumberEntry> mBooleans = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> mKeyTtl = new ConcurrentHashMap<>();
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+    // bumped by every invalidation, a read that started before one must not be cached
+    private final AtomicLong mGeneration = new AtomicLong();
+
+    private volatile boolean mEnabled = false;
+    private volatile long mDefaultTtl = DEFAULT_TTL_MS;
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    public void setEnabled(boolean enable) {
+        mEnabled = enable;
+        if (!enable) {
+            invalidateAll();
+        }
+    }
+
+    public void setDefaultTtl(long ttlMs) {
+        mDefaultTtl = ttlMs;
+    }
+
+    /**
+     * @param name property name, sysfs path or bootenv name
+     * @param ttlMs time to live in ms, 0 means never cache this key,
+     *              a negative value restores the default ttl
+     */
+    public void setTtl(String name, long ttlMs) {
+        if (ttlMs < 0) {
+            mKeyTtl.remove(name);
+        } else {
+            mKeyTtl.put(name, ttlMs);
+        }
+        invalidate(name);
+    }
+
+    /**
+     * take it before reading the value to put, see put()
+     */
+    public long getGeneration() {
+        return mGeneration.get();
+    }
+
+    public Object get(char type, String name, String variant) {
+        if (!mEnabled || name == null) {
+            return null;
+        }
+
+        String key = buildKey(type, name, variant);
+        Entry entry = mEntries.get(key);
+        if (entry != null) {
+            if (SystemClock.elapsedRealtime() < entry.expireAt) {
+                mHitCount.incrementAndGet();
+                return entry.value;
+            }
+            mEntries.remove(key, entry);
+        }
+        mMissCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * @param generation getGeneration() taken before the value was read, the value is
+     *                   dropped if anything was invalidated since
+     */
+    public void put(char type, String name, String variant, Object value, long generation) {
+        if (!mEnabled || name == null || value == null) {
+            return;
+        }
+
+        Long keyTtl = mKeyTtl.get(name);
+        long ttl = (keyTtl != null) ? keyTtl : mDefaultTtl;
+        if (ttl <= 0 || mGeneration.get() != generation) {
+            return;
+        }
+        String key = buildKey(type, name, variant);
+        Entry entry = new Entry(value, SystemClock.elapsedRealtime() + ttl);
+        mEntries.put(key, entry);
+        // an invalidation that raced the put may have scanned the map before the entry landed
+        if (mGeneration.get() != generation) {
+            mEntries.remove(key, entry);
+        }
+    }
+
+    /**
+     * @return the entry cached for name and def, null on a miss
+     */
+    public NumberEntry getNumber(int kind, String name, long def) {
+        if (!mEnabled || name == null) {
+            return null;
+        }
+
+        ConcurrentHashMap<String, NumberEntry> numbers = numbers(kind);
+        NumberEntry entry = numbers.get(name);
+        if (entry != null && entry.def == def) {
+            if (SystemClock.elapsedRealtime() < entry.expireAt) {
+                mHitCount.incrementAndGet();
+                return entry;
+            }
+            numbers.remove(name, entry);
+        }
+        mMissCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * same as put() for the int, long and boolean reads, only one default is kept per name
+     */
+    public void putNumber(int kind, String name, long def, long value, long generation) {
+        if (!mEnabled || name == null) {
+            return;
+        }
+
+        Long keyTtl = mKeyTtl.get(name);
+        long ttl = (keyTtl != null) ? keyTtl : mDefaultTtl;
+        if (ttl <= 0 || mGeneration.get() != generation) {
+            return;
+        }
+        ConcurrentHashMap<String, NumberEntry> numbers = numbers(kind);
+        NumberEntry entry = new NumberEntry(def, value, SystemClock.elapsedRealtime() + ttl);
+        numbers.put(name, entry);
+        if (mGeneration.get() != generation) {
+            numbers.remove(name, entry);
+        }
+    }
+
+    /**
+     * drop every cached variant of name, whatever type it was read as
+     */
+    public void invalidate(String name) {
+        if (name == null) {
+            return;
+        }
+        mGeneration.incrementAndGet();
+        mInts.remove(name);
+        mLongs.remove(name);
+        mBooleans.remove(name);
+        if (mEntries.isEmpty()) {
+            return;
+        }
+
+        int len = name.length();
+        Iterator<String> it = mEntries.keySet().iterator();
+        while (it.hasNext()) {
+            String key = it.next();
+            if (key.length() > len + 1
+                    && key.charAt(len + 1) == KEY_SEPARATOR
+                    && key.regionMatches(1, name, 0, len)) {
+                it.remove();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        mGeneration.incrementAndGet();
+        mEntries.clear();
+        mInts.clear();
+        mLongs.clear();
+        mBooleans.clear();
+    }
+
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    public void resetStats() {
+        mHitCount.set(0);
+        mMissCount.set(0);
+    }
+
+    private ConcurrentHashMap<String, NumberEntry> numbers(int kind) {
+        switch (kind) {
+            case NUM_LONG:
+                return mLongs;
+            case NUM_BOOLEAN:
+                return mBooleans;
+            default:
+                return mInts;
+        }
+    }
+
+    private static String buildKey(char type, String name, String variant) {
+        StringBuilder sb = new StringBuilder(name.length() + 8);
+        sb.append(type).append(name).append(KEY_SEPARATOR);
+        if (variant != null) {
+            sb.append(variant);
+        }
+        return sb.toString();
+    }
+}
@@ -18,6 +18,8 @@ import android.os.RemoteException;
 import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 //import android.hidl.manager.V1_0.IServiceManager;
@@ -70,7 +72,9 @@ public class SystemControlManager {
     public static final int PROVISION_KEY_TYPE_DOLBY_ID                         = 0xC1;
     public static final int PROVISION_KEY_TYPE_INVALID                          = 0xFFFFFFFF;
 
-    private ISystemControl mProxy = null;
+    // ISystemControl proxy is thread safe, read-only calls use it without mLock
+    // and only (re)connection and calls that change state are serialized.
+    private volatile ISystemControl mProxy = null;
     private static final String BOOT_VIDEO                  =  "/data/bootvideo";
     private static final String LOGO_PNG                    = "/mnt/vendor/odm_ext/logo_files/bootup.bmp";
     // Notification object used to listen to the start of the system control daemon.
@@ -85,6 +89,11 @@ public class SystemControlManager {
     // Mutex for all mutable shared state.
     private final Object mLock = new Object();
 
+    // Opt-in cache for property/sysfs/bootenv reads, see setCacheEnabled().
+    private final SystemControlCache mCache = new SystemControlCache();
+    // the one callback of this process registered to the service, guarded by mLock
+    private CacheInvalidateCallback mCallback = null;
+
     private SystemControlManager() {
         /*
         try {
@@ -117,6 +126,10 @@ public class SystemControlManager {
             try {
                 mProxy = ISystemControl.getService();
                 mProxy.linkToDeath(new DeathRecipient(), SYSTEM_CONTROL_DEATH_COOKIE);
+                if (mCallback != null) {
+                    // a restarted service has lost it
+                    mProxy.setCallback(mCallback);
+                }
             } catch (NoSuchElementException e) {
                 Log.e(TAG, "connectToProxy: system control service not found."
                         + " Did the service fail to start?", e);
@@ -126,96 +139,242 @@ public class SystemControlManager {
         }
     }
 
-    public String getProperty(String prop) {
-        synchronized (mLock) {
-            Mutable<String> resultVal = new Mutable<>();
-            try {
-                mProxy.getProperty(prop, (int ret, String v) -> {
-                                if (Result.OK == ret) {
-                                    resultVal.value = v;
-                                }
-                            });
-                return resultVal.value;
-            } catch (RemoteException e) {
-                Log.e(TAG, "getProperty:" + e);
+    /**
+     * Enable the read-through cache for getProperty*, readSysFs and getBootenv.
+     * Cached values are dropped when written through this manager, when the
+     * system control service notifies an event or after their ttl expires.
+     * Enabling registers the callback for those events, the cache stays off
+     * if it cannot be registered.
+     *
+     * @param enable true to cache reads, false to disable and clear the cache
+     * @param defaultTtlMs ttl in ms for keys without an explicit setCacheTtl()
+     */
+    public void setCacheEnabled(boolean enable, long defaultTtlMs) {
+        mCache.setDefaultTtl(defaultTtlMs);
+        if (enable) {
+            getProxy();
+            synchronized (mLock) {
+                if (!registerCallbackLocked()) {
+                    Log.e(TAG, "setCacheEnabled: no service callback, cache stays off");
+                    mCache.setEnabled(false);
+                    return;
+                }
             }
         }
-        return "";
+        mCache.setEnabled(enable);
+    }
+
+    private boolean registerCallbackLocked() {
+        if (mCallback != null) {
+            return true;
+        }
+        if (mProxy == null) {
+            return false;
+        }
+        CacheInvalidateCallback callback = new CacheInvalidateCallback();
+        try {
+            mProxy.setCallback(callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "setCallback:" + e);
+            return false;
+        }
+        mCallback = callback;
+        return true;
+    }
+
+    public boolean isCacheEnabled() {
+        return mCache.isEnabled();
+    }
+
+    /**
+     * @param key property name, sysfs path or bootenv name
+     * @param ttlMs ttl in ms for this key, 0 to never cache it, negative to use the default ttl
+     */
+    public void setCacheTtl(String key, long ttlMs) {
+        mCache.setTtl(key, ttlMs);
+    }
+
+    public void invalidateCache(String key) {
+        mCache.invalidate(key);
+    }
+
+    public void invalidateCache() {
+        mCache.invalidateAll();
+    }
+
+    public long getCacheHitCount() {
+        return mCache.getHitCount();
+    }
+
+    public long getCacheMissCount() {
+        return mCache.getMissCount();
+    }
+
+    private ISystemControl getProxy() {
+        ISystemControl proxy = mProxy;
+        if (proxy == null) {
+            connectToProxy();
+            proxy = mProxy;
+        }
+        return proxy;
+    }
+
+    public String getProperty(String prop) {
+        Object cached = mCache.get(SystemControlCache.TYPE_PROP, prop, null);
+        if (cached != null) {
+            return (String) cached;
+        }
+
+        long generation = mCache.getGeneration();
+        String val;
+        try {
+            val = getPropertyFromProxy(prop);
+        } catch (RemoteException e) {
+            Log.e(TAG, "getProperty:" + e);
+            // the service is gone, keep the failure out of the cache
+            return "";
+        }
+        mCache.put(SystemControlCache.TYPE_PROP, prop, null, val, generation);
+        return val;
+    }
+
+    private String getPropertyFromProxy(String prop) throws RemoteException {
+        Mutable<String> resultVal = new Mutable<>();
+        getProxy().getProperty(prop, (int ret, String v) -> {
+                        if (Result.OK == ret) {
+                            resultVal.value = v;
+                        }
+                    });
+        return resultVal.value;
     }
 
     public String getPropertyString(String prop, String def) {
-        synchronized (mLock) {
-            Mutable<String> resultVal = new Mutable<>();
-            try {
-                mProxy.getPropertyString(prop, def, (int ret, String v) -> {
-                                if (Result.OK == ret) {
-                                    resultVal.value = v;
-                                }
-                            });
-                return resultVal.value;
-            } catch (RemoteException e) {
-                Log.e(TAG, "getPropertyString:" + e);
-            }
+        Object cached = mCache.get(SystemControlCache.TYPE_PROP, prop, "s" + def);
+        if (cached != null) {
+            return (String) cached;
         }
 
-        return "";
+        long generation = mCache.getGeneration();
+        String val;
+        try {
+            val = getPropertyStringFromProxy(prop, def);
+        } catch (RemoteException e) {
+            Log.e(TAG, "getPropertyString:" + e);
+            return "";
+        }
+        mCache.put(SystemControlCache.TYPE_PROP, prop, "s" + def, val, generation);
+        return val;
+    }
+
+    private String getPropertyStringFromProxy(String prop, String def) throws RemoteException {
+        Mutable<String> resultVal = new Mutable<>();
+        getProxy().getPropertyString(prop, def, (int ret, String v) -> {
+                        if (Result.OK == ret) {
+                            resultVal.value = v;
+                        }
+                    });
+        return resultVal.value;
     }
 
     public int getPropertyInt(String prop, int def) {
-        synchronized (mLock) {
-            Mutable<Integer> resultVal = new Mutable<>();
-            try {
-                mProxy.getPropertyInt(prop, def, (int ret, int v) -> {
-                                if (Result.OK == ret) {
-                                    resultVal.value = v;
-                                }
-                            });
+        if (!mCache.isEnabled()) {
+            return getPropertyIntFromProxy(prop, def, IntResult.get());
+        }
+        SystemControlCache.NumberEntry cached =
+            mCache.getNumber(SystemControlCache.NUM_INT, prop, def);
+        if (cached != null) {
+            return (int) cached.value;
+        }
+
+        long generation = mCache.getGeneration();
+        IntResult resultVal = IntResult.get();
+        int val = getPropertyIntFromProxy(prop, def, resultVal);
+        // a failed read gives back def, it must not hide the real value until the ttl runs out
+        if (resultVal.ok) {
+            mCache.putNumber(SystemControlCache.NUM_INT, prop, def, val, generation);
+        }
+        return val;
+    }
+
+    private int getPropertyIntFromProxy(String prop, int def, IntResult resultVal) {
+        try {
+            getProxy().getPropertyInt(prop, def, resultVal);
+            if (resultVal.ok) {
                 return resultVal.value;
-            } catch (RemoteException e) {
-                Log.e(TAG, "getPropertyInt:" + e);
             }
+        } catch (RemoteException e) {
+            Log.e(TAG, "getPropertyInt:" + e);
         }
 
-        return 0;
+        return def;
     }
 
     public long getPropertyLong(String prop, long def) {
-        synchronized (mLock) {
-            Mutable<Long> resultVal = new Mutable<>();
-            try {
-                mProxy.getPropertyLong(prop, def, (int ret, long v) -> {
-                                if (Result.OK == ret) {
-                                    resultVal.value = v;
-                                }
-                            });
+        if (!mCache.isEnabled()) {
+            return getPropertyLongFromProxy(prop, def, LongResult.get());
+        }
+        SystemControlCache.NumberEntry cached =
+            mCache.getNumber(SystemControlCache.NUM_LONG, prop, def);
+        if (cached != null) {
+            return cached.value;
+        }
+
+        long generation = mCache.getGeneration();
+        LongResult resultVal = LongResult.get();
+        long val = getPropertyLongFromProxy(prop, def, resultVal);
+        if (resultVal.ok) {
+            mCache.putNumber(SystemControlCache.NUM_LONG, prop, def, val, generation);
+        }
+        return val;
+    }
+
+    private long getPropertyLongFromProxy(String prop, long def, LongResult resultVal) {
+        try {
+            getProxy().getPropertyLong(prop, def, resultVal);
+            if (resultVal.ok) {
                 return resultVal.value;
-            } catch (RemoteException e) {
-                Log.e(TAG, "getPropertyLong:" + e);
             }
+        } catch (RemoteException e) {
+            Log.e(TAG, "getPropertyLong:" + e);
         }
 
-        return 0;
+        return def;
     }
 
     public boolean getPropertyBoolean(String prop, boolean def) {
-        synchronized (mLock) {
-            Mutable<Boolean> resultVal = new Mutable<>();
-            try {
-                mProxy.getPropertyBoolean(prop, def, (int ret, boolean v) -> {
-                                if (Result.OK == ret) {
-                                    resultVal.value = v;
-                                }
-                            });
+        if (!mCache.isEnabled()) {
+            return getPropertyBooleanFromProxy(prop, def, BooleanResult.get());
+        }
+        SystemControlCache.NumberEntry cached =
+            mCache.getNumber(SystemControlCache.NUM_BOOLEAN, prop, def ? 1 : 0);
+        if (cached != null) {
+            return cached.value != 0;
+        }
+
+        long generation = mCache.getGeneration();
+        BooleanResult resultVal = BooleanResult.get();
+        boolean val = getPropertyBooleanFromProxy(prop, def, resultVal);
+        if (resultVal.ok) {
+            mCache.putNumber(SystemControlCache.NUM_BOOLEAN, prop, def ? 1 : 0, val ? 1 : 0, generation);
+        }
+        return val;
+    }
+
+    private boolean getPropertyBooleanFromProxy(String prop, boolean def, BooleanResult resultVal) {
+        try {
+            getProxy().getPropertyBoolean(prop, def, resultVal);
+            if (resultVal.ok) {
                 return resultVal.value;
-            } catch (RemoteException e) {
-                Log.e(TAG, "getPropertyBoolean:" + e);
             }
+        } catch (RemoteException e) {
+            Log.e(TAG, "getPropertyBoolean:" + e);
         }
 
-        return false;
+        return def;
     }
 
     public void setProperty(String prop, String val) {
+        mCache.invalidate(prop);
         synchronized (mLock) {
             try {
                 mProxy.setProperty(prop, val);
@@ -223,45 +382,139 @@ public class SystemControlManager {
                 Log.e(TAG, "setProperty:" + e);
             }
         }
+        // a read that overlapped the write may have cached the old value
+        mCache.invalidate(prop);
     }
 
     public String readSysFs(String path) {
-        synchronized (mLock) {
-            Mutable<String> resultVal = new Mutable<>();
+        Object cached = mCache.get(SystemControlCache.TYPE_SYSFS, path, null);
+        if (cached != null) {
+            return (String) cached;
+        }
+
+        long generation = mCache.getGeneration();
+        String val;
+        try {
+            val = readSysFsFromProxy(path);
+        } catch (RemoteException e) {
+            Log.e(TAG, "readSysFs:" + e);
+            return "";
+        }
+        mCache.put(SystemControlCache.TYPE_SYSFS, path, null, val, generation);
+        return val;
+    }
+
+    private String readSysFsFromProxy(String path) throws RemoteException {
+        Mutable<String> resultVal = new Mutable<>();
+        getProxy().readSysfs(path, (int ret, String v) -> {
+                        if (Result.OK == ret) {
+                            resultVal.value = v;
+                        }
+                    });
+        return resultVal.value;
+    }
+
+    /**
+     * Read several properties at once, the map keeps the order of keys.
+     * ISystemControl has no batch method, so cache misses are fetched back to
+     * back on one proxy reference sharing a single result holder and callback.
+     * Every key is in the map: if the proxy dies part way the remaining keys
+     * get "", the same as getProperty(key) returns on a RemoteException, and
+     * are not cached.
+     */
+    public Map<String, String> getProperties(String... keys) {
+        Map<String, String> values = new LinkedHashMap<>();
+        ISystemControl proxy = getProxy();
+        Mutable<String> resultVal = new Mutable<>();
+        ISystemControl.getPropertyCallback cb = (int ret, String v) -> {
+                    if (Result.OK == ret) {
+                        resultVal.value = v;
+                    }
+                };
+        for (int i = 0; i < keys.length; i++) {
+            String key = keys[i];
+            Object cached = mCache.get(SystemControlCache.TYPE_PROP, key, null);
+            if (cached != null) {
+                values.put(key, (String) cached);
+                continue;
+            }
+
+            resultVal.value = null;
+            long generation = mCache.getGeneration();
             try {
-                mProxy.readSysfs(path, (int ret, String v) -> {
-                                if (Result.OK == ret) {
-                                    resultVal.value = v;
-                                }
-                            });
-                return resultVal.value;
+                proxy.getProperty(key, cb);
             } catch (RemoteException e) {
-                Log.e(TAG, "readSysFs:" + e);
+                Log.e(TAG, "getProperties:" + e);
+                // the proxy is gone, the rest reads as the single key getter would fail
+                for (; i < keys.length; i++) {
+                    values.put(keys[i], "");
+                }
+                break;
             }
+            mCache.put(SystemControlCache.TYPE_PROP, key, null, resultVal.value, generation);
+            values.put(key, resultVal.value);
         }
-
-        return "";
+        return values;
     }
 
-    public String readSysFsOri(String path) {
-        synchronized (mLock) {
-            Mutable<String> resultVal = new Mutable<>();
+    /**
+     * Read several sysfs nodes at once, the map keeps the order of paths.
+     * Paths left unread by a RemoteException are "", like readSysFs(path).
+     * @see #getProperties(String...)
+     */
+    public Map<String, String> readSysFsBatch(String... paths) {
+        Map<String, String> values = new LinkedHashMap<>();
+        ISystemControl proxy = getProxy();
+        Mutable<String> resultVal = new Mutable<>();
+        ISystemControl.readSysfsCallback cb = (int ret, String v) -> {
+                    if (Result.OK == ret) {
+                        resultVal.value = v;
+                    }
+                };
+        for (int i = 0; i < paths.length; i++) {
+            String path = paths[i];
+            Object cached = mCache.get(SystemControlCache.TYPE_SYSFS, path, null);
+            if (cached != null) {
+                values.put(path, (String) cached);
+                continue;
+            }
+
+            resultVal.value = null;
+            long generation = mCache.getGeneration();
             try {
-                mProxy.readSysfsOri(path, (int ret, String v) -> {
-                                if (Result.OK == ret) {
-                                    resultVal.value = v;
-                                }
-                            });
-                return resultVal.value;
+                proxy.readSysfs(path, cb);
             } catch (RemoteException e) {
-                Log.e(TAG, "readSysFs:" + e);
+                Log.e(TAG, "readSysFsBatch:" + e);
+                // the proxy is gone, the rest reads as the single key getter would fail
+                for (; i < paths.length; i++) {
+                    values.put(paths[i], "");
+                }
+                break;
             }
+            mCache.put(SystemControlCache.TYPE_SYSFS, path, null, resultVal.value, generation);
+            values.put(path, resultVal.value);
+        }
+        return values;
+    }
+
+    public String readSysFsOri(String path) {
+        Mutable<String> resultVal = new Mutable<>();
+        try {
+            getProxy().readSysfsOri(path, (int ret, String v) -> {
+                            if (Result.OK == ret) {
+                                resultVal.value = v;
+                            }
+                        });
+            return resultVal.value;
+        } catch (RemoteException e) {
+            Log.e(TAG, "readSysFs:" + e);
         }
 
         return "";
     }
 
     public boolean writeSysFs(String path, String val) {
+        mCache.invalidate(path);
         synchronized (mLock) {
             try {
                 mProxy.writeSysfs(path, val);
@@ -269,6 +522,7 @@ public class SystemControlManager {
                 Log.e(TAG, "writeSysFs:" + e);
             }
         }
+        mCache.invalidate(path);
 
         return true;
     }
@@ -328,6 +582,7 @@ public class SystemControlManager {
     }
 
     public boolean writeSysFs(String path, int[] val, int def) {
+        mCache.invalidate(path);
         synchronized (mLock) {
             try {
                 int[] data;
@@ -341,6 +596,7 @@ public class SystemControlManager {
                 Log.e(TAG, "writeSysFs:" + e);
             }
         }
+        mCache.invalidate(path);
 
         return true;
     }
@@ -983,26 +1239,37 @@ public class SystemControlManager {
     }
 
     public String getBootenv(String prop, String def) {
-        synchronized (mLock) {
-            Mutable<String> resultVal = new Mutable<>();
-            try {
-                mProxy.getBootEnv(prop, (int ret, String v) -> {
-                                if (Result.OK == ret) {
-                                    resultVal.value = v;
-                                } else {
-                                    resultVal.value = def;
-                                }
-                            });
-                return resultVal.value;
-            } catch (RemoteException e) {
-                Log.e(TAG, "getBootenv:" + e);
-            }
+        Object cached = mCache.get(SystemControlCache.TYPE_BOOTENV, prop, def);
+        if (cached != null) {
+            return (String) cached;
         }
 
-        return "";
+        long generation = mCache.getGeneration();
+        String val;
+        try {
+            val = getBootenvFromProxy(prop, def);
+        } catch (RemoteException e) {
+            Log.e(TAG, "getBootenv:" + e);
+            return "";
+        }
+        mCache.put(SystemControlCache.TYPE_BOOTENV, prop, def, val, generation);
+        return val;
+    }
+
+    private String getBootenvFromProxy(String prop, String def) throws RemoteException {
+        Mutable<String> resultVal = new Mutable<>();
+        getProxy().getBootEnv(prop, (int ret, String v) -> {
+                        if (Result.OK == ret) {
+                            resultVal.value = v;
+                        } else {
+                            resultVal.value = def;
+                        }
+                    });
+        return resultVal.value;
     }
 
     public void setBootenv(String prop, String val) {
+        mCache.invalidate(prop);
         synchronized (mLock) {
             try {
                 mProxy.setBootEnv(prop, val);
@@ -1010,6 +1277,7 @@ public class SystemControlManager {
                 Log.e(TAG, "setBootenv:" + e);
             }
         }
+        mCache.invalidate(prop);
     }
     public boolean setHdrStrategy(String type) {
         synchronized (mLock) {
@@ -1032,12 +1300,10 @@ public class SystemControlManager {
             return false;
     }
     public boolean GetModeSupportDeepColorAttr(String mode, String value) {
-        synchronized (mLock) {
-            try {
-                return (mProxy.getModeSupportDeepColorAttr(mode, value) == Result.OK)?true:false;
-            } catch (RemoteException e) {
-                Log.e(TAG, "setBootenv:" + e);
-            }
+        try {
+            return (getProxy().getModeSupportDeepColorAttr(mode, value) == Result.OK)?true:false;
+        } catch (RemoteException e) {
+            Log.e(TAG, "setBootenv:" + e);
         }
         return false;
     }
@@ -1083,58 +1349,52 @@ public class SystemControlManager {
     }
 
     public String getPrefHdmiDispMode() {
-        synchronized (mLock) {
-            Mutable<String> resultVal = new Mutable<>();
-            try {
-                mProxy.getPrefHdmiDispMode((int ret, String v) -> {
-                                if (Result.OK == ret) {
-                                    resultVal.value = v;
-                                }
-                            });
-                return resultVal.value;
-            } catch (RemoteException e) {
-                Log.e(TAG, "getPrefHdmiDispMode:" + e);
-            }
+        Mutable<String> resultVal = new Mutable<>();
+        try {
+            getProxy().getPrefHdmiDispMode((int ret, String v) -> {
+                            if (Result.OK == ret) {
+                                resultVal.value = v;
+                            }
+                        });
+            return resultVal.value;
+        } catch (RemoteException e) {
+            Log.e(TAG, "getPrefHdmiDispMode:" + e);
         }
         return "";
     }
 
     public String getActiveDispMode() {
-        synchronized (mLock) {
-            Mutable<String> resultVal = new Mutable<>();
-            try {
-                mProxy.getActiveDispMode((int ret, String v) -> {
-                                if (Result.OK == ret) {
-                                    resultVal.value = v;
-                                }
-                            });
-                return resultVal.value;
-            } catch (RemoteException e) {
-                Log.e(TAG, "getActiveDispMode:" + e);
-            }
+        Mutable<String> resultVal = new Mutable<>();
+        try {
+            getProxy().getActiveDispMode((int ret, String v) -> {
+                            if (Result.OK == ret) {
+                                resultVal.value = v;
+                            }
+                        });
+            return resultVal.value;
+        } catch (RemoteException e) {
+            Log.e(TAG, "getActiveDispMode:" + e);
         }
         return "";
     }
 
     public void getSupportDispModeList(ArrayList<String> HdmiSupportModeList) {
-        synchronized (mLock) {
-            try {
-                mProxy.getSupportDispModeList((int ret, ArrayList<String> hidlDispModeList) -> {
-                                if (Result.OK == ret) {
-                                    int size = hidlDispModeList.size();
-                                    if (size <= 0) {
-                                       Log.e(TAG, "hidlDispModeList size is 0");
-                                    } else {
-                                      for (int i =  0; i < size; i++) {
-                                          //Log.d(TAG, "hidlDispModeList:"+ hidlDispModeList.get(i));
-                                          HdmiSupportModeList.add(hidlDispModeList.get(i));
-                                      }
-                                    }
+        try {
+            getProxy().getSupportDispModeList((int ret, ArrayList<String> hidlDispModeList) -> {
+                            if (Result.OK == ret) {
+                                int size = hidlDispModeList.size();
+                                if (size <= 0) {
+                                   Log.e(TAG, "hidlDispModeList size is 0");
+                                } else {
+                                  for (int i =  0; i < size; i++) {
+                                      //Log.d(TAG, "hidlDispModeList:"+ hidlDispModeList.get(i));
+                                      HdmiSupportModeList.add(hidlDispModeList.get(i));
+                                  }
                                 }
-                            });
-            } catch (RemoteException e) {
-                Log.e(TAG, "getSupportDispModeList:" + e);
-            }
+                            }
+                        });
+        } catch (RemoteException e) {
+            Log.e(TAG, "getSupportDispModeList:" + e);
         }
     }
 
@@ -1190,59 +1450,53 @@ public class SystemControlManager {
 
     public int[] getPosition(String mode) {
         int[] curPosition = { 0, 0, 1280, 720 };
-        synchronized (mLock) {
-            Mutable<Integer> left = new Mutable<>();
-            Mutable<Integer> top = new Mutable<>();
-            Mutable<Integer> width = new Mutable<>();
-            Mutable<Integer> height = new Mutable<>();
-            try {
-                mProxy.getPosition(mode, (int ret, int x, int y, int w, int h) -> {
-                                if (Result.OK == ret) {
-                                    left.value = x;
-                                    top.value = y;
-                                    width.value = w;
-                                    height.value = h;
-                                }
-                            });
-                curPosition[0] = left.value;
-                curPosition[1] = top.value;
-                curPosition[2] = width.value;
-                curPosition[3] = height.value;
-                return curPosition;
-            } catch (RemoteException e) {
-                Log.e(TAG, "getPosition:" + e);
-            }
+        Mutable<Integer> left = new Mutable<>();
+        Mutable<Integer> top = new Mutable<>();
+        Mutable<Integer> width = new Mutable<>();
+        Mutable<Integer> height = new Mutable<>();
+        try {
+            getProxy().getPosition(mode, (int ret, int x, int y, int w, int h) -> {
+                            if (Result.OK == ret) {
+                                left.value = x;
+                                top.value = y;
+                                width.value = w;
+                                height.value = h;
+                            }
+                        });
+            curPosition[0] = left.value;
+            curPosition[1] = top.value;
+            curPosition[2] = width.value;
+            curPosition[3] = height.value;
+            return curPosition;
+        } catch (RemoteException e) {
+            Log.e(TAG, "getPosition:" + e);
         }
         return curPosition;
     }
 
     public String getDeepColorAttr(String mode) {
-        synchronized (mLock) {
-            Mutable<String> resultVal = new Mutable<>();
-            try {
-                mProxy.getDeepColorAttr(mode, (int ret, String v) -> {
-                                if (Result.OK == ret) {
-                                    resultVal.value = v;
-                                }
-                            });
-                return resultVal.value;
-            } catch (RemoteException e) {
-                Log.e(TAG, "getDeepColorAttr:" + e);
-            }
+        Mutable<String> resultVal = new Mutable<>();
+        try {
+            getProxy().getDeepColorAttr(mode, (int ret, String v) -> {
+                            if (Result.OK == ret) {
+                                resultVal.value = v;
+                            }
+                        });
+            return resultVal.value;
+        } catch (RemoteException e) {
+            Log.e(TAG, "getDeepColorAttr:" + e);
         }
         return "";
     }
 
     public long resolveResolutionValue(String mode) {
         synchronized (mLock) {
-            Mutable<Long> resultVal = new Mutable<>();
+            LongResult resultVal = LongResult.get();
             try {
-                mProxy.resolveResolutionValue(mode, (int ret, long v) -> {
-                                if (Result.OK == ret) {
-                                    resultVal.value = v;
-                                }
-                            });
-                return resultVal.value;
+                mProxy.resolveResolutionValue(mode, resultVal);
+                if (resultVal.ok) {
+                    return resultVal.value;
+                }
             } catch (RemoteException e) {
                 Log.e(TAG, "resolveResolutionValue:" + e);
             }
@@ -1251,18 +1505,16 @@ public class SystemControlManager {
     }
 
     public String isTvSupportDolbyVision() {
-        synchronized (mLock) {
-            Mutable<String> resultVal = new Mutable<>();
-            try {
-                mProxy.sinkSupportDolbyVision((int ret, String v, boolean support) -> {
-                                if (Result.OK == ret) {
-                                    resultVal.value = v;
-                                }
-                            });
-                return resultVal.value;
-            } catch (RemoteException e) {
-                Log.e(TAG, "isTvSupportDolbyVision:" + e);
-            }
+        Mutable<String> resultVal = new Mutable<>();
+        try {
+            getProxy().sinkSupportDolbyVision((int ret, String v, boolean support) -> {
+                            if (Result.OK == ret) {
+                                resultVal.value = v;
+                            }
+                        });
+            return resultVal.value;
+        } catch (RemoteException e) {
+            Log.e(TAG, "isTvSupportDolbyVision:" + e);
         }
         return "";
     }
@@ -1288,13 +1540,11 @@ public class SystemControlManager {
     }
 
     public boolean getAllmSupport() {
-        synchronized (mLock) {
-            Mutable<String> resultVal = new Mutable<>();
-            try {
-                return mProxy.getAllmSupport();
-            } catch (RemoteException e) {
-                Log.e(TAG, "getAllmSupport:" + e);
-            }
+        Mutable<String> resultVal = new Mutable<>();
+        try {
+            return getProxy().getAllmSupport();
+        } catch (RemoteException e) {
+            Log.e(TAG, "getAllmSupport:" + e);
         }
         return false;
     }
@@ -1310,13 +1560,11 @@ public class SystemControlManager {
     }
 
     public boolean getGameContentTypeSupport() {
-        synchronized (mLock) {
-            Mutable<String> resultVal = new Mutable<>();
-            try {
-                return mProxy.getGameContentTypeSupport();
-            } catch (RemoteException e) {
-                Log.e(TAG, "getGameContentTypeSupport:" + e);
-            }
+        Mutable<String> resultVal = new Mutable<>();
+        try {
+            return getProxy().getGameContentTypeSupport();
+        } catch (RemoteException e) {
+            Log.e(TAG, "getGameContentTypeSupport:" + e);
         }
         return false;
     }
@@ -1351,18 +1599,14 @@ public class SystemControlManager {
         }
     }
     public int getDolbyVisionType() {
-        synchronized (mLock) {
-            Mutable<Integer> resultVal = new Mutable<>();
-            try {
-                mProxy.getDolbyVisionType((int ret, int v) -> {
-                    if (Result.OK == ret) {
-                        resultVal.value = v;
-                    }
-                });
+        IntResult resultVal = IntResult.get();
+        try {
+            getProxy().getDolbyVisionType(resultVal);
+            if (resultVal.ok) {
                 return resultVal.value;
-            } catch (RemoteException e) {
-                Log.e(TAG, "getDolbyVisionType:" + e);
             }
+        } catch (RemoteException e) {
+            Log.e(TAG, "getDolbyVisionType:" + e);
         }
 
         return 0;
@@ -1379,18 +1623,16 @@ public class SystemControlManager {
     }
 
     public String getGraphicsPriority() {
-        synchronized (mLock) {
-            Mutable<String> resultVal = new Mutable<>();
-            try {
-                mProxy.getGraphicsPriority((int ret, String v) -> {
-                    if (Result.OK == ret) {
-                        resultVal.value = v;
-                    }
-                });
-                return resultVal.value;
-            } catch (RemoteException e) {
-                Log.e(TAG, "getGraphicsPriority:" + e);
-            }
+        Mutable<String> resultVal = new Mutable<>();
+        try {
+            getProxy().getGraphicsPriority((int ret, String v) -> {
+                if (Result.OK == ret) {
+                    resultVal.value = v;
+                }
+            });
+            return resultVal.value;
+        } catch (RemoteException e) {
+            Log.e(TAG, "getGraphicsPriority:" + e);
         }
         return "";
     }
@@ -1404,15 +1646,12 @@ public class SystemControlManager {
     public void setListener(ISystemControlCallback listener) {
         Log.i(TAG, "setListener");
         synchronized (mLock) {
-            try {
-                if (mListenerFlag)
-                    Log.d(TAG, "already setListener");
-                else {
-                    mProxy.setCallback(listener);
-                    mListenerFlag = true;
-                }
-            } catch (RemoteException e) {
-                Log.e(TAG, "setCallback:" + e);
+            if (mListenerFlag)
+                Log.d(TAG, "already setListener");
+            else if (registerCallbackLocked()) {
+                // the cache may have registered the callback already, it forwards from now on
+                mCallback.setListener(listener);
+                mListenerFlag = true;
             }
         }
     }
@@ -1464,18 +1703,14 @@ public class SystemControlManager {
      * FORMAT_3D_TOP_AND_BOTTOM
      */
     public int getVideo3DFormat() {
-        synchronized (mLock) {
-            Mutable<Integer> resultVal = new Mutable<>();
-            try {
-                mProxy.getVideo3DFormat((int ret, int v) -> {
-                                if (Result.OK == ret) {
-                                    resultVal.value = v;
-                                }
-                            });
+        IntResult resultVal = IntResult.get();
+        try {
+            getProxy().getVideo3DFormat(resultVal);
+            if (resultVal.ok) {
                 return resultVal.value;
-            } catch (RemoteException e) {
-                Log.e(TAG, "getVideo3DFormat:" + e);
             }
+        } catch (RemoteException e) {
+            Log.e(TAG, "getVideo3DFormat:" + e);
         }
         return -1;
     }
@@ -1490,18 +1725,14 @@ public class SystemControlManager {
      * FORMAT_3D_TOP_AND_BOTTOM
      */
     public int getDisplay3DTo2DFormat() {
-        synchronized (mLock) {
-            Mutable<Integer> resultVal = new Mutable<>();
-            try {
-                mProxy.getDisplay3DTo2DFormat((int ret, int v) -> {
-                                if (Result.OK == ret) {
-                                    resultVal.value = v;
-                                }
-                            });
+        IntResult resultVal = IntResult.get();
+        try {
+            getProxy().getDisplay3DTo2DFormat(resultVal);
+            if (resultVal.ok) {
                 return resultVal.value;
-            } catch (RemoteException e) {
-                Log.e(TAG, "getDisplay3DTo2DFormat:" + e);
             }
+        } catch (RemoteException e) {
+            Log.e(TAG, "getDisplay3DTo2DFormat:" + e);
         }
         return -1;
     }
@@ -1521,7 +1752,6 @@ public class SystemControlManager {
      */
     public boolean setDisplay3DTo2DFormat(int format) {
         synchronized (mLock) {
-            Mutable<Integer> resultVal = new Mutable<>();
             try {
                 mProxy.setDisplay3DTo2DFormat(format);
             } catch (RemoteException e) {
@@ -1546,7 +1776,6 @@ public class SystemControlManager {
      */
     public boolean setDisplay3DFormat(int format) {
         synchronized (mLock) {
-            Mutable<Integer> resultVal = new Mutable<>();
             try {
                 mProxy.setDisplay3DFormat(format);
             } catch (RemoteException e) {
@@ -1567,18 +1796,14 @@ public class SystemControlManager {
      * FORMAT_3D_TOP_AND_BOTTOM
      */
     public int getDisplay3DFormat() {
-        synchronized (mLock) {
-            Mutable<Integer> resultVal = new Mutable<>();
-            try {
-                mProxy.getDisplay3DFormat((int ret, int v) -> {
-                                if (Result.OK == ret) {
-                                    resultVal.value = v;
-                                }
-                            });
+        IntResult resultVal = IntResult.get();
+        try {
+            getProxy().getDisplay3DFormat(resultVal);
+            if (resultVal.ok) {
                 return resultVal.value;
-            } catch (RemoteException e) {
-                Log.e(TAG, "getDisplay3DFormat:" + e);
             }
+        } catch (RemoteException e) {
+            Log.e(TAG, "getDisplay3DFormat:" + e);
         }
         return -1;
     }
@@ -1588,7 +1813,6 @@ public class SystemControlManager {
      */
     public boolean setOsd3DFormat(int format) {
         synchronized (mLock) {
-            Mutable<Integer> resultVal = new Mutable<>();
             try {
                 mProxy.setOsd3DFormat(format);
             } catch (RemoteException e) {
@@ -1611,7 +1835,6 @@ public class SystemControlManager {
      */
     public boolean switch3DTo2D(int format) {
         synchronized (mLock) {
-            Mutable<Integer> resultVal = new Mutable<>();
             try {
                 mProxy.switch3DTo2D(format);
             } catch (RemoteException e) {
@@ -1627,7 +1850,6 @@ public class SystemControlManager {
      */
     public boolean switch2DTo3D(int format) {
         synchronized (mLock) {
-            Mutable<Integer> resultVal = new Mutable<>();
             try {
                 mProxy.switch2DTo3D(format);
             } catch (RemoteException e) {
@@ -1744,12 +1966,10 @@ public class SystemControlManager {
      * @Return: picture mode refer to enum Pq_Mode
      */
     public int GetPQMode() {
-        synchronized (mLock) {
-            try {
-                return mProxy.getPQmode();
-            } catch (RemoteException e) {
-                Log.e(TAG, "getDisplay3DFormat:" + e);
-            }
+        try {
+            return getProxy().getPQmode();
+        } catch (RemoteException e) {
+            Log.e(TAG, "getDisplay3DFormat:" + e);
         }
         return -1;
     }
@@ -1831,12 +2051,10 @@ public class SystemControlManager {
      * @Return: color temperature refer to enum color_temperature
      */
     public int GetColorTemperature() {
-        synchronized (mLock) {
-            try {
-                return mProxy.getColorTemperature();
-            } catch (RemoteException e) {
-                Log.e(TAG, "GetColorTemperature:" + e);
-            }
+        try {
+            return getProxy().getColorTemperature();
+        } catch (RemoteException e) {
+            Log.e(TAG, "GetColorTemperature:" + e);
         }
         return -1;
     }
@@ -1884,18 +2102,16 @@ public class SystemControlManager {
      */
     public WhiteBalanceParams GetColorTemperatureUserParam() {
         WhiteBalanceParams params = new WhiteBalanceParams();
-        synchronized (mLock) {
-            try {
-                WhiteBalanceParam tempParam = mProxy.getColorTemperatureUserParam();
-                params.r_gain = tempParam.r_gain;
-                params.g_gain = tempParam.g_gain;
-                params.b_gain = tempParam.b_gain;
-                params.r_offset = tempParam.r_post_offset;
-                params.g_offset = tempParam.g_post_offset;
-                params.b_offset = tempParam.b_post_offset;
-             } catch (Exception e) {
-                  Log.e(TAG, "GetColorTemperatureUserParam:" + e);
-             }
+        try {
+            WhiteBalanceParam tempParam = getProxy().getColorTemperatureUserParam();
+            params.r_gain = tempParam.r_gain;
+            params.g_gain = tempParam.g_gain;
+            params.b_gain = tempParam.b_gain;
+            params.r_offset = tempParam.r_post_offset;
+            params.g_offset = tempParam.g_post_offset;
+            params.b_offset = tempParam.b_post_offset;
+         } catch (Exception e) {
+              Log.e(TAG, "GetColorTemperatureUserParam:" + e);
          }
 
          return params;
@@ -1924,13 +2140,11 @@ public class SystemControlManager {
      * @Return: value brightness
      */
     public int GetBrightness() {
-          synchronized (mLock) {
-          try {
-              return mProxy.getBrightness();
-          } catch (RemoteException e) {
-              Log.e(TAG, "GetBrightness:" + e);
-          }
-      }
+        try {
+            return getProxy().getBrightness();
+        } catch (RemoteException e) {
+            Log.e(TAG, "GetBrightness:" + e);
+        }
       return -1;
 
     }
@@ -1977,12 +2191,10 @@ public class SystemControlManager {
      * @Return: value contrast
      */
     public int GetContrast() {
-        synchronized (mLock) {
-            try {
-                return mProxy.getContrast();
-            } catch (RemoteException e) {
-                Log.e(TAG, "GetContrast:" + e);
-            }
+        try {
+            return getProxy().getContrast();
+        } catch (RemoteException e) {
+            Log.e(TAG, "GetContrast:" + e);
         }
         return -1;
 
@@ -2031,13 +2243,11 @@ public class SystemControlManager {
        * @Return: value saturation
        */
       public int GetSaturation() {
-        synchronized (mLock) {
-            try {
-                return mProxy.getSaturation();
-            } catch (RemoteException e) {
-                Log.e(TAG, "GetSaturation:" + e);
-            }
-        }
+          try {
+              return getProxy().getSaturation();
+          } catch (RemoteException e) {
+              Log.e(TAG, "GetSaturation:" + e);
+          }
         return -1;
 
       }
@@ -2085,12 +2295,10 @@ public class SystemControlManager {
      * @Return: value hue
      */
     public int GetHue() {
-        synchronized (mLock) {
-            try {
-                return mProxy.getHue();
-            } catch (RemoteException e) {
-                Log.e(TAG, "GetHue:" + e);
-            }
+        try {
+            return getProxy().getHue();
+        } catch (RemoteException e) {
+            Log.e(TAG, "GetHue:" + e);
         }
         return -1;
 
@@ -2141,12 +2349,10 @@ public class SystemControlManager {
      * @Return: value sharpness
      */
     public int GetSharpness() {
-        synchronized (mLock) {
-            try {
-                return mProxy.getSharpness();
-            } catch (RemoteException e) {
-                Log.e(TAG, "GetSharpness:" + e);
-            }
+        try {
+            return getProxy().getSharpness();
+        } catch (RemoteException e) {
+            Log.e(TAG, "GetSharpness:" + e);
         }
         return -1;
 
@@ -2213,12 +2419,10 @@ public class SystemControlManager {
      * @Return: noise reduction mode refer to enum Noise_Reduction_Mode
      */
     public int GetNoiseReductionMode() {
-        synchronized (mLock) {
-            try {
-                return mProxy.getNoiseReductionMode();
-            } catch (RemoteException e) {
-                Log.e(TAG, "GetNoiseReductionMode:" + e);
-            }
+        try {
+            return getProxy().getNoiseReductionMode();
+        } catch (RemoteException e) {
+            Log.e(TAG, "GetNoiseReductionMode:" + e);
         }
         return -1;
     }
@@ -2264,12 +2468,10 @@ public class SystemControlManager {
      * @Return: smooth plus mode refer to enum Smooth_Plus_Mode
      */
     public int GetSmoothPlusMode() {
-        synchronized (mLock) {
-            try {
-                return mProxy.getSmoothPlusMode();
-            } catch (Exception e) {
-                Log.e(TAG, "getSmoothPlusMode:" + e);
-            }
+        try {
+            return getProxy().getSmoothPlusMode();
+        } catch (Exception e) {
+            Log.e(TAG, "getSmoothPlusMode:" + e);
         }
         return -1;
     }
@@ -2314,12 +2516,10 @@ public class SystemControlManager {
      * @Return: hdr tmo mode refer to enum HDR_TMO_Mode
      */
     public int GetHDRTMOMode() {
-        synchronized (mLock) {
-            try {
-                return mProxy.getHDRTMOMode();
-            } catch (Exception e) {
-                Log.e(TAG, "getHDRTMOMode:" + e);
-            }
+        try {
+            return getProxy().getHDRTMOMode();
+        } catch (Exception e) {
+            Log.e(TAG, "getHDRTMOMode:" + e);
         }
         return -1;
     }
@@ -2336,12 +2536,10 @@ public class SystemControlManager {
     }
 
     public int GetEyeProtectionMode(int inputtSrc) {
-         synchronized (mLock) {
-            try {
-                return mProxy.getEyeProtectionMode(inputtSrc);
-            } catch (RemoteException e) {
-                Log.e(TAG, "GetEyeProtectionMode:" + e);
-            }
+        try {
+            return getProxy().getEyeProtectionMode(inputtSrc);
+        } catch (RemoteException e) {
+            Log.e(TAG, "GetEyeProtectionMode:" + e);
         }
         return -1;
     }
@@ -2396,12 +2594,10 @@ public class SystemControlManager {
      * @Return: gamma curve refer to enum gamma_curve
      */
     public int GetGammaValue() {
-          synchronized (mLock) {
-            try {
-                return mProxy.getGammaValue();
-            } catch (RemoteException e) {
-                Log.e(TAG, "GetGammaValue:" + e);
-            }
+        try {
+            return getProxy().getGammaValue();
+        } catch (RemoteException e) {
+            Log.e(TAG, "GetGammaValue:" + e);
         }
         return -1;
 
@@ -2432,12 +2628,10 @@ public class SystemControlManager {
     }
 
     public boolean hasMemcFunc() {
-          synchronized (mLock) {
-            try {
-                return (mProxy.hasMemcFunc() == Result.OK);
-            } catch (RemoteException e) {
-                Log.e(TAG, "hasMemcFunc:" + e);
-            }
+        try {
+            return (getProxy().hasMemcFunc() == Result.OK);
+        } catch (RemoteException e) {
+            Log.e(TAG, "hasMemcFunc:" + e);
         }
         return false;
     }
@@ -2454,12 +2648,10 @@ public class SystemControlManager {
     }
 
     public int GetMemcMode() {
-          synchronized (mLock) {
-            try {
-                return mProxy.getMemcMode();
-            } catch (RemoteException e) {
-                Log.e(TAG, "GetMemcMode:" + e);
-            }
+        try {
+            return getProxy().getMemcMode();
+        } catch (RemoteException e) {
+            Log.e(TAG, "GetMemcMode:" + e);
         }
         return -1;
     }
@@ -2476,12 +2668,10 @@ public class SystemControlManager {
     }
 
     public int GetMemcDeBlurLevel() {
-          synchronized (mLock) {
-            try {
-                return mProxy.getMemcDeBlurLevel();
-            } catch (RemoteException e) {
-                Log.e(TAG, "GetMemcDeBlurLevel:" + e);
-            }
+        try {
+            return getProxy().getMemcDeBlurLevel();
+        } catch (RemoteException e) {
+            Log.e(TAG, "GetMemcDeBlurLevel:" + e);
         }
         return -1;
     }
@@ -2498,12 +2688,10 @@ public class SystemControlManager {
     }
 
     public int GetMemcDeJudderLevel() {
-          synchronized (mLock) {
-            try {
-                return mProxy.getMemcDeJudderLevel();
-            } catch (RemoteException e) {
-                Log.e(TAG, "GetMemcDeJudderLevel:" + e);
-            }
+        try {
+            return getProxy().getMemcDeJudderLevel();
+        } catch (RemoteException e) {
+            Log.e(TAG, "GetMemcDeJudderLevel:" + e);
         }
         return -1;
     }
@@ -2520,12 +2708,10 @@ public class SystemControlManager {
     }
 
     public int GetDisplayMode(int inputtSrc) {
-          synchronized (mLock) {
-            try {
-                return mProxy.getDisplayMode(inputtSrc);
-            } catch (RemoteException e) {
-                Log.e(TAG, "GetDisplayMode:" + e);
-            }
+        try {
+            return getProxy().getDisplayMode(inputtSrc);
+        } catch (RemoteException e) {
+            Log.e(TAG, "GetDisplayMode:" + e);
         }
         return -1;
     }
@@ -2553,12 +2739,10 @@ public class SystemControlManager {
      }
 
      public int GetBacklight() {
-           synchronized (mLock) {
-             try {
-                 return mProxy.getBacklight();
-             } catch (RemoteException e) {
-                 Log.e(TAG, "GetBacklight:" + e);
-             }
+         try {
+             return getProxy().getBacklight();
+         } catch (RemoteException e) {
+             Log.e(TAG, "GetBacklight:" + e);
          }
          return -1;
      }
@@ -2581,17 +2765,15 @@ public class SystemControlManager {
       * @Return: true: exist, false: don't exist
       */
      public boolean CheckLdimExist() {
-           synchronized (mLock) {
-             try {
-                 int ret = mProxy.checkLdimExist();
-                 if (ret == 0) {
-                     return false;
-                 } else {
-                     return true;
-                 }
-             } catch (RemoteException e) {
-                 Log.e(TAG, "CheckLdimExist:" + e);
+         try {
+             int ret = getProxy().checkLdimExist();
+             if (ret == 0) {
+                 return false;
+             } else {
+                 return true;
              }
+         } catch (RemoteException e) {
+             Log.e(TAG, "CheckLdimExist:" + e);
          }
          return false;
      }
@@ -2645,12 +2827,10 @@ public class SystemControlManager {
       * @Return: dynamic backlight mode refer to enum Dynamic_Backlight_Mode
       */
      public int GetDynamicBacklight() {
-           synchronized (mLock) {
-             try {
-                 return mProxy.getDynamicBacklight();
-             } catch (RemoteException e) {
-                 Log.e(TAG, "GetDynamicBacklight:" + e);
-             }
+         try {
+             return getProxy().getDynamicBacklight();
+         } catch (RemoteException e) {
+             Log.e(TAG, "GetDynamicBacklight:" + e);
          }
          return -1;
      }
@@ -2695,12 +2875,10 @@ public class SystemControlManager {
       * @Return: Local Contrast Mode refer to enum Local_Contrast_Mode
       */
      public int GetLocalContrastMode() {
-           synchronized (mLock) {
-             try {
-                 return mProxy.getLocalContrastMode();
-             } catch (Exception e) {
-                 Log.e(TAG, "GetLocalContrastMode:" + e);
-             }
+         try {
+             return getProxy().getLocalContrastMode();
+         } catch (Exception e) {
+             Log.e(TAG, "GetLocalContrastMode:" + e);
          }
          return -1;
      }
@@ -2752,14 +2930,12 @@ public class SystemControlManager {
       * @Description: Get current source Black Extension Mode
       * @Param:
       * @Return: Black Extension Mode refer to enum Black_Extension_Mode
-      */
-     public int GetBlackExtensionMode() {
-           synchronized (mLock) {
-             try {
-                 return mProxy.getBlackExtensionMode();
-             } catch (Exception e) {
-                 Log.e(TAG, "GetBlackExtensionMode:" + e);
-             }
+      */
+     public int GetBlackExtensionMode() {
+         try {
+             return getProxy().getBlackExtensionMode();
+         } catch (Exception e) {
+             Log.e(TAG, "GetBlackExtensionMode:" + e);
          }
          return -1;
      }
@@ -2814,12 +2990,10 @@ public class SystemControlManager {
       * @Return: deblock Mode refer to enum Deblock_Mode
       */
      public int GetDeblockMode() {
-           synchronized (mLock) {
-             try {
-                 return mProxy.getDeblockMode();
-             } catch (Exception e) {
-                 Log.e(TAG, "GetDeblockMode:" + e);
-             }
+         try {
+             return getProxy().getDeblockMode();
+         } catch (Exception e) {
+             Log.e(TAG, "GetDeblockMode:" + e);
          }
          return -1;
      }
@@ -2874,12 +3048,10 @@ public class SystemControlManager {
       * @Return: demosquito Mode refer to enum DemoSquito_Mode
       */
      public int GetDemoSquitoMode() {
-           synchronized (mLock) {
-             try {
-                 return mProxy.getDemoSquitoMode();
-             } catch (Exception e) {
-                 Log.e(TAG, "GetDemoSquitoMode:" + e);
-             }
+         try {
+             return getProxy().getDemoSquitoMode();
+         } catch (Exception e) {
+             Log.e(TAG, "GetDemoSquitoMode:" + e);
          }
          return -1;
      }
@@ -2925,12 +3097,10 @@ public class SystemControlManager {
       * @Return: mode of the special source
       */
      public int GetColorBaseMode() {
-         synchronized (mLock) {
-             try {
-                 return mProxy.getColorBaseMode();
-             } catch (Exception e) {
-                 Log.e(TAG, "GetColorBaseMode:" + e);
-             }
+         try {
+             return getProxy().getColorBaseMode();
+         } catch (Exception e) {
+             Log.e(TAG, "GetColorBaseMode:" + e);
          }
          return -1;
      }
@@ -2961,12 +3131,10 @@ public class SystemControlManager {
        * @Return: hdr type of the special source
        */
       public int GetSourceHdrType() {
-          synchronized (mLock) {
-              try {
-                  return mProxy.getSourceHdrType();
-              } catch (Exception e) {
-                  Log.e(TAG, "getSourceHdrType:" + e);
-              }
+          try {
+              return getProxy().getSourceHdrType();
+          } catch (Exception e) {
+              Log.e(TAG, "getSourceHdrType:" + e);
           }
           return -1;
       }
@@ -2995,12 +3163,10 @@ public class SystemControlManager {
       * @Return: 0 success, -1 fail
       */
      public int FactoryGetPQMode_Brightness(SourceInput source_input, SignalFmt sig_fmt, TransFmt trans_fmt, PQMode pq_mode) {
-           synchronized (mLock) {
-             try {
-                 return mProxy.factoryGetPQMode_Brightness(source_input.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), pq_mode.toInt());
-             } catch (RemoteException e) {
-                 Log.e(TAG, "factoryGetPQMode_Brightness:" + e);
-             }
+         try {
+             return getProxy().factoryGetPQMode_Brightness(source_input.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), pq_mode.toInt());
+         } catch (RemoteException e) {
+             Log.e(TAG, "factoryGetPQMode_Brightness:" + e);
          }
          return -1;
      }
@@ -3029,12 +3195,10 @@ public class SystemControlManager {
       * @Return: 0 success, -1 fail
       */
      public int FactoryGetPQMode_Contrast(SourceInput source_input, SignalFmt sig_fmt, TransFmt trans_fmt, PQMode pq_mode) {
-           synchronized (mLock) {
-             try {
-                 return mProxy.factoryGetPQMode_Contrast(source_input.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), pq_mode.toInt());
-             } catch (RemoteException e) {
-                 Log.e(TAG, "factoryGetPQMode_Contrast:" + e);
-             }
+         try {
+             return getProxy().factoryGetPQMode_Contrast(source_input.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), pq_mode.toInt());
+         } catch (RemoteException e) {
+             Log.e(TAG, "factoryGetPQMode_Contrast:" + e);
          }
          return -1;
      }
@@ -3063,12 +3227,10 @@ public class SystemControlManager {
       * @Return: saturation value
       */
      public int FactoryGetPQMode_Saturation(SourceInput source_input, SignalFmt sig_fmt, TransFmt trans_fmt, PQMode pq_mode) {
-           synchronized (mLock) {
-             try {
-                 return mProxy.factoryGetPQMode_Saturation(source_input.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), pq_mode.toInt());
-             } catch (RemoteException e) {
-                 Log.e(TAG, "factoryGetPQMode_Saturation:" + e);
-             }
+         try {
+             return getProxy().factoryGetPQMode_Saturation(source_input.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), pq_mode.toInt());
+         } catch (RemoteException e) {
+             Log.e(TAG, "factoryGetPQMode_Saturation:" + e);
          }
          return -1;
      }
@@ -3097,12 +3259,10 @@ public class SystemControlManager {
       * @Return: hue value
       */
      public int FactoryGetPQMode_Hue(SourceInput source_input, SignalFmt sig_fmt, TransFmt trans_fmt, PQMode pq_mode) {
-           synchronized (mLock) {
-             try {
-                 return mProxy.factoryGetPQMode_Hue(source_input.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), pq_mode.toInt());
-             } catch (RemoteException e) {
-                 Log.e(TAG, "factoryGetPQMode_Hue:" + e);
-             }
+         try {
+             return getProxy().factoryGetPQMode_Hue(source_input.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), pq_mode.toInt());
+         } catch (RemoteException e) {
+             Log.e(TAG, "factoryGetPQMode_Hue:" + e);
          }
          return -1;
      }
@@ -3131,12 +3291,10 @@ public class SystemControlManager {
       * @Return: sharpness value
       */
      public int FactoryGetPQMode_Sharpness(SourceInput source_input, SignalFmt sig_fmt, TransFmt trans_fmt, PQMode pq_mode) {
-           synchronized (mLock) {
-             try {
-                 return mProxy.factoryGetPQMode_Sharpness(source_input.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), pq_mode.toInt());
-             } catch (RemoteException e) {
-                 Log.e(TAG, "factoryGetPQMode_Sharpness:" + e);
-             }
+         try {
+             return getProxy().factoryGetPQMode_Sharpness(source_input.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), pq_mode.toInt());
+         } catch (RemoteException e) {
+             Log.e(TAG, "factoryGetPQMode_Sharpness:" + e);
          }
          return -1;
      }
@@ -3246,17 +3404,15 @@ public class SystemControlManager {
       */
      public noline_params_t FactoryGetNolineParams(NOLINE_PARAMS_TYPE noline_params_type, SourceInput source_input, SignalFmt sig_fmt, TransFmt trans_fmt) {
          noline_params_t noline_params = new noline_params_t();
-         synchronized (mLock) {
-             try {
-                 NolineParam param = mProxy.factoryGetNolineParams(source_input.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), noline_params_type.toInt());
-                 noline_params.osd0 = param.osd0;
-                 noline_params.osd25 = param.osd25;
-                 noline_params.osd50 = param.osd50;
-                 noline_params.osd75 = param.osd75;
-                 noline_params.osd100 = param.osd100;
-             } catch (RemoteException e) {
-                 Log.e(TAG, "FactoryGetNolineParams:" + e);
-             }
+         try {
+             NolineParam param = getProxy().factoryGetNolineParams(source_input.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), noline_params_type.toInt());
+             noline_params.osd0 = param.osd0;
+             noline_params.osd25 = param.osd25;
+             noline_params.osd50 = param.osd50;
+             noline_params.osd75 = param.osd75;
+             noline_params.osd100 = param.osd100;
+         } catch (RemoteException e) {
+             Log.e(TAG, "FactoryGetNolineParams:" + e);
          }
 
          return noline_params;
@@ -3619,16 +3775,14 @@ public class SystemControlManager {
       */
      public tvin_cutwin_t FactoryGetOverscanParams(SourceInput source_input, SignalFmt fmt, TransFmt trans_fmt) {
          tvin_cutwin_t cutwin_t = new tvin_cutwin_t();
-         synchronized (mLock) {
-             try {
-                 OverScanParam param = mProxy.factoryGetOverscan(source_input.toInt(), fmt.toInt(), trans_fmt.toInt());
-                 cutwin_t.hs = param.he;
-                 cutwin_t.he = param.hs;
-                 cutwin_t.vs = param.ve;
-                 cutwin_t.ve = param.vs;
-             } catch (RemoteException e) {
-                 Log.e(TAG, "FactoryGetOverscanParams:" + e);
-             }
+         try {
+             OverScanParam param = getProxy().factoryGetOverscan(source_input.toInt(), fmt.toInt(), trans_fmt.toInt());
+             cutwin_t.hs = param.he;
+             cutwin_t.he = param.hs;
+             cutwin_t.vs = param.ve;
+             cutwin_t.ve = param.vs;
+         } catch (RemoteException e) {
+             Log.e(TAG, "FactoryGetOverscanParams:" + e);
          }
 
          return cutwin_t;
@@ -3673,34 +3827,28 @@ public class SystemControlManager {
      }
 
      public int FactoryWhiteBalanceGetRedGain(SourceInput source_input, SignalFmt fmt, TransFmt trans_fmt, color_temperature colorTemp_mode) {
-           synchronized (mLock) {
-             try {
-                 return mProxy.getwhiteBalanceGainRed(source_input.toInt(), fmt.toInt(), trans_fmt.toInt(), colorTemp_mode.toInt());
-             } catch (RemoteException e) {
-                 Log.e(TAG, "FactoryWhiteBalanceGetRedGain:" + e);
-             }
+         try {
+             return getProxy().getwhiteBalanceGainRed(source_input.toInt(), fmt.toInt(), trans_fmt.toInt(), colorTemp_mode.toInt());
+         } catch (RemoteException e) {
+             Log.e(TAG, "FactoryWhiteBalanceGetRedGain:" + e);
          }
          return -1;
      }
 
      public int FactoryWhiteBalanceGetGreenGain(SourceInput source_input, SignalFmt fmt, TransFmt trans_fmt, color_temperature colorTemp_mode) {
-           synchronized (mLock) {
-             try {
-                 return mProxy.getwhiteBalanceGainGreen(source_input.toInt(), fmt.toInt(), trans_fmt.toInt(), colorTemp_mode.toInt());
-             } catch (RemoteException e) {
-                 Log.e(TAG, "FactoryWhiteBalanceGetGreenGain:" + e);
-             }
+         try {
+             return getProxy().getwhiteBalanceGainGreen(source_input.toInt(), fmt.toInt(), trans_fmt.toInt(), colorTemp_mode.toInt());
+         } catch (RemoteException e) {
+             Log.e(TAG, "FactoryWhiteBalanceGetGreenGain:" + e);
          }
          return -1;
      }
 
      public int FactoryWhiteBalanceGetBlueGain(SourceInput source_input, SignalFmt fmt, TransFmt trans_fmt, color_temperature colorTemp_mode) {
-           synchronized (mLock) {
-             try {
-                 return mProxy.getwhiteBalanceGainBlue(source_input.toInt(), fmt.toInt(), trans_fmt.toInt(), colorTemp_mode.toInt());
-             } catch (RemoteException e) {
-                 Log.e(TAG, "FactoryWhiteBalanceGetGreenGain:" + e);
-             }
+         try {
+             return getProxy().getwhiteBalanceGainBlue(source_input.toInt(), fmt.toInt(), trans_fmt.toInt(), colorTemp_mode.toInt());
+         } catch (RemoteException e) {
+             Log.e(TAG, "FactoryWhiteBalanceGetGreenGain:" + e);
          }
          return -1;
      }
@@ -3739,34 +3887,28 @@ public class SystemControlManager {
      }
 
      public int FactoryWhiteBalanceGetRedOffset(SourceInput source_input, SignalFmt fmt, TransFmt trans_fmt, color_temperature colorTemp_mode) {
-         synchronized (mLock) {
-             try {
-                 return mProxy.getwhiteBalanceOffsetRed(source_input.toInt(), fmt.toInt(), trans_fmt.toInt(), colorTemp_mode.toInt());
-             } catch (RemoteException e) {
-                   Log.e(TAG, "FactoryWhiteBalanceGetRedOffset:" + e);
-             }
+         try {
+             return getProxy().getwhiteBalanceOffsetRed(source_input.toInt(), fmt.toInt(), trans_fmt.toInt(), colorTemp_mode.toInt());
+         } catch (RemoteException e) {
+               Log.e(TAG, "FactoryWhiteBalanceGetRedOffset:" + e);
          }
          return -1;
      }
 
      public int FactoryWhiteBalanceGetGreenOffset(SourceInput source_input, SignalFmt fmt, TransFmt trans_fmt, color_temperature colorTemp_mode) {
-         synchronized (mLock) {
-             try {
-                 return mProxy.getwhiteBalanceOffsetGreen(source_input.toInt(), fmt.toInt(), trans_fmt.toInt(), colorTemp_mode.toInt());
-             } catch (RemoteException e) {
-                   Log.e(TAG, "FactoryWhiteBalanceGetGreenOffset:" + e);
-             }
+         try {
+             return getProxy().getwhiteBalanceOffsetGreen(source_input.toInt(), fmt.toInt(), trans_fmt.toInt(), colorTemp_mode.toInt());
+         } catch (RemoteException e) {
+               Log.e(TAG, "FactoryWhiteBalanceGetGreenOffset:" + e);
          }
          return -1;
      }
 
      public int FactoryWhiteBalanceGetBlueOffset(SourceInput source_input, SignalFmt fmt, TransFmt trans_fmt, color_temperature colorTemp_mode) {
-         synchronized (mLock) {
-             try {
-                 return mProxy.getwhiteBalanceOffsetBlue(source_input.toInt(), fmt.toInt(), trans_fmt.toInt(), colorTemp_mode.toInt());
-             } catch (RemoteException e) {
-                   Log.e(TAG, "FactoryWhiteBalanceGetBlueOffset:" + e);
-             }
+         try {
+             return getProxy().getwhiteBalanceOffsetBlue(source_input.toInt(), fmt.toInt(), trans_fmt.toInt(), colorTemp_mode.toInt());
+         } catch (RemoteException e) {
+               Log.e(TAG, "FactoryWhiteBalanceGetBlueOffset:" + e);
          }
          return -1;
      }
@@ -3783,12 +3925,10 @@ public class SystemControlManager {
      }
 
      public int FactoryWhiteBalanceGetColorTemperature(SourceInput source_input, SignalFmt fmt, TransFmt trans_fmt) {
-         synchronized (mLock) {
-             try {
-                 return mProxy.getColorTemperature();
-             } catch (RemoteException e) {
-                 Log.e(TAG, "FactoryWhiteBalanceGetColorTemperature:" + e);
-             }
+         try {
+             return getProxy().getColorTemperature();
+         } catch (RemoteException e) {
+             Log.e(TAG, "FactoryWhiteBalanceGetColorTemperature:" + e);
          }
          return -1;
      }
@@ -3821,20 +3961,18 @@ public class SystemControlManager {
 
      public WhiteBalanceParams FactoryWhiteBalanceGetAllParams(int colorTemp_mode) {
          WhiteBalanceParams params = new WhiteBalanceParams();
-         synchronized (mLock) {
-             try {
-                 int ret = mProxy.factoryfactoryGetColorTemperatureParams(colorTemp_mode);
-                 if (ret == 0) {
-                     params.r_gain = 0;
-                     params.g_gain = 0;
-                     params.b_gain = 0;
-                     params.r_offset = 0;
-                     params.g_offset = 0;
-                     params.b_offset = 0;
-                 }
-             } catch (RemoteException e) {
-                 Log.e(TAG, "FactoryWhiteBalanceGetAllParams:" + e);
+         try {
+             int ret = getProxy().factoryfactoryGetColorTemperatureParams(colorTemp_mode);
+             if (ret == 0) {
+                 params.r_gain = 0;
+                 params.g_gain = 0;
+                 params.b_gain = 0;
+                 params.r_offset = 0;
+                 params.g_offset = 0;
+                 params.b_offset = 0;
              }
+         } catch (RemoteException e) {
+             Log.e(TAG, "FactoryWhiteBalanceGetAllParams:" + e);
          }
 
          return params;
@@ -3899,25 +4037,20 @@ public class SystemControlManager {
     }
 
     public int GetActualAddr(int id) {
-          synchronized (mLock) {
-          Mutable<Integer> resultVal = new Mutable<>();
-            try {
-                return mProxy.getActualAddr(id);
-            } catch (RemoteException e) {
-                Log.e(TAG, "GetActualAddr:" + e);
-            }
-        }
+          try {
+              return getProxy().getActualAddr(id);
+          } catch (RemoteException e) {
+              Log.e(TAG, "GetActualAddr:" + e);
+          }
         return -1;
 
     }
 
     public int GetActualSize(int id) {
-          synchronized (mLock) {
-            try {
-                return mProxy.getActualSize(id);
-            } catch (RemoteException e) {
-                Log.e(TAG, "GetActualSize:" + e);
-            }
+        try {
+            return getProxy().getActualSize(id);
+        } catch (RemoteException e) {
+            Log.e(TAG, "GetActualSize:" + e);
         }
         return -1;
 
@@ -3960,13 +4093,11 @@ public class SystemControlManager {
      }
 
     public int GetSSMStatus() {
-         synchronized (mLock) {
-           try {
-               return mProxy.getSSMStatus();
-           } catch (RemoteException e) {
-               Log.e(TAG, "GetSSMStatus:" + e);
-           }
-       }
+        try {
+            return getProxy().getSSMStatus();
+        } catch (RemoteException e) {
+            Log.e(TAG, "GetSSMStatus:" + e);
+        }
        return -1;
     }
 
@@ -3983,22 +4114,20 @@ public class SystemControlManager {
 
      public int[] GetCurrentSourceInfo() {
            int CurrentSourceInfo[] = {0, 0, 0};
-           synchronized (mLock) {
-               Mutable<SourceInputParam> srcInputParam = new Mutable<>();
-               try {
-                   mProxy.getCurrentSourceInfo((int ret, SourceInputParam tmpSrcInputParam)-> {
-                                                  if (Result.OK == ret) {
-                                                      srcInputParam.value = tmpSrcInputParam;
-                                                  }
-                                              });
-                 CurrentSourceInfo[0] = srcInputParam.value.sourceInput;
-                 CurrentSourceInfo[1] = srcInputParam.value.sigFmt;
-                 CurrentSourceInfo[2] = srcInputParam.value.transFmt;
-                 return CurrentSourceInfo;
-             } catch (RemoteException e) {
-                 Log.e(TAG, "GetCurrentSourceInfo:" + e);
-             }
-         }
+         Mutable<SourceInputParam> srcInputParam = new Mutable<>();
+         try {
+             getProxy().getCurrentSourceInfo((int ret, SourceInputParam tmpSrcInputParam)-> {
+                                            if (Result.OK == ret) {
+                                                srcInputParam.value = tmpSrcInputParam;
+                                            }
+                                        });
+           CurrentSourceInfo[0] = srcInputParam.value.sourceInput;
+           CurrentSourceInfo[1] = srcInputParam.value.sigFmt;
+           CurrentSourceInfo[2] = srcInputParam.value.transFmt;
+           return CurrentSourceInfo;
+       } catch (RemoteException e) {
+           Log.e(TAG, "GetCurrentSourceInfo:" + e);
+       }
          return CurrentSourceInfo;
      }
 
@@ -4008,12 +4137,10 @@ public class SystemControlManager {
       * @Return: rgb(0xrrggbb)
       */
      public int FactoryGetRGBScreen() {
-           synchronized (mLock) {
-             try {
-                 return mProxy.getRGBPattern();
-             } catch (RemoteException e) {
-                 Log.e(TAG, "FactoryGetRGBScreen:" + e);
-             }
+         try {
+             return getProxy().getRGBPattern();
+         } catch (RemoteException e) {
+             Log.e(TAG, "FactoryGetRGBScreen:" + e);
          }
          return -1;
      }
@@ -4060,12 +4187,10 @@ public class SystemControlManager {
      * @Return: ddr ssc level
      */
     public int FactoryGetDDRSSC() {
-          synchronized (mLock) {
-            try {
-                return mProxy.factoryGetDDRSSC();
-            } catch (RemoteException e) {
-                Log.e(TAG, "FactoryGetDDRSSC:" + e);
-            }
+        try {
+            return getProxy().factoryGetDDRSSC();
+        } catch (RemoteException e) {
+            Log.e(TAG, "FactoryGetDDRSSC:" + e);
         }
         return -1;
     }
@@ -4094,12 +4219,10 @@ public class SystemControlManager {
      * @Return: lvds ssc level
      */
     public int FactoryGetLVDSSSC() {
-          synchronized (mLock) {
-            try {
-                return mProxy.factoryGetLVDSSSC();
-            } catch (RemoteException e) {
-                Log.e(TAG, "FactoryGetLVDSSSC:" + e);
-            }
+        try {
+            return getProxy().factoryGetLVDSSSC();
+        } catch (RemoteException e) {
+            Log.e(TAG, "FactoryGetLVDSSSC:" + e);
         }
         return -1;
     }
@@ -4138,12 +4261,10 @@ public class SystemControlManager {
     }
 
     public int FactoryWhiteBalanceGetGrayPattern() {
-          synchronized (mLock) {
-            try {
-                return mProxy.whiteBalanceGrayPatternGet();
-            } catch (RemoteException e) {
-                Log.e(TAG, "FactoryWhiteBalanceGetGrayPattern:" + e);
-            }
+        try {
+            return getProxy().whiteBalanceGrayPatternGet();
+        } catch (RemoteException e) {
+            Log.e(TAG, "FactoryWhiteBalanceGetGrayPattern:" + e);
         }
         return -1;
     }
@@ -4160,12 +4281,10 @@ public class SystemControlManager {
      }
 
      public int FactoryGetHdrIsEnable() {
-         synchronized (mLock) {
-             try {
-                 return mProxy.factoryGetHdrMode();
-             } catch (RemoteException e) {
-                 Log.e(TAG, "FactoryGetHdrIsEnable:" + e);
-             }
+         try {
+             return getProxy().factoryGetHdrMode();
+         } catch (RemoteException e) {
+             Log.e(TAG, "FactoryGetHdrIsEnable:" + e);
          }
          return -1;
      }
@@ -4182,12 +4301,10 @@ public class SystemControlManager {
      }
 
      public int getDNLPCurveParams(SourceInput source, SignalFmt sig_fmt, TransFmt trans_fmt) {
-         synchronized (mLock) {
-             try {
-                 return mProxy.getDnlpParams(source.toInt(), sig_fmt.toInt(), trans_fmt.toInt());
-             } catch (RemoteException e) {
-                 Log.e(TAG, "getDNLPCurveParams:" + e);
-             }
+         try {
+             return getProxy().getDnlpParams(source.toInt(), sig_fmt.toInt(), trans_fmt.toInt());
+         } catch (RemoteException e) {
+             Log.e(TAG, "getDNLPCurveParams:" + e);
          }
          return -1;
      }
@@ -4204,12 +4321,10 @@ public class SystemControlManager {
      }
 
      public int FactoryGetDNLPCurveParams(SourceInput source, SignalFmt sig_fmt, TransFmt trans_fmt, int level) {
-         synchronized (mLock) {
-             try {
-                 return mProxy.factoryGetDnlpParams(source.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), level);
-             } catch (RemoteException e) {
-                 Log.e(TAG, "FactoryGetDNLPCurveParams:" + e);
-             }
+         try {
+             return getProxy().factoryGetDnlpParams(source.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), level);
+         } catch (RemoteException e) {
+             Log.e(TAG, "FactoryGetDNLPCurveParams:" + e);
          }
          return -1;
      }
@@ -4226,12 +4341,10 @@ public class SystemControlManager {
      }
 
      public int FactorygetBlackExtRegParams(SourceInput source, SignalFmt sig_fmt, TransFmt trans_fmt) {
-         synchronized (mLock) {
-             try {
-                 return mProxy.factoryGetBlackExtRegParams(source.toInt(), sig_fmt.toInt(), trans_fmt.toInt());
-             } catch (RemoteException e) {
-                 Log.e(TAG, "FactorygetBlackExtRegParams:" + e);
-             }
+         try {
+             return getProxy().factoryGetBlackExtRegParams(source.toInt(), sig_fmt.toInt(), trans_fmt.toInt());
+         } catch (RemoteException e) {
+             Log.e(TAG, "FactorygetBlackExtRegParams:" + e);
          }
          return -1;
      }
@@ -4248,12 +4361,10 @@ public class SystemControlManager {
      }
 
      public int FactoryGetColorParams(SourceInput source, SignalFmt sig_fmt, TransFmt trans_fmt, int color_type, int color_param) {
-         synchronized (mLock) {
-             try {
-                 return mProxy.factoryGetColorParams(source.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), color_type, color_param);
-             } catch (RemoteException e) {
-                 Log.e(TAG, "FactoryGetColorParams:" + e);
-             }
+         try {
+             return getProxy().factoryGetColorParams(source.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), color_type, color_param);
+         } catch (RemoteException e) {
+             Log.e(TAG, "FactoryGetColorParams:" + e);
          }
          return -1;
      }
@@ -4270,12 +4381,10 @@ public class SystemControlManager {
      }
 
      public int FactoryGetNoiseReductionParams(SourceInput source, SignalFmt sig_fmt, TransFmt trans_fmt, Noise_Reduction_Mode mode, int param_type) {
-         synchronized (mLock) {
-             try {
-                 return mProxy.factoryGetNoiseReductionParams(source.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), mode.toInt(), param_type);
-             } catch (RemoteException e) {
-                 Log.e(TAG, "FactoryGetNoiseReductionParams:" + e);
-             }
+         try {
+             return getProxy().factoryGetNoiseReductionParams(source.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), mode.toInt(), param_type);
+         } catch (RemoteException e) {
+             Log.e(TAG, "FactoryGetNoiseReductionParams:" + e);
          }
          return -1;
      }
@@ -4292,12 +4401,10 @@ public class SystemControlManager {
      }
 
      public int FactoryGetCTIParams(SourceInput source, SignalFmt sig_fmt, TransFmt trans_fmt, int param_type) {
-         synchronized (mLock) {
-             try {
-                 return mProxy.factoryGetCTIParams(source.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), param_type);
-             } catch (RemoteException e) {
-                 Log.e(TAG, "FactoryGetCTIParams:" + e);
-             }
+         try {
+             return getProxy().factoryGetCTIParams(source.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), param_type);
+         } catch (RemoteException e) {
+             Log.e(TAG, "FactoryGetCTIParams:" + e);
          }
          return -1;
      }
@@ -4314,12 +4421,10 @@ public class SystemControlManager {
      }
 
      public int FactoryGetDecodeLumaParams(SourceInput source, SignalFmt sig_fmt, TransFmt trans_fmt, int param_type) {
-         synchronized (mLock) {
-             try {
-                 return mProxy.factoryGetDecodeLumaParams(source.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), param_type);
-             } catch (RemoteException e) {
-                 Log.e(TAG, "FactoryGetDecodeLumaParams:" + e);
-             }
+         try {
+             return getProxy().factoryGetDecodeLumaParams(source.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), param_type);
+         } catch (RemoteException e) {
+             Log.e(TAG, "FactoryGetDecodeLumaParams:" + e);
          }
          return -1;
      }
@@ -4336,12 +4441,10 @@ public class SystemControlManager {
      }
 
      public int FactoryGetSharpnessHDParams(SourceInput source, SignalFmt sig_fmt, TransFmt trans_fmt, int isHD, int param_type) {
-         synchronized (mLock) {
-             try {
-                 return mProxy.factoryGetSharpnessParams(source.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), isHD, param_type);
-             } catch (RemoteException e) {
-                 Log.e(TAG, "FactoryGetSharpnessHDParams:" + e);
-             }
+         try {
+             return getProxy().factoryGetSharpnessParams(source.toInt(), sig_fmt.toInt(), trans_fmt.toInt(), isHD, param_type);
+         } catch (RemoteException e) {
+             Log.e(TAG, "FactoryGetSharpnessHDParams:" + e);
          }
          return -1;
      }
@@ -4371,42 +4474,36 @@ public class SystemControlManager {
 
 
     public boolean getAipqEnable() {
-        synchronized (mLock) {
-            try {
-                return (mProxy.getAipqEnable() == Result.OK);
-            } catch (Exception e) {
-                Log.e(TAG, "getAipqEnable:" + e);
-            }
+        try {
+            return (getProxy().getAipqEnable() == Result.OK);
+        } catch (Exception e) {
+            Log.e(TAG, "getAipqEnable:" + e);
         }
         return false;
     }
 
     public boolean hasAipqFunc() {
-        synchronized (mLock) {
-            try {
-                return (mProxy.hasAipqFunc() == Result.OK);
-            } catch (Exception e) {
-                Log.e(TAG, "hasAipqFunc:" + e);
-            }
+        try {
+            return (getProxy().hasAipqFunc() == Result.OK);
+        } catch (Exception e) {
+            Log.e(TAG, "hasAipqFunc:" + e);
         }
         return false;
     }
 
     public String getAipqTable() {
         String val = null;
-        synchronized (mLock) {
-            try {
-                Mutable<String> resultVal = new Mutable<>();
-                mProxy.readAiPqTable((int ret, String v) -> {
-                                  if (Result.OK == ret) {
-                                      resultVal.value = v;
-                                  }
-                              });
-                Log.d("AIPQ_TABLE", "getAipqTable value: " + resultVal.value);
-                return resultVal.value;
-            } catch (Exception e) {
-                Log.e(TAG, "getAipqTable:" + e);
-            }
+        try {
+            Mutable<String> resultVal = new Mutable<>();
+            getProxy().readAiPqTable((int ret, String v) -> {
+                              if (Result.OK == ret) {
+                                  resultVal.value = v;
+                              }
+                          });
+            Log.d("AIPQ_TABLE", "getAipqTable value: " + resultVal.value);
+            return resultVal.value;
+        } catch (Exception e) {
+            Log.e(TAG, "getAipqTable:" + e);
         }
         return val;
     }
@@ -4423,23 +4520,19 @@ public class SystemControlManager {
      }
 
      public boolean hasAisrFunc() {
-         synchronized (mLock) {
-             try {
-                 return (mProxy.hasAisrFunc() == Result.OK);
-             } catch (Exception e) {
-                 Log.e(TAG, "hasAisrFunc:" + e);
-             }
+         try {
+             return (getProxy().hasAisrFunc() == Result.OK);
+         } catch (Exception e) {
+             Log.e(TAG, "hasAisrFunc:" + e);
          }
          return false;
      }
 
      public boolean getAisr() {
-         synchronized (mLock) {
-             try {
-                 return (mProxy.getAisr() == Result.OK);
-             } catch (Exception e) {
-                 Log.e(TAG, "getAisr:" + e);
-             }
+         try {
+             return (getProxy().getAisr() == Result.OK);
+         } catch (Exception e) {
+             Log.e(TAG, "getAisr:" + e);
          }
          return false;
      }
@@ -4456,12 +4549,10 @@ public class SystemControlManager {
      }
 
      public int GetColorGamutMode() {
-           synchronized (mLock) {
-             try {
-                 return mProxy.getColorGamutMode();
-             } catch (RemoteException e) {
-                 Log.e(TAG, "GetColorGamutMode:" + e);
-             }
+         try {
+             return getProxy().getColorGamutMode();
+         } catch (RemoteException e) {
+             Log.e(TAG, "GetColorGamutMode:" + e);
          }
          return -1;
      }
@@ -4473,18 +4564,16 @@ public class SystemControlManager {
       * @Return: chip type or NULL
       */
      public String getChipVersionInfo() {
-         synchronized (mLock) {
-             Mutable<String> resultVal = new Mutable<>();
-             try {
-                 mProxy.getChipVersionInfo((int ret, String v) -> {
-                     if (Result.OK == ret) {
-                         resultVal.value = v;
-                     }
-                 });
-                 return resultVal.value;
-             } catch (RemoteException e) {
-                 Log.e(TAG, "getChipVersionInfo:" + e);
-             }
+         Mutable<String> resultVal = new Mutable<>();
+         try {
+             getProxy().getChipVersionInfo((int ret, String v) -> {
+                 if (Result.OK == ret) {
+                     resultVal.value = v;
+                 }
+             });
+             return resultVal.value;
+         } catch (RemoteException e) {
+             Log.e(TAG, "getChipVersionInfo:" + e);
          }
          return "";
      }
@@ -4517,16 +4606,14 @@ public class SystemControlManager {
       */
      public DatabaseInfo GetPQDatabaseInfo(DataBase_Name databaseName) {
          DatabaseInfo dataBaseInfo = new DatabaseInfo();
-         synchronized (mLock) {
-             try {
-                 PQDatabaseInfo info = mProxy.getPQDatabaseInfo(databaseName.toInt());
-                 dataBaseInfo.ToolVersion = info.ToolVersion;
-                 dataBaseInfo.ProjectVersion = info.ProjectVersion;
-                 dataBaseInfo.GenerateTime = info.GenerateTime;
-                 return dataBaseInfo;
-             } catch (Exception e) {
-                 Log.e(TAG, "GetPQDatabaseInfo:" + e);
-             }
+         try {
+             PQDatabaseInfo info = getProxy().getPQDatabaseInfo(databaseName.toInt());
+             dataBaseInfo.ToolVersion = info.ToolVersion;
+             dataBaseInfo.ProjectVersion = info.ProjectVersion;
+             dataBaseInfo.GenerateTime = info.GenerateTime;
+             return dataBaseInfo;
+         } catch (Exception e) {
+             Log.e(TAG, "GetPQDatabaseInfo:" + e);
          }
          return dataBaseInfo;
      }
@@ -4555,12 +4642,10 @@ public class SystemControlManager {
     * @Return: 0 is balck acreen; 1 is blue screen;
     */
     public int getScreenColorForSignalChange() {
-        synchronized (mLock) {
-            try {
-                return mProxy.getScreenColorForSignalChange();
-            } catch (Exception e) {
-                Log.e(TAG, "getScreenColorForSignalChange:" + e);
-            }
+        try {
+            return getProxy().getScreenColorForSignalChange();
+        } catch (Exception e) {
+            Log.e(TAG, "getScreenColorForSignalChange:" + e);
         }
         return -1;
     }
@@ -4590,16 +4675,76 @@ public class SystemControlManager {
     * @Return: 0 is disable, 1 is enable
     */
     public int getStaticFrameStatus() {
-        synchronized (mLock) {
-            try {
-                return mProxy.getStaticFrameEnable();
-            } catch (Exception e) {
-                Log.e(TAG, "getStaticFrameStatus:" + e);
-            }
+        try {
+            return getProxy().getStaticFrameEnable();
+        } catch (Exception e) {
+            Log.e(TAG, "getStaticFrameStatus:" + e);
         }
         return 0;
     }
 
+    // Per thread result holders for primitive getters, they are the HIDL
+    // callback themselves so a getter call allocates neither a lambda nor a box.
+    private static final class IntResult implements ISystemControl.getPropertyIntCallback,
+            ISystemControl.getDolbyVisionTypeCallback, ISystemControl.getVideo3DFormatCallback,
+            ISystemControl.getDisplay3DTo2DFormatCallback, ISystemControl.getDisplay3DFormatCallback {
+        private static final ThreadLocal<IntResult> sHolder = ThreadLocal.withInitial(IntResult::new);
+
+        boolean ok;
+        int value;
+
+        static IntResult get() {
+            IntResult result = sHolder.get();
+            result.ok = false;
+            return result;
+        }
+
+        @Override
+        public void onValues(int ret, int v) {
+            ok = (Result.OK == ret);
+            value = v;
+        }
+    }
+
+    private static final class LongResult implements ISystemControl.getPropertyLongCallback,
+            ISystemControl.resolveResolutionValueCallback {
+        private static final ThreadLocal<LongResult> sHolder = ThreadLocal.withInitial(LongResult::new);
+
+        boolean ok;
+        long value;
+
+        static LongResult get() {
+            LongResult result = sHolder.get();
+            result.ok = false;
+            return result;
+        }
+
+        @Override
+        public void onValues(int ret, long v) {
+            ok = (Result.OK == ret);
+            value = v;
+        }
+    }
+
+    private static final class BooleanResult implements ISystemControl.getPropertyBooleanCallback {
+        private static final ThreadLocal<BooleanResult> sHolder = ThreadLocal.withInitial(BooleanResult::new);
+
+        boolean ok;
+        boolean value;
+
+        static BooleanResult get() {
+            BooleanResult result = sHolder.get();
+            result.ok = false;
+            return result;
+        }
+
+        @Override
+        public void onValues(int ret, boolean v) {
+            ok = (Result.OK == ret);
+            value = v;
+        }
+    }
+
     private static class Mutable<E> {
         public E value;
 
@@ -4623,10 +4768,60 @@ public class SystemControlManager {
                 synchronized (mLock) {
                     mProxy = null;
                 }
+                mCache.invalidateAll();
             }
         }
     }
 
+    // any event from system control may change display/audio nodes and properties,
+    // so drop the cache before the listener set by setListener runs
+    final class CacheInvalidateCallback extends ISystemControlCallback.Stub {
+        private volatile ISystemControlCallback mListener;
+
+        void setListener(ISystemControlCallback listener) {
+            mListener = listener;
+        }
+
+        @Override
+        public void notifyCallback(int event) throws RemoteException {
+            mCache.invalidateAll();
+            ISystemControlCallback listener = mListener;
+            if (listener != null)
+                listener.notifyCallback(event);
+        }
+
+        @Override
+        public void notifyFBCUpgradeCallback(int state, int param) throws RemoteException {
+            ISystemControlCallback listener = mListener;
+            if (listener != null)
+                listener.notifyFBCUpgradeCallback(state, param);
+        }
+
+        @Override
+        public void notifySetDisplayModeCallback(int mode) throws RemoteException {
+            mCache.invalidateAll();
+            ISystemControlCallback listener = mListener;
+            if (listener != null)
+                listener.notifySetDisplayModeCallback(mode);
+        }
+
+        @Override
+        public void notifyHdrInfoChangedCallback(int newHdrInfo) throws RemoteException {
+            mCache.invalidateAll();
+            ISystemControlCallback listener = mListener;
+            if (listener != null)
+                listener.notifyHdrInfoChangedCallback(newHdrInfo);
+        }
+
+        @Override
+        public void notifyAudioCallback(int param1, int param2, int param3, int param4) throws RemoteException {
+            mCache.invalidateAll();
+            ISystemControlCallback listener = mListener;
+            if (listener != null)
+                listener.notifyAudioCallback(param1, param2, param3, param4);
+        }
+    }
+
     /*
     final class ServiceNotification extends IServiceNotification.Stub {
         @Override
@@ -0,0 +1,815 @@
+/*
+ * Copyright (c) 2014 Amlogic, Inc. All rights reserved.
+ *
+ * This source code is subject to the terms and conditions defined in the
+ * file 'LICENSE' which is part of this source code package.
+ *
+ * Description: JAVA file
+ */
+
+package com.droidlogic.app.tv;
+
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Decodes the DroidLogic fields of COLUMN_INTERNAL_PROVIDER_DATA straight into a
+ * ChannelInfo.Builder, without the map of DroidLogicTvUtils.jsonToMap.
+ *
+ * The JSON written by TvDataBaseManager is read by a flat scanner giving the values jsonToMap
+ * would give. A versioned binary form made by {@link #encode} is accepted in BLOB columns.
+ * When either decoder meets something it does not handle exactly like the legacy parse, it
+ * returns false without touching the builder, and the caller goes on with the legacy parse.
+ */
+public final class ChannelDataCodec {
+    private static final String TAG = "ChannelDataCodec";
+    private static final boolean DEBUG = false;
+
+    public static final int VERSION = 1;
+    private static final byte[] MAGIC = {'D', 'L', 'C'};
+
+    private static final int T_INT = 0;
+    // the value as jsonToMap gives it
+    private static final int T_STRING = 1;
+    // the value through TvString.fromString
+    private static final int T_TEXT = 2;
+    private static final int T_INTS = 3;
+    private static final int T_STRINGS = 4;
+    private static final int T_FLAG = 5;
+
+    // binary tags, a tag is never given another meaning
+    private static final int F_VFMT = 1;
+    private static final int F_FREQUENCY = 2;
+    private static final int F_BAND_WIDTH = 3;
+    private static final int F_SYMBOL_RATE = 4;
+    private static final int F_MODULATION = 5;
+    private static final int F_FE_PARAS = 6;
+    private static final int F_VIDEO_PID = 7;
+    private static final int F_PCR_ID = 8;
+    private static final int F_CONTENT_RATINGS = 9;
+    private static final int F_SIGNAL_TYPE = 10;
+    private static final int F_AUDIO_TRACK_INDEX = 11;
+    private static final int F_AUDIO_OUTPUT_MODE = 12;
+    private static final int F_AUDIO_COMPENSATION = 13;
+    private static final int F_AUDIO_CHANNEL = 14;
+    private static final int F_IS_FAVOURITE = 15;
+    private static final int F_FAVOURITE_INFO = 16;
+    private static final int F_TRANSPONDER_INFO = 17;
+    private static final int F_SATELLITE_INFO = 18;
+    private static final int F_CHANNEL_SIGNAL_TYPE = 19;
+    private static final int F_CHANNEL_IS_DATA = 20;
+    private static final int F_VIDEO_STD = 21;
+    private static final int F_AUDIO_STD = 22;
+    private static final int F_IS_AUTO_STD = 23;
+    private static final int F_FINE_TUNE = 24;
+    private static final int F_AUDIO_PIDS = 25;
+    private static final int F_AUDIO_FORMATS = 26;
+    private static final int F_AUDIO_EXTS = 27;
+    private static final int F_AUDIO_LANGS = 28;
+    private static final int F_SUBT_PIDS = 29;
+    private static final int F_SUBT_TYPES = 30;
+    private static final int F_SUBT_STYPES = 31;
+    private static final int F_SUBT_ID1S = 32;
+    private static final int F_SUBT_ID2S = 33;
+    private static final int F_SUBT_LANGS = 34;
+    private static final int F_SUBT_TRACK_INDEX = 35;
+    private static final int F_MULTI_NAME = 36;
+    private static final int F_FREE_CA = 37;
+    private static final int F_SCRAMBLED = 38;
+    private static final int F_SDT_VERSION = 39;
+    private static final int F_MAJOR_NUM = 40;
+    private static final int F_MINOR_NUM = 41;
+    private static final int F_SOURCE_ID = 42;
+    private static final int F_ACCESS_CONTROL = 43;
+    private static final int F_HIDDEN = 44;
+    private static final int F_SET_HIDDEN = 45;
+    private static final int F_HIDE_GUIDE = 46;
+    private static final int F_VCT = 47;
+    private static final int F_EITV = 48;
+    private static final int F_PROGRAMS_IN_PAT = 49;
+    private static final int F_PAT_TS_ID = 50;
+    private static final int FIELD_COUNT = 51;
+
+    private static final int[] TYPES = new int[FIELD_COUNT];
+    private static final HashMap<String, Integer> TAGS = new HashMap<String, Integer>();
+
+    private static void field(int tag, String key, int type) {
+        TYPES[tag] = type;
+        TAGS.put(key, tag);
+    }
+
+    static {
+        field(F_VFMT, ChannelInfo.KEY_VFMT, T_INT);
+        field(F_FREQUENCY, ChannelInfo.KEY_FREQUENCY, T_INT);
+        field(F_BAND_WIDTH, ChannelInfo.KEY_BAND_WIDTH, T_INT);
+        field(F_SYMBOL_RATE, ChannelInfo.KEY_SYMBOL_RATE, T_INT);
+        field(F_MODULATION, ChannelInfo.KEY_MODULATION, T_INT);
+        field(F_FE_PARAS, ChannelInfo.KEY_FE_PARAS, T_STRING);
+        field(F_VIDEO_PID, ChannelInfo.KEY_VIDEO_PID, T_INT);
+        field(F_PCR_ID, ChannelInfo.KEY_PCR_ID, T_INT);
+        field(F_CONTENT_RATINGS, ChannelInfo.KEY_CONTENT_RATINGS, T_TEXT);
+        field(F_SIGNAL_TYPE, ChannelInfo.KEY_SIGNAL_TYPE, T_TEXT);
+        field(F_AUDIO_TRACK_INDEX, ChannelInfo.KEY_AUDIO_TRACK_INDEX, T_INT);
+        field(F_AUDIO_OUTPUT_MODE, ChannelInfo.KEY_AUDIO_OUTPUT_MODE, T_INT);
+        field(F_AUDIO_COMPENSATION, ChannelInfo.KEY_AUDIO_COMPENSATION, T_INT);
+        field(F_AUDIO_CHANNEL, ChannelInfo.KEY_AUDIO_CHANNEL, T_INT);
+        field(F_IS_FAVOURITE, ChannelInfo.KEY_IS_FAVOURITE, T_FLAG);
+        field(F_FAVOURITE_INFO, ChannelInfo.KEY_FAVOURITE_INFO, T_STRING);
+        field(F_TRANSPONDER_INFO, ChannelInfo.KEY_TRANSPONDER_INFO, T_STRING);
+        field(F_SATELLITE_INFO, ChannelInfo.KEY_SATELLITE_INFO, T_STRING);
+        field(F_CHANNEL_SIGNAL_TYPE, ChannelInfo.KEY_CHANNEL_SIGNAL_TYPE, T_STRING);
+        field(F_CHANNEL_IS_DATA, ChannelInfo.KEY_CHANNEL_IS_DATA, T_FLAG);
+        field(F_VIDEO_STD, ChannelInfo.KEY_VIDEO_STD, T_INT);
+        field(F_AUDIO_STD, ChannelInfo.KEY_AUDIO_STD, T_INT);
+        field(F_IS_AUTO_STD, ChannelInfo.KEY_IS_AUTO_STD, T_INT);
+        field(F_FINE_TUNE, ChannelInfo.KEY_FINE_TUNE, T_INT);
+        field(F_AUDIO_PIDS, ChannelInfo.KEY_AUDIO_PIDS, T_INTS);
+        field(F_AUDIO_FORMATS, ChannelInfo.KEY_AUDIO_FORMATS, T_INTS);
+        field(F_AUDIO_EXTS, ChannelInfo.KEY_AUDIO_EXTS, T_INTS);
+        field(F_AUDIO_LANGS, ChannelInfo.KEY_AUDIO_LANGS, T_STRINGS);
+        field(F_SUBT_PIDS, ChannelInfo.KEY_SUBT_PIDS, T_INTS);
+        field(F_SUBT_TYPES, ChannelInfo.KEY_SUBT_TYPES, T_INTS);
+        field(F_SUBT_STYPES, ChannelInfo.KEY_SUBT_STYPES, T_INTS);
+        field(F_SUBT_ID1S, ChannelInfo.KEY_SUBT_ID1S, T_INTS);
+        field(F_SUBT_ID2S, ChannelInfo.KEY_SUBT_ID2S, T_INTS);
+        field(F_SUBT_LANGS, ChannelInfo.KEY_SUBT_LANGS, T_STRINGS);
+        field(F_SUBT_TRACK_INDEX, ChannelInfo.KEY_SUBT_TRACK_INDEX, T_INT);
+        field(F_MULTI_NAME, ChannelInfo.KEY_MULTI_NAME, T_TEXT);
+        field(F_FREE_CA, ChannelInfo.KEY_FREE_CA, T_INT);
+        field(F_SCRAMBLED, ChannelInfo.KEY_SCRAMBLED, T_INT);
+        field(F_SDT_VERSION, ChannelInfo.KEY_SDT_VERSION, T_INT);
+        field(F_MAJOR_NUM, ChannelInfo.KEY_MAJOR_NUM, T_INT);
+        field(F_MINOR_NUM, ChannelInfo.KEY_MINOR_NUM, T_INT);
+        field(F_SOURCE_ID, ChannelInfo.KEY_SOURCE_ID, T_INT);
+        field(F_ACCESS_CONTROL, ChannelInfo.KEY_ACCESS_CONTROL, T_INT);
+        field(F_HIDDEN, ChannelInfo.KEY_HIDDEN, T_FLAG);
+        field(F_SET_HIDDEN, ChannelInfo.KEY_SET_HIDDEN, T_INT);
+        field(F_HIDE_GUIDE, ChannelInfo.KEY_HIDE_GUIDE, T_INT);
+        field(F_VCT, ChannelInfo.KEY_VCT, T_STRING);
+        field(F_EITV, ChannelInfo.KEY_EITV, T_INTS);
+        field(F_PROGRAMS_IN_PAT, ChannelInfo.KEY_PROGRAMS_IN_PAT, T_INT);
+        field(F_PAT_TS_ID, ChannelInfo.KEY_PAT_TS_ID, T_INT);
+    }
+
+    /**
+     * Values of one row, by tag, applied to the builder once the whole row is read.
+     */
+    private static final class Values {
+        final boolean[] has = new boolean[FIELD_COUNT];
+        final int[] ints = new int[FIELD_COUNT];
+        final Object[] objects = new Object[FIELD_COUNT];
+
+        void put(int tag, int value) {
+            has[tag] = true;
+            ints[tag] = value;
+        }
+
+        void put(int tag, Object value) {
+            has[tag] = true;
+            objects[tag] = value;
+        }
+
+        int[] ints(int tag) {
+            return (int[]) objects[tag];
+        }
+
+        String string(int tag) {
+            return (String) objects[tag];
+        }
+
+        /**
+         * the arrays that go together have to be there for count items, as the legacy parse
+         * throws otherwise
+         */
+        int[] head(int tag, int count) {
+            int[] values = ints(tag);
+            if (!has[tag] || values == null || values.length < count)
+                throw new IllegalArgumentException("short " + tag);
+            return values.length == count ? values : Arrays.copyOf(values, count);
+        }
+    }
+
+    private ChannelDataCodec() {
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > MAGIC.length
+            && data[0] == MAGIC[0] && data[1] == MAGIC[1] && data[2] == MAGIC[2];
+    }
+
+    /**
+     * Decodes the legacy JSON of a string column.
+     * @return false if the legacy parse has to be used
+     */
+    public static boolean decodeJson(String json, ChannelInfo.Builder builder) {
+        if (json == null || json.length() == 0)
+            return false;
+        try {
+            Values values = new Values();
+            JsonScanner in = new JsonScanner(json);
+            in.expect('{');
+            if (!in.consume('}')) {
+                do {
+                    String key = in.readString();
+                    in.expect(':');
+                    Integer tag = TAGS.get(key);
+                    if (tag == null)
+                        in.skipValue();
+                    else
+                        readJsonValue(in, tag, values);
+                } while (in.consume(','));
+                in.expect('}');
+            }
+            apply(values, builder);
+            return true;
+        } catch (IllegalArgumentException e) {
+            if (DEBUG) Log.d(TAG, "legacy parse of [" + json + "]: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Decodes the binary form of a BLOB column.
+     * @return false if it is not in a binary form of this version
+     */
+    public static boolean decode(byte[] data, ChannelInfo.Builder builder) {
+        if (!isBinary(data) || data[MAGIC.length] != VERSION)
+            return false;
+        try {
+            Values values = new Values();
+            BinaryReader in = new BinaryReader(data, MAGIC.length + 1);
+            while (in.remaining() > 0) {
+                int tag = in.readVarint();
+                int end = in.readVarint() + in.pos;
+                if (end > data.length || end < in.pos)
+                    throw new IllegalArgumentException("truncated field " + tag);
+                // tags added by a later writer are skipped
+                if (tag > 0 && tag < FIELD_COUNT)
+                    readBinaryValue(in, tag, values);
+                in.pos = end;
+            }
+            apply(values, builder);
+            return true;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            Log.e(TAG, "bad channel data: " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Binary form of the DroidLogic fields of a channel, empty int arrays are written
+     * as missing as no parse of the legacy form gives them.
+     */
+    public static byte[] encode(ChannelInfo channel) {
+        BinaryWriter out = new BinaryWriter();
+        out.out.write(MAGIC, 0, MAGIC.length);
+        out.out.write(VERSION);
+        out.putInt(F_VFMT, channel.getVfmt());
+        out.putInt(F_FREQUENCY, channel.getFrequency());
+        out.putInt(F_BAND_WIDTH, channel.getBandwidth());
+        out.putInt(F_SYMBOL_RATE, channel.getSymbolRate());
+        out.putInt(F_MODULATION, channel.getModulation());
+        out.putString(F_FE_PARAS, channel.getFEParas());
+        out.putInt(F_VIDEO_PID, channel.getVideoPid());
+        out.putInt(F_PCR_ID, channel.getPcrPid());
+        out.putString(F_CONTENT_RATINGS, channel.getContentRatings());
+        out.putString(F_SIGNAL_TYPE, channel.getSignalType());
+        out.putInt(F_AUDIO_TRACK_INDEX, channel.getAudioTrackIndex());
+        out.putInt(F_AUDIO_OUTPUT_MODE, channel.getAudioOutPutMode());
+        out.putInt(F_AUDIO_COMPENSATION, channel.getAudioCompensation());
+        out.putInt(F_AUDIO_CHANNEL, channel.getAudioChannel());
+        out.putFlag(F_IS_FAVOURITE, channel.isFavourite());
+        out.putString(F_FAVOURITE_INFO, channel.getFavouriteInfo());
+        out.putString(F_TRANSPONDER_INFO, channel.getTransponderInfo());
+        out.putString(F_SATELLITE_INFO, channel.getSatelliteInfo());
+        out.putString(F_CHANNEL_SIGNAL_TYPE, channel.getChannelSignalType());
+        out.putFlag(F_CHANNEL_IS_DATA, channel.isData());
+        out.putInt(F_VIDEO_STD, channel.getVideoStd());
+        out.putInt(F_AUDIO_STD, channel.getAudioStd());
+        out.putInt(F_IS_AUTO_STD, channel.getIsAutoStd());
+        out.putInt(F_FINE_TUNE, channel.getFineTune());
+        out.putInts(F_AUDIO_PIDS, channel.getAudioPids());
+        out.putInts(F_AUDIO_FORMATS, channel.getAudioFormats());
+        out.putInts(F_AUDIO_EXTS, channel.getAudioExts());
+        out.putStrings(F_AUDIO_LANGS, channel.getAudioLangs());
+        out.putInts(F_SUBT_PIDS, channel.getSubtitlePids());
+        out.putInts(F_SUBT_TYPES, channel.getSubtitleTypes());
+        out.putInts(F_SUBT_STYPES, channel.getSubtitleStypes());
+        out.putInts(F_SUBT_ID1S, channel.getSubtitleId1s());
+        out.putInts(F_SUBT_ID2S, channel.getSubtitleId2s());
+        out.putStrings(F_SUBT_LANGS, channel.getSubtitleLangs());
+        out.putInt(F_SUBT_TRACK_INDEX, channel.getSubtitleTrackIndex());
+        out.putString(F_MULTI_NAME, channel.getDisplayNameMulti());
+        out.putInt(F_FREE_CA, channel.getFreeCa());
+        out.putInt(F_SCRAMBLED, channel.getScrambled());
+        out.putInt(F_SDT_VERSION, channel.getSdtVersion());
+        out.putInt(F_MAJOR_NUM, channel.getMajorChannelNumber());
+        out.putInt(F_MINOR_NUM, channel.getMinorChannelNumber());
+        out.putInt(F_SOURCE_ID, channel.getSourceId());
+        out.putInt(F_ACCESS_CONTROL, channel.getAccessControled());
+        out.putFlag(F_HIDDEN, channel.getHidden() > 0);
+        out.putInt(F_SET_HIDDEN, channel.getSetHidden());
+        out.putInt(F_HIDE_GUIDE, channel.getHideGuide());
+        out.putString(F_VCT, channel.getVct());
+        out.putInts(F_EITV, channel.getEitVersions());
+        out.putInt(F_PROGRAMS_IN_PAT, channel.getProgramsInPat());
+        out.putInt(F_PAT_TS_ID, channel.getPatTsId());
+        return out.out.toByteArray();
+    }
+
+    private static void readJsonValue(JsonScanner in, int tag, Values values) {
+        switch (TYPES[tag]) {
+            case T_INT:
+                values.put(tag, Integer.parseInt(in.readValueText()));
+                break;
+            case T_STRING:
+                values.put(tag, in.readValueText());
+                break;
+            case T_TEXT:
+                values.put(tag, DroidLogicTvUtils.TvString.fromString(in.readValueText()));
+                break;
+            case T_FLAG:
+                String flag = in.readValueText();
+                values.put(tag, tag == F_IS_FAVOURITE ? "1".equals(flag) : "true".equals(flag));
+                break;
+            case T_INTS:
+                values.put(tag, in.readIntArray());
+                break;
+            case T_STRINGS:
+                values.put(tag, in.readStringArray());
+                break;
+        }
+    }
+
+    private static void readBinaryValue(BinaryReader in, int tag, Values values) {
+        switch (TYPES[tag]) {
+            case T_INT:
+                values.put(tag, in.readSignedVarint());
+                break;
+            case T_STRING:
+            case T_TEXT:
+                values.put(tag, in.readString());
+                break;
+            case T_FLAG:
+                values.put(tag, in.readVarint() != 0);
+                break;
+            case T_INTS: {
+                int[] array = new int[in.readCount()];
+                for (int i = 0; i < array.length; i++)
+                    array[i] = in.readSignedVarint();
+                values.put(tag, array);
+                break;
+            }
+            case T_STRINGS: {
+                String[] array = new String[in.readCount()];
+                for (int i = 0; i < array.length; i++)
+                    array[i] = in.readString();
+                values.put(tag, array);
+                break;
+            }
+        }
+    }
+
+    /**
+     * sets what fromCommonCursor sets from the same map, throws where it would throw
+     */
+    private static void apply(Values v, ChannelInfo.Builder builder) {
+        int[] audioPids = v.ints(F_AUDIO_PIDS);
+        int[] audioFormats = null;
+        int[] audioExts = null;
+        if (v.has[F_AUDIO_PIDS] && audioPids != null) {
+            if (audioPids.length == 0)
+                throw new IllegalArgumentException("empty audio pids");
+            audioFormats = v.head(F_AUDIO_FORMATS, audioPids.length);
+            audioExts = v.head(F_AUDIO_EXTS, audioPids.length);
+        }
+        int[] subtPids = v.ints(F_SUBT_PIDS);
+        int[][] subts = null;
+        if (v.has[F_SUBT_PIDS] && subtPids != null) {
+            if (subtPids.length == 0)
+                throw new IllegalArgumentException("empty subtitle pids");
+            subts = new int[][] {
+                v.head(F_SUBT_TYPES, subtPids.length),
+                v.head(F_SUBT_STYPES, subtPids.length),
+                v.head(F_SUBT_ID1S, subtPids.length),
+                v.head(F_SUBT_ID2S, subtPids.length)
+            };
+        }
+        int[] eitv = v.ints(F_EITV);
+        if (v.has[F_EITV] && eitv != null && eitv.length == 0)
+            throw new IllegalArgumentException("empty eit versions");
+
+        if (!v.has[F_AUDIO_PIDS]) {
+            builder.setAudioPids(null);
+            builder.setAudioFormats(null);
+            builder.setAudioExts(null);
+            builder.setAudioLangs(null);
+        } else if (audioPids != null) {
+            builder.setAudioPids(audioPids);
+            builder.setAudioFormats(audioFormats);
+            builder.setAudioExts(audioExts);
+            builder.setAudioLangs((String[]) v.objects[F_AUDIO_LANGS]);
+        }
+        if (subts != null) {
+            builder.setSubtitlePids(subtPids)
+                    .setSubtitleTypes(subts[0])
+                    .setSubtitleStypes(subts[1])
+                    .setSubtitleId1s(subts[2])
+                    .setSubtitleId2s(subts[3])
+                    .setSubtitleLangs((String[]) v.objects[F_SUBT_LANGS]);
+        }
+        if (eitv != null)
+            builder.setEitVersions(eitv);
+
+        for (int tag = 1; tag < FIELD_COUNT; tag++) {
+            if (!v.has[tag])
+                continue;
+            int i = v.ints[tag];
+            switch (tag) {
+                case F_VFMT: builder.setVfmt(i); break;
+                case F_FREQUENCY: builder.setFrequency(i); break;
+                case F_BAND_WIDTH: builder.setBandwidth(i); break;
+                case F_SYMBOL_RATE: builder.setSymbolRate(i); break;
+                case F_MODULATION: builder.setModulation(i); break;
+                case F_FE_PARAS: builder.setFEParas(v.string(tag)); break;
+                case F_VIDEO_PID: builder.setVideoPid(i); break;
+                case F_PCR_ID: builder.setPcrPid(i); break;
+                case F_CONTENT_RATINGS: builder.setContentRatings(v.string(tag)); break;
+                case F_SIGNAL_TYPE: builder.setSignalType(v.string(tag)); break;
+                case F_AUDIO_TRACK_INDEX: builder.setAudioTrackIndex(i); break;
+                case F_AUDIO_OUTPUT_MODE: builder.setAudioOutPutMode(i); break;
+                case F_AUDIO_COMPENSATION: builder.setAudioCompensation(i); break;
+                case F_AUDIO_CHANNEL: builder.setAudioChannel(i); break;
+                case F_IS_FAVOURITE: builder.setIsFavourite((Boolean) v.objects[tag]); break;
+                case F_FAVOURITE_INFO: builder.setFavouriteInfo(v.string(tag)); break;
+                case F_TRANSPONDER_INFO: builder.setTransponderInfo(v.string(tag)); break;
+                case F_SATELLITE_INFO: builder.setSatelliteInfo(v.string(tag)); break;
+                case F_CHANNEL_SIGNAL_TYPE: builder.setChannelSignalType(v.string(tag)); break;
+                case F_CHANNEL_IS_DATA: builder.setIsData((Boolean) v.objects[tag]); break;
+                case F_VIDEO_STD: builder.setVideoStd(i); break;
+                case F_AUDIO_STD: builder.setAudioStd(i); break;
+                case F_IS_AUTO_STD: builder.setIsAutoStd(i); break;
+                case F_FINE_TUNE: builder.setFineTune(i); break;
+                case F_SUBT_TRACK_INDEX: builder.setSubtitleTrackIndex(i); break;
+                case F_MULTI_NAME: builder.setDisplayNameMulti(v.string(tag)); break;
+                case F_FREE_CA: builder.setFreeCa(i); break;
+                case F_SCRAMBLED: builder.setScrambled(i); break;
+                case F_SDT_VERSION: builder.setSdtVersion(i); break;
+                case F_MAJOR_NUM: builder.setMajorChannelNumber(i); break;
+                case F_MINOR_NUM: builder.setMinorChannelNumber(i); break;
+                case F_SOURCE_ID: builder.setSourceId(i); break;
+                case F_ACCESS_CONTROL: builder.setAccessControled(i); break;
+                case F_HIDDEN: builder.setHidden((Boolean) v.objects[tag] ? 1 : 0); break;
+                case F_SET_HIDDEN: builder.setSetHidden(i); break;
+                case F_HIDE_GUIDE: builder.setHideGuide(i); break;
+                case F_VCT: builder.setVct(v.string(tag)); break;
+                case F_PROGRAMS_IN_PAT: builder.setProgramsInPat(i); break;
+                case F_PAT_TS_ID: builder.setPatTsId(i); break;
+                default: break;
+            }
+        }
+    }
+
+    /**
+     * Strict JSON reader of one flat object, IllegalArgumentException on anything the lenient
+     * org.json tokener could read differently.
+     */
+    private static final class JsonScanner {
+        private final String s;
+        private int pos;
+
+        JsonScanner(String s) {
+            this.s = s;
+        }
+
+        private char peek() {
+            while (pos < s.length()) {
+                char c = s.charAt(pos);
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r')
+                    return c;
+                pos++;
+            }
+            throw new IllegalArgumentException("unexpected end");
+        }
+
+        void expect(char c) {
+            if (peek() != c)
+                throw new IllegalArgumentException("expected " + c + " at " + pos);
+            pos++;
+        }
+
+        boolean consume(char c) {
+            if (peek() != c)
+                return false;
+            pos++;
+            return true;
+        }
+
+        String readString() {
+            expect('"');
+            int start = pos;
+            // most strings have no escapes and are a substring
+            while (pos < s.length()) {
+                char c = s.charAt(pos);
+                if (c == '"')
+                    return s.substring(start, pos++);
+                if (c == '\\')
+                    break;
+                pos++;
+            }
+            StringBuilder sb = new StringBuilder(s.substring(start, pos));
+            while (pos < s.length()) {
+                char c = s.charAt(pos++);
+                if (c == '"')
+                    return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= s.length())
+                    break;
+                c = s.charAt(pos++);
+                switch (c) {
+                    case 'u':
+                        if (pos + 4 > s.length())
+                            throw new IllegalArgumentException("bad escape at " + pos);
+                        sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'f': sb.append('\f'); break;
+                    default: sb.append(c); break;
+                }
+            }
+            throw new IllegalArgumentException("unterminated string");
+        }
+
+        /**
+         * an integer as org.json reads it back into the same digits
+         */
+        private String readInteger() {
+            int start = pos;
+            if (pos < s.length() && s.charAt(pos) == '-')
+                pos++;
+            int digits = pos;
+            while (pos < s.length() && s.charAt(pos) >= '0' && s.charAt(pos) <= '9')
+                pos++;
+            int count = pos - digits;
+            if (count == 0 || count > 18 || (count > 1 && s.charAt(digits) == '0'))
+                throw new IllegalArgumentException("number at " + start);
+            if (pos < s.length() && ".eExX".indexOf(s.charAt(pos)) >= 0)
+                throw new IllegalArgumentException("number at " + start);
+            String number = s.substring(start, pos);
+            if ("-0".equals(number))
+                throw new IllegalArgumentException("number at " + start);
+            return number;
+        }
+
+        private boolean readLiteral(String literal) {
+            if (!s.startsWith(literal, pos))
+                return false;
+            int end = pos + literal.length();
+            if (end < s.length() && Character.isLetterOrDigit(s.charAt(end)))
+                return false;
+            pos = end;
+            return true;
+        }
+
+        /**
+         * the value as jsonObject.get(key).toString() gives it
+         */
+        String readValueText() {
+            char c = peek();
+            if (c == '"')
+                return readString();
+            if (c == '{' || c == '[') {
+                int start = pos;
+                skipValue();
+                try {
+                    String raw = s.substring(start, pos);
+                    return c == '{' ? new JSONObject(raw).toString() : new JSONArray(raw).toString();
+                } catch (JSONException e) {
+                    throw new IllegalArgumentException(e.getMessage());
+                }
+            }
+            if (readLiteral("true"))
+                return "true";
+            if (readLiteral("false"))
+                return "false";
+            if (readLiteral("null"))
+                return "null";
+            return readInteger();
+        }
+
+        /**
+         * ints of an array, null for a json null
+         */
+        int[] readIntArray() {
+            if (readNull())
+                return null;
+            expect('[');
+            int[] values = new int[8];
+            int count = 0;
+            if (!consume(']')) {
+                do {
+                    peek();
+                    if (count == values.length)
+                        values = Arrays.copyOf(values, count * 2);
+                    values[count++] = Integer.parseInt(readInteger());
+                } while (consume(','));
+                expect(']');
+            }
+            return Arrays.copyOf(values, count);
+        }
+
+        /**
+         * what TvString.fromArrayString makes of the array, only for items it keeps as they are
+         */
+        String[] readStringArray() {
+            if (readNull())
+                return new String[] {"null"};
+            if (peek() == '"')
+                return DroidLogicTvUtils.TvString.fromArrayString(readString());
+            expect('[');
+            String[] values = new String[4];
+            int count = 0;
+            if (!consume(']')) {
+                do {
+                    String item = peek() == '"' ? readString() : readInteger();
+                    for (int i = 0; i < item.length(); i++) {
+                        char c = item.charAt(i);
+                        if (c < ' ' || "[]\",/\\\u2028\u2029".indexOf(c) >= 0)
+                            throw new IllegalArgumentException("string item at " + pos);
+                    }
+                    if (count == values.length)
+                        values = Arrays.copyOf(values, count * 2);
+                    values[count++] = item;
+                } while (consume(','));
+                expect(']');
+            }
+            if (count == 0)
+                return new String[] {""};
+            // split(",") of the legacy parse drops trailing empty items once there is a comma
+            if (count > 1) {
+                while (count > 0 && values[count - 1].length() == 0)
+                    count--;
+            }
+            return Arrays.copyOf(values, count);
+        }
+
+        private boolean readNull() {
+            peek();
+            return readLiteral("null");
+        }
+
+        void skipValue() {
+            char c = peek();
+            if (c == '"') {
+                readString();
+            } else if (c == '{' || c == '[') {
+                char close = c == '{' ? '}' : ']';
+                pos++;
+                if (consume(close))
+                    return;
+                do {
+                    if (close == '}') {
+                        readString();
+                        expect(':');
+                    }
+                    skipValue();
+                } while (consume(','));
+                expect(close);
+            } else if (!readLiteral("true") && !readLiteral("false") && !readLiteral("null")) {
+                readInteger();
+            }
+        }
+    }
+
+    private static final class BinaryReader {
+        private final byte[] data;
+        int pos;
+
+        BinaryReader(byte[] data, int pos) {
+            this.data = data;
+            this.pos = pos;
+        }
+
+        int remaining() {
+            return data.length - pos;
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = data[pos++];
+                value |= (b & 0x7f) << shift;
+                if (b >= 0)
+                    return value;
+            }
+            throw new IllegalArgumentException("bad varint at " + pos);
+        }
+
+        int readCount() {
+            int count = readVarint();
+            // every item takes a byte at least
+            if (count < 0 || count > remaining())
+                throw new IllegalArgumentException("bad count at " + pos);
+            return count;
+        }
+
+        int readSignedVarint() {
+            int value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String readString() {
+            int length = readVarint();
+            if (length == 0)
+                return null;
+            String value = new String(data, pos, length - 1, StandardCharsets.UTF_8);
+            pos += length - 1;
+            return value;
+        }
+    }
+
+    private static final class BinaryWriter {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        private final ByteArrayOutputStream field = new ByteArrayOutputStream(64);
+
+        private static void varint(ByteArrayOutputStream to, int value) {
+            while ((value & ~0x7f) != 0) {
+                to.write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            to.write(value);
+        }
+
+        private static void signedVarint(ByteArrayOutputStream to, int value) {
+            varint(to, (value << 1) ^ (value >> 31));
+        }
+
+        private static void string(ByteArrayOutputStream to, String value) {
+            if (value == null) {
+                varint(to, 0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(to, bytes.length + 1);
+            to.write(bytes, 0, bytes.length);
+        }
+
+        private void end(int tag) {
+            varint(out, tag);
+            varint(out, field.size());
+            byte[] bytes = field.toByteArray();
+            out.write(bytes, 0, bytes.length);
+            field.reset();
+        }
+
+        void putInt(int tag, int value) {
+            signedVarint(field, value);
+            end(tag);
+        }
+
+        void putFlag(int tag, boolean value) {
+            varint(field, value ? 1 : 0);
+            end(tag);
+        }
+
+        void putString(int tag, String value) {
+            if (value == null)
+                return;
+            string(field, value);
+            end(tag);
+        }
+
+        void putInts(int tag, int[] values) {
+            if (values == null || values.length == 0)
+                return;
+            varint(field, values.length);
+            for (int value : values)
+                signedVarint(field, value);
+            end(tag);
+        }
+
+        void putStrings(int tag, String[] values) {
+            if (values == null)
+                return;
+            varint(field, values.length);
+            for (String value : values)
+                string(field, value);
+            end(tag);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2014 Amlogic, Inc. All rights reserved.
+ *
+ * This source code is subject to the terms and conditions defined in the
+ * file 'LICENSE' which is part of this source code package.
+ *
+ * Description: JAVA file
+ */
+
+package com.droidlogic.app.tv;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.media.tv.TvContract;
+import android.media.tv.TvContract.Channels;
+import android.net.Uri;
+import android.util.Log;
+import android.util.LongSparseArray;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Identity index of the channel rows of one input, used by TvDataBaseManager.queryChannelIdInDb
+ * to find the row of a scanned channel without querying and parsing every row each time.
+ *
+ * A row is indexed by service type, signal type, onid/tsid/sid, frequency and name, analog rows
+ * also by service type and frequency/video std/audio std/vfmt, with the same matching rules as the
+ * cursor scan. The rows are loaded on first lookup and kept in step with the channel writes done
+ * through TvDataBaseManager.
+ */
+class ChannelIdIndex {
+    private static final String TAG = "ChannelIdIndex";
+
+    private static final char KEY_SEPARATOR = '\0';
+
+    private static final String[] PROJECTION = {
+        Channels._ID,
+        Channels.COLUMN_SERVICE_TYPE,
+        Channels.COLUMN_SERVICE_ID,
+        Channels.COLUMN_ORIGINAL_NETWORK_ID,
+        Channels.COLUMN_TRANSPORT_STREAM_ID,
+        Channels.COLUMN_DISPLAY_NAME,
+        Channels.COLUMN_INTERNAL_PROVIDER_DATA};
+
+    private final String mInputId;
+    private boolean mLoaded = false;
+
+    // row ids sharing an identity, the smallest one is what the cursor scan would find first
+    private final HashMap<String, TreeSet<Long>> mRows = new HashMap<>();
+    private final LongSparseArray<String[]> mKeysById = new LongSparseArray<>();
+
+    ChannelIdIndex(String inputId) {
+        mInputId = inputId;
+    }
+
+    public String getInputId() {
+        return mInputId;
+    }
+
+    public synchronized boolean isLoaded() {
+        return mLoaded;
+    }
+
+    public synchronized int size() {
+        return mKeysById.size();
+    }
+
+    /**
+     * @return row id of the channel, -2 if it is not in the provider, -1 if the rows could not be loaded
+     */
+    public synchronized long find(ContentResolver resolver, ChannelInfo channel) {
+        if (!mLoaded && !load(resolver)) {
+            return -1;
+        }
+
+        long id = first(digitalKey(channel.getServiceType(), signalTypeOf(channel.getSignalType()), channel.getServiceId(),
+                channel.getOriginalNetworkId(), channel.getTransportStreamId(), channel.getFrequency(),
+                channel.getDisplayName()));
+        if (channel.isAnalogChannel()) {
+            long analogId = first(analogKey(channel.getServiceType(), channel.getFrequency(),
+                    channel.getVideoStd(), channel.getAudioStd(), channel.getVfmt()));
+            if (id < 0 || (analogId >= 0 && analogId < id)) {
+                id = analogId;
+            }
+        }
+        return id < 0 ? -2 : id;
+    }
+
+    /**
+     * index the row id as holding channel, replacing what was indexed for it before
+     */
+    public synchronized void put(long id, ChannelInfo channel) {
+        if (!mLoaded || id < 0) {
+            return;
+        }
+
+        String analogKey = null;
+        if (channel.isAnalogChannel()) {
+            analogKey = analogKey(channel.getServiceType(), channel.getFrequency(),
+                    channel.getVideoStd(), channel.getAudioStd(), channel.getVfmt());
+        }
+        add(id, digitalKey(channel.getServiceType(), signalTypeOf(channel.getSignalType()), channel.getServiceId(),
+                channel.getOriginalNetworkId(), channel.getTransportStreamId(), channel.getFrequency(),
+                channel.getDisplayName()), analogKey);
+    }
+
+    public synchronized void remove(long id) {
+        String[] keys = mKeysById.get(id);
+        if (keys == null) {
+            return;
+        }
+        mKeysById.remove(id);
+        for (String key : keys) {
+            if (key == null) {
+                continue;
+            }
+            TreeSet<Long> ids = mRows.get(key);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    mRows.remove(key);
+                }
+            }
+        }
+    }
+
+    public synchronized void removeRange(long startId, long endId) {
+        for (int i = mKeysById.size() - 1; i >= 0; i--) {
+            long id = mKeysById.keyAt(i);
+            if (id >= startId && id <= endId) {
+                remove(id);
+            }
+        }
+    }
+
+    /**
+     * forget every row, they are loaded again on next lookup
+     */
+    public synchronized void invalidate() {
+        mRows.clear();
+        mKeysById.clear();
+        mLoaded = false;
+    }
+
+    private boolean load(ContentResolver resolver) {
+        Uri channelsUri = TvContract.buildChannelsUriForInput(mInputId);
+        Cursor cursor = null;
+        try {
+            cursor = resolver.query(channelsUri, PROJECTION, null, null, null);
+            if (cursor == null) {
+                return false;
+            }
+            int idIndex = cursor.getColumnIndex(Channels._ID);
+            int serviceTypeIndex = cursor.getColumnIndex(Channels.COLUMN_SERVICE_TYPE);
+            int serviceIdIndex = cursor.getColumnIndex(Channels.COLUMN_SERVICE_ID);
+            int onidIndex = cursor.getColumnIndex(Channels.COLUMN_ORIGINAL_NETWORK_ID);
+            int tsidIndex = cursor.getColumnIndex(Channels.COLUMN_TRANSPORT_STREAM_ID);
+            int nameIndex = cursor.getColumnIndex(Channels.COLUMN_DISPLAY_NAME);
+            int dataIndex = cursor.getColumnIndex(Channels.COLUMN_INTERNAL_PROVIDER_DATA);
+            while (cursor.moveToNext()) {
+                Map<String, String> parsedMap = DroidLogicTvUtils.jsonToMap(cursor.getString(dataIndex));
+                if (parsedMap == null || parsedMap.get(ChannelInfo.KEY_FREQUENCY) == null) {
+                    continue;
+                }
+                try {
+                    String serviceType = cursor.getString(serviceTypeIndex);
+                    int frequency = Integer.parseInt(parsedMap.get(ChannelInfo.KEY_FREQUENCY));
+                    String analogKey = null;
+                    if (parsedMap.get(ChannelInfo.KEY_VIDEO_STD) != null
+                            && parsedMap.get(ChannelInfo.KEY_AUDIO_STD) != null
+                            && parsedMap.get(ChannelInfo.KEY_VFMT) != null) {
+                        analogKey = analogKey(serviceType, frequency,
+                                Integer.parseInt(parsedMap.get(ChannelInfo.KEY_VIDEO_STD)),
+                                Integer.parseInt(parsedMap.get(ChannelInfo.KEY_AUDIO_STD)),
+                                Integer.parseInt(parsedMap.get(ChannelInfo.KEY_VFMT)));
+                    }
+                    add(cursor.getLong(idIndex),
+                            digitalKey(serviceType, signalTypeOf(parsedMap.get(ChannelInfo.KEY_SIGNAL_TYPE)),
+                                    cursor.getInt(serviceIdIndex), cursor.getInt(onidIndex),
+                                    cursor.getInt(tsidIndex), frequency, cursor.getString(nameIndex)),
+                            analogKey);
+                } catch (NumberFormatException e) {
+                    Log.w(TAG, "skip channel " + cursor.getLong(idIndex) + ": " + e.getMessage());
+                }
+            }
+            mLoaded = true;
+            Log.d(TAG, "loaded " + mKeysById.size() + " channels of " + mInputId);
+        } catch (Exception e) {
+            Log.e(TAG, "load Failed = " + e.getMessage());
+            mRows.clear();
+            mKeysById.clear();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return mLoaded;
+    }
+
+    private void add(long id, String digitalKey, String analogKey) {
+        remove(id);
+        String[] keys = new String[] {digitalKey, analogKey};
+        mKeysById.put(id, keys);
+        for (String key : keys) {
+            if (key == null) {
+                continue;
+            }
+            TreeSet<Long> ids = mRows.get(key);
+            if (ids == null) {
+                ids = new TreeSet<>();
+                mRows.put(key, ids);
+            }
+            ids.add(id);
+        }
+    }
+
+    private long first(String key) {
+        TreeSet<Long> ids = mRows.get(key);
+        return (ids == null || ids.isEmpty()) ? -1 : ids.first();
+    }
+
+    private static String digitalKey(String serviceType, String signalType, int serviceId,
+            int originalNetworkId, int transportStreamId, int frequency, String name) {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append('d').append(serviceType).append(KEY_SEPARATOR)
+            .append(signalType).append(KEY_SEPARATOR)
+            .append(originalNetworkId).append(KEY_SEPARATOR)
+            .append(transportStreamId).append(KEY_SEPARATOR)
+            .append(serviceId).append(KEY_SEPARATOR)
+            .append(frequency).append(KEY_SEPARATOR)
+            .append(name == null ? "\u0001" : name);
+        return sb.toString();
+    }
+
+    /**
+     * signal type as a key part, the same for a channel and the row written from it: a null
+     * one is stored as an empty string, see TvString.toString
+     */
+    private static String signalTypeOf(String signalType) {
+        return signalType == null ? "" : signalType;
+    }
+
+    private static String analogKey(String serviceType, int frequency, int videoStd, int audioStd, int vfmt) {
+        StringBuilder sb = new StringBuilder(32);
+        sb.append('a').append(serviceType).append(KEY_SEPARATOR)
+            .append(frequency).append(KEY_SEPARATOR)
+            .append(videoStd).append(KEY_SEPARATOR)
+            .append(audioStd).append(KEY_SEPARATOR)
+            .append(vfmt);
+        return sb.toString();
+    }
+}
@@ -55,6 +55,26 @@ public class ChannelInfo {
         COLUMN_LCN2
     };
 
+    /* positions in COMMON_PROJECTION, fromCommonCursor reads the columns through them */
+    private static final int COL_ID = 0;
+    private static final int COL_INPUT_ID = 1;
+    private static final int COL_TYPE = 2;
+    private static final int COL_SERVICE_TYPE = 3;
+    private static final int COL_SERVICE_ID = 4;
+    private static final int COL_DISPLAY_NUMBER = 5;
+    private static final int COL_DISPLAY_NAME = 6;
+    private static final int COL_ORIGINAL_NETWORK_ID = 7;
+    private static final int COL_TRANSPORT_STREAM_ID = 8;
+    private static final int COL_VIDEO_FORMAT = 9;
+    private static final int COL_INTERNAL_PROVIDER_DATA = 10;
+    private static final int COL_BROWSABLE = 11;
+    private static final int COL_LOCKED = 12;
+    private static final int COL_LCN = 13;
+    private static final int COL_LCN1 = 14;
+    private static final int COL_LCN2 = 15;
+
+    private static volatile CursorPlan sCursorPlan;
+
     public static final String[] SIMPLE_PROJECTION = {
         TvContract.Channels._ID,
         TvContract.Channels.COLUMN_DISPLAY_NUMBER,
@@ -249,246 +269,272 @@ public class ChannelInfo {
         return new Builder().setInputId(input_id).setPassthrough(true).build();
     }
 
+    /**
+     * column indexes of cursor for fromCommonCursor, resolve it once before walking the rows
+     */
+    public static CursorPlan getCursorPlan(Cursor cursor) {
+        CursorPlan plan = CursorPlan.resolve(sCursorPlan, cursor, COMMON_PROJECTION);
+        sCursorPlan = plan;
+        return plan;
+    }
+
     public static ChannelInfo fromCommonCursor(Cursor cursor) {
+        return fromCommonCursor(cursor, getCursorPlan(cursor));
+    }
+
+    public static ChannelInfo fromCommonCursor(Cursor cursor, CursorPlan plan) {
+        if (plan == null || !plan.isFor(cursor))
+            plan = getCursorPlan(cursor);
         Builder builder = new Builder();
 
-        int index = cursor.getColumnIndex(Channels._ID);
+        int index = plan.index(COL_ID);
         if (index >= 0)
             builder.setId(cursor.getLong(index));
-        index = cursor.getColumnIndex(Channels.COLUMN_INPUT_ID);
+        index = plan.index(COL_INPUT_ID);
         if (index >= 0)
             builder.setInputId(cursor.getString(index));
-        index = cursor.getColumnIndex(Channels.COLUMN_TYPE);
+        index = plan.index(COL_TYPE);
         if (index >= 0)
             builder.setType(cursor.getString(index));
-        index = cursor.getColumnIndex(Channels.COLUMN_SERVICE_TYPE);
+        index = plan.index(COL_SERVICE_TYPE);
         if (index >= 0)
             builder.setServiceType(cursor.getString(index));
-        index = cursor.getColumnIndex(Channels.COLUMN_SERVICE_ID);
+        index = plan.index(COL_SERVICE_ID);
         if (index >= 0)
             builder.setServiceId(cursor.getInt(index));
-        index = cursor.getColumnIndex(Channels.COLUMN_DISPLAY_NUMBER);
+        index = plan.index(COL_DISPLAY_NUMBER);
         if (index >= 0)
             builder.setDisplayNumber(cursor.getString(index));
-        index = cursor.getColumnIndex(Channels.COLUMN_DISPLAY_NAME);
+        index = plan.index(COL_DISPLAY_NAME);
         if (index >= 0)
             builder.setDisplayName(cursor.getString(index));
-        index = cursor.getColumnIndex(Channels.COLUMN_ORIGINAL_NETWORK_ID);
+        index = plan.index(COL_ORIGINAL_NETWORK_ID);
         if (index >= 0)
             builder.setOriginalNetworkId(cursor.getInt(index));
-        index = cursor.getColumnIndex(Channels.COLUMN_TRANSPORT_STREAM_ID);
+        index = plan.index(COL_TRANSPORT_STREAM_ID);
         if (index >= 0)
             builder.setTransportStreamId(cursor.getInt(index));
-        index = cursor.getColumnIndex(Channels.COLUMN_VIDEO_FORMAT);
+        index = plan.index(COL_VIDEO_FORMAT);
         if (index >= 0)
             builder.setVideoFormat(cursor.getString(index));
-        index = cursor.getColumnIndex(Channels.COLUMN_INTERNAL_PROVIDER_DATA);
+        index = plan.index(COL_INTERNAL_PROVIDER_DATA);
         if (index >= 0) {
             String value = null;
             int type = 0;
+            // the flat json and the binary form skip the map, others go through it
+            boolean decoded = false;
             try{
                 type = cursor.getType(index);
                 if (type == Cursor.FIELD_TYPE_BLOB) {
                     //youtube iptv database in this column is blob. Add it for the future.
                     byte[] data = cursor.getBlob(index);
+                    decoded = ChannelDataCodec.decode(data, builder);
                     //Log.d(TAG,"cursor is blob, return null");
-                    value = DroidLogicTvUtils.deserializeInternalProviderData(data);
+                    if (!decoded)
+                        value = DroidLogicTvUtils.deserializeInternalProviderData(data);
                     if (DEBUG) Log.i(TAG,"cursor is blob, set value = " + value);
-                } else if (type == Cursor.FIELD_TYPE_STRING)
+                } else if (type == Cursor.FIELD_TYPE_STRING) {
                     value = cursor.getString(index);
-                else
+                    decoded = ChannelDataCodec.decodeJson(value, builder);
+                } else
                     value = null;//return null;
             } catch (SQLiteException e) {
                 if (DEBUG) Log.d(TAG,"SQLiteException:"+e);
                 return null;
             }
-            Map<String, String> parsedMap = null;
-            if (type == Cursor.FIELD_TYPE_BLOB) {
-                parsedMap = DroidLogicTvUtils.multiJsonToMap(value);
-            } else {
-                parsedMap = DroidLogicTvUtils.jsonToMap(value);
-            }
-            if (parsedMap != null && parsedMap.size() > 0 && parsedMap.get(KEY_AUDIO_PIDS) != null) {
-                String[] str_audioPids = parsedMap.get(KEY_AUDIO_PIDS).replace("[", "").replace("]", "").split(",");
-                String[] str_audioFormats = parsedMap.get(KEY_AUDIO_FORMATS).replace("[", "").replace("]", "").split(",");
-                String[] str_audioExts = parsedMap.get(KEY_AUDIO_EXTS).replace("[", "").replace("]", "").split(",");
-                int number = (str_audioPids[0].compareTo("null") == 0)? 0 : str_audioPids.length;
-                int[] audioPids = null;
-                int[] audioFormats = null;
-                int[] audioExts = null;
-                String[] audioLangs = null;
-                if (number > 0) {
-                    audioPids = new int[number];
-                    audioFormats = new int[number];
-                    audioExts = new int[number];
-                    audioLangs = new String[number];
-                    for (int i=0; i < str_audioPids.length; i++) {
-                        audioPids[i] = Integer.parseInt(str_audioPids[i]);
-                        audioFormats[i] = Integer.parseInt(str_audioFormats[i]);
-                        audioExts[i] = Integer.parseInt(str_audioExts[i]);
-                    }
-                    audioLangs = DroidLogicTvUtils.TvString.fromArrayString(parsedMap.get(KEY_AUDIO_LANGS));
-                    builder.setAudioPids(audioPids);
-                    builder.setAudioFormats(audioFormats);
-                    builder.setAudioExts(audioExts);
-                    builder.setAudioLangs(audioLangs);
-                }
-            }else {
-                builder.setAudioPids(null);
-                builder.setAudioFormats(null);
-                builder.setAudioExts(null);
-                builder.setAudioLangs(null);
-            }
-            if (parsedMap != null && parsedMap.get(KEY_VFMT) != null)
-                builder.setVfmt(Integer.parseInt(parsedMap.get(KEY_VFMT)));
-            if (parsedMap != null && parsedMap.get(KEY_FREQUENCY) != null)
-                builder.setFrequency(Integer.parseInt(parsedMap.get(KEY_FREQUENCY)));
-            if (parsedMap != null && parsedMap.get(KEY_BAND_WIDTH) != null)
-                builder.setBandwidth(Integer.parseInt(parsedMap.get(KEY_BAND_WIDTH)));
-            if (parsedMap != null && parsedMap.get(KEY_SYMBOL_RATE) != null)
-                builder.setSymbolRate(Integer.parseInt(parsedMap.get(KEY_SYMBOL_RATE)));
-            if (parsedMap != null && parsedMap.get(KEY_MODULATION) != null)
-                builder.setModulation(Integer.parseInt(parsedMap.get(KEY_MODULATION)));
-            if (parsedMap != null && parsedMap.get(KEY_FE_PARAS) != null)
-                builder.setFEParas(parsedMap.get(KEY_FE_PARAS));
-            if (parsedMap != null && parsedMap.get(KEY_VIDEO_PID) != null)
-                builder.setVideoPid(Integer.parseInt(parsedMap.get(KEY_VIDEO_PID)));
-            if (parsedMap != null && parsedMap.get(KEY_PCR_ID) != null)
-                builder.setPcrPid(Integer.parseInt(parsedMap.get(KEY_PCR_ID)));
-            if (parsedMap != null && parsedMap.get(KEY_CONTENT_RATINGS) != null)
-                builder.setContentRatings(DroidLogicTvUtils.TvString.fromString(parsedMap.get(KEY_CONTENT_RATINGS)));
-            if (parsedMap != null && parsedMap.get(KEY_SIGNAL_TYPE) != null)
-                builder.setSignalType(DroidLogicTvUtils.TvString.fromString(parsedMap.get(KEY_SIGNAL_TYPE)));
-            if (parsedMap != null && parsedMap.get(KEY_AUDIO_TRACK_INDEX) != null)
-                builder.setAudioTrackIndex(Integer.parseInt(parsedMap.get(KEY_AUDIO_TRACK_INDEX)));
-            if (parsedMap != null && parsedMap.get(KEY_AUDIO_OUTPUT_MODE) != null)
-                builder.setAudioOutPutMode(Integer.parseInt(parsedMap.get(KEY_AUDIO_OUTPUT_MODE)));
-            if (parsedMap != null && parsedMap.get(KEY_AUDIO_COMPENSATION) != null)
-                builder.setAudioCompensation(Integer.parseInt(parsedMap.get(KEY_AUDIO_COMPENSATION)));
-            if (parsedMap != null && parsedMap.get(KEY_AUDIO_CHANNEL) != null)
-                builder.setAudioChannel(Integer.parseInt(parsedMap.get(KEY_AUDIO_CHANNEL)));
-            if (parsedMap != null && parsedMap.get(KEY_IS_FAVOURITE) != null)
-                builder.setIsFavourite(parsedMap.get(KEY_IS_FAVOURITE).equals("1") ? true : false);
-            if (parsedMap != null && parsedMap.get(KEY_FAVOURITE_INFO) != null)
-                builder.setFavouriteInfo(parsedMap.get(KEY_FAVOURITE_INFO));
-            if (parsedMap != null && parsedMap.get(KEY_TRANSPONDER_INFO) != null)
-                builder.setTransponderInfo(parsedMap.get(KEY_TRANSPONDER_INFO));
-            if (parsedMap != null && parsedMap.get(KEY_SATELLITE_INFO) != null)
-                builder.setSatelliteInfo(parsedMap.get(KEY_SATELLITE_INFO));
-            if (parsedMap != null && parsedMap.get(KEY_CHANNEL_SIGNAL_TYPE) != null)
-                builder.setChannelSignalType(parsedMap.get(KEY_CHANNEL_SIGNAL_TYPE));
-            if (parsedMap != null && parsedMap.get(KEY_CHANNEL_IS_DATA) != null)
-                builder.setIsData("true".equals(parsedMap.get(KEY_CHANNEL_IS_DATA)));
-            if (parsedMap != null && parsedMap.get(KEY_VIDEO_STD) != null)
-                builder.setVideoStd(Integer.parseInt(parsedMap.get(KEY_VIDEO_STD)));
-            if (parsedMap != null && parsedMap.get(KEY_AUDIO_STD) != null)
-                builder.setAudioStd(Integer.parseInt(parsedMap.get(KEY_AUDIO_STD)));
-            if (parsedMap != null && parsedMap.get(KEY_IS_AUTO_STD) != null)
-                builder.setIsAutoStd(Integer.parseInt(parsedMap.get(KEY_IS_AUTO_STD)));
-            if (parsedMap != null && parsedMap.get(KEY_FINE_TUNE) != null)
-                builder.setFineTune(Integer.parseInt(parsedMap.get(KEY_FINE_TUNE)));
-
-            if (parsedMap != null && parsedMap.get(KEY_SUBT_PIDS) != null) {
-                String[] str_subtPids = parsedMap.get(KEY_SUBT_PIDS).replace("[", "").replace("]", "").split(",");
-                int subtNumber = (str_subtPids[0].compareTo("null") == 0)? 0 : str_subtPids.length;
-                if (subtNumber > 0) {
-                    String[] str_subtTypes = parsedMap.get(KEY_SUBT_TYPES).replace("[", "").replace("]", "").split(",");
-                    String[] str_subtStypes = parsedMap.get(KEY_SUBT_STYPES).replace("[", "").replace("]", "").split(",");
-                    String[] str_subtId1s = parsedMap.get(KEY_SUBT_ID1S).replace("[", "").replace("]", "").split(",");
-                    String[] str_subtId2s = parsedMap.get(KEY_SUBT_ID2S).replace("[", "").replace("]", "").split(",");
-                    int[] subtTypes = new int[subtNumber];
-                    int[] subtStypes = new int[subtNumber];
-                    int[] subtPids = new int[subtNumber];
-                    int[] subtId1s = new int[subtNumber];
-                    int[] subtId2s = new int[subtNumber];
-
-
-                    for (int i=0; i < subtNumber; i++) {
-                        subtTypes[i] = Integer.parseInt(str_subtTypes[i]);
-                        subtStypes[i] = Integer.parseInt(str_subtStypes[i]);
-                        subtPids[i] = Integer.parseInt(str_subtPids[i]);
-                        subtId1s[i] = Integer.parseInt(str_subtId1s[i]);
-                        subtId2s[i] = Integer.parseInt(str_subtId2s[i]);
-                    }
-                    String[] subtLangs = DroidLogicTvUtils.TvString.fromArrayString(parsedMap.get(KEY_SUBT_LANGS));
-
-                    builder.setSubtitlePids(subtPids)
-                            .setSubtitleId1s(subtId1s)
-                            .setSubtitleId2s(subtId2s)
-                            .setSubtitleTypes(subtTypes)
-                            .setSubtitleStypes(subtStypes)
-                            .setSubtitleLangs(subtLangs);
-                }
-            }
-
-            if (parsedMap != null && parsedMap.get(KEY_SUBT_TRACK_INDEX) != null)
-                builder.setSubtitleTrackIndex(Integer.parseInt(parsedMap.get(KEY_SUBT_TRACK_INDEX)));
-
-            if (parsedMap != null && parsedMap.get(KEY_MULTI_NAME) != null)
-                builder.setDisplayNameMulti(DroidLogicTvUtils.TvString.fromString(parsedMap.get(KEY_MULTI_NAME)));
-
-            if (parsedMap != null && parsedMap.get(KEY_FREE_CA) != null)
-                builder.setFreeCa(Integer.parseInt(parsedMap.get(KEY_FREE_CA)));
-            if (parsedMap != null && parsedMap.get(KEY_SCRAMBLED) != null)
-                builder.setScrambled(Integer.parseInt(parsedMap.get(KEY_SCRAMBLED)));
-            if (parsedMap != null && parsedMap.get(KEY_SDT_VERSION) != null)
-                builder.setSdtVersion(Integer.parseInt(parsedMap.get(KEY_SDT_VERSION)));
-
-            if (parsedMap != null && parsedMap.get(KEY_MAJOR_NUM) != null)
-                builder.setMajorChannelNumber(Integer.parseInt(parsedMap.get(KEY_MAJOR_NUM)));
-            if (parsedMap != null && parsedMap.get(KEY_MINOR_NUM) != null)
-                builder.setMinorChannelNumber(Integer.parseInt(parsedMap.get(KEY_MINOR_NUM)));
-            if (parsedMap != null && parsedMap.get(KEY_SOURCE_ID) != null)
-                builder.setSourceId(Integer.parseInt(parsedMap.get(KEY_SOURCE_ID)));
-            if (parsedMap != null && parsedMap.get(KEY_ACCESS_CONTROL) != null)
-                builder.setAccessControled(Integer.parseInt(parsedMap.get(KEY_ACCESS_CONTROL)));
-            if (parsedMap != null && parsedMap.get(KEY_HIDDEN) != null)
-                builder.setHidden("true".equals(parsedMap.get(KEY_HIDDEN)) ? 1 : 0);
-            if (parsedMap != null && parsedMap.get(KEY_SET_HIDDEN) != null)
-                builder.setSetHidden(Integer.parseInt(parsedMap.get(KEY_SET_HIDDEN)));
-            if (parsedMap != null && parsedMap.get(KEY_HIDE_GUIDE) != null)
-                builder.setHideGuide(Integer.parseInt(parsedMap.get(KEY_HIDE_GUIDE)));
-            if (parsedMap != null && parsedMap.get(KEY_VCT) != null)
-                builder.setVct(parsedMap.get(KEY_VCT));
-            if (parsedMap != null && parsedMap.get(KEY_EITV) != null) {
-                String[] svs = parsedMap.get(KEY_EITV).replace("[", "").replace("]", "").split(",");
-                int vn = (svs[0].compareTo("null") == 0)? 0 : svs.length;
-                if (vn > 0) {
-                    int[] vs = new int[vn];
-                    for (int i = 0; i < vn; i++)
-                        vs[i] = Integer.parseInt(svs[i]);
-                    builder.setEitVersions(vs);
+            if (!decoded) {
+                Map<String, String> parsedMap = null;
+                if (type == Cursor.FIELD_TYPE_BLOB) {
+                    parsedMap = DroidLogicTvUtils.multiJsonToMap(value);
+                } else {
+                    parsedMap = DroidLogicTvUtils.jsonToMap(value);
                 }
+                setInternalProviderData(builder, parsedMap);
             }
-            if (parsedMap != null && parsedMap.get(KEY_PROGRAMS_IN_PAT) != null)
-                builder.setProgramsInPat(Integer.parseInt(parsedMap.get(KEY_PROGRAMS_IN_PAT)));
-            if (parsedMap != null && parsedMap.get(KEY_PAT_TS_ID) != null)
-                builder.setPatTsId(Integer.parseInt(parsedMap.get(KEY_PAT_TS_ID)));
         }
 
-        index = cursor.getColumnIndex(Channels.COLUMN_BROWSABLE);
+        index = plan.index(COL_BROWSABLE);
         if (index >= 0)
             builder.setBrowsable(cursor.getInt(index)==1 ? true : false);
 
-        index = cursor.getColumnIndex(Channels.COLUMN_LOCKED);
+        index = plan.index(COL_LOCKED);
         if (index >= 0)
             builder.setLocked(cursor.getInt(index)==1 ? true : false);
 
-        index = cursor.getColumnIndex(COLUMN_LCN);
+        index = plan.index(COL_LCN);
         if (index >= 0)
             builder.setLCN(cursor.getInt(index));
 
-        index = cursor.getColumnIndex(COLUMN_LCN1);
+        index = plan.index(COL_LCN1);
         if (index >= 0)
             builder.setLCN1(cursor.getInt(index));
 
-        index = cursor.getColumnIndex(COLUMN_LCN2);
+        index = plan.index(COL_LCN2);
         if (index >= 0)
             builder.setLCN2(cursor.getInt(index));
 
         return builder.build();
     }
 
+    private static void setInternalProviderData(Builder builder, Map<String, String> parsedMap) {
+        if (parsedMap != null && parsedMap.size() > 0 && parsedMap.get(KEY_AUDIO_PIDS) != null) {
+            String[] str_audioPids = parsedMap.get(KEY_AUDIO_PIDS).replace("[", "").replace("]", "").split(",");
+            String[] str_audioFormats = parsedMap.get(KEY_AUDIO_FORMATS).replace("[", "").replace("]", "").split(",");
+            String[] str_audioExts = parsedMap.get(KEY_AUDIO_EXTS).replace("[", "").replace("]", "").split(",");
+            int number = (str_audioPids[0].compareTo("null") == 0)? 0 : str_audioPids.length;
+            int[] audioPids = null;
+            int[] audioFormats = null;
+            int[] audioExts = null;
+            String[] audioLangs = null;
+            if (number > 0) {
+                audioPids = new int[number];
+                audioFormats = new int[number];
+                audioExts = new int[number];
+                audioLangs = new String[number];
+                for (int i=0; i < str_audioPids.length; i++) {
+                    audioPids[i] = Integer.parseInt(str_audioPids[i]);
+                    audioFormats[i] = Integer.parseInt(str_audioFormats[i]);
+                    audioExts[i] = Integer.parseInt(str_audioExts[i]);
+                }
+                audioLangs = DroidLogicTvUtils.TvString.fromArrayString(parsedMap.get(KEY_AUDIO_LANGS));
+                builder.setAudioPids(audioPids);
+                builder.setAudioFormats(audioFormats);
+                builder.setAudioExts(audioExts);
+                builder.setAudioLangs(audioLangs);
+            }
+        }else {
+            builder.setAudioPids(null);
+            builder.setAudioFormats(null);
+            builder.setAudioExts(null);
+            builder.setAudioLangs(null);
+        }
+        if (parsedMap != null && parsedMap.get(KEY_VFMT) != null)
+            builder.setVfmt(Integer.parseInt(parsedMap.get(KEY_VFMT)));
+        if (parsedMap != null && parsedMap.get(KEY_FREQUENCY) != null)
+            builder.setFrequency(Integer.parseInt(parsedMap.get(KEY_FREQUENCY)));
+        if (parsedMap != null && parsedMap.get(KEY_BAND_WIDTH) != null)
+            builder.setBandwidth(Integer.parseInt(parsedMap.get(KEY_BAND_WIDTH)));
+        if (parsedMap != null && parsedMap.get(KEY_SYMBOL_RATE) != null)
+            builder.setSymbolRate(Integer.parseInt(parsedMap.get(KEY_SYMBOL_RATE)));
+        if (parsedMap != null && parsedMap.get(KEY_MODULATION) != null)
+            builder.setModulation(Integer.parseInt(parsedMap.get(KEY_MODULATION)));
+        if (parsedMap != null && parsedMap.get(KEY_FE_PARAS) != null)
+            builder.setFEParas(parsedMap.get(KEY_FE_PARAS));
+        if (parsedMap != null && parsedMap.get(KEY_VIDEO_PID) != null)
+            builder.setVideoPid(Integer.parseInt(parsedMap.get(KEY_VIDEO_PID)));
+        if (parsedMap != null && parsedMap.get(KEY_PCR_ID) != null)
+            builder.setPcrPid(Integer.parseInt(parsedMap.get(KEY_PCR_ID)));
+        if (parsedMap != null && parsedMap.get(KEY_CONTENT_RATINGS) != null)
+            builder.setContentRatings(DroidLogicTvUtils.TvString.fromString(parsedMap.get(KEY_CONTENT_RATINGS)));
+        if (parsedMap != null && parsedMap.get(KEY_SIGNAL_TYPE) != null)
+            builder.setSignalType(DroidLogicTvUtils.TvString.fromString(parsedMap.get(KEY_SIGNAL_TYPE)));
+        if (parsedMap != null && parsedMap.get(KEY_AUDIO_TRACK_INDEX) != null)
+            builder.setAudioTrackIndex(Integer.parseInt(parsedMap.get(KEY_AUDIO_TRACK_INDEX)));
+        if (parsedMap != null && parsedMap.get(KEY_AUDIO_OUTPUT_MODE) != null)
+            builder.setAudioOutPutMode(Integer.parseInt(parsedMap.get(KEY_AUDIO_OUTPUT_MODE)));
+        if (parsedMap != null && parsedMap.get(KEY_AUDIO_COMPENSATION) != null)
+            builder.setAudioCompensation(Integer.parseInt(parsedMap.get(KEY_AUDIO_COMPENSATION)));
+        if (parsedMap != null && parsedMap.get(KEY_AUDIO_CHANNEL) != null)
+            builder.setAudioChannel(Integer.parseInt(parsedMap.get(KEY_AUDIO_CHANNEL)));
+        if (parsedMap != null && parsedMap.get(KEY_IS_FAVOURITE) != null)
+            builder.setIsFavourite(parsedMap.get(KEY_IS_FAVOURITE).equals("1") ? true : false);
+        if (parsedMap != null && parsedMap.get(KEY_FAVOURITE_INFO) != null)
+            builder.setFavouriteInfo(parsedMap.get(KEY_FAVOURITE_INFO));
+        if (parsedMap != null && parsedMap.get(KEY_TRANSPONDER_INFO) != null)
+            builder.setTransponderInfo(parsedMap.get(KEY_TRANSPONDER_INFO));
+        if (parsedMap != null && parsedMap.get(KEY_SATELLITE_INFO) != null)
+            builder.setSatelliteInfo(parsedMap.get(KEY_SATELLITE_INFO));
+        if (parsedMap != null && parsedMap.get(KEY_CHANNEL_SIGNAL_TYPE) != null)
+            builder.setChannelSignalType(parsedMap.get(KEY_CHANNEL_SIGNAL_TYPE));
+        if (parsedMap != null && parsedMap.get(KEY_CHANNEL_IS_DATA) != null)
+            builder.setIsData("true".equals(parsedMap.get(KEY_CHANNEL_IS_DATA)));
+        if (parsedMap != null && parsedMap.get(KEY_VIDEO_STD) != null)
+            builder.setVideoStd(Integer.parseInt(parsedMap.get(KEY_VIDEO_STD)));
+        if (parsedMap != null && parsedMap.get(KEY_AUDIO_STD) != null)
+            builder.setAudioStd(Integer.parseInt(parsedMap.get(KEY_AUDIO_STD)));
+        if (parsedMap != null && parsedMap.get(KEY_IS_AUTO_STD) != null)
+            builder.setIsAutoStd(Integer.parseInt(parsedMap.get(KEY_IS_AUTO_STD)));
+        if (parsedMap != null && parsedMap.get(KEY_FINE_TUNE) != null)
+            builder.setFineTune(Integer.parseInt(parsedMap.get(KEY_FINE_TUNE)));
+
+        if (parsedMap != null && parsedMap.get(KEY_SUBT_PIDS) != null) {
+            String[] str_subtPids = parsedMap.get(KEY_SUBT_PIDS).replace("[", "").replace("]", "").split(",");
+            int subtNumber = (str_subtPids[0].compareTo("null") == 0)? 0 : str_subtPids.length;
+            if (subtNumber > 0) {
+                String[] str_subtTypes = parsedMap.get(KEY_SUBT_TYPES).replace("[", "").replace("]", "").split(",");
+                String[] str_subtStypes = parsedMap.get(KEY_SUBT_STYPES).replace("[", "").replace("]", "").split(",");
+                String[] str_subtId1s = parsedMap.get(KEY_SUBT_ID1S).replace("[", "").replace("]", "").split(",");
+                String[] str_subtId2s = parsedMap.get(KEY_SUBT_ID2S).replace("[", "").replace("]", "").split(",");
+                int[] subtTypes = new int[subtNumber];
+                int[] subtStypes = new int[subtNumber];
+                int[] subtPids = new int[subtNumber];
+                int[] subtId1s = new int[subtNumber];
+                int[] subtId2s = new int[subtNumber];
+
+
+                for (int i=0; i < subtNumber; i++) {
+                    subtTypes[i] = Integer.parseInt(str_subtTypes[i]);
+                    subtStypes[i] = Integer.parseInt(str_subtStypes[i]);
+                    subtPids[i] = Integer.parseInt(str_subtPids[i]);
+                    subtId1s[i] = Integer.parseInt(str_subtId1s[i]);
+                    subtId2s[i] = Integer.parseInt(str_subtId2s[i]);
+                }
+                String[] subtLangs = DroidLogicTvUtils.TvString.fromArrayString(parsedMap.get(KEY_SUBT_LANGS));
+
+                builder.setSubtitlePids(subtPids)
+                        .setSubtitleId1s(subtId1s)
+                        .setSubtitleId2s(subtId2s)
+                        .setSubtitleTypes(subtTypes)
+                        .setSubtitleStypes(subtStypes)
+                        .setSubtitleLangs(subtLangs);
+            }
+        }
+
+        if (parsedMap != null && parsedMap.get(KEY_SUBT_TRACK_INDEX) != null)
+            builder.setSubtitleTrackIndex(Integer.parseInt(parsedMap.get(KEY_SUBT_TRACK_INDEX)));
+
+        if (parsedMap != null && parsedMap.get(KEY_MULTI_NAME) != null)
+            builder.setDisplayNameMulti(DroidLogicTvUtils.TvString.fromString(parsedMap.get(KEY_MULTI_NAME)));
+
+        if (parsedMap != null && parsedMap.get(KEY_FREE_CA) != null)
+            builder.setFreeCa(Integer.parseInt(parsedMap.get(KEY_FREE_CA)));
+        if (parsedMap != null && parsedMap.get(KEY_SCRAMBLED) != null)
+            builder.setScrambled(Integer.parseInt(parsedMap.get(KEY_SCRAMBLED)));
+        if (parsedMap != null && parsedMap.get(KEY_SDT_VERSION) != null)
+            builder.setSdtVersion(Integer.parseInt(parsedMap.get(KEY_SDT_VERSION)));
+
+        if (parsedMap != null && parsedMap.get(KEY_MAJOR_NUM) != null)
+            builder.setMajorChannelNumber(Integer.parseInt(parsedMap.get(KEY_MAJOR_NUM)));
+        if (parsedMap != null && parsedMap.get(KEY_MINOR_NUM) != null)
+            builder.setMinorChannelNumber(Integer.parseInt(parsedMap.get(KEY_MINOR_NUM)));
+        if (parsedMap != null && parsedMap.get(KEY_SOURCE_ID) != null)
+            builder.setSourceId(Integer.parseInt(parsedMap.get(KEY_SOURCE_ID)));
+        if (parsedMap != null && parsedMap.get(KEY_ACCESS_CONTROL) != null)
+            builder.setAccessControled(Integer.parseInt(parsedMap.get(KEY_ACCESS_CONTROL)));
+        if (parsedMap != null && parsedMap.get(KEY_HIDDEN) != null)
+            builder.setHidden("true".equals(parsedMap.get(KEY_HIDDEN)) ? 1 : 0);
+        if (parsedMap != null && parsedMap.get(KEY_SET_HIDDEN) != null)
+            builder.setSetHidden(Integer.parseInt(parsedMap.get(KEY_SET_HIDDEN)));
+        if (parsedMap != null && parsedMap.get(KEY_HIDE_GUIDE) != null)
+            builder.setHideGuide(Integer.parseInt(parsedMap.get(KEY_HIDE_GUIDE)));
+        if (parsedMap != null && parsedMap.get(KEY_VCT) != null)
+            builder.setVct(parsedMap.get(KEY_VCT));
+        if (parsedMap != null && parsedMap.get(KEY_EITV) != null) {
+            String[] svs = parsedMap.get(KEY_EITV).replace("[", "").replace("]", "").split(",");
+            int vn = (svs[0].compareTo("null") == 0)? 0 : svs.length;
+            if (vn > 0) {
+                int[] vs = new int[vn];
+                for (int i = 0; i < vn; i++)
+                    vs[i] = Integer.parseInt(svs[i]);
+                builder.setEitVersions(vs);
+            }
+        }
+        if (parsedMap != null && parsedMap.get(KEY_PROGRAMS_IN_PAT) != null)
+            builder.setProgramsInPat(Integer.parseInt(parsedMap.get(KEY_PROGRAMS_IN_PAT)));
+        if (parsedMap != null && parsedMap.get(KEY_PAT_TS_ID) != null)
+            builder.setPatTsId(Integer.parseInt(parsedMap.get(KEY_PAT_TS_ID)));
+    }
+
     public long getId() {
         return mId;
     }
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2014 Amlogic, Inc. All rights reserved.
+ *
+ * This source code is subject to the terms and conditions defined in the
+ * file 'LICENSE' which is part of this source code package.
+ *
+ * Description: JAVA file
+ */
+
+package com.droidlogic.app.tv;
+
+import android.database.Cursor;
+
+/**
+ * Indexes of a fixed list of columns in a cursor, looked up once for all the rows instead of
+ * with getColumnIndex for every column of every row. A column the cursor does not have is -1.
+ *
+ * Get one with ChannelInfo.getCursorPlan or Program.getCursorPlan and pass it to
+ * fromCommonCursor/fromCursor for each row.
+ */
+public final class CursorPlan {
+    private final String[] mColumns;
+    private final String[] mCursorColumns;
+    private final int[] mIndexes;
+
+    private CursorPlan(Cursor cursor, String[] cursorColumns, String[] columns) {
+        mColumns = columns;
+        mCursorColumns = cursorColumns;
+        mIndexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            mIndexes[i] = cursor.getColumnIndex(columns[i]);
+        }
+    }
+
+    /**
+     * last is given back when it was resolved for the same columns and a cursor with the same
+     * column name array, cursors keep that array for their life so the rows of a cursor share
+     * one plan even when the caller does not keep it
+     */
+    static CursorPlan resolve(CursorPlan last, Cursor cursor, String[] columns) {
+        String[] cursorColumns = cursor.getColumnNames();
+        if (last != null && last.mColumns == columns && last.mCursorColumns == cursorColumns)
+            return last;
+        return new CursorPlan(cursor, cursorColumns, columns);
+    }
+
+    boolean isFor(Cursor cursor) {
+        return mCursorColumns == cursor.getColumnNames();
+    }
+
+    int index(int column) {
+        return mIndexes[column];
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2014 Amlogic, Inc. All rights reserved.
+ *
+ * This source code is subject to the terms and conditions defined in the
+ * file 'LICENSE' which is part of this source code package.
+ *
+ * Description: JAVA file
+ */
+
+package com.droidlogic.app.tv;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentValues;
+import android.media.tv.TvContract;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Write-behind buffer for the program operations built by TvDataBaseManager.updatePrograms.
+ *
+ * Operations on the same program row (channel id, event id, start time) are merged while
+ * they are pending, and the batch asks to be flushed before its estimated parcel size gets
+ * close to the binder transaction limit or when the oldest operation has waited too long.
+ * A batch nobody adds to any more is flushed by the flush task, posted MAX_PENDING_MS after
+ * its first operation on the looper of the thread that queued it.
+ */
+public class EpgOperationBatch {
+    // binder transaction buffer is 1MB and shared by the whole process
+    public static final int MAX_BATCH_BYTES = 256 * 1024;
+    public static final int MAX_BATCH_COUNT = 200;
+    public static final long MAX_PENDING_MS = 1000;
+
+    private static final class Pending {
+        final int index;
+        final boolean insert;
+        // start time of the row in the provider, used as update selection
+        final long selectStart;
+        // start time of the row once this operation is applied
+        final long latestStart;
+        final int bytes;
+
+        Pending(int index, boolean insert, long selectStart, long latestStart, int bytes) {
+            this.index = index;
+            this.insert = insert;
+            this.selectStart = selectStart;
+            this.latestStart = latestStart;
+            this.bytes = bytes;
+        }
+    }
+
+    private final ArrayList<ContentProviderOperation> mOps = new ArrayList<>();
+    // estimated parcel size of each operation of mOps
+    private final ArrayList<Integer> mOpBytes = new ArrayList<>();
+    private final Map<String, Pending> mPending = new HashMap<>();
+    private int mBytes = 0;
+    private long mFirstPendingTime = 0;
+
+    private final Runnable mFlushTask;
+    private Handler mFlushHandler;
+
+    private long mFlushCount = 0;
+    private long mFlushedOps = 0;
+    private long mCoalescedOps = 0;
+    private long mLastFlushLatency = 0;
+    private long mMaxFlushLatency = 0;
+    private long mTotalFlushLatency = 0;
+
+    /**
+     * @param flushTask drains and applies the batch, may be null to only flush on demand
+     */
+    public EpgOperationBatch(Runnable flushTask) {
+        mFlushTask = flushTask;
+    }
+
+    public void addInsert(long channelId, Program program) {
+        put(channelId, program.getStartTimeUtcMillis(), program, true);
+    }
+
+    /**
+     * Update the row of channelId starting at selectStart with the values of program.
+     */
+    public void addUpdate(long channelId, long selectStart, Program program) {
+        put(channelId, selectStart, program, false);
+    }
+
+    private void put(long channelId, long rowStart, Program program, boolean insert) {
+        long eventId = program.getProgramId();
+        long selectStart = rowStart;
+        Pending pending = mPending.get(buildKey(channelId, eventId, rowStart));
+        if (pending != null) {
+            // same row as a pending operation, keep its kind and selection and use the latest values
+            insert = pending.insert;
+            selectStart = pending.selectStart;
+            mPending.remove(buildKey(channelId, eventId, pending.selectStart));
+            mPending.remove(buildKey(channelId, eventId, pending.latestStart));
+        }
+
+        ContentValues values = program.toContentValues();
+        ContentProviderOperation op;
+        if (insert) {
+            op = ContentProviderOperation.newInsert(TvContract.Programs.CONTENT_URI)
+                    .withValues(values)
+                    .build();
+        } else {
+            op = ContentProviderOperation.newUpdate(TvContract.Programs.CONTENT_URI)
+                    .withValues(values)
+                    .withSelection("channel_id=" + channelId + " and start_time_utc_millis=" + selectStart, null)
+                    .build();
+        }
+
+        int bytes = estimateSize(values);
+        int index;
+        if (pending != null) {
+            index = pending.index;
+            mOps.set(index, op);
+            mOpBytes.set(index, bytes);
+            mBytes += bytes - pending.bytes;
+            mCoalescedOps++;
+        } else {
+            if (mOps.isEmpty()) {
+                mFirstPendingTime = SystemClock.uptimeMillis();
+                scheduleFlush();
+            }
+            index = mOps.size();
+            mOps.add(op);
+            mOpBytes.add(bytes);
+            mBytes += bytes;
+        }
+
+        // a later lookup may use the row start still in the provider or the one after this operation
+        Pending updated = new Pending(index, insert, selectStart, program.getStartTimeUtcMillis(), bytes);
+        mPending.put(buildKey(channelId, eventId, selectStart), updated);
+        mPending.put(buildKey(channelId, eventId, updated.latestStart), updated);
+    }
+
+    public boolean isEmpty() {
+        return mOps.isEmpty();
+    }
+
+    public boolean shouldFlush() {
+        return mOps.size() > MAX_BATCH_COUNT
+            || mBytes > MAX_BATCH_BYTES
+            || (!mOps.isEmpty() && SystemClock.uptimeMillis() - mFirstPendingTime > MAX_PENDING_MS);
+    }
+
+    /**
+     * Hand the pending operations over and start a new batch. They come in chunks of at most
+     * MAX_BATCH_COUNT operations and MAX_BATCH_BYTES, one applyBatch each, as a single
+     * updatePrograms call can queue far more than that before shouldFlush is asked.
+     */
+    public ArrayList<ArrayList<ContentProviderOperation>> drain() {
+        ArrayList<ArrayList<ContentProviderOperation>> chunks = new ArrayList<>();
+        ArrayList<ContentProviderOperation> chunk = new ArrayList<>();
+        int chunkBytes = 0;
+        for (int i = 0; i < mOps.size(); i++) {
+            int bytes = mOpBytes.get(i);
+            if (!chunk.isEmpty() && (chunk.size() >= MAX_BATCH_COUNT || chunkBytes + bytes > MAX_BATCH_BYTES)) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                chunkBytes = 0;
+            }
+            chunk.add(mOps.get(i));
+            chunkBytes += bytes;
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        clear();
+        return chunks;
+    }
+
+    public void clear() {
+        mOps.clear();
+        mOpBytes.clear();
+        mPending.clear();
+        mBytes = 0;
+        mFirstPendingTime = 0;
+        cancelFlush();
+    }
+
+    private void scheduleFlush() {
+        Looper looper = Looper.myLooper();
+        if (mFlushTask == null || looper == null) {
+            // no looper to wait on, the batch goes out with the next shouldFlush or explicit flush
+            return;
+        }
+        if (mFlushHandler == null || mFlushHandler.getLooper() != looper) {
+            cancelFlush();
+            mFlushHandler = new Handler(looper);
+        }
+        mFlushHandler.postDelayed(mFlushTask, MAX_PENDING_MS);
+    }
+
+    private void cancelFlush() {
+        if (mFlushHandler != null) {
+            mFlushHandler.removeCallbacks(mFlushTask);
+        }
+    }
+
+    public void onFlushed(int count, long latencyMs) {
+        mFlushCount++;
+        mFlushedOps += count;
+        mLastFlushLatency = latencyMs;
+        mMaxFlushLatency = Math.max(mMaxFlushLatency, latencyMs);
+        mTotalFlushLatency += latencyMs;
+    }
+
+    public int getPendingCount() {
+        return mOps.size();
+    }
+
+    public int getPendingBytes() {
+        return mBytes;
+    }
+
+    public long getLastFlushLatency() {
+        return mLastFlushLatency;
+    }
+
+    public long getMaxFlushLatency() {
+        return mMaxFlushLatency;
+    }
+
+    public String dump() {
+        return "pending:" + mOps.size() + "/" + mBytes + "B"
+            + " flushes:" + mFlushCount + " ops:" + mFlushedOps
+            + " coalesced:" + mCoalescedOps
+            + " latency(last/max/avg):" + mLastFlushLatency + "/" + mMaxFlushLatency
+            + "/" + (mFlushCount == 0 ? 0 : mTotalFlushLatency / mFlushCount) + "ms";
+    }
+
+    private static String buildKey(long channelId, long eventId, long start) {
+        return channelId + ":" + eventId + ":" + start;
+    }
+
+    private static int estimateSize(ContentValues values) {
+        // rough parcel size: key and value strings are utf-16, other values 8 bytes plus type tag
+        int size = 0;
+        for (Map.Entry<String, Object> entry : values.valueSet()) {
+            size += 8 + entry.getKey().length() * 2;
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                size += ((String) value).length() * 2;
+            } else if (value instanceof byte[]) {
+                size += ((byte[]) value).length;
+            } else {
+                size += 8;
+            }
+        }
+        return size;
+    }
+}
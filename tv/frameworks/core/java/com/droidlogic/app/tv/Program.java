@@ -30,6 +30,57 @@ public final class Program implements Comparable<Program> {
     public static final long INVALID_LONG_VALUE = -1;
     public static final int INVALID_INT_VALUE = -1;
 
+    /* columns read by fromCursor, in the order of the COL_ positions below */
+    private static final String[] CURSOR_COLUMNS = {
+        TvContract.Programs._ID,
+        TvContract.Programs.COLUMN_CHANNEL_ID,
+        TvContract.Programs.COLUMN_TITLE,
+        TvContract.Programs.COLUMN_EPISODE_TITLE,
+        TvContract.Programs.COLUMN_SEASON_NUMBER,
+        TvContract.Programs.COLUMN_EPISODE_NUMBER,
+        TvContract.Programs.COLUMN_SHORT_DESCRIPTION,
+        TvContract.Programs.COLUMN_LONG_DESCRIPTION,
+        TvContract.Programs.COLUMN_POSTER_ART_URI,
+        TvContract.Programs.COLUMN_THUMBNAIL_URI,
+        TvContract.Programs.COLUMN_CANONICAL_GENRE,
+        TvContract.Programs.COLUMN_CONTENT_RATING,
+        TvContract.Programs.COLUMN_START_TIME_UTC_MILLIS,
+        TvContract.Programs.COLUMN_END_TIME_UTC_MILLIS,
+        TvContract.Programs.COLUMN_VIDEO_WIDTH,
+        TvContract.Programs.COLUMN_VIDEO_HEIGHT,
+        TvContract.Programs.COLUMN_INTERNAL_PROVIDER_DATA,
+        TvContract.Programs.COLUMN_INTERNAL_PROVIDER_FLAG1,
+        TvContract.Programs.COLUMN_INTERNAL_PROVIDER_FLAG2,
+        TvContract.Programs.COLUMN_INTERNAL_PROVIDER_FLAG4,
+        TvContract.Programs.COLUMN_VERSION_NUMBER,
+        TvContract.Programs.COLUMN_INTERNAL_PROVIDER_FLAG3
+    };
+
+    private static final int COL_ID = 0;
+    private static final int COL_CHANNEL_ID = 1;
+    private static final int COL_TITLE = 2;
+    private static final int COL_EPISODE_TITLE = 3;
+    private static final int COL_SEASON_NUMBER = 4;
+    private static final int COL_EPISODE_NUMBER = 5;
+    private static final int COL_SHORT_DESCRIPTION = 6;
+    private static final int COL_LONG_DESCRIPTION = 7;
+    private static final int COL_POSTER_ART_URI = 8;
+    private static final int COL_THUMBNAIL_URI = 9;
+    private static final int COL_CANONICAL_GENRE = 10;
+    private static final int COL_CONTENT_RATING = 11;
+    private static final int COL_START_TIME_UTC_MILLIS = 12;
+    private static final int COL_END_TIME_UTC_MILLIS = 13;
+    private static final int COL_VIDEO_WIDTH = 14;
+    private static final int COL_VIDEO_HEIGHT = 15;
+    private static final int COL_INTERNAL_PROVIDER_DATA = 16;
+    private static final int COL_INTERNAL_PROVIDER_FLAG1 = 17;
+    private static final int COL_INTERNAL_PROVIDER_FLAG2 = 18;
+    private static final int COL_INTERNAL_PROVIDER_FLAG4 = 19;
+    private static final int COL_VERSION_NUMBER = 20;
+    private static final int COL_INTERNAL_PROVIDER_FLAG3 = 21;
+
+    private static volatile CursorPlan sCursorPlan;
+
     private long mId;
     private long mChannelId;
     private int mProgramId;
@@ -390,74 +441,89 @@ public final class Program implements Comparable<Program> {
         return values;
     }
 
+    /**
+     * column indexes of cursor for fromCursor, resolve it once before walking the rows
+     */
+    public static CursorPlan getCursorPlan(Cursor cursor) {
+        CursorPlan plan = CursorPlan.resolve(sCursorPlan, cursor, CURSOR_COLUMNS);
+        sCursorPlan = plan;
+        return plan;
+    }
+
     public static Program fromCursor(Cursor cursor) {
+        return fromCursor(cursor, getCursorPlan(cursor));
+    }
+
+    public static Program fromCursor(Cursor cursor, CursorPlan plan) {
+        if (plan == null || !plan.isFor(cursor))
+            plan = getCursorPlan(cursor);
         Builder builder = new Builder();
-        int index = cursor.getColumnIndex(TvContract.Programs._ID);
+        int index = plan.index(COL_ID);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setId(cursor.getLong(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_CHANNEL_ID);
+        index = plan.index(COL_CHANNEL_ID);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setChannelId(cursor.getLong(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_TITLE);
+        index = plan.index(COL_TITLE);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setTitle(cursor.getString(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_EPISODE_TITLE);
+        index = plan.index(COL_EPISODE_TITLE);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setEpisodeTitle(cursor.getString(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_SEASON_NUMBER);
+        index = plan.index(COL_SEASON_NUMBER);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setSeasonNumber(cursor.getInt(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_EPISODE_NUMBER);
+        index = plan.index(COL_EPISODE_NUMBER);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setEpisodeNumber(cursor.getInt(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_SHORT_DESCRIPTION);
+        index = plan.index(COL_SHORT_DESCRIPTION);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setDescription(cursor.getString(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_LONG_DESCRIPTION);
+        index = plan.index(COL_LONG_DESCRIPTION);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setLongDescription(cursor.getString(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_POSTER_ART_URI);
+        index = plan.index(COL_POSTER_ART_URI);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setPosterArtUri(cursor.getString(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_THUMBNAIL_URI);
+        index = plan.index(COL_THUMBNAIL_URI);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setThumbnailUri(cursor.getString(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_CANONICAL_GENRE);
+        index = plan.index(COL_CANONICAL_GENRE);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setCanonicalGenres(TvContract.Programs.Genres.decode(cursor.getString(index)));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_CONTENT_RATING);
+        index = plan.index(COL_CONTENT_RATING);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setContentRatings(stringToContentRatings(cursor.getString(
                     index)));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_START_TIME_UTC_MILLIS);
+        index = plan.index(COL_START_TIME_UTC_MILLIS);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setStartTimeUtcMillis(cursor.getLong(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_END_TIME_UTC_MILLIS);
+        index = plan.index(COL_END_TIME_UTC_MILLIS);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setEndTimeUtcMillis(cursor.getLong(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_VIDEO_WIDTH);
+        index = plan.index(COL_VIDEO_WIDTH);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setVideoWidth((int) cursor.getLong(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_VIDEO_HEIGHT);
+        index = plan.index(COL_VIDEO_HEIGHT);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setVideoHeight((int) cursor.getLong(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_INTERNAL_PROVIDER_DATA);
+        index = plan.index(COL_INTERNAL_PROVIDER_DATA);
         if (index >= 0 && !cursor.isNull(index)) {
             String strValue = null;
             if (cursor.getType(index) == Cursor.FIELD_TYPE_STRING) {
@@ -479,23 +545,23 @@ public final class Program implements Comparable<Program> {
             }
             builder.setInternalProviderData(strValue);
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_INTERNAL_PROVIDER_FLAG1);
+        index = plan.index(COL_INTERNAL_PROVIDER_FLAG1);
         if (index >= 0) {
             builder.setIsAppointed(cursor.getInt(index) == 1 ? true : false);
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_INTERNAL_PROVIDER_FLAG2);
+        index = plan.index(COL_INTERNAL_PROVIDER_FLAG2);
         if (index >= 0) {
             builder.setProgramId(cursor.getInt(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_INTERNAL_PROVIDER_FLAG4);
+        index = plan.index(COL_INTERNAL_PROVIDER_FLAG4);
         if (index >= 0) {
             builder.setScheduledRecordStatus(cursor.getInt(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_VERSION_NUMBER);
+        index = plan.index(COL_VERSION_NUMBER);
         if (index >= 0 && !cursor.isNull(index)) {
             builder.setVersion(cursor.getString(index));
         }
-        index = cursor.getColumnIndex(TvContract.Programs.COLUMN_INTERNAL_PROVIDER_FLAG3);
+        index = plan.index(COL_INTERNAL_PROVIDER_FLAG3);
         if (index >=0 && !cursor.isNull(index)) {
             builder.setEitExt(cursor.getString(index));
         }
@@ -20,6 +20,7 @@ import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -175,6 +176,10 @@ public class TvControlManager {
 
     private long mNativeContext; // accessed by native methods
     private EventHandler mEventHandler;
+    //HAL callbacks waiting for mEventHandler, control events go before scan and data ones
+    private final TvEventLanes mEventLanes = new TvEventLanes();
+    private static final int MSG_DISPATCH_LANES = 0;
+    private static final int MAX_EVENTS_PER_DISPATCH = 8;
     private TvInSignalInfo.SigInfoChangeListener mSigInfoChangeLister = null;
     private TvInSignalInfo.SigChannelSearchListener mSigChanSearchListener = null;
     private Status3DChangeListener mStatus3DChangeListener = null;
@@ -189,6 +194,9 @@ public class TvControlManager {
     private SubtitleUpdateListener mSubtitleListener = null;
     private ScannerEventListener mScannerListener = null;
     private StorDBEventListener mStorDBListener = null;
+    private static final int SCANNER_EVENT_POOL_SIZE = 8;
+    private final ArrayDeque<ScannerEvent> mScannerEventPool = new ArrayDeque<ScannerEvent>();
+    private volatile boolean mScannerEventRecycling = false;
     private ScanningFrameStableListener mScanningFrameStableListener = null;
     private VframBMPEventListener mVframBMPListener = null;
     private EpgEventListener mEpgListener = null;
@@ -329,110 +337,158 @@ public class TvControlManager {
             msgPdu = new int[1200];
         }
 
+        //body of the scan event being decoded, grown to the largest event seen
+        private int scanBody[] = new int[128];
+
+        private int[] intArray(int[] old, int count, boolean reuse) {
+            return (reuse && old != null && old.length >= count) ? old : new int[count];
+        }
+
+        private String[] stringArray(String[] old, int count, boolean reuse) {
+            return (reuse && old != null && old.length >= count) ? old : new String[count];
+        }
+
         private void readScanEvent(ScannerEvent scan_ev, TvHidlParcel p) {
             int i, j;
-            scan_ev.type = p.bodyInt.get(0);
+            int size = p.bodyInt.size();
+            if (scanBody.length < size)
+                scanBody = new int[Math.max(size, scanBody.length * 2)];
+            int[] b = scanBody;
+            for (i = 0; i < size; i++)
+                b[i] = p.bodyInt.get(i);
+            //a recycled event refills its own arrays unless a listener took them
+            boolean reuse = scan_ev.isRecyclable() && !scan_ev.takeArraysDetached();
+
+            scan_ev.type = b[0];
             Log.d(TAG, "scan ev type:"+ scan_ev.type);
 
-            scan_ev.precent = p.bodyInt.get(1);
-            scan_ev.totalcount = p.bodyInt.get(2);
-            scan_ev.lock = p.bodyInt.get(3);
-            scan_ev.cnum = p.bodyInt.get(4);
-            scan_ev.freq = p.bodyInt.get(5);
+            scan_ev.precent = b[1];
+            scan_ev.totalcount = b[2];
+            scan_ev.lock = b[3];
+            scan_ev.cnum = b[4];
+            scan_ev.freq = b[5];
             scan_ev.programName = p.bodyString.get(0);
-            scan_ev.srvType = p.bodyInt.get(6);
+            scan_ev.srvType = b[6];
             scan_ev.paras = p.bodyString.get(1);
-            scan_ev.strength = p.bodyInt.get(7);
-            scan_ev.quality = p.bodyInt.get(8);
-            scan_ev.videoStd = p.bodyInt.get(9);
-            scan_ev.audioStd = p.bodyInt.get(10);
-            scan_ev.isAutoStd = p.bodyInt.get(11);
-
-            scan_ev.mode = p.bodyInt.get(12);
-            scan_ev.sr = p.bodyInt.get(13);
-            scan_ev.mod = p.bodyInt.get(14);
-            scan_ev.bandwidth = p.bodyInt.get(15);
-            scan_ev.reserved = p.bodyInt.get(16);
-            scan_ev.ts_id = p.bodyInt.get(17);
-            scan_ev.orig_net_id = p.bodyInt.get(18);
-            scan_ev.serviceID = p.bodyInt.get(19);
-            scan_ev.vid = p.bodyInt.get(20);
-            scan_ev.vfmt = p.bodyInt.get(21);
-            int acnt = p.bodyInt.get(22);
+            scan_ev.strength = b[7];
+            scan_ev.quality = b[8];
+            scan_ev.videoStd = b[9];
+            scan_ev.audioStd = b[10];
+            scan_ev.isAutoStd = b[11];
+
+            scan_ev.mode = b[12];
+            scan_ev.sr = b[13];
+            scan_ev.mod = b[14];
+            scan_ev.bandwidth = b[15];
+            scan_ev.reserved = b[16];
+            scan_ev.ts_id = b[17];
+            scan_ev.orig_net_id = b[18];
+            scan_ev.serviceID = b[19];
+            scan_ev.vid = b[20];
+            scan_ev.vfmt = b[21];
+            int acnt = b[22];
+            scan_ev.audioCount = acnt;
             if (acnt != 0) {
-                scan_ev.aids = new int[acnt];
-                for (i=0;i<acnt;i++)
-                    scan_ev.aids[i] = p.bodyInt.get(i+23);
-                scan_ev.afmts = new int[acnt];
-                for (i=0;i<acnt;i++)
-                    scan_ev.afmts[i] = p.bodyInt.get(i+acnt+23);
-                scan_ev.alangs = new String[acnt];
+                scan_ev.aids = intArray(scan_ev.aids, acnt, reuse);
+                System.arraycopy(b, 23, scan_ev.aids, 0, acnt);
+                scan_ev.afmts = intArray(scan_ev.afmts, acnt, reuse);
+                System.arraycopy(b, acnt+23, scan_ev.afmts, 0, acnt);
+                scan_ev.alangs = stringArray(scan_ev.alangs, acnt, reuse);
                 for (i=0;i<acnt;i++)
                     scan_ev.alangs[i] = p.bodyString.get(i+2);
-                scan_ev.atypes = new int[acnt];
-                for (i=0;i<acnt;i++)
-                    scan_ev.atypes[i] = p.bodyInt.get(i+2*acnt+23);
-                scan_ev.aexts = new int[acnt];
-                for (i=0;i<acnt;i++)
-                    scan_ev.aexts[i] = p.bodyInt.get(i+3*acnt+23);
+                scan_ev.atypes = intArray(scan_ev.atypes, acnt, reuse);
+                System.arraycopy(b, 2*acnt+23, scan_ev.atypes, 0, acnt);
+                scan_ev.aexts = intArray(scan_ev.aexts, acnt, reuse);
+                System.arraycopy(b, 3*acnt+23, scan_ev.aexts, 0, acnt);
+            } else {
+                //no stale arrays of an earlier event on one without audio
+                scan_ev.aids = null;
+                scan_ev.afmts = null;
+                scan_ev.alangs = null;
+                scan_ev.atypes = null;
+                scan_ev.aexts = null;
             }
-            scan_ev.pcr = p.bodyInt.get(4*acnt+23);
-            int scnt = p.bodyInt.get(4*acnt+24);
+            scan_ev.pcr = b[4*acnt+23];
+            int scnt = b[4*acnt+24];
+            scan_ev.subtitleCount = scnt;
             if (scnt != 0) {
-                scan_ev.stypes = new int[scnt];
-                for (i=0;i<scnt;i++)
-                    scan_ev.stypes[i] = p.bodyInt.get(i+4*acnt+25);
-                scan_ev.sids = new int[scnt];
-                for (i=0;i<scnt;i++)
-                    scan_ev.sids[i] = p.bodyInt.get(i+scnt+4*acnt+25);
-                scan_ev.sstypes = new int[scnt];
-                for (i=0;i<scnt;i++)
-                    scan_ev.sstypes[i] = p.bodyInt.get(i+2*scnt+4*acnt+25);
-                scan_ev.sid1s = new int[scnt];
-                for (i=0;i<scnt;i++)
-                    scan_ev.sid1s[i] = p.bodyInt.get(i+3*scnt+4*acnt+25);
-                scan_ev.sid2s = new int[scnt];
-                for (i=0;i<scnt;i++)
-                    scan_ev.sid2s[i] = p.bodyInt.get(i+4*scnt+4*acnt+25);
-                scan_ev.slangs = new String[scnt];
+                scan_ev.stypes = intArray(scan_ev.stypes, scnt, reuse);
+                System.arraycopy(b, 4*acnt+25, scan_ev.stypes, 0, scnt);
+                scan_ev.sids = intArray(scan_ev.sids, scnt, reuse);
+                System.arraycopy(b, scnt+4*acnt+25, scan_ev.sids, 0, scnt);
+                scan_ev.sstypes = intArray(scan_ev.sstypes, scnt, reuse);
+                System.arraycopy(b, 2*scnt+4*acnt+25, scan_ev.sstypes, 0, scnt);
+                scan_ev.sid1s = intArray(scan_ev.sid1s, scnt, reuse);
+                System.arraycopy(b, 3*scnt+4*acnt+25, scan_ev.sid1s, 0, scnt);
+                scan_ev.sid2s = intArray(scan_ev.sid2s, scnt, reuse);
+                System.arraycopy(b, 4*scnt+4*acnt+25, scan_ev.sid2s, 0, scnt);
+                scan_ev.slangs = stringArray(scan_ev.slangs, scnt, reuse);
                 for (i=0;i<scnt;i++)
                     scan_ev.slangs[i] = p.bodyString.get(i+acnt+2);
+            } else {
+                scan_ev.stypes = null;
+                scan_ev.sids = null;
+                scan_ev.sstypes = null;
+                scan_ev.sid1s = null;
+                scan_ev.sid2s = null;
+                scan_ev.slangs = null;
             }
-            scan_ev.free_ca = p.bodyInt.get(5*scnt+4*acnt+25);
-            scan_ev.scrambled = p.bodyInt.get(5*scnt+4*acnt+26);
-            scan_ev.scan_mode = p.bodyInt.get(5*scnt+4*acnt+27);
-            scan_ev.sdtVersion = p.bodyInt.get(5*scnt+4*acnt+28);
-            scan_ev.sort_mode = p.bodyInt.get(5*scnt+4*acnt+29);
-
-            scan_ev.lcnInfo = new ScannerLcnInfo();
-            scan_ev.lcnInfo.netId = p.bodyInt.get(5*scnt+4*acnt+30);
-            scan_ev.lcnInfo.tsId = p.bodyInt.get(5*scnt+4*acnt+31);
-            scan_ev.lcnInfo.serviceId = p.bodyInt.get(5*scnt+4*acnt+32);
-            scan_ev.lcnInfo.visible = new int[4];
-            scan_ev.lcnInfo.lcn = new int[4];
-            scan_ev.lcnInfo.valid = new int[4];
+            int base = 5*scnt+4*acnt;
+            scan_ev.free_ca = b[base+25];
+            scan_ev.scrambled = b[base+26];
+            scan_ev.scan_mode = b[base+27];
+            scan_ev.sdtVersion = b[base+28];
+            scan_ev.sort_mode = b[base+29];
+
+            if (!reuse || scan_ev.lcnInfo == null) {
+                scan_ev.lcnInfo = new ScannerLcnInfo();
+                scan_ev.lcnInfo.visible = new int[4];
+                scan_ev.lcnInfo.lcn = new int[4];
+                scan_ev.lcnInfo.valid = new int[4];
+            }
+            scan_ev.lcnInfo.netId = b[base+30];
+            scan_ev.lcnInfo.tsId = b[base+31];
+            scan_ev.lcnInfo.serviceId = b[base+32];
             for (j=0; j<4; j++) {
-                scan_ev.lcnInfo.visible[j] = p.bodyInt.get(j*3+5*scnt+4*acnt+33);
-                scan_ev.lcnInfo.lcn[j] = p.bodyInt.get(j*3+5*scnt+4*acnt+34);
-                scan_ev.lcnInfo.valid[j] = p.bodyInt.get(j*3+5*scnt+4*acnt+35);
+                scan_ev.lcnInfo.visible[j] = b[j*3+base+33];
+                scan_ev.lcnInfo.lcn[j] = b[j*3+base+34];
+                scan_ev.lcnInfo.valid[j] = b[j*3+base+35];
             }
-            scan_ev.majorChannelNumber = p.bodyInt.get(4*3+5*scnt+4*acnt+33);
-            scan_ev.minorChannelNumber = p.bodyInt.get(4*3+5*scnt+4*acnt+34);
-            scan_ev.sourceId = p.bodyInt.get(4*3+5*scnt+4*acnt+35);
-            scan_ev.accessControlled = p.bodyInt.get(4*3+5*scnt+4*acnt+36);
-            scan_ev.hidden = p.bodyInt.get(4*3+5*scnt+4*acnt+37);
-            scan_ev.hideGuide = p.bodyInt.get(4*3+5*scnt+4*acnt+38);
+            scan_ev.majorChannelNumber = b[4*3+base+33];
+            scan_ev.minorChannelNumber = b[4*3+base+34];
+            scan_ev.sourceId = b[4*3+base+35];
+            scan_ev.accessControlled = b[4*3+base+36];
+            scan_ev.hidden = b[4*3+base+37];
+            scan_ev.hideGuide = b[4*3+base+38];
             scan_ev.vct = p.bodyString.get(scnt+acnt+2);
-            scan_ev.programs_in_pat = p.bodyInt.get(4*3+5*scnt+4*acnt+39);
-            scan_ev.pat_ts_id = p.bodyInt.get(4*3+5*scnt+4*acnt+40);
+            scan_ev.programs_in_pat = b[4*3+base+39];
+            scan_ev.pat_ts_id = b[4*3+base+40];
         }
 
         @Override
         public void handleMessage(Message msg) {
+            if (msg.what == MSG_DISPATCH_LANES) {
+                dispatchLanes();
+            } else {
+                handleEvent(msg.what, (TvHidlParcel) msg.obj);
+            }
+        }
+
+        //dispatch a few queued callbacks, then give the other messages of the looper a turn
+        private void dispatchLanes() {
+            for (int n = 0; n < MAX_EVENTS_PER_DISPATCH; n++) {
+                TvEventLanes.Event event = mEventLanes.poll();
+                if (event == null)
+                    return;
+                handleEvent(event.type, event.parcel);
+            }
+            sendEmptyMessage(MSG_DISPATCH_LANES);
+        }
+
+        private void handleEvent(int what, TvHidlParcel parcel) {
             int i = 0, loop_count = 0, tmp_val = 0;
 
-            TvHidlParcel parcel = ((TvHidlParcel) (msg.obj));
-            switch (msg.what) {
+            switch (what) {
                 case DTV_AV_PLAYBACK_CALLBACK:
                     if (mAVPlaybackListener != null) {
                         int msgType= parcel.bodyInt.get(0);
@@ -459,12 +515,13 @@ public class TvControlManager {
                     break;
 
                 case SCAN_EVENT_CALLBACK:
-                    ScannerEvent scan_ev = new ScannerEvent();
+                    ScannerEvent scan_ev = mScannerEventRecycling ? obtainScannerEvent() : new ScannerEvent();
                     readScanEvent(scan_ev, parcel);
                     if (mScannerListener != null)
                         mScannerListener.onEvent(scan_ev);
                     if (mStorDBListener != null)
                         mStorDBListener.StorDBonEvent(scan_ev);
+                    scan_ev.recycle();
                     break;
 
                 case RRT_EVENT_CALLBACK:
@@ -657,12 +714,23 @@ public class TvControlManager {
                     }
                     break;
                  default:
-                     Log.e(TAG, "Unknown message type " + msg.what);
+                     Log.e(TAG, "Unknown message type " + what);
                      break;
             }
         }
     }
 
+    /**
+     * pending callbacks of each dispatch lane and how long each callback type waited for the looper
+     */
+    public String dumpEventDispatch() {
+        return mEventLanes.dump();
+    }
+
+    public void resetEventDispatchStats() {
+        mEventLanes.resetStats();
+    }
+
     public static TvControlManager getInstance() {
         if (null == mInstance) mInstance = new TvControlManager();
         return mInstance;
@@ -992,8 +1060,8 @@ public class TvControlManager {
             Log.i(TAG, "notifyCallback msg type:" + parcel.msgType);
 
             if (tvCtrlMgr.mEventHandler != null) {
-                Message msg = tvCtrlMgr.mEventHandler.obtainMessage(parcel.msgType, 0, 0, parcel);
-                tvCtrlMgr.mEventHandler.sendMessage(msg);
+                if (tvCtrlMgr.mEventLanes.offer(parcel.msgType, parcel))
+                    tvCtrlMgr.mEventHandler.sendEmptyMessage(MSG_DISPATCH_LANES);
             }
         }
     }
@@ -4378,6 +4446,40 @@ public class TvControlManager {
             Log.i(TAG,"setStorDBListener null");
     }
 
+    /**
+     * Reuse ScannerEvent objects and their arrays across scan callbacks instead of
+     * allocating new ones for every event. Listeners that keep an event after the
+     * callback must retain and recycle it, and detach its arrays before keeping them.
+     */
+    public void setScannerEventRecycling(boolean enable) {
+        mScannerEventRecycling = enable;
+        if (!enable) {
+            synchronized (mScannerEventPool) {
+                mScannerEventPool.clear();
+            }
+        }
+    }
+
+    private ScannerEvent obtainScannerEvent() {
+        ScannerEvent ev;
+        synchronized (mScannerEventPool) {
+            ev = mScannerEventPool.pollFirst();
+        }
+        if (ev == null)
+            ev = new ScannerEvent(true);
+        ev.reset();
+        return ev;
+    }
+
+    private void releaseScannerEvent(ScannerEvent ev) {
+        if (!mScannerEventRecycling)
+            return;
+        synchronized (mScannerEventPool) {
+            if (mScannerEventPool.size() < SCANNER_EVENT_POOL_SIZE)
+                mScannerEventPool.addFirst(ev);
+        }
+    }
+
     public void setScanningFrameStableListener(ScanningFrameStableListener l) {
         libtv_log_open();
         mScanningFrameStableListener = l;
@@ -4460,6 +4562,99 @@ public class TvControlManager {
         public String vct;
         public int programs_in_pat;
         public int pat_ts_id;
+
+        //number of valid entries in the audio and subtitle arrays
+        public int audioCount;
+        public int subtitleCount;
+
+        private final boolean mRecyclable;
+        private int mRefCount;
+        private boolean mArraysDetached;
+
+        public ScannerEvent() {
+            this(false);
+        }
+
+        private ScannerEvent(boolean recyclable) {
+            mRecyclable = recyclable;
+        }
+
+        /**
+         * true if the event comes from the pool, see setScannerEventRecycling.
+         * Its arrays may then be longer than audioCount/subtitleCount.
+         */
+        public boolean isRecyclable() {
+            return mRecyclable;
+        }
+
+        /**
+         * keep the event past the listener callback, call recycle when done with it
+         */
+        public synchronized void retain() {
+            if (mRecyclable)
+                mRefCount++;
+        }
+
+        /**
+         * release a reference taken by retain, the event goes back to the pool with the last one
+         */
+        public void recycle() {
+            if (!mRecyclable)
+                return;
+            synchronized (this) {
+                if (mRefCount <= 0) {
+                    Log.w(TAG, "ScannerEvent recycled too often");
+                    return;
+                }
+                if (--mRefCount > 0)
+                    return;
+            }
+            releaseScannerEvent(this);
+        }
+
+        /**
+         * hand the arrays and lcnInfo of the event over to the caller, trimmed to
+         * audioCount/subtitleCount, the event gets new ones when it is reused
+         */
+        public synchronized ScannerEvent detachArrays() {
+            if (!mRecyclable || mArraysDetached)
+                return this;
+            aids = trimArray(aids, audioCount);
+            afmts = trimArray(afmts, audioCount);
+            alangs = trimArray(alangs, audioCount);
+            atypes = trimArray(atypes, audioCount);
+            aexts = trimArray(aexts, audioCount);
+            stypes = trimArray(stypes, subtitleCount);
+            sids = trimArray(sids, subtitleCount);
+            sstypes = trimArray(sstypes, subtitleCount);
+            sid1s = trimArray(sid1s, subtitleCount);
+            sid2s = trimArray(sid2s, subtitleCount);
+            slangs = trimArray(slangs, subtitleCount);
+            mArraysDetached = true;
+            return this;
+        }
+
+        private synchronized boolean takeArraysDetached() {
+            boolean detached = mArraysDetached;
+            mArraysDetached = false;
+            return detached;
+        }
+
+        private synchronized void reset() {
+            mRefCount = 1;
+        }
+    }
+
+    private static int[] trimArray(int[] array, int count) {
+        if (array == null || count <= 0)
+            return null;
+        return (array.length == count) ? array : Arrays.copyOf(array, count);
+    }
+
+    private static String[] trimArray(String[] array, int count) {
+        if (array == null || count <= 0)
+            return null;
+        return (array.length == count) ? array : Arrays.copyOf(array, count);
     }
 
     public class ScannerLcnInfo {
@@ -12,6 +12,8 @@ package com.droidlogic.app.tv;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentUris;
 import android.content.OperationApplicationException;
 import android.content.Context;
 import android.database.Cursor;
@@ -25,6 +27,7 @@ import android.os.AsyncTask;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
 import android.os.RemoteException;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 import android.util.LongSparseArray;
@@ -43,9 +46,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Objects;
 import java.util.Iterator;
+import java.util.TreeMap;
 
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import com.droidlogic.app.tv.DroidLogicTvUtils.*;
@@ -78,12 +84,56 @@ public class TvDataBaseManager {
 
     private Context mContext;
     private ContentResolver mContentResolver;
+    // channel identity index kept while a store pass is open, see openChannelIdIndex
+    private volatile ChannelIdIndex mChannelIdIndex = null;
 
     public TvDataBaseManager (Context context) {
         mContext = context;
         mContentResolver = mContext.getContentResolver();
     }
 
+    /**
+     * Keep an index of the channels of inputId until closeChannelIdIndex, so queryChannelIdInDb
+     * and updateOrinsertChannelInList do not query and parse every channel row for each lookup.
+     * The index is loaded on first lookup and follows the channel writes done through this manager.
+     */
+    public void openChannelIdIndex(String inputId) {
+        mChannelIdIndex = new ChannelIdIndex(inputId);
+    }
+
+    public void closeChannelIdIndex() {
+        mChannelIdIndex = null;
+    }
+
+    private ChannelIdIndex getChannelIdIndex(String inputId) {
+        ChannelIdIndex index = mChannelIdIndex;
+        if (index != null && TextUtils.equals(index.getInputId(), inputId)) {
+            return index;
+        }
+        return null;
+    }
+
+    private void indexChannel(Uri uri, ChannelInfo channel) {
+        ChannelIdIndex index = getChannelIdIndex(channel.getInputId());
+        if (index != null && uri != null) {
+            index.put(ContentUris.parseId(uri), channel);
+        }
+    }
+
+    private void unindexChannel(String inputId, long id) {
+        ChannelIdIndex index = getChannelIdIndex(inputId);
+        if (index != null) {
+            index.remove(id);
+        }
+    }
+
+    private void invalidateChannelIdIndex() {
+        ChannelIdIndex index = mChannelIdIndex;
+        if (index != null) {
+            index.invalidate();
+        }
+    }
+
     public void deleteChannels(String inputId) {
         deleteChannels(inputId, null);
     }
@@ -98,6 +148,7 @@ public class TvDataBaseManager {
         } catch (Exception e) {
             e.printStackTrace();
         }
+        invalidateChannelIdIndex();
     }
 
     public void deleteChannels(String inputId, int frequency) {
@@ -134,6 +185,7 @@ public class TvDataBaseManager {
         } catch (Exception e) {
             e.printStackTrace();
         }
+        invalidateChannelIdIndex();
     }
 
     public void deleteOtherTypeAtvOrDtvChannels(String type, boolean isatv) {
@@ -173,6 +225,7 @@ public class TvDataBaseManager {
         } catch (Exception e) {
             e.printStackTrace();
         }
+        invalidateChannelIdIndex();
     }
 
     public boolean updateSingleColumn(long id, String columnKey, Object value) {
@@ -251,60 +304,8 @@ public class TvDataBaseManager {
                 if (DEBUG) {
                     Log.d(TAG, "updateSingleChannelInternalProviderData before = " + jsonObject.toString());
                 }
-                String flagKey = getFavOrHiddenSetFlagKey(key);
-                if (jsonObject.has(key)) {
-                    if (flagKey != null) {
-                        jsonObject.put(flagKey, String.valueOf(1));
-                    }
-                    jsonObject.put(key, value);
-                    ret = true;
-                } else {
-                    Iterator it = jsonObject.keys();
-                    while (it.hasNext()) {
-                        String k = (String)it.next();
-                        String v;
-                        //String childStr = jsonObject.get(k).toString();
-                        //JSONObject childJsonObject = new JSONObject(childStr);
-                        JSONObject childJsonObject = null;
-                        Object childObject = jsonObject.get(k);
-                        if (childObject instanceof JSONObject) {
-                            childJsonObject = (JSONObject)childObject;
-                        }
-                        if (childJsonObject != null && childJsonObject.length() > 0 && childJsonObject.has(key)) {
-                            if (flagKey != null) {
-                                childJsonObject.put(flagKey, String.valueOf(1));
-                            }
-                            childJsonObject.put(key, value);
-                            jsonObject.put(k, childJsonObject);
-                            ret = true;
-                            break;
-                        }
-                    }
-                }
-                if (!ret) {
-                    JSONObject customObj = null;
-                    if (jsonObject.has(ChannelInfo.KEY_OTHER_CUSTOM)) {
-                        customObj = jsonObject.getJSONObject(ChannelInfo.KEY_OTHER_CUSTOM);
-                    }
-                    if (customObj != null) {//add for other type channel
-                        if (flagKey != null) {
-                            customObj.put(flagKey, String.valueOf(1));
-                        }
-                        customObj.put(key, value);
-                        jsonObject.put(ChannelInfo.KEY_OTHER_CUSTOM, customObj);
-                        addInCustomed = true;
-                    } else {
-                        //JSONObject creatObj = new JSONObject();
-                        if (flagKey != null) {
-                            jsonObject.put(flagKey, String.valueOf(1));
-                        }
-                        //creatObj.put(key, value);
-                        //jsonObject.put(ChannelInfo.KEY_OTHER_CUSTOM, creatObj);
-                        jsonObject.put(key, value);
-
-                    }
-                    ret = true;
-                }
+                addInCustomed = putInternalProviderValue(jsonObject, key, value);
+                ret = true;
                 if (DEBUG) {
                     Log.d(TAG, "updateSingleChannelInternalProviderData after = " + jsonObject.toString());
                 }
@@ -335,6 +336,198 @@ public class TvDataBaseManager {
         return ret;
     }
 
+    /**
+     * puts key where updateSingleChannelInternalProviderData has always put it, top level or
+     * the child object that has it, else the custom object or top level
+     * @return true if it went into the custom object
+     */
+    private boolean putInternalProviderValue(JSONObject jsonObject, String key, String value) throws JSONException {
+        String flagKey = getFavOrHiddenSetFlagKey(key);
+        if (jsonObject.has(key)) {
+            if (flagKey != null) {
+                jsonObject.put(flagKey, String.valueOf(1));
+            }
+            jsonObject.put(key, value);
+            return false;
+        }
+        Iterator it = jsonObject.keys();
+        while (it.hasNext()) {
+            String k = (String)it.next();
+            JSONObject childJsonObject = null;
+            Object childObject = jsonObject.get(k);
+            if (childObject instanceof JSONObject) {
+                childJsonObject = (JSONObject)childObject;
+            }
+            if (childJsonObject != null && childJsonObject.length() > 0 && childJsonObject.has(key)) {
+                if (flagKey != null) {
+                    childJsonObject.put(flagKey, String.valueOf(1));
+                }
+                childJsonObject.put(key, value);
+                jsonObject.put(k, childJsonObject);
+                return false;
+            }
+        }
+        JSONObject customObj = null;
+        if (jsonObject.has(ChannelInfo.KEY_OTHER_CUSTOM)) {
+            customObj = jsonObject.getJSONObject(ChannelInfo.KEY_OTHER_CUSTOM);
+        }
+        if (customObj != null) {//add for other type channel
+            if (flagKey != null) {
+                customObj.put(flagKey, String.valueOf(1));
+            }
+            customObj.put(key, value);
+            jsonObject.put(ChannelInfo.KEY_OTHER_CUSTOM, customObj);
+            return true;
+        }
+        if (flagKey != null) {
+            jsonObject.put(flagKey, String.valueOf(1));
+        }
+        jsonObject.put(key, value);
+        return false;
+    }
+
+    /**
+     * value of key looked up as putInternalProviderValue finds it, null if it is not set
+     */
+    private static String getInternalProviderValue(JSONObject jsonObject, String key) throws JSONException {
+        if (jsonObject.has(key)) {
+            return jsonObject.isNull(key) ? null : jsonObject.get(key).toString();
+        }
+        Iterator it = jsonObject.keys();
+        while (it.hasNext()) {
+            Object childObject = jsonObject.get((String)it.next());
+            if (childObject instanceof JSONObject && ((JSONObject)childObject).has(key)) {
+                JSONObject childJsonObject = (JSONObject)childObject;
+                return childJsonObject.isNull(key) ? null : childJsonObject.get(key).toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * New value of one internal provider data key of a channel, for updateChannelsInternalProviderData.
+     */
+    public interface InternalProviderDataTransform {
+        /**
+         * @param value current value, null if the channel does not have the key
+         * @return the value to store, null to leave the channel as it is
+         */
+        String transform(long id, String value);
+    }
+
+    /**
+     * Rewrites key in the internal provider data of many channels with one query and batched
+     * updates, instead of a query, a parse and an update per channel with
+     * updateSingleChannelInternalProviderData. The value goes where that method puts it.
+     * The updates are applied in chunks small enough for one binder transaction. When a chunk
+     * fails the channels not yet updated are read again and tried once more, so transform may
+     * see a channel twice and must return the same value for a value it produced itself.
+     * @param inputId channels of this input, all inputs if null
+     * @param ids channels to look at, all channels of the input if null
+     * @return the number of channels updated, -1 if the channels could not be read or the
+     *         update failed, in which case the channels of the chunks applied before stay updated
+     */
+    public int updateChannelsInternalProviderData(String inputId, Collection<Long> ids, String key,
+            InternalProviderDataTransform transform) {
+        return updateChannelsInternalProviderData(inputId, ids, key, transform, true);
+    }
+
+    private int updateChannelsInternalProviderData(String inputId, Collection<Long> ids, String key,
+            InternalProviderDataTransform transform, boolean retry) {
+        if (TextUtils.isEmpty(key) || transform == null || (ids != null && ids.isEmpty())) {
+            return 0;
+        }
+        Uri channelsUri = inputId != null ? TvContract.buildChannelsUriForInput(inputId) : Channels.CONTENT_URI;
+        String[] projection = {Channels._ID, Channels.COLUMN_INTERNAL_PROVIDER_DATA};
+        String selection = null;
+        if (ids != null) {
+            StringBuilder sb = new StringBuilder(Channels._ID).append(" IN (");
+            boolean first = true;
+            for (Long id : ids) {
+                if (!first)
+                    sb.append(',');
+                sb.append(id.longValue());
+                first = false;
+            }
+            selection = sb.append(')').toString();
+        }
+        ArrayList<ContentProviderOperation> ops = new ArrayList<>();
+        ArrayList<Long> opIds = new ArrayList<>();
+        ArrayList<Integer> opBytes = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = mContentResolver.query(channelsUri, projection, selection, null, null);
+            while (cursor != null && cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                int type = cursor.getType(1);
+                String queryValue = null;
+                if (type == Cursor.FIELD_TYPE_BLOB) {
+                    queryValue = DroidLogicTvUtils.deserializeInternalProviderData(cursor.getBlob(1));
+                } else if (type == Cursor.FIELD_TYPE_STRING) {
+                    queryValue = cursor.getString(1);
+                }
+                if (TextUtils.isEmpty(queryValue)) {
+                    continue;
+                }
+                try {
+                    JSONObject jsonObject = new JSONObject(queryValue);
+                    if (jsonObject.length() == 0) {
+                        continue;
+                    }
+                    String value = transform.transform(id, getInternalProviderValue(jsonObject, key));
+                    if (value == null) {
+                        continue;
+                    }
+                    putInternalProviderValue(jsonObject, key, value);
+                    Object result = type == Cursor.FIELD_TYPE_BLOB
+                            ? DroidLogicTvUtils.serializeInternalProviderData(jsonObject.toString())
+                            : jsonObject.toString();
+                    if (result == null) {
+                        continue;
+                    }
+                    ops.add(ContentProviderOperation.newUpdate(TvContract.buildChannelUri(id))
+                            .withValues(buildSingleChannelInternalProviderData(result))
+                            .build());
+                    opIds.add(id);
+                    opBytes.add(result instanceof byte[] ? ((byte[]) result).length : ((String) result).length() * 2);
+                } catch (JSONException e) {
+                    Log.i(TAG, "updateChannelsInternalProviderData _id:" + id + " JSONException = " + e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "updateChannelsInternalProviderData query failed", e);
+            return -1;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        if (DEBUG)
+            Log.d(TAG, "updateChannelsInternalProviderData key:" + key + " update " + ops.size());
+        int from = 0;
+        while (from < ops.size()) {
+            int to = from;
+            int bytes = 0;
+            while (to < ops.size() && to - from < BATCH_OPERATION_COUNT
+                    && (to == from || bytes + opBytes.get(to) <= EpgOperationBatch.MAX_BATCH_BYTES)) {
+                bytes += opBytes.get(to++);
+            }
+            try {
+                mContentResolver.applyBatch(TvContract.AUTHORITY, new ArrayList<>(ops.subList(from, to)));
+            } catch (RemoteException | OperationApplicationException e) {
+                Log.e(TAG, "Failed to update channels " + from + "-" + to + " of " + ops.size() + ".", e);
+                if (!retry) {
+                    return -1;
+                }
+                int rest = updateChannelsInternalProviderData(inputId, new ArrayList<>(opIds.subList(from, opIds.size())),
+                        key, transform, false);
+                return rest < 0 ? -1 : from + rest;
+            }
+            from = to;
+        }
+        return ops.size();
+    }
+
     private ContentValues buildSingleChannelInternalProviderData(Object obj){
         ContentValues values = new ContentValues();
         if (obj instanceof String) {
@@ -403,7 +596,9 @@ public class TvDataBaseManager {
 
                 if (found) {
                     Uri uri = TvContract.buildChannelUri(rowId);
-                    mContentResolver.update(uri, buildDtvChannelData(channel), null, null);
+                    if (mContentResolver.update(uri, buildDtvChannelData(channel), null, null) > 0) {
+                        indexChannel(uri, channel);
+                    }
                     insertLogo(channel.getLogoUrl(), uri);
                     ret = UPDATE_SUCCESS;
                     break;
@@ -461,7 +656,9 @@ public class TvDataBaseManager {
 
                 if (found) {
                     Uri uri = TvContract.buildChannelUri(rowId);
-                    mContentResolver.update(uri, buildAtvChannelData(channel), null, null);
+                    if (mContentResolver.update(uri, buildAtvChannelData(channel), null, null) > 0) {
+                        indexChannel(uri, channel);
+                    }
                     insertLogo(channel.getLogoUrl(), uri);
                     ret = UPDATE_SUCCESS;
                     break;
@@ -594,6 +791,7 @@ public class TvDataBaseManager {
         Uri channelsUri = TvContract.buildChannelsUriForInput(channel.getInputId());
         channel.setDisplayNumber(channelNumber);
         Uri uri = mContentResolver.insert(TvContract.Channels.CONTENT_URI, buildDtvChannelData(channel));
+        indexChannel(uri, channel);
         insertLogo(channel.getLogoUrl(), uri);
 
         if (DEBUG)
@@ -612,6 +810,7 @@ public class TvDataBaseManager {
         Uri channelsUri = TvContract.buildChannelsUriForInput(channel.getInputId());
         channel.setDisplayNumber(channelNumber);
         Uri uri = mContentResolver.insert(TvContract.Channels.CONTENT_URI, buildAtvChannelData(channel));
+        indexChannel(uri, channel);
         insertLogo(channel.getLogoUrl(), uri);
 
         if (DEBUG)
@@ -837,6 +1036,8 @@ public class TvDataBaseManager {
 
         int deleteCount = 0;
         deleteCount = mContentResolver.delete(channelsUri, Channels._ID + "=?", new String[]{channel.getId() + ""});
+        if (deleteCount > 0)
+            unindexChannel(channel.getInputId(), channel.getId());
 
         if ((deleteCount > 0) && updateChannelNumber) {
             Cursor cursor = null;
@@ -884,6 +1085,7 @@ public class TvDataBaseManager {
            for (ChannelInfo c : channels) {
                Log.d(TAG, "delete:"+c.getId());
                mContentResolver.delete(channelsUri, Channels._ID + "=?", new String[]{c.getId() + ""});
+               unindexChannel(c.getInputId(), c.getId());
        /*        ops.add(ContentProviderOperation.newDelete(
                         TvContract.buildChannelUri(c.getId()))
                         .build()
@@ -910,6 +1112,9 @@ public class TvDataBaseManager {
         int deleteCount = 0;
         deleteCount = mContentResolver.delete(channelsUri, Channels._ID + ">=? and " + Channels._ID + "<=?", new String[]{startID + "", endID + ""});
         Log.d(TAG, "delete continuous: [" + startID + " ~ " + endID + "]");
+        ChannelIdIndex index = getChannelIdIndex(channels.get(0).getInputId());
+        if (index != null)
+            index.removeRange(startID, endID);
 
         if ((deleteCount > 0) && updateChannelNumber) {
             Cursor cursor = null;
@@ -1095,11 +1300,20 @@ public class TvDataBaseManager {
 
     public void updateOrinsertChannelInList(ArrayList<ChannelInfo> updatelist, ArrayList<ChannelInfo> insertlist, boolean isdtv) {
         ArrayList<ContentProviderOperation> ops = new ArrayList<>();
+        ArrayList<ChannelInfo> opChannels = new ArrayList<>();
+        ArrayList<Long> opIds = new ArrayList<>();
+        // without an open store pass, index the channels for this call only
+        ChannelIdIndex index = null;
         if (updatelist != null) {
             for (ChannelInfo one : updatelist) {
                 long id = one.getId();
                 if (id == -1) {
-                    id = queryChannelIdInDb(one);
+                    if (index == null || !TextUtils.equals(index.getInputId(), one.getInputId())) {
+                        index = getChannelIdIndex(one.getInputId());
+                        if (index == null)
+                            index = new ChannelIdIndex(one.getInputId());
+                    }
+                    id = queryChannelIdInDb(one, index);
                     Log.d(TAG, "updateOrinsertChannelInList find id = " + id);
                 }
                 if (id < 0) {
@@ -1107,19 +1321,34 @@ public class TvDataBaseManager {
                 } else {
                     ops.add(creatOperation(isdtv, true, id, one));
                 }
+                opChannels.add(one);
+                opIds.add(id);
                 Log.d(TAG, "updateOrinsertChannelInList add update = " + one.getDisplayNumber());
             }
         }
         if (insertlist != null) {
             for (ChannelInfo one : insertlist) {
                 ops.add(creatOperation(isdtv, false, -1, one));
+                opChannels.add(one);
+                opIds.add(-1L);
                 Log.d(TAG, "updateOrinsertChannelInList add insert = " + one.getDisplayNumber());
             }
         }
         try {
-            mContentResolver.applyBatch(TvContract.AUTHORITY, ops);
+            ContentProviderResult[] results = mContentResolver.applyBatch(TvContract.AUTHORITY, ops);
+            for (int i = 0; results != null && i < results.length && i < opChannels.size(); i++) {
+                ChannelInfo one = opChannels.get(i);
+                ChannelIdIndex opened = getChannelIdIndex(one.getInputId());
+                if (opened == null)
+                    continue;
+                if (results[i].uri != null)
+                    opened.put(ContentUris.parseId(results[i].uri), one);
+                else if (opIds.get(i) >= 0)
+                    opened.put(opIds.get(i), one);
+            }
         } catch (RemoteException | OperationApplicationException e) {
             Log.e(TAG, "updateOrinsertChannelInList Failed = " + e.getMessage());
+            invalidateChannelIdIndex();
         }
         ops.clear();
     }
@@ -1153,6 +1382,10 @@ public class TvDataBaseManager {
     }
 
     public long queryChannelIdInDb(ChannelInfo channel) {
+        return queryChannelIdInDb(channel, channel == null ? null : getChannelIdIndex(channel.getInputId()));
+    }
+
+    private long queryChannelIdInDb(ChannelInfo channel, ChannelIdIndex index) {
         long id = -1;//-1 means not init; -2 means not exist
         if (channel != null) {
              id = channel.getId();
@@ -1162,6 +1395,13 @@ public class TvDataBaseManager {
         } else {
             return id;
         }
+        if (index != null && id == -1) {
+            long indexedId = index.find(mContentResolver, channel);
+            if (indexedId != -1) {
+                return indexedId;
+            }
+            //index could not be loaded, scan the channels below
+        }
         Uri channelsUri = TvContract.buildChannelsUriForInput(channel.getInputId());
         String[] projection = {Channels._ID,
             Channels.COLUMN_SERVICE_ID,
@@ -1296,17 +1536,18 @@ public class TvDataBaseManager {
         try {
             cursor = mContentResolver.query(channelsUri, ChannelInfo.COMMON_PROJECTION, null, null, null);
             ChannelInfo channelInfo = null;
+            CursorPlan plan = cursor != null ? ChannelInfo.getCursorPlan(cursor) : null;
+            int index = cursor != null ? cursor.getColumnIndex(Channels.COLUMN_SERVICE_TYPE) : -1;
             while (cursor != null && cursor.moveToNext()) {
-                int index = cursor.getColumnIndex(Channels.COLUMN_SERVICE_TYPE);
                 Log.d(TAG,"index:"+index+","+ cursor.getString(index)+",srvType:"+srvType);
                 if (srvType.equals(cursor.getString(index))) {
-                    channelInfo = ChannelInfo.fromCommonCursor(cursor);
+                    channelInfo = ChannelInfo.fromCommonCursor(cursor, plan);
                     if (channelInfo == null )
                         continue;
                     if (!need_browserable) {
                         channelList.add(channelInfo);
                     } else {
-                        boolean browserable = cursor.getInt(cursor.getColumnIndex(Channels.COLUMN_BROWSABLE)) == 1 ? true : false;
+                        boolean browserable = channelInfo.isBrowsable();
                         if (browserable) {
                             channelList.add(channelInfo);
                         }
@@ -1349,11 +1590,12 @@ public class TvDataBaseManager {
         try {
             cursor = mContentResolver.query(channelsUri, ChannelInfo.COMMON_PROJECTION, null, null, null);
             ChannelInfo channelInfo = null;
+            CursorPlan plan = cursor != null ? ChannelInfo.getCursorPlan(cursor) : null;
+            int index = cursor != null ? cursor.getColumnIndex(Channels.COLUMN_SERVICE_TYPE) : -1;
             while (cursor != null && cursor.moveToNext()) {
-                int index = cursor.getColumnIndex(Channels.COLUMN_SERVICE_TYPE);
                 Log.d(TAG,"add hide index:"+index+","+ cursor.getString(index)+",srvType:"+srvType);
                 if (srvType.equals(cursor.getString(index))) {
-                    channelInfo = ChannelInfo.fromCommonCursor(cursor);
+                    channelInfo = ChannelInfo.fromCommonCursor(cursor, plan);
                     if (channelInfo == null )
                         continue;
                     boolean hidden = channelInfo.getHidden() > 0 ? true : false;
@@ -1610,6 +1852,7 @@ public class TvDataBaseManager {
         Uri channelsUri = TvContract.buildChannelsUriForInput(channel.getInputId());
         channel.setDisplayNumber(Integer.toString(channelNumber));
         Uri uri = mContentResolver.insert(TvContract.Channels.CONTENT_URI, buildAtvChannelData(channel));
+        indexChannel(uri, channel);
 
         insertLogo(channel.getLogoUrl(), uri);
 
@@ -1681,6 +1924,7 @@ public class TvDataBaseManager {
         Uri channelsUri = TvContract.buildChannelsUriForInput(channel.getInputId());
         channel.setDisplayNumber(Integer.toString(channelNumber));
         Uri uri = mContentResolver.insert(TvContract.Channels.CONTENT_URI, buildDtvChannelData(channel));
+        indexChannel(uri, channel);
         insertLogo(channel.getLogoUrl(), uri);
 
         if (DEBUG)
@@ -1704,8 +1948,9 @@ public class TvDataBaseManager {
                 return channelList;
             }
 
+            CursorPlan plan = ChannelInfo.getCursorPlan(cursor);
             while (cursor.moveToNext())
-                channelList.add(ChannelInfo.fromCommonCursor(cursor));
+                channelList.add(ChannelInfo.fromCommonCursor(cursor, plan));
 
         } catch (Exception e) {
             // TODO: handle exception
@@ -1770,32 +2015,33 @@ public class TvDataBaseManager {
     public boolean updatePrograms(long channelId, List<Program> newPrograms, Long timeUtcMillis) {
         boolean updated = false;
         Log.d(TAG, "updatePrograms epg start-----");
+        // Load the schedule of the channel once and mirror every change in memory, the
+        // resulting operations are applied in order so the provider ends in the same state
+        // as with one query/delete/insert round per program.
+        ProgramTimeline timeline = new ProgramTimeline(getPrograms(TvContract.buildProgramsUriForChannel(channelId)));
+        ArrayList<ContentProviderOperation> ops = new ArrayList<>();
         for (Program p: newPrograms) {
             String sql_start ;
             Program oldProgram = null;
             String sql_query ;
-            Cursor cursor ;
             Log.d(TAG, "updatePrograms epg title:"+p.getTitle()+" des:"+p.getDescription()+" chid:"+p.getChannelId()+" id:"+p.getId()+" start:" + p.getStartTimeUtcMillis() + " end:" + p.getEndTimeUtcMillis());
             if (isATSCSpecialProgram(p))
             {
-                // if (true)
-                //  continue;
-                //sql_query = "(_id=" + p.getId() + ")";
                 sql_query = "(" + TvContract.Programs.COLUMN_CHANNEL_ID + "=" + channelId + ") AND ("+ TvContract.Programs.COLUMN_INTERNAL_PROVIDER_FLAG2 +"=" + p.getProgramId() + ")";
-                cursor =  mContentResolver.query(TvContract.Programs.CONTENT_URI, null, sql_query, null, null);
-                if (cursor != null && cursor.getCount() != 0) {
-                    cursor.moveToNext();
-                    oldProgram = Program.fromCursor(cursor);
-                }
-                if (cursor != null) {
-                    cursor.close();
+                ArrayList<Program> sameEid = timeline.getByEid(p.getProgramId());
+                if (sameEid != null) {
+                    oldProgram = sameEid.get(0);
                 }
                 if (oldProgram != null && !TextUtils.equals(p.getDescription(), oldProgram.getDescription()))
                 {
-                    ContentValues vals = new ContentValues();
-                    vals.put(TvContract.Programs.COLUMN_SHORT_DESCRIPTION, p.getDescription());
+                    for (Program old : sameEid) {
+                        old.setDescription(p.getDescription());
+                    }
                     Log.d(TAG, "updatePrograms sql sql_query:" + sql_query);
-                    mContentResolver.update(TvContract.Programs.CONTENT_URI, vals, sql_query, null);
+                    ops.add(ContentProviderOperation.newUpdate(TvContract.Programs.CONTENT_URI)
+                            .withValue(TvContract.Programs.COLUMN_SHORT_DESCRIPTION, p.getDescription())
+                            .withSelection(sql_query, null)
+                            .build());
                 }
                 else
                 {
@@ -1804,17 +2050,7 @@ public class TvDataBaseManager {
             }
             else
             {
-                 sql_start = TvContract.Programs.COLUMN_START_TIME_UTC_MILLIS + "=" + p.getStartTimeUtcMillis() + " AND " + TvContract.Programs.COLUMN_END_TIME_UTC_MILLIS + " = " +p.getEndTimeUtcMillis();
-                 oldProgram = null;
-                 sql_query = "(" + TvContract.Programs.COLUMN_CHANNEL_ID + "=" + channelId + ") AND (" + sql_start + ")";
-                 cursor =  mContentResolver.query(TvContract.Programs.CONTENT_URI, null, sql_query, null, null);
-                if (cursor != null && cursor.getCount() != 0) {
-                    cursor.moveToNext();
-                    oldProgram = Program.fromCursor(cursor);
-                }
-                if (cursor != null) {
-                    cursor.close();
-                }
+                oldProgram = timeline.get(p.getStartTimeUtcMillis(), p.getEndTimeUtcMillis());
                 if (oldProgram == null || !isProgramEq(oldProgram, p))
                 {
                     sql_start = TvContract.Programs.COLUMN_START_TIME_UTC_MILLIS + "<=" + p.getStartTimeUtcMillis() + " AND " + TvContract.Programs.COLUMN_END_TIME_UTC_MILLIS + " > " +p.getStartTimeUtcMillis();
@@ -1825,8 +2061,13 @@ public class TvDataBaseManager {
                     } else {
                         Log.d(TAG, "updatePrograms not eq insert sql:" + sql_del);
                     }
-                    mContentResolver.delete(TvContract.Programs.CONTENT_URI, sql_del, null);
-                    mContentResolver.insert(TvContract.Programs.CONTENT_URI, p.toContentValues());
+                    ops.add(ContentProviderOperation.newDelete(TvContract.Programs.CONTENT_URI)
+                            .withSelection(sql_del, null)
+                            .build());
+                    ops.add(ContentProviderOperation.newInsert(TvContract.Programs.CONTENT_URI)
+                            .withValues(p.toContentValues())
+                            .build());
+                    timeline.replaceOverlapping(p);
                     updated = isProgramAtTime(p, timeUtcMillis);
                 }
                 else
@@ -1835,29 +2076,173 @@ public class TvDataBaseManager {
                 }
             }
         }
+        applyBatchInChunks(ops);
         Log.d(TAG, "updatePrograms epg end-----");
         return updated;
     }
 
-    private ArrayList<ContentProviderOperation> epg_ops = new ArrayList<>();
+    private boolean applyBatchInChunks(ArrayList<ContentProviderOperation> ops) {
+        for (int from = 0; from < ops.size(); from += BATCH_OPERATION_COUNT) {
+            int to = Math.min(from + BATCH_OPERATION_COUNT, ops.size());
+            try {
+                mContentResolver.applyBatch(TvContract.AUTHORITY, new ArrayList<>(ops.subList(from, to)));
+            } catch (RemoteException | OperationApplicationException e) {
+                Log.e(TAG, "Failed to apply " + ops.size() + " operations.", e);
+                return false;
+            }
+        }
+        return true;
+    }
 
-    public void clearPrograms() {
-        if (epg_ops.size() > 0) {
-            epg_ops.clear();
+    private static LongSparseArray<ArrayList<Program>> indexProgramsByEid(List<Program> programs) {
+        LongSparseArray<ArrayList<Program>> index = new LongSparseArray<>(programs.size());
+        for (Program program : programs) {
+            if (program == null) {
+                continue;
+            }
+            ArrayList<Program> sameEid = index.get(program.getProgramId());
+            if (sameEid == null) {
+                sameEid = new ArrayList<>(1);
+                index.put(program.getProgramId(), sameEid);
+            }
+            sameEid.add(program);
         }
+        return index;
+    }
+
+    /**
+     * In memory copy of the schedule of one channel, indexed by start time and event id.
+     */
+    private static final class ProgramTimeline {
+        private final TreeMap<Long, ArrayList<Program>> mByStart = new TreeMap<>();
+        private final LongSparseArray<ArrayList<Program>> mByEid;
+        private long mMaxDuration = 0;
+
+        ProgramTimeline(List<Program> programs) {
+            mByEid = indexProgramsByEid(programs);
+            for (Program program : programs) {
+                addByStart(program);
+            }
+        }
+
+        ArrayList<Program> getByEid(long eid) {
+            ArrayList<Program> sameEid = mByEid.get(eid);
+            return (sameEid == null || sameEid.isEmpty()) ? null : sameEid;
+        }
+
+        Program get(long start, long end) {
+            ArrayList<Program> sameStart = mByStart.get(start);
+            if (sameStart != null) {
+                for (Program program : sameStart) {
+                    if (program.getEndTimeUtcMillis() == end) {
+                        return program;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * same rows as the sql_del selection of updatePrograms: every program
+         * running at the start or at the end time of the new one is dropped
+         */
+        void replaceOverlapping(Program program) {
+            removeRunningAt(program.getStartTimeUtcMillis());
+            removeRunningAt(program.getEndTimeUtcMillis());
+            addByStart(program);
+            ArrayList<Program> sameEid = mByEid.get(program.getProgramId());
+            if (sameEid == null) {
+                sameEid = new ArrayList<>(1);
+                mByEid.put(program.getProgramId(), sameEid);
+            }
+            sameEid.add(program);
+        }
+
+        private void addByStart(Program program) {
+            if (program == null) {
+                return;
+            }
+            ArrayList<Program> sameStart = mByStart.get(program.getStartTimeUtcMillis());
+            if (sameStart == null) {
+                sameStart = new ArrayList<>(1);
+                mByStart.put(program.getStartTimeUtcMillis(), sameStart);
+            }
+            sameStart.add(program);
+            mMaxDuration = Math.max(mMaxDuration,
+                    program.getEndTimeUtcMillis() - program.getStartTimeUtcMillis());
+        }
+
+        private void removeByEid(Program program) {
+            ArrayList<Program> sameEid = mByEid.get(program.getProgramId());
+            if (sameEid == null) {
+                return;
+            }
+            // Program.equals() matches different rows with the same content, remove this instance only
+            for (int i = 0; i < sameEid.size(); i++) {
+                if (sameEid.get(i) == program) {
+                    sameEid.remove(i);
+                    return;
+                }
+            }
+        }
+
+        private void removeRunningAt(long time) {
+            // only programs starting less than the longest duration ago can still be running
+            Iterator<Map.Entry<Long, ArrayList<Program>>> it =
+                    mByStart.headMap(time, true).descendingMap().entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, ArrayList<Program>> entry = it.next();
+                if (entry.getKey() + mMaxDuration <= time) {
+                    break;
+                }
+                Iterator<Program> programs = entry.getValue().iterator();
+                while (programs.hasNext()) {
+                    Program program = programs.next();
+                    if (program.getEndTimeUtcMillis() > time) {
+                        programs.remove();
+                        removeByEid(program);
+                    }
+                }
+                if (entry.getValue().isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private final EpgOperationBatch mEpgBatch = new EpgOperationBatch(new Runnable() {
+        @Override
+        public void run() {
+            flushPrograms();
+        }
+    });
+
+    public void clearPrograms() {
+        mEpgBatch.clear();
     }
 
     public void flushPrograms() {
-        if (epg_ops.size() > 0) {
+        if (mEpgBatch.isEmpty()) {
+            return;
+        }
+        for (ArrayList<ContentProviderOperation> ops : mEpgBatch.drain()) {
+            long start = SystemClock.uptimeMillis();
             try {
-                mContentResolver.applyBatch(TvContract.AUTHORITY, epg_ops);
+                mContentResolver.applyBatch(TvContract.AUTHORITY, ops);
             } catch (RemoteException | OperationApplicationException e) {
                 Log.e(TAG, "Failed to insert programs.", e);
             }
-            epg_ops.clear();
+            mEpgBatch.onFlushed(ops.size(), SystemClock.uptimeMillis() - start);
         }
     }
 
+    /**
+     * pending epg operations, flush count and applyBatch latency, for debugging
+     */
+    public String dumpEpgStats() {
+        return mEpgBatch.dump();
+    }
+
     public void resetPrograms() {
         clearPrograms();
     }
@@ -1885,10 +2270,6 @@ public class TvDataBaseManager {
 //            Log.d(TAG, "epg todo:cid("+p.getChannelId()+")eid("+p.getProgramId()+")desc("+p.getTitle()+")desc2("+p.getDescription()+")time("+p.getStartTimeUtcMillis()+"-"+p.getEndTimeUtcMillis()+")");
 //        }
 
-        int oldProgramsIndex = 0;
-        int newProgramsIndex = 0;
-        int oldProgramStartIndex = 0;
-
         // Skip the past programs. They will be automatically removed by the system.
         //if (firstNewProgram != null) {
         //    for (Program program : oldPrograms) {
@@ -1898,57 +2279,37 @@ public class TvDataBaseManager {
         //    }
         //}
 
-        // Compare the new programs with old programs one by one and update/delete the old one or
+        // Index the old programs by event id once, so every new program is only compared
+        // with the old ones sharing its event id instead of the whole schedule.
+        LongSparseArray<ArrayList<Program>> oldProgramsByEid = indexProgramsByEid(oldPrograms);
+
+        // Compare the new programs with old programs of the same event id and update the old one or
         // insert new program if there is no matching program in the database.
-        //ArrayList<ContentProviderOperation> ops = new ArrayList<>();
-        while (newProgramsIndex < fetchedProgramsCount) {
-            Program newProgram = newPrograms.get(newProgramsIndex);
-            boolean addNewProgram = false;
-            boolean foundMatchEid = false;
-            for (oldProgramsIndex = oldProgramStartIndex; oldProgramsIndex < oldPrograms.size();oldProgramsIndex++) {
-                Program oldProgram = oldPrograms.get(oldProgramsIndex);
-                    if (oldProgram == null) {
-                    oldProgramsIndex ++;
-                    continue;
-                }
-                if (oldProgram.getProgramId() == newProgram.getProgramId()) {
-                    foundMatchEid = true;
+        for (Program newProgram : newPrograms) {
+            ArrayList<Program> sameEid = oldProgramsByEid.get(newProgram.getProgramId());
+            if (sameEid != null) {
+                for (int i = 0; i < sameEid.size(); i++) {
+                    Program oldProgram = sameEid.get(i);
                     if (isAtsc && isATSCSpecialProgram(newProgram)) {
                         if (!TextUtils.equals(oldProgram.getDescription(), newProgram.getDescription()))
                         {
                             oldProgram.setDescription(newProgram.getDescription());
-                            epg_ops.add(ContentProviderOperation.newUpdate(
-                                    TvContract.Programs.CONTENT_URI)
-                                    .withValues(oldProgram.toContentValues())
-                                    .withSelection("channel_id="+channelId+" and start_time_utc_millis="+oldProgram.getStartTimeUtcMillis(), null)
-                                    .build());
+                            mEpgBatch.addUpdate(channelId, oldProgram.getStartTimeUtcMillis(), oldProgram);
                         }
                     } else if (oldProgram.matchsWithoutDescription(newProgram)
                       || (oldProgram.equals(newProgram))) {
                         //Log.d(TAG, "same program");
                         //just break
                     } else if (needsUpdate(oldProgram, newProgram)) {
-                        epg_ops.add(ContentProviderOperation.newUpdate(
-                                TvContract.Programs.CONTENT_URI)
-                                .withValues(newProgram.toContentValues())
-                                .withSelection("channel_id="+channelId+" and start_time_utc_millis="+oldProgram.getStartTimeUtcMillis(), null)
-                                .build());
-                        oldPrograms.set(oldProgramsIndex, newProgram);
+                        mEpgBatch.addUpdate(channelId, oldProgram.getStartTimeUtcMillis(), newProgram);
+                        sameEid.set(i, newProgram);
                     }
                 }
-            }
-            if ((foundMatchEid == false) && (!isATSCSpecialProgram(newProgram))) {
-                addNewProgram = true;
-            }
-            newProgramsIndex ++;
-
-            if (addNewProgram) {
-                 epg_ops.add(ContentProviderOperation
-                        .newInsert(TvContract.Programs.CONTENT_URI)
-                        .withValues(newProgram.toContentValues())
-                        .build());
-                 oldPrograms.add(oldProgramsIndex, newProgram);
-                 oldProgramsIndex ++;
+            } else if (!isATSCSpecialProgram(newProgram)) {
+                 mEpgBatch.addInsert(channelId, newProgram);
+                 sameEid = new ArrayList<>(1);
+                 sameEid.add(newProgram);
+                 oldProgramsByEid.put(newProgram.getProgramId(), sameEid);
             }
 
             if (!updated) {
@@ -1956,15 +2317,10 @@ public class TvDataBaseManager {
             }
        }
 
-       // Throttle the batch operation not to cause TransactionTooLargeException.
-       if ((epg_ops.size() > 200) || updated) {
-            try {
-                mContentResolver.applyBatch(TvContract.AUTHORITY, epg_ops);
-            } catch (RemoteException | OperationApplicationException e) {
-                Log.e(TAG, "Failed to insert programs.", e);
-                return updated;
-            }
-            epg_ops.clear();
+       // Throttle the batch operation not to cause TransactionTooLargeException,
+       // flush early when the current program changed.
+       if (updated || mEpgBatch.shouldFlush()) {
+            flushPrograms();
        }
        return updated;
     }
@@ -2028,8 +2384,9 @@ public class TvDataBaseManager {
             if (cursor == null || cursor.getCount() == 0) {
                 return programs;
             }
+            CursorPlan plan = Program.getCursorPlan(cursor);
             while (cursor.moveToNext()) {
-                programs.add(Program.fromCursor(cursor));
+                programs.add(Program.fromCursor(cursor, plan));
             }
         } catch (Exception e) {
             Log.w(TAG, "Unable to get programs for " + uri, e);
@@ -2051,8 +2408,9 @@ public class TvDataBaseManager {
             if (cursor == null || cursor.getCount() == 0) {
                 return programs;
             }
+            CursorPlan plan = Program.getCursorPlan(cursor);
             while (cursor.moveToNext()) {
-                programs.add(Program.fromCursor(cursor));
+                programs.add(Program.fromCursor(cursor, plan));
             }
         } catch (Exception e) {
             Log.w(TAG, "Unable to get appointed programs ", e);
@@ -2136,8 +2494,9 @@ public class TvDataBaseManager {
             if (cursor == null || cursor.getCount() == 0) {
                 return programs;
             }
+            CursorPlan plan = Program.getCursorPlan(cursor);
             while (cursor.moveToNext()) {
-                programs.add(Program.fromCursor(cursor));
+                programs.add(Program.fromCursor(cursor, plan));
             }
         } catch (Exception e) {
             Log.w(TAG, "getProgramByTimePeriod Exception = " + e.getMessage());
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2014 Amlogic, Inc. All rights reserved.
+ *
+ * This source code is subject to the terms and conditions defined in the
+ * file 'LICENSE' which is part of this source code package.
+ *
+ * Description: JAVA file
+ */
+
+package com.droidlogic.app.tv;
+
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.SparseArray;
+
+import java.util.ArrayDeque;
+
+import static com.droidlogic.app.tv.TvControlCommand.*;
+
+import vendor.amlogic.hardware.tvserver.V1_0.TvHidlParcel;
+
+/**
+ * Queues of the HAL callbacks waiting for the TvControlManager event looper.
+ *
+ * Callbacks are split by type into a control lane (signal, source, playback, record...), a scan
+ * lane and a data lane (subtitle, cc, epg, vchip...). The looper takes control events first and
+ * scan events before data ones, so a burst of scan or subtitle events does not hold back a signal
+ * change. Events keep their order within a lane. Consecutive scan progress reports that only differ
+ * in percent/strength/quality are merged, and the data lane drops its oldest event when full.
+ * The time each event waits is kept per callback type.
+ */
+class TvEventLanes {
+    public static final int LANE_CONTROL            = 0;
+    public static final int LANE_SCAN               = 1;
+    public static final int LANE_DATA               = 2;
+
+    public static final int MAX_DATA_EVENTS         = 256;
+    // scan events taken in a row before a waiting data event gets its turn
+    public static final int SCAN_EVENTS_PER_DATA    = 4;
+
+    // wait time buckets: <1ms, <2ms, <4ms ... <1024ms, >=1024ms
+    private static final int LATENCY_BUCKETS        = 12;
+
+    private static final String[] LANE_NAMES = {"control", "scan", "data"};
+
+    static final class Event {
+        final int type;
+        TvHidlParcel parcel;
+        final long enqueueTime;
+
+        Event(int type, TvHidlParcel parcel, long enqueueTime) {
+            this.type = type;
+            this.parcel = parcel;
+            this.enqueueTime = enqueueTime;
+        }
+    }
+
+    private static final class Latency {
+        final long[] buckets = new long[LATENCY_BUCKETS];
+        long count;
+        long total;
+        long max;
+    }
+
+    private final ArrayDeque<Event>[] mLanes;
+    private final long[] mMerged = new long[LANE_NAMES.length];
+    private final long[] mDropped = new long[LANE_NAMES.length];
+    private final SparseArray<Latency> mLatency = new SparseArray<>();
+    private boolean mScheduled = false;
+    private int mScanInRow = 0;
+
+    @SuppressWarnings("unchecked")
+    TvEventLanes() {
+        mLanes = new ArrayDeque[LANE_NAMES.length];
+        for (int i = 0; i < mLanes.length; i++) {
+            mLanes[i] = new ArrayDeque<Event>();
+        }
+    }
+
+    public static int laneOf(int type) {
+        switch (type) {
+            case SCAN_EVENT_CALLBACK:
+            case SEARCH_CALLBACK:
+            case SCANNING_FRAME_STABLE_CALLBACK:
+            case SCAN_LCN_CALLBACK:
+                return LANE_SCAN;
+            case SUBTITLE_UPDATE_CALLBACK:
+            case CLOSE_CAPTION_CALLBACK:
+            case EPG_EVENT_CALLBACK:
+            case VFRAME_BMP_EVENT_CALLBACK:
+            case VCHIP_CALLBACK:
+            case RRT_EVENT_CALLBACK:
+                return LANE_DATA;
+            default:
+                return LANE_CONTROL;
+        }
+    }
+
+    /**
+     * queue a callback
+     * @return true if the looper has to be asked to dispatch
+     */
+    public synchronized boolean offer(int type, TvHidlParcel parcel) {
+        int lane = laneOf(type);
+        ArrayDeque<Event> queue = mLanes[lane];
+        Event last = queue.peekLast();
+        if (last != null && last.type == type && isMergeableProgress(last.parcel, parcel)) {
+            // keep the first enqueue time, the report has been waiting since then
+            last.parcel = parcel;
+            mMerged[lane]++;
+        } else {
+            if (lane == LANE_DATA && queue.size() >= MAX_DATA_EVENTS) {
+                queue.pollFirst();
+                mDropped[lane]++;
+            }
+            queue.addLast(new Event(type, parcel, SystemClock.uptimeMillis()));
+        }
+
+        if (mScheduled) {
+            return false;
+        }
+        mScheduled = true;
+        return true;
+    }
+
+    /**
+     * take the next event to dispatch, null once every lane is empty, the looper
+     * has to be asked again by the next offer then
+     */
+    public synchronized Event poll() {
+        Event event = mLanes[LANE_CONTROL].pollFirst();
+        if (event == null) {
+            boolean dataTurn = mScanInRow >= SCAN_EVENTS_PER_DATA && !mLanes[LANE_DATA].isEmpty();
+            if (!dataTurn) {
+                event = mLanes[LANE_SCAN].pollFirst();
+            }
+            if (event != null) {
+                mScanInRow++;
+            } else {
+                event = mLanes[LANE_DATA].pollFirst();
+                mScanInRow = 0;
+            }
+        }
+        if (event == null) {
+            mScheduled = false;
+            return null;
+        }
+
+        long wait = SystemClock.uptimeMillis() - event.enqueueTime;
+        Latency latency = mLatency.get(event.type);
+        if (latency == null) {
+            latency = new Latency();
+            mLatency.put(event.type, latency);
+        }
+        latency.buckets[bucketOf(wait)]++;
+        latency.count++;
+        latency.total += wait;
+        latency.max = Math.max(latency.max, wait);
+        return event;
+    }
+
+    public synchronized void resetStats() {
+        mLatency.clear();
+        for (int i = 0; i < LANE_NAMES.length; i++) {
+            mMerged[i] = 0;
+            mDropped[i] = 0;
+        }
+    }
+
+    public synchronized String dump() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < LANE_NAMES.length; i++) {
+            sb.append(LANE_NAMES[i]).append(" pending:").append(mLanes[i].size())
+                .append(" merged:").append(mMerged[i])
+                .append(" dropped:").append(mDropped[i]).append('\n');
+        }
+        sb.append("wait ms buckets <1,<2,<4..<1024,>=1024\n");
+        for (int i = 0; i < mLatency.size(); i++) {
+            Latency latency = mLatency.valueAt(i);
+            sb.append("type ").append(mLatency.keyAt(i))
+                .append(" [").append(LANE_NAMES[laneOf(mLatency.keyAt(i))]).append("]")
+                .append(" count:").append(latency.count)
+                .append(" avg:").append(latency.total / latency.count)
+                .append(" max:").append(latency.max)
+                .append(" hist:");
+            for (int j = 0; j < LATENCY_BUCKETS; j++) {
+                sb.append(j == 0 ? "" : ",").append(latency.buckets[j]);
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static int bucketOf(long wait) {
+        int bucket = 0;
+        while (wait > 0 && bucket < LATENCY_BUCKETS - 1) {
+            wait >>= 1;
+            bucket++;
+        }
+        return bucket;
+    }
+
+    /**
+     * true if next only refreshes the percent, strength or quality of a queued scan progress report,
+     * a report naming a service found is always delivered
+     */
+    // a scan event names the service it found in its first body string, programName
+    private static boolean hasProgramName(TvHidlParcel parcel) {
+        return !parcel.bodyString.isEmpty() && !TextUtils.isEmpty(parcel.bodyString.get(0));
+    }
+
+    private static boolean isMergeableProgress(TvHidlParcel queued, TvHidlParcel next) {
+        if (queued.msgType != SCAN_EVENT_CALLBACK || next.msgType != SCAN_EVENT_CALLBACK
+                || queued.bodyInt.size() < 13 || next.bodyInt.size() < 13
+                || hasProgramName(queued) || hasProgramName(next)) {
+            return false;
+        }
+        int type = next.bodyInt.get(0);
+        if (type != TvControlManager.EVENT_SCAN_PROGRESS && type != TvControlManager.EVENT_BLINDSCAN_PROGRESS) {
+            return false;
+        }
+        // same scan type, lock state, frequency and mode
+        return queued.bodyInt.get(0).intValue() == type
+            && queued.bodyInt.get(3).intValue() == next.bodyInt.get(3).intValue()
+            && queued.bodyInt.get(5).intValue() == next.bodyInt.get(5).intValue()
+            && queued.bodyInt.get(12).intValue() == next.bodyInt.get(12).intValue();
+    }
+}
@@ -10,9 +10,15 @@
 package com.droidlogic.app.tv;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 import android.util.Log;
 import android.os.Bundle;
@@ -70,6 +76,96 @@ public abstract class TvStoreManager {
     private int lcn_overflow_start;
     private int display_number_start;
 
+    //indexes used while numbering the channels of a store pass, see storeTvChannel
+    private HashMap<String, ArrayList<TvControlManager.ScannerLcnInfo>> mLcnInfoIndex = null;
+    private int mLcnInfoIndexed = 0;
+    private HashSet<Long> mOldChannelIds = null;
+    private HashMap<String, ChannelInfo> mOldChannelsByService = null;
+    private ChannelLcnIndex mStoredLcnIndex = null;
+    private ChannelLcnIndex mDbLcnIndex = null;
+
+    /**
+     * Channels by LCN, keeping for each LCN the order in which the channels were added,
+     * so lookups return the same channel as a scan of the channel list would.
+     */
+    private static final class ChannelLcnIndex {
+        private final TreeMap<Integer, ArrayList<ChannelInfo>> mByLcn = new TreeMap<>();
+        private final IdentityHashMap<ChannelInfo, Integer> mOrder = new IdentityHashMap<>();
+        private final IdentityHashMap<ChannelInfo, Integer> mIndexedLcn = new IdentityHashMap<>();
+
+        ChannelLcnIndex() {
+        }
+
+        ChannelLcnIndex(ArrayList<ChannelInfo> channels) {
+            for (ChannelInfo c : channels)
+                add(c);
+        }
+
+        void add(ChannelInfo c) {
+            if (mOrder.containsKey(c)) {
+                update(c);
+                return;
+            }
+            mOrder.put(c, mOrder.size());
+            mIndexedLcn.put(c, c.getLCN());
+            ArrayList<ChannelInfo> list = mByLcn.get(c.getLCN());
+            if (list == null) {
+                list = new ArrayList<>();
+                mByLcn.put(c.getLCN(), list);
+            }
+            list.add(c);
+        }
+
+        //file the channel again after its LCN was changed
+        void update(ChannelInfo c) {
+            Integer oldLcn = mIndexedLcn.get(c);
+            if (oldLcn == null) {
+                add(c);
+                return;
+            }
+            if (oldLcn == c.getLCN())
+                return;
+
+            ArrayList<ChannelInfo> list = mByLcn.get(oldLcn);
+            if (list != null) {
+                for (int i = 0; i < list.size(); i++) {
+                    if (list.get(i) == c) {
+                        list.remove(i);
+                        break;
+                    }
+                }
+                if (list.isEmpty())
+                    mByLcn.remove(oldLcn);
+            }
+
+            list = mByLcn.get(c.getLCN());
+            if (list == null) {
+                list = new ArrayList<>();
+                mByLcn.put(c.getLCN(), list);
+            }
+            int order = mOrder.get(c);
+            int pos = list.size();
+            while (pos > 0 && mOrder.get(list.get(pos - 1)) > order)
+                pos--;
+            list.add(pos, c);
+            mIndexedLcn.put(c, c.getLCN());
+        }
+
+        ChannelInfo first(int lcn) {
+            ArrayList<ChannelInfo> list = mByLcn.get(lcn);
+            return (list == null || list.isEmpty()) ? null : list.get(0);
+        }
+
+        ChannelInfo last(int lcn) {
+            ArrayList<ChannelInfo> list = mByLcn.get(lcn);
+            return (list == null || list.isEmpty()) ? null : list.get(list.size() - 1);
+        }
+
+        TreeMap<Integer, ArrayList<ChannelInfo>> byLcn() {
+            return mByLcn;
+        }
+    }
+
     public TvStoreManager(Context context, String inputId, int initialDisplayNumber) {
         Log.d(TAG, "inputId["+inputId+"] initialDisplayNumber["+initialDisplayNumber+"]");
 
@@ -146,25 +242,34 @@ public abstract class TvStoreManager {
         bundle.putInt(DroidLogicTvUtils.SIG_INFO_C_SERVICEiD, mEvent.serviceID);
         bundle.putInt(DroidLogicTvUtils.SIG_INFO_C_VID, mEvent.vid);
         bundle.putInt(DroidLogicTvUtils.SIG_INFO_C_VFMT, mEvent.vfmt);
-        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_AIDS, mEvent.aids);
-        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_AFMTS, mEvent.afmts);
-        bundle.putStringArray(DroidLogicTvUtils.SIG_INFO_C_ALANGS, mEvent.alangs);
-        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_ATYPES, mEvent.atypes);
-        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_AEXTS, mEvent.aexts);
+        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_AIDS, copyOf(mEvent.aids, mEvent.audioCount));
+        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_AFMTS, copyOf(mEvent.afmts, mEvent.audioCount));
+        bundle.putStringArray(DroidLogicTvUtils.SIG_INFO_C_ALANGS, copyOf(mEvent.alangs, mEvent.audioCount));
+        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_ATYPES, copyOf(mEvent.atypes, mEvent.audioCount));
+        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_AEXTS, copyOf(mEvent.aexts, mEvent.audioCount));
         bundle.putInt(DroidLogicTvUtils.SIG_INFO_C_PCR, mEvent.pcr);
 
-        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_STYPES, mEvent.stypes);
-        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_SIDS, mEvent.sids);
-        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_SSTYPES, mEvent.sstypes);
-        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_SID1S, mEvent.sid1s);
-        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_SID2S, mEvent.sid2s);
-        bundle.putStringArray(DroidLogicTvUtils.SIG_INFO_C_SLANGS, mEvent.slangs);
+        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_STYPES, copyOf(mEvent.stypes, mEvent.subtitleCount));
+        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_SIDS, copyOf(mEvent.sids, mEvent.subtitleCount));
+        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_SSTYPES, copyOf(mEvent.sstypes, mEvent.subtitleCount));
+        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_SID1S, copyOf(mEvent.sid1s, mEvent.subtitleCount));
+        bundle.putIntArray(DroidLogicTvUtils.SIG_INFO_C_SID2S, copyOf(mEvent.sid2s, mEvent.subtitleCount));
+        bundle.putStringArray(DroidLogicTvUtils.SIG_INFO_C_SLANGS, copyOf(mEvent.slangs, mEvent.subtitleCount));
 
         bundle.putInt(DroidLogicTvUtils.SIG_INFO_C_DISPLAYNUM, -1);
 
         return bundle;
     }
 
+    // a recycled event refills its arrays for the next one and may keep them longer than the count
+    private static int[] copyOf(int[] array, int count) {
+        return (array == null || count <= 0) ? null : Arrays.copyOf(array, count);
+    }
+
+    private static String[] copyOf(String[] array, int count) {
+        return (array == null || count <= 0) ? null : Arrays.copyOf(array, count);
+    }
+
     private Bundle getDisplayNumBunlde(int displayNum) {
         Bundle bundle = new Bundle();
         bundle.putInt(DroidLogicTvUtils.SIG_INFO_C_DISPLAYNUM, displayNum);
@@ -182,6 +287,8 @@ public abstract class TvStoreManager {
         mDisplayNumber2 = new Integer(mInitialDisplayNumber);
         isFinalStoreStage = false;
         isRealtimeStore = true;
+        //channel lookups of this scan are served from an index of the existing channels
+        mTvDataBaseManager.openChannelIdIndex(mInputId);
 
         Bundle bundle = null;
         bundle = getScanEventBundle(event);
@@ -206,6 +313,7 @@ public abstract class TvStoreManager {
             mDisplayNumber = getMaxDisplayNumber(mChannelsOld) + 1;
             mDisplayNumber2 = new Integer(mDisplayNumber);
             mChannelsOld.addAll(mTvDataBaseManager.getChannelList(mInputId, TvContract.Channels.SERVICE_TYPE_OTHER));
+            invalidateOldChannelIndex();
             Log.d(TAG, "Store> channel next:" + mDisplayNumber);
         }
         if (mChannelsAll == null) {
@@ -410,6 +518,7 @@ public abstract class TvStoreManager {
                 if (c.getFrequency() != channel.getFrequency())
                     iter.remove();
             }
+            invalidateOldChannelIndex();
         }
     }
 
@@ -492,6 +601,9 @@ public abstract class TvStoreManager {
         if (list == null)
             return false;
 
+        if (list == mChannelsOld)
+            return isOldChannel(channel);
+
         for (ChannelInfo c : list)
             if (c.getId() == channel.getId())
                 return true;
@@ -499,6 +611,79 @@ public abstract class TvStoreManager {
         return false;
     }
 
+    private static String serviceKey(int networkId, int tsId, int serviceId) {
+        return networkId + ":" + tsId + ":" + serviceId;
+    }
+
+    private void invalidateOldChannelIndex() {
+        mOldChannelIds = null;
+        mOldChannelsByService = null;
+    }
+
+    private void indexOldChannels() {
+        if (mOldChannelIds != null || mChannelsOld == null)
+            return;
+
+        mOldChannelIds = new HashSet<>();
+        mOldChannelsByService = new HashMap<>();
+        for (ChannelInfo c : mChannelsOld) {
+            mOldChannelIds.add(c.getId());
+            //the last one of a service wins, as in a scan of the list
+            mOldChannelsByService.put(serviceKey(c.getOriginalNetworkId(), c.getTransportStreamId(), c.getServiceId()), c);
+        }
+    }
+
+    private boolean isOldChannel(ChannelInfo channel) {
+        if (mChannelsOld == null)
+            return false;
+        indexOldChannels();
+        return mOldChannelIds.contains(channel.getId());
+    }
+
+    private ChannelInfo findOldChannelByService(ChannelInfo channel) {
+        if (mChannelsOld == null)
+            return null;
+        indexOldChannels();
+        return mOldChannelsByService.get(
+            serviceKey(channel.getOriginalNetworkId(), channel.getTransportStreamId(), channel.getServiceId()));
+    }
+
+    private ArrayList<TvControlManager.ScannerLcnInfo> findLcnInfo(ChannelInfo channel) {
+        if (mLcnInfo == null)
+            return null;
+
+        //lcn info is only appended during a scan, or cleared
+        if (mLcnInfoIndex == null || mLcnInfoIndexed > mLcnInfo.size()) {
+            mLcnInfoIndex = new HashMap<>();
+            mLcnInfoIndexed = 0;
+        }
+        for (; mLcnInfoIndexed < mLcnInfo.size(); mLcnInfoIndexed++) {
+            TvControlManager.ScannerLcnInfo l = mLcnInfo.get(mLcnInfoIndexed);
+            String key = serviceKey(l.netId, l.tsId, l.serviceId);
+            ArrayList<TvControlManager.ScannerLcnInfo> infos = mLcnInfoIndex.get(key);
+            if (infos == null) {
+                infos = new ArrayList<>(1);
+                mLcnInfoIndex.put(key, infos);
+            }
+            infos.add(l);
+        }
+        return mLcnInfoIndex.get(
+            serviceKey(channel.getOriginalNetworkId(), channel.getTransportStreamId(), channel.getServiceId()));
+    }
+
+    //LCN index of the channels stored so far in this pass, or of the channels in the database
+    private ChannelLcnIndex getLcnIndex(ArrayList<ChannelInfo> channels) {
+        if (channels != null) {
+            if (mStoredLcnIndex == null)
+                mStoredLcnIndex = new ChannelLcnIndex(channels);
+            return mStoredLcnIndex;
+        }
+        if (mDbLcnIndex == null)
+            mDbLcnIndex = new ChannelLcnIndex(mTvDataBaseManager.getChannelList(mInputId, ChannelInfo.COMMON_PROJECTION,
+                    null, null));
+        return mDbLcnIndex;
+    }
+
     private void updateChannelNumber(ChannelInfo channel) {
         updateChannelNumber(channel, null);
     }
@@ -532,14 +717,11 @@ public abstract class TvStoreManager {
         }
 
         if (mChannelsOld != null) {//may only in manual search
-            for (ChannelInfo c : mChannelsOld) {
-                if ((c.getOriginalNetworkId() == channel.getOriginalNetworkId())
-                    && (c.getTransportStreamId() == channel.getTransportStreamId())
-                    && (c.getServiceId() == channel.getServiceId())) {
-                    //same freq, reuse number if old channel is identical
-                    Log.d(TAG, "found num:" + c.getDisplayNumber() + " by same old service["+c.getOriginalNetworkId()+":"+c.getTransportStreamId()+":"+c.getServiceId()+"]");
-                    number = c.getNumber();
-                }
+            ChannelInfo c = findOldChannelByService(channel);
+            if (c != null) {
+                //same freq, reuse number if old channel is identical
+                Log.d(TAG, "found num:" + c.getDisplayNumber() + " by same old service["+c.getOriginalNetworkId()+":"+c.getTransportStreamId()+":"+c.getServiceId()+"]");
+                number = c.getNumber();
             }
         }
 
@@ -580,19 +762,24 @@ public abstract class TvStoreManager {
         int lcn_2 = -1;
         boolean visible = true;
         boolean swapped = false;
-        boolean findDisNum = true;
 
-        ArrayList<ChannelInfo> chs = null;
+        ChannelLcnIndex lcnIndex = getLcnIndex(channels);
 
         if (!ignoreDBCheck) {
-            if (channels != null)
-                chs = channels;
-            else
-                chs = mTvDataBaseManager.getChannelList(mInputId, ChannelInfo.COMMON_PROJECTION,
-                        null, null);
-            for (ChannelInfo c : chs) {
-                if ((c.getLCN() >= lcn_overflow_start) && !isChannelInListbyId(c, mChannelsOld)) {
-                    lcn_overflow_start = c.getLCN() + 1;
+            //overflow starts after the highest lcn in use, not counting those will be deleted
+            for (Map.Entry<Integer, ArrayList<ChannelInfo>> entry : lcnIndex.byLcn().descendingMap().entrySet()) {
+                if (entry.getKey() < lcn_overflow_start)
+                    break;
+                boolean inUse = false;
+                for (ChannelInfo c : entry.getValue()) {
+                    if (!isOldChannel(c)) {
+                        inUse = true;
+                        break;
+                    }
+                }
+                if (inUse) {
+                    lcn_overflow_start = entry.getKey() + 1;
+                    break;
                 }
             }
         }
@@ -606,58 +793,45 @@ public abstract class TvStoreManager {
             return;
         }
 
-        if (mLcnInfo != null) {
-            for (TvControlManager.ScannerLcnInfo l : mLcnInfo) {
-                if ((l.netId == channel.getOriginalNetworkId())
-                    && (l.tsId == channel.getTransportStreamId())
-                    && (l.serviceId == channel.getServiceId())) {
-
-                    Log.d(TAG, "lcn found:");
-                    Log.d(TAG, "\tlcn[0:"+l.lcn[0]+":"+l.visible[0]+":"+l.valid[0]+"]");
-                    Log.d(TAG, "\tlcn[1:"+l.lcn[1]+":"+l.visible[1]+":"+l.valid[1]+"]");
-
-                    // lcn found, use lcn[0] by default.
-                    lcn_1 = l.valid[0] == 0 ? -1 : l.lcn[0];
-                    lcn_2 = l.valid[1] == 0 ? -1 : l.lcn[1];
-                    lcn = lcn_1;
-                    visible = l.visible[0] == 0 ? false : true;
-
-                    if ((lcn_1 != -1) && (lcn_2 != -1) && !ignoreDBCheck) {
-                        // check for lcn already exist just on Maunual Scan
-                        // look for service with sdlcn equal to l's hdlcn, if found, change the service's lcn to it's hdlcn
-                        ChannelInfo ch = null;
-                        if (channels != null) {
-                            for (ChannelInfo c : channels) {
-                                if (c.getLCN() == lcn_2)
-                                    ch = c;
-                            }
-                        } else {
-                            chs = mTvDataBaseManager.getChannelList(mInputId, ChannelInfo.COMMON_PROJECTION,
-                                    ChannelInfo.COLUMN_LCN+"=?",
-                                    new String[]{String.valueOf(lcn_2)});
-                            if (chs.size() > 0) {
-                                if (chs.size() > 1)
-                                    Log.d(TAG, "Warning: found " + chs.size() + "channels with lcn="+lcn_2);
-                                ch = chs.get(0);
-                            }
-                        }
-                        if ((ch != null) && !isChannelInListbyId(ch, mChannelsOld)) {// do not check those will be deleted.
-                            Log.d(TAG, "swap exist lcn["+ch.getLCN()+"] -> ["+ch.getLCN2()+"]");
-                            Log.d(TAG, "\t for Service["+ch.getOriginalNetworkId()+":"+ch.getTransportStreamId()+":"+ch.getServiceId()+"]");
-
-                            ch.setLCN(ch.getLCN2());
-                            ch.setLCN1(ch.getLCN2());
-                            ch.setLCN2(lcn_2);
-                            if (channels == null)
-                                mTvDataBaseManager.updateChannelInfo(ch);
-
-                            swapped = true;
-                        }
-                    } else if (lcn_1 == -1) {
-                        lcn = lcn_2;
-                        visible = l.visible[1] == 0 ? false : true;
-                        Log.d(TAG, "lcn[0] invalid, use lcn[1]");
+        ArrayList<TvControlManager.ScannerLcnInfo> lcnInfos = findLcnInfo(channel);
+        if (lcnInfos != null) {
+            for (TvControlManager.ScannerLcnInfo l : lcnInfos) {
+                Log.d(TAG, "lcn found:");
+                Log.d(TAG, "\tlcn[0:"+l.lcn[0]+":"+l.visible[0]+":"+l.valid[0]+"]");
+                Log.d(TAG, "\tlcn[1:"+l.lcn[1]+":"+l.visible[1]+":"+l.valid[1]+"]");
+
+                // lcn found, use lcn[0] by default.
+                lcn_1 = l.valid[0] == 0 ? -1 : l.lcn[0];
+                lcn_2 = l.valid[1] == 0 ? -1 : l.lcn[1];
+                lcn = lcn_1;
+                visible = l.visible[0] == 0 ? false : true;
+
+                if ((lcn_1 != -1) && (lcn_2 != -1) && !ignoreDBCheck) {
+                    // check for lcn already exist just on Maunual Scan
+                    // look for service with sdlcn equal to l's hdlcn, if found, change the service's lcn to it's hdlcn
+                    ChannelInfo ch = null;
+                    if (channels != null) {
+                        ch = lcnIndex.last(lcn_2);
+                    } else {
+                        ch = lcnIndex.first(lcn_2);
+                    }
+                    if ((ch != null) && !isOldChannel(ch)) {// do not check those will be deleted.
+                        Log.d(TAG, "swap exist lcn["+ch.getLCN()+"] -> ["+ch.getLCN2()+"]");
+                        Log.d(TAG, "\t for Service["+ch.getOriginalNetworkId()+":"+ch.getTransportStreamId()+":"+ch.getServiceId()+"]");
+
+                        ch.setLCN(ch.getLCN2());
+                        ch.setLCN1(ch.getLCN2());
+                        ch.setLCN2(lcn_2);
+                        lcnIndex.update(ch);
+                        if (channels == null)
+                            mTvDataBaseManager.updateChannelInfo(ch);
+
+                        swapped = true;
                     }
+                } else if (lcn_1 == -1) {
+                    lcn = lcn_2;
+                    visible = l.visible[1] == 0 ? false : true;
+                    Log.d(TAG, "lcn[0] invalid, use lcn[1]");
                 }
             }
         }
@@ -669,22 +843,12 @@ public abstract class TvStoreManager {
             if (lcn >= 0) {
                 ChannelInfo ch = null;
                 if (channels != null) {
-                    for (ChannelInfo c : channels) {
-                        if (c.getLCN() == lcn)
-                            ch = c;
-                    }
+                    ch = lcnIndex.last(lcn);
                 } else {
-                    chs = mTvDataBaseManager.getChannelList(mInputId, ChannelInfo.COMMON_PROJECTION,
-                            ChannelInfo.COLUMN_LCN+"=?",
-                            new String[]{String.valueOf(lcn)});
-                    if (chs.size() > 0) {
-                        if (chs.size() > 1)
-                            Log.d(TAG, "Warning: found " + chs.size() + "channels with lcn="+lcn);
-                        ch = chs.get(0);
-                    }
+                    ch = lcnIndex.first(lcn);
                 }
                 if (ch != null) {
-                    if (!isChannelInListbyId(ch, mChannelsOld)) {//do not check those will be deleted.
+                    if (!isOldChannel(ch)) {//do not check those will be deleted.
                         Log.d(TAG, "found lcn conflct:" + lcn + " by service["+ch.getOriginalNetworkId()+":"+ch.getTransportStreamId()+":"+ch.getServiceId()+"]");
                         lcn = lcn_overflow_start++;
                     }
@@ -692,30 +856,21 @@ public abstract class TvStoreManager {
             } else {
                 Log.d(TAG, "no LCN info found for service");
                 if (mChannelsOld != null) {//may only in manual search
-                    for (ChannelInfo c : mChannelsOld) {
-                        if ((c.getOriginalNetworkId() == channel.getOriginalNetworkId())
-                            && (c.getTransportStreamId() == channel.getTransportStreamId())
-                            && (c.getServiceId() == channel.getServiceId())) {
-                            //same freq, reuse lcn if old channel is identical
-                            Log.d(TAG, "found lcn:" + c.getLCN() + " by same old service["+c.getOriginalNetworkId()+":"+c.getTransportStreamId()+":"+c.getServiceId()+"]");
-                            lcn = c.getLCN();
-                        }
+                    ChannelInfo c = findOldChannelByService(channel);
+                    if (c != null) {
+                        //same freq, reuse lcn if old channel is identical
+                        Log.d(TAG, "found lcn:" + c.getLCN() + " by same old service["+c.getOriginalNetworkId()+":"+c.getTransportStreamId()+":"+c.getServiceId()+"]");
+                        lcn = c.getLCN();
                     }
                 }
                 //service totally new
                 if (lcn < 0) {
-                    if (mScanMode.isDTVManulScan()) {
-                        while (findDisNum && mChannelsExist != null) {
-                            findDisNum = false;
-                            for (ChannelInfo c : mChannelsExist) {
-                                if (lcn_overflow_start == c.getLCN()) {
-                                    findDisNum = true;
-                                    break;
-                                }
-                            }
-                            if (findDisNum)
-                                lcn_overflow_start++;
-                        }
+                    if (mScanMode.isDTVManulScan() && mChannelsExist != null) {
+                        HashSet<Integer> existLcns = new HashSet<>();
+                        for (ChannelInfo c : mChannelsExist)
+                            existLcns.add(c.getLCN());
+                        while (existLcns.contains(lcn_overflow_start))
+                            lcn_overflow_start++;
                     }
                     lcn = lcn_overflow_start++;
                 }
@@ -728,8 +883,10 @@ public abstract class TvStoreManager {
         channel.setLCN1(lcn_1);
         channel.setLCN2(lcn_2);
 
-        if (channels != null)
+        if (channels != null) {
             channels.add(channel);
+            lcnIndex.add(channel);
+        }
     }
 
     private void storeTvChannel(boolean isRealtimeStore, boolean isFinalStore) {
@@ -757,6 +914,8 @@ public abstract class TvStoreManager {
             });
 
             ArrayList<ChannelInfo> mChannels = new ArrayList();
+            mStoredLcnIndex = null;
+            mDbLcnIndex = null;
 
             for (ChannelInfo c : mChannelsNew) {
 
@@ -793,6 +952,8 @@ public abstract class TvStoreManager {
                         mTvDataBaseManager.insertAtvChannel(c, c.getDisplayNumber());
                     else
                         mTvDataBaseManager.insertDtvChannel(c, c.getDisplayNumber());
+                    if (mDbLcnIndex != null)
+                        mDbLcnIndex.add(c);
                 }
 
                 /*Log.d(TAG, ((isRealtimeStore) ? "update/insert [" : "insert [") + c.getDisplayNumber()
@@ -824,6 +985,9 @@ public abstract class TvStoreManager {
         mChannelsOld = null;
         mChannelsNew = null;
         mChannelsExist = null;
+        mStoredLcnIndex = null;
+        mDbLcnIndex = null;
+        invalidateOldChannelIndex();
     }
 
     private ArrayList<ChannelInfo> getNeedUpdateChannel(ArrayList<ChannelInfo> list) {
@@ -941,6 +1105,8 @@ public abstract class TvStoreManager {
         return physicalNum;
     }
     public void onStoreEvent(TvControlManager.ScannerEvent event) {
+        //a recycled event must stay valid until the store thread is done with it
+        event.retain();
         sendStoreEvent(event);
     }
 
@@ -972,7 +1138,7 @@ public abstract class TvStoreManager {
 
             if (mLcnInfo == null)
                 mLcnInfo = new ArrayList<TvControlManager.ScannerLcnInfo>();
-            mLcnInfo.add(event.lcnInfo);
+            mLcnInfo.add(event.detachArrays().lcnInfo);
             Log.d(TAG, "Lcn["+event.lcnInfo.netId+":"+event.lcnInfo.tsId+":"+event.lcnInfo.serviceId+"]");
             Log.d(TAG, "\t[0:"+event.lcnInfo.lcn[0]+":"+event.lcnInfo.visible[0]+":"+event.lcnInfo.valid[0]+"]");
             Log.d(TAG, "\t[1:"+event.lcnInfo.lcn[1]+":"+event.lcnInfo.visible[1]+":"+event.lcnInfo.valid[1]+"]");
@@ -980,6 +1146,8 @@ public abstract class TvStoreManager {
 
         case TvControlManager.EVENT_DTV_PROG_DATA:
             Log.d(TAG, "dtv prog data");
+            //the channel keeps the pid and language arrays
+            event.detachArrays();
 
             checkOrPatchBeginLost(event);
 
@@ -1061,6 +1229,7 @@ public abstract class TvStoreManager {
 
         case TvControlManager.EVENT_ATV_PROG_DATA:
             Log.d(TAG, "atv prog data");
+            event.detachArrays();
             checkOrPatchBeginLost(event);
 
             if (isFinalStoreStage && !mScanMode.isATVManualScan())
@@ -1167,6 +1336,7 @@ public abstract class TvStoreManager {
 
             mScanMode = null;
             mChannelsAll = null;
+            mTvDataBaseManager.closeChannelIdIndex();
 
             //onScanExit(event.freq);
 
@@ -1183,7 +1353,12 @@ public abstract class TvStoreManager {
     private class ChildCallback implements Handler.Callback {
         @Override
         public boolean handleMessage(Message msg) {
-            dealStoreEvent((TvControlManager.ScannerEvent)msg.obj);
+            TvControlManager.ScannerEvent event = (TvControlManager.ScannerEvent)msg.obj;
+            try {
+                dealStoreEvent(event);
+            } finally {
+                event.recycle();
+            }
             return false;
         }
     }